@@ -0,0 +1,108 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The quality values an {@code Accept-Encoding} header assigns to the content encodings that can be produced by
+ * {@link HttpContentCompressor} and {@link HttpPrecompressedFileHandler}. A value of {@code -1} means the encoding is
+ * not mentioned in the header.
+ */
+final class HttpAcceptEncoding {
+
+    float starQ = -1.0f;
+    float brQ = -1.0f;
+    float zstdQ = -1.0f;
+    float gzipQ = -1.0f;
+    float deflateQ = -1.0f;
+
+    private HttpAcceptEncoding() {
+    }
+
+    static HttpAcceptEncoding parse(String acceptEncoding) {
+        HttpAcceptEncoding accept = new HttpAcceptEncoding();
+        for (String encoding : acceptEncoding.split(",")) {
+            float q = 1.0f;
+            int equalsPos = encoding.indexOf('=');
+            if (equalsPos != -1) {
+                try {
+                    q = Float.parseFloat(encoding.substring(equalsPos + 1));
+                } catch (NumberFormatException e) {
+                    // Ignore encoding
+                    q = 0.0f;
+                }
+            }
+            if (encoding.contains("*")) {
+                accept.starQ = q;
+            } else if (encoding.contains("br") && q > accept.brQ) {
+                accept.brQ = q;
+            } else if (encoding.contains("zstd") && q > accept.zstdQ) {
+                accept.zstdQ = q;
+            } else if (encoding.contains("gzip") && q > accept.gzipQ) {
+                accept.gzipQ = q;
+            } else if (encoding.contains("deflate") && q > accept.deflateQ) {
+                accept.deflateQ = q;
+            }
+        }
+        return accept;
+    }
+
+    /**
+     * Returns the quality value of the given encoding, taking {@code *} into account, or {@code 0} if the encoding
+     * is not acceptable.
+     */
+    @SuppressWarnings("FloatingPointEquality")
+    float quality(String encoding) {
+        float q;
+        if ("br".equals(encoding)) {
+            q = brQ;
+        } else if ("zstd".equals(encoding)) {
+            q = zstdQ;
+        } else if ("gzip".equals(encoding)) {
+            q = gzipQ;
+        } else if ("deflate".equals(encoding)) {
+            q = deflateQ;
+        } else {
+            q = -1.0f;
+        }
+        return q == -1.0f ? Math.max(starQ, 0.0f) : q;
+    }
+
+    /**
+     * Returns the acceptable encodings out of the given ones, ordered by their quality value and then by their
+     * order in {@code encodings}.
+     */
+    List<String> acceptable(List<String> encodings) {
+        List<String> result = new ArrayList<String>(encodings.size());
+        List<Float> qualities = new ArrayList<Float>(encodings.size());
+        for (String encoding : encodings) {
+            float q = quality(encoding);
+            if (q <= 0.0f) {
+                continue;
+            }
+            // Insertion sort, keeps the order of encodings with the same quality value.
+            int i = result.size();
+            while (i > 0 && qualities.get(i - 1) < q) {
+                i--;
+            }
+            result.add(i, encoding);
+            qualities.add(i, q);
+        }
+        return result;
+    }
+}
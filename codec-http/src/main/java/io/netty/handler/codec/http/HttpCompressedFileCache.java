@@ -0,0 +1,403 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.Brotli;
+import io.netty.handler.codec.compression.BrotliEncoder;
+import io.netty.handler.codec.compression.BrotliOptions;
+import io.netty.handler.codec.compression.CompressionOptions;
+import io.netty.handler.codec.compression.GzipOptions;
+import io.netty.handler.codec.compression.StandardCompressionOptions;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.compression.Zstd;
+import io.netty.handler.codec.compression.ZstdEncoder;
+import io.netty.handler.codec.compression.ZstdOptions;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An off-heap LRU cache of the compressed representations of files, used by {@link HttpPrecompressedFileHandler}.
+ * <p>
+ * Entries are keyed by the path and the last modification time of a file and the content encoding, so a modified file
+ * is never served from a stale entry. Once a newer version of a file is cached the entries of the previous one are
+ * dropped. If a sibling file with the suffix of the encoding ({@code .br}, {@code .gz} or
+ * {@code .zst}) exists and is at least as recent as the file itself its content is cached as is, otherwise the file
+ * is compressed once and the result is cached.
+ * <p>
+ * An instance is thread-safe and is usually shared between all {@link HttpPrecompressedFileHandler}s. Once it is not
+ * needed anymore {@link #clear()} should be called to release the cached buffers.
+ */
+@UnstableApi
+public final class HttpCompressedFileCache {
+
+    private static final int DEFAULT_MAX_FILE_SIZE = 4 * 1024 * 1024;
+    private static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    private final long maxCachedBytes;
+    private final int maxFileSize;
+    private final int maxEntries;
+    private final BrotliOptions brotliOptions;
+    private final ZstdOptions zstdOptions;
+    private final GzipOptions gzipOptions;
+    private final List<String> encodings;
+    private final Map<Key, ByteBuf> entries = new LinkedHashMap<Key, ByteBuf>(16, 0.75f, true);
+    // The last modification time of the cached version of each path, guarded by entries.
+    private final Map<String, Long> lastModifiedByPath = new HashMap<String, Long>();
+    private long usedBytes;
+
+    private final LongCounter hits = PlatformDependent.newLongCounter();
+    private final LongCounter misses = PlatformDependent.newLongCounter();
+
+    /**
+     * Creates a new instance which caches at most {@code maxCachedBytes} and uses the default
+     * {@link CompressionOptions} of all available encodings.
+     */
+    public HttpCompressedFileCache(long maxCachedBytes) {
+        this(maxCachedBytes, (int) Math.min(maxCachedBytes, DEFAULT_MAX_FILE_SIZE));
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxCachedBytes        the maximum number of compressed bytes that are cached.
+     * @param maxFileSize           the maximum size of a file that is compressed or whose sibling is cached.
+     * @param compressionOptions    the {@link BrotliOptions}, {@link ZstdOptions} or {@link GzipOptions} of the
+     *                              encodings to support, or none if the defaults of all available encodings should
+     *                              be used.
+     */
+    public HttpCompressedFileCache(long maxCachedBytes, int maxFileSize, CompressionOptions... compressionOptions) {
+        this(maxCachedBytes, maxFileSize, DEFAULT_MAX_ENTRIES, compressionOptions);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxCachedBytes        the maximum number of compressed bytes that are cached.
+     * @param maxFileSize           the maximum size of a file that is compressed or whose sibling is cached.
+     * @param maxEntries            the maximum number of cached entries, including those that only remember that a
+     *                              file does not compress.
+     * @param compressionOptions    the {@link BrotliOptions}, {@link ZstdOptions} or {@link GzipOptions} of the
+     *                              encodings to support, or none if the defaults of all available encodings should
+     *                              be used.
+     */
+    public HttpCompressedFileCache(long maxCachedBytes, int maxFileSize, int maxEntries,
+                                   CompressionOptions... compressionOptions) {
+        this.maxCachedBytes = ObjectUtil.checkPositive(maxCachedBytes, "maxCachedBytes");
+        this.maxFileSize = ObjectUtil.checkPositive(maxFileSize, "maxFileSize");
+        this.maxEntries = ObjectUtil.checkPositive(maxEntries, "maxEntries");
+        BrotliOptions brotliOptions = null;
+        ZstdOptions zstdOptions = null;
+        GzipOptions gzipOptions = null;
+        if (compressionOptions == null || compressionOptions.length == 0) {
+            brotliOptions = Brotli.isAvailable() ? StandardCompressionOptions.brotli() : null;
+            zstdOptions = Zstd.isAvailable() ? StandardCompressionOptions.zstd() : null;
+            gzipOptions = StandardCompressionOptions.gzip();
+        } else {
+            ObjectUtil.deepCheckNotNull("compressionOptions", compressionOptions);
+            for (CompressionOptions compressionOption : compressionOptions) {
+                // See HttpContentCompressor for why Brotli.isAvailable() is checked first.
+                if (Brotli.isAvailable() && compressionOption instanceof BrotliOptions) {
+                    brotliOptions = (BrotliOptions) compressionOption;
+                    if (brotliOptions.dictionary() != null) {
+                        // A client can only decode this if it negotiated 'dcb' and sent 'Available-Dictionary'.
+                        throw new IllegalArgumentException(
+                                "dictionaries are not supported for HTTP content coding: " + compressionOption);
+                    }
+                } else if (compressionOption instanceof ZstdOptions) {
+                    zstdOptions = (ZstdOptions) compressionOption;
+                    if (zstdOptions.dictionary() != null) {
+                        // A client can only decode this if it negotiated 'dcz' and sent 'Available-Dictionary'.
+                        throw new IllegalArgumentException(
+                                "dictionaries are not supported for HTTP content coding: " + compressionOption);
+                    }
+                } else if (compressionOption instanceof GzipOptions) {
+                    gzipOptions = (GzipOptions) compressionOption;
+                } else {
+                    throw new IllegalArgumentException("Unsupported " + CompressionOptions.class.getSimpleName() +
+                            ": " + compressionOption);
+                }
+            }
+        }
+        this.brotliOptions = brotliOptions;
+        this.zstdOptions = zstdOptions;
+        this.gzipOptions = gzipOptions;
+
+        // Ordered by preference.
+        List<String> encodings = new ArrayList<String>(3);
+        if (brotliOptions != null) {
+            encodings.add("br");
+        }
+        if (zstdOptions != null) {
+            encodings.add("zstd");
+        }
+        if (gzipOptions != null) {
+            encodings.add("gzip");
+        }
+        this.encodings = Collections.unmodifiableList(encodings);
+    }
+
+    /**
+     * Returns the supported content encodings, ordered by preference.
+     */
+    List<String> encodings() {
+        return encodings;
+    }
+
+    /**
+     * Returns the content of the given file in the given encoding, or {@code null} if it can not be served from the
+     * cache because the file is too large or does not compress. The caller must release the returned buffer.
+     */
+    ByteBuf get(File file, String encoding) throws IOException {
+        long lastModified = file.lastModified();
+        long length = file.length();
+        if (length == 0 || length > maxFileSize) {
+            return null;
+        }
+        Key key = new Key(file.getPath(), lastModified, encoding);
+        synchronized (entries) {
+            ByteBuf content = entries.get(key);
+            if (content != null) {
+                hits.increment();
+                return content == Unpooled.EMPTY_BUFFER ? null : content.retainedDuplicate();
+            }
+        }
+        misses.increment();
+
+        ByteBuf content = load(file, lastModified, length, encoding);
+        if (content.readableBytes() > maxCachedBytes) {
+            content.release();
+            return null;
+        }
+        synchronized (entries) {
+            Long cachedLastModified = lastModifiedByPath.get(key.path);
+            if (cachedLastModified != null && cachedLastModified != lastModified) {
+                if (cachedLastModified > lastModified) {
+                    // A newer version was cached in the meantime, so do not cache this one.
+                    return content == Unpooled.EMPTY_BUFFER ? null : content;
+                }
+                // The file was modified, the entries of the previous version will never be used again.
+                for (String e : encodings) {
+                    remove(new Key(key.path, cachedLastModified, e));
+                }
+            }
+            lastModifiedByPath.put(key.path, lastModified);
+            remove(key);
+            entries.put(key, content);
+            usedBytes += content.readableBytes();
+            Iterator<Map.Entry<Key, ByteBuf>> it = entries.entrySet().iterator();
+            while ((usedBytes > maxCachedBytes || entries.size() > maxEntries) && it.hasNext()) {
+                Map.Entry<Key, ByteBuf> evicted = it.next();
+                it.remove();
+                usedBytes -= evicted.getValue().readableBytes();
+                evicted.getValue().release();
+                forgetIfUnused(evicted.getKey());
+            }
+            if (content == Unpooled.EMPTY_BUFFER) {
+                return null;
+            }
+            return content.retainedDuplicate();
+        }
+    }
+
+    private void remove(Key key) {
+        ByteBuf old = entries.remove(key);
+        if (old != null) {
+            usedBytes -= old.readableBytes();
+            old.release();
+        }
+    }
+
+    private void forgetIfUnused(Key key) {
+        for (String e : encodings) {
+            if (entries.containsKey(new Key(key.path, key.lastModified, e))) {
+                return;
+            }
+        }
+        lastModifiedByPath.remove(key.path);
+    }
+
+    private ByteBuf load(File file, long lastModified, long length, String encoding) throws IOException {
+        File sibling = new File(file.getPath() + suffix(encoding));
+        if (sibling.isFile() && sibling.lastModified() >= lastModified && sibling.length() <= maxFileSize) {
+            return read(sibling, (int) sibling.length());
+        }
+
+        ByteBuf in = read(file, (int) length);
+        EmbeddedChannel channel = new EmbeddedChannel(newEncoder(encoding));
+        try {
+            channel.writeOutbound(in);
+            channel.finish();
+            ByteBuf out = UnpooledByteBufAllocator.DEFAULT.directBuffer((int) length);
+            for (;;) {
+                ByteBuf buf = channel.readOutbound();
+                if (buf == null) {
+                    break;
+                }
+                if (out.writableBytes() < buf.readableBytes()) {
+                    // Does not compress, remember it so it's not tried again.
+                    buf.release();
+                    out.release();
+                    return Unpooled.EMPTY_BUFFER;
+                }
+                out.writeBytes(buf);
+                buf.release();
+            }
+            return out;
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    /**
+     * Reads {@code length} bytes of the given file, failing if the file is shorter.
+     */
+    static ByteBuf read(File file, int length) throws IOException {
+        ByteBuf buf = UnpooledByteBufAllocator.DEFAULT.directBuffer(length);
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel fileChannel = raf.getChannel();
+            while (buf.writerIndex() < length) {
+                if (buf.writeBytes(fileChannel, buf.writerIndex(), length - buf.writerIndex()) < 0) {
+                    // The file was truncated in the meantime, never cache a partial file.
+                    throw new IOException("File was truncated while reading: " + file);
+                }
+            }
+            return buf;
+        } catch (IOException e) {
+            buf.release();
+            throw e;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private ChannelHandler newEncoder(String encoding) {
+        if ("br".equals(encoding)) {
+            return new BrotliEncoder(brotliOptions.parameters());
+        }
+        if ("zstd".equals(encoding)) {
+            return new ZstdEncoder(zstdOptions.compressionLevel(),
+                    zstdOptions.blockSize(), zstdOptions.maxEncodeSize());
+        }
+        if ("gzip".equals(encoding)) {
+            return ZlibCodecFactory.newZlibEncoder(ZlibWrapper.GZIP, gzipOptions.compressionLevel(),
+                    gzipOptions.windowBits(), gzipOptions.memLevel());
+        }
+        throw new IllegalArgumentException("Unsupported encoding: " + encoding);
+    }
+
+    private static String suffix(String encoding) {
+        if ("br".equals(encoding)) {
+            return ".br";
+        }
+        if ("zstd".equals(encoding)) {
+            return ".zst";
+        }
+        return ".gz";
+    }
+
+    /**
+     * Returns the number of bytes that are currently cached.
+     */
+    public long usedBytes() {
+        synchronized (entries) {
+            return usedBytes;
+        }
+    }
+
+    /**
+     * Returns the number of cached entries.
+     */
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the number of lookups that were served from the cache.
+     */
+    public long hits() {
+        return hits.value();
+    }
+
+    /**
+     * Returns the number of lookups that had to read or compress a file.
+     */
+    public long misses() {
+        return misses.value();
+    }
+
+    /**
+     * Removes all entries and releases their buffers.
+     */
+    public void clear() {
+        synchronized (entries) {
+            for (ByteBuf content : entries.values()) {
+                content.release();
+            }
+            entries.clear();
+            lastModifiedByPath.clear();
+            usedBytes = 0;
+        }
+    }
+
+    private static final class Key {
+        private final String path;
+        private final long lastModified;
+        private final String encoding;
+
+        Key(String path, long lastModified, String encoding) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.encoding = encoding;
+        }
+
+        @Override
+        public int hashCode() {
+            return (path.hashCode() * 31 + (int) (lastModified ^ lastModified >>> 32)) * 31 + encoding.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return lastModified == other.lastModified && path.equals(other.path) && encoding.equals(other.encoding);
+        }
+    }
+}
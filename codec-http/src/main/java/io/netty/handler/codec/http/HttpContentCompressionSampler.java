@@ -0,0 +1,243 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Decides if the content of an {@link HttpResponse} is worth compressing by {@link HttpContentCompressor}.
+ * <p>
+ * The first {@code sampleSize} bytes of a response are compressed and if the compressed size exceeds
+ * {@code maxRatio} of the sample the response is sent with the identity encoding instead. The decision is cached per
+ * MIME type and content encoding in an LRU cache, so already compressed payloads like images only need to be sampled
+ * once and following responses of the same type, including responses whose content is not known when the headers are
+ * written, skip compression without spending any CPU on it.
+ * <p>
+ * Only responses with at least {@code minSampleSize} bytes of content are sampled, as smaller ones say little about
+ * the other responses of their type. A cached decision is sampled again after it was used for
+ * {@code resampleInterval} responses, so a decision based on an unusual response does not stick forever.
+ * <p>
+ * An instance is thread-safe and is usually shared between all {@link HttpContentCompressor}s.
+ */
+@UnstableApi
+public final class HttpContentCompressionSampler {
+
+    private final int minSampleSize;
+    private final int sampleSize;
+    private final float maxRatio;
+    private final int maxCachedContentTypes;
+    private final int resampleInterval;
+    private final Map<String, Decision> decisions;
+
+    private final LongCounter sampledResponses = PlatformDependent.newLongCounter();
+    private final LongCounter sampledBytes = PlatformDependent.newLongCounter();
+    private final LongCounter sampleNanos = PlatformDependent.newLongCounter();
+    private final LongCounter skippedResponses = PlatformDependent.newLongCounter();
+    private final LongCounter skippedBytes = PlatformDependent.newLongCounter();
+
+    /**
+     * Creates a new instance which samples the first {@code 8192} bytes of responses with at least {@code 1024}
+     * bytes, skips compression if these do not compress to less than {@code 90%} and caches the decision for up to
+     * {@code 256} MIME types and encodings, sampling again after {@code 1000} responses.
+     */
+    public HttpContentCompressionSampler() {
+        this(8192, 0.9f, 256);
+    }
+
+    /**
+     * Creates a new instance which only samples responses with at least {@code 1024} bytes, or {@code sampleSize}
+     * bytes if less, and samples again after {@code 1000} responses.
+     *
+     * @param sampleSize            the maximum number of bytes that are compressed to sample a response.
+     * @param maxRatio              the maximum ratio of compressed to uncompressed size of the sample for which the
+     *                              response is still compressed, in the range {@code (0, 1]}.
+     * @param maxCachedContentTypes the maximum number of MIME types and encodings for which the decision is cached.
+     */
+    public HttpContentCompressionSampler(int sampleSize, float maxRatio, int maxCachedContentTypes) {
+        this(Math.min(1024, ObjectUtil.checkPositive(sampleSize, "sampleSize")), sampleSize, maxRatio,
+                maxCachedContentTypes, 1000);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param minSampleSize         the minimum number of bytes a response must have to be sampled, in the range
+     *                              {@code [1, sampleSize]}. Smaller responses are compressed unless there is a
+     *                              cached decision.
+     * @param sampleSize            the maximum number of bytes that are compressed to sample a response.
+     * @param maxRatio              the maximum ratio of compressed to uncompressed size of the sample for which the
+     *                              response is still compressed, in the range {@code (0, 1]}.
+     * @param maxCachedContentTypes the maximum number of MIME types and encodings for which the decision is cached.
+     * @param resampleInterval      the number of responses after which a cached decision is sampled again, {@code 0}
+     *                              if it should never be sampled again.
+     */
+    public HttpContentCompressionSampler(int minSampleSize, int sampleSize, float maxRatio,
+                                         final int maxCachedContentTypes, int resampleInterval) {
+        this.sampleSize = ObjectUtil.checkPositive(sampleSize, "sampleSize");
+        this.minSampleSize = ObjectUtil.checkInRange(minSampleSize, 1, sampleSize, "minSampleSize");
+        this.resampleInterval = ObjectUtil.checkPositiveOrZero(resampleInterval, "resampleInterval");
+        if (!(maxRatio > 0 && maxRatio <= 1)) {
+            throw new IllegalArgumentException("maxRatio: " + maxRatio + " (expected: 0 < maxRatio <= 1)");
+        }
+        this.maxRatio = maxRatio;
+        this.maxCachedContentTypes = ObjectUtil.checkPositiveOrZero(maxCachedContentTypes, "maxCachedContentTypes");
+        decisions = new LinkedHashMap<String, Decision>(16, 0.75f, true) {
+            private static final long serialVersionUID = -4611563542358911553L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Decision> eldest) {
+                return size() > maxCachedContentTypes;
+            }
+        };
+    }
+
+    /**
+     * Returns {@code true} if the given {@link HttpResponse} should be compressed with the given content encoding,
+     * using encoders created by the given {@link CompressionEncoderFactory}.
+     */
+    boolean shouldCompress(HttpResponse response, String contentEncoding, CompressionEncoderFactory factory) {
+        CharSequence mimeType = HttpUtil.getMimeType(response);
+        String key = mimeType == null ? null :
+                contentEncoding + ' ' + mimeType.toString().trim().toLowerCase(Locale.US);
+        ByteBuf content = response instanceof HttpContent ? ((HttpContent) response).content() : null;
+        boolean canSample = content != null && content.readableBytes() >= minSampleSize;
+        Boolean compress = key == null ? null : cachedDecision(key, canSample);
+        if (compress == null) {
+            if (!canSample) {
+                // Nothing we could sample yet, or too little to base a decision on, just compress.
+                return true;
+            }
+            compress = sample(content, factory.createEncoder());
+            if (key != null) {
+                cacheDecision(key, compress);
+            }
+        }
+        if (!compress) {
+            skippedResponses.increment();
+            if (response instanceof HttpContent) {
+                skippedBytes.add(((HttpContent) response).content().readableBytes());
+            } else {
+                skippedBytes.add(HttpUtil.getContentLength(response, 0L));
+            }
+        }
+        return compress;
+    }
+
+    private boolean sample(ByteBuf content, ChannelHandler encoder) {
+        int length = Math.min(content.readableBytes(), sampleSize);
+        long compressed = 0;
+        long start = System.nanoTime();
+        EmbeddedChannel channel = new EmbeddedChannel(encoder);
+        try {
+            channel.writeOutbound(content.retainedSlice(content.readerIndex(), length));
+            channel.finish();
+            for (;;) {
+                ByteBuf buf = channel.readOutbound();
+                if (buf == null) {
+                    break;
+                }
+                compressed += buf.readableBytes();
+                buf.release();
+            }
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+        sampleNanos.add(System.nanoTime() - start);
+        sampledBytes.add(length);
+        sampledResponses.increment();
+        return compressed <= length * maxRatio;
+    }
+
+    /**
+     * Returns the cached decision for the given key, or {@code null} if there is none or it should be sampled again.
+     */
+    private Boolean cachedDecision(String key, boolean canSample) {
+        synchronized (decisions) {
+            Decision decision = decisions.get(key);
+            if (decision == null) {
+                return null;
+            }
+            if (resampleInterval > 0 && ++decision.uses >= resampleInterval && canSample) {
+                // Replaced once the response was sampled.
+                return null;
+            }
+            return decision.compress;
+        }
+    }
+
+    private void cacheDecision(String key, boolean compress) {
+        if (maxCachedContentTypes == 0) {
+            return;
+        }
+        synchronized (decisions) {
+            decisions.put(key, new Decision(compress));
+        }
+    }
+
+    /**
+     * Returns the number of responses that were sampled.
+     */
+    public long sampledResponses() {
+        return sampledResponses.value();
+    }
+
+    /**
+     * Returns the number of responses that were sent with the identity encoding because their content did not
+     * compress well.
+     */
+    public long skippedResponses() {
+        return skippedResponses.value();
+    }
+
+    /**
+     * Returns the number of bytes of the skipped responses, as far as known when the response headers were written.
+     */
+    public long skippedBytes() {
+        return skippedBytes.value();
+    }
+
+    /**
+     * Returns an estimate of the CPU time in nanoseconds that was saved by not compressing the skipped responses,
+     * based on the time it took to compress the samples.
+     */
+    public long estimatedSavedNanos() {
+        long bytes = sampledBytes.value();
+        if (bytes == 0) {
+            return 0;
+        }
+        return (long) ((double) sampleNanos.value() / bytes * skippedBytes.value());
+    }
+
+    private static final class Decision {
+        final boolean compress;
+        // The number of responses the decision was used for, guarded by the decisions map.
+        int uses;
+
+        Decision(boolean compress) {
+            this.compress = compress;
+        }
+    }
+}
@@ -17,6 +17,7 @@ package io.netty.handler.codec.http;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
@@ -36,6 +37,7 @@ import io.netty.handler.codec.compression.Zstd;
 import io.netty.handler.codec.compression.ZstdEncoder;
 import io.netty.handler.codec.compression.ZstdOptions;
 import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
 
 /**
  * Compresses an {@link HttpMessage} and an {@link HttpContent} in {@code gzip} or
@@ -43,6 +45,11 @@ import io.netty.util.internal.ObjectUtil;
  * If there is no matching encoding, no compression is done.  For more
  * information on how this handler modifies the message, please refer to
  * {@link HttpContentEncoder}.
+ * <p>
+ * Compression is CPU intensive, especially {@code br} with a high quality. To not block the
+ * {@link io.netty.channel.EventLoop} of the {@link io.netty.channel.Channel} while compressing, an {@link Executor}
+ * can be given to {@link #HttpContentCompressor(int, HttpContentCompressionSampler, Executor, CompressionOptions...)}
+ * which is then used for the compression. Responses are then always sent with {@code chunked} transfer encoding.
  */
 public class HttpContentCompressor extends HttpContentEncoder {
 
@@ -56,6 +63,7 @@ public class HttpContentCompressor extends HttpContentEncoder {
     private final int windowBits;
     private final int memLevel;
     private final int contentSizeThreshold;
+    private final HttpContentCompressionSampler sampler;
     private ChannelHandlerContext ctx;
     private final Map<String, CompressionEncoderFactory> factories;
 
@@ -139,6 +147,7 @@ public class HttpContentCompressor extends HttpContentEncoder {
         this.deflateOptions = null;
         this.zstdOptions = null;
         this.factories = null;
+        this.sampler = null;
         this.supportsCompressionOptions = false;
     }
 
@@ -165,6 +174,48 @@ public class HttpContentCompressor extends HttpContentEncoder {
      *        if the default should be used.
      */
     public HttpContentCompressor(int contentSizeThreshold, CompressionOptions... compressionOptions) {
+        this(contentSizeThreshold, null, compressionOptions);
+    }
+
+    /**
+     * Create a new {@link HttpContentCompressor} instance with specified
+     * {@link CompressionOptions}s which uses the given {@link HttpContentCompressionSampler} to
+     * skip compression of responses whose content does not compress well.
+     *
+     * @param contentSizeThreshold
+     *        The response body is compressed when the size of the response
+     *        body exceeds the threshold. The value should be a non negative
+     *        number. {@code 0} will enable compression for all responses.
+     * @param sampler {@link HttpContentCompressionSampler} or {@code null}
+     *        if all responses should be compressed.
+     * @param compressionOptions {@link CompressionOptions} or {@code null}
+     *        if the default should be used.
+     */
+    public HttpContentCompressor(int contentSizeThreshold, HttpContentCompressionSampler sampler,
+                                 CompressionOptions... compressionOptions) {
+        this(contentSizeThreshold, sampler, null, compressionOptions);
+    }
+
+    /**
+     * Create a new {@link HttpContentCompressor} instance with specified
+     * {@link CompressionOptions}s which compresses on the given {@link Executor}.
+     *
+     * @param contentSizeThreshold
+     *        The response body is compressed when the size of the response
+     *        body exceeds the threshold. The value should be a non negative
+     *        number. {@code 0} will enable compression for all responses.
+     * @param sampler {@link HttpContentCompressionSampler} or {@code null}
+     *        if all responses should be compressed.
+     * @param compressionExecutor {@link Executor} which is used to compress or {@code null}
+     *        if the {@link io.netty.channel.EventLoop} should be used.
+     * @param compressionOptions {@link CompressionOptions} or {@code null}
+     *        if the default should be used.
+     */
+    @UnstableApi
+    public HttpContentCompressor(int contentSizeThreshold, HttpContentCompressionSampler sampler,
+                                 Executor compressionExecutor, CompressionOptions... compressionOptions) {
+        super(compressionExecutor);
+        this.sampler = sampler;
         this.contentSizeThreshold = ObjectUtil.checkPositiveOrZero(contentSizeThreshold, "contentSizeThreshold");
         BrotliOptions brotliOptions = null;
         GzipOptions gzipOptions = null;
@@ -186,12 +237,22 @@ public class HttpContentCompressor extends HttpContentEncoder {
                 // at build time and not complain about the missing Brotli classes.
                 if (Brotli.isAvailable() && compressionOption instanceof BrotliOptions) {
                     brotliOptions = (BrotliOptions) compressionOption;
+                    if (brotliOptions.dictionary() != null) {
+                        // A client can only decode this if it negotiated 'dcb' and sent 'Available-Dictionary'.
+                        throw new IllegalArgumentException(
+                                "dictionaries are not supported for HTTP content coding: " + compressionOption);
+                    }
                 } else if (compressionOption instanceof GzipOptions) {
                     gzipOptions = (GzipOptions) compressionOption;
                 } else if (compressionOption instanceof DeflateOptions) {
                     deflateOptions = (DeflateOptions) compressionOption;
                 } else if (compressionOption instanceof ZstdOptions) {
                     zstdOptions = (ZstdOptions) compressionOption;
+                    if (zstdOptions.dictionary() != null) {
+                        // A client can only decode this if it negotiated 'dcz' and sent 'Available-Dictionary'.
+                        throw new IllegalArgumentException(
+                                "dictionaries are not supported for HTTP content coding: " + compressionOption);
+                    }
                 } else {
                     throw new IllegalArgumentException("Unsupported " + CompressionOptions.class.getSimpleName() +
                             ": " + compressionOption);
@@ -258,6 +319,10 @@ public class HttpContentCompressor extends HttpContentEncoder {
                 throw new Error();
             }
 
+            if (sampler != null && !sampler.shouldCompress(httpResponse, targetContentEncoding, encoderFactory)) {
+                return null;
+            }
+
             return new Result(targetContentEncoding,
                     new EmbeddedChannel(ctx.channel().id(), ctx.channel().metadata().hasDisconnect(),
                             ctx.channel().config(), encoderFactory.createEncoder()));
@@ -289,34 +354,12 @@ public class HttpContentCompressor extends HttpContentEncoder {
 
     @SuppressWarnings("FloatingPointEquality")
     protected String determineEncoding(String acceptEncoding) {
-        float starQ = -1.0f;
-        float brQ = -1.0f;
-        float zstdQ = -1.0f;
-        float gzipQ = -1.0f;
-        float deflateQ = -1.0f;
-        for (String encoding : acceptEncoding.split(",")) {
-            float q = 1.0f;
-            int equalsPos = encoding.indexOf('=');
-            if (equalsPos != -1) {
-                try {
-                    q = Float.parseFloat(encoding.substring(equalsPos + 1));
-                } catch (NumberFormatException e) {
-                    // Ignore encoding
-                    q = 0.0f;
-                }
-            }
-            if (encoding.contains("*")) {
-                starQ = q;
-            } else if (encoding.contains("br") && q > brQ) {
-                brQ = q;
-            } else if (encoding.contains("zstd") && q > zstdQ) {
-                zstdQ = q;
-            } else if (encoding.contains("gzip") && q > gzipQ) {
-                gzipQ = q;
-            } else if (encoding.contains("deflate") && q > deflateQ) {
-                deflateQ = q;
-            }
-        }
+        HttpAcceptEncoding accept = HttpAcceptEncoding.parse(acceptEncoding);
+        float starQ = accept.starQ;
+        float brQ = accept.brQ;
+        float zstdQ = accept.zstdQ;
+        float gzipQ = accept.gzipQ;
+        float deflateQ = accept.deflateQ;
         if (brQ > 0.0f || zstdQ > 0.0f || gzipQ > 0.0f || deflateQ > 0.0f) {
             if (brQ != -1.0f && brQ >= zstdQ && this.brotliOptions != null) {
                 return "br";
@@ -348,28 +391,10 @@ public class HttpContentCompressor extends HttpContentEncoder {
     @Deprecated
     @SuppressWarnings("FloatingPointEquality")
     protected ZlibWrapper determineWrapper(String acceptEncoding) {
-        float starQ = -1.0f;
-        float gzipQ = -1.0f;
-        float deflateQ = -1.0f;
-        for (String encoding : acceptEncoding.split(",")) {
-            float q = 1.0f;
-            int equalsPos = encoding.indexOf('=');
-            if (equalsPos != -1) {
-                try {
-                    q = Float.parseFloat(encoding.substring(equalsPos + 1));
-                } catch (NumberFormatException e) {
-                    // Ignore encoding
-                    q = 0.0f;
-                }
-            }
-            if (encoding.contains("*")) {
-                starQ = q;
-            } else if (encoding.contains("gzip") && q > gzipQ) {
-                gzipQ = q;
-            } else if (encoding.contains("deflate") && q > deflateQ) {
-                deflateQ = q;
-            }
-        }
+        HttpAcceptEncoding accept = HttpAcceptEncoding.parse(acceptEncoding);
+        float starQ = accept.starQ;
+        float gzipQ = accept.gzipQ;
+        float deflateQ = accept.deflateQ;
         if (gzipQ > 0.0f || deflateQ > 0.0f) {
             if (gzipQ >= deflateQ) {
                 return ZlibWrapper.GZIP;
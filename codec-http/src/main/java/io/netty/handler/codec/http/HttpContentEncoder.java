@@ -18,16 +18,26 @@ package io.netty.handler.codec.http;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufHolder;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.DecoderResult;
+import io.netty.handler.codec.EncoderException;
 import io.netty.handler.codec.MessageToMessageCodec;
+import io.netty.handler.codec.compression.OffloadedCompressor;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.PromiseCombiner;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
 
+import java.nio.channels.ClosedChannelException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.Executor;
 
 import static io.netty.handler.codec.http.HttpHeaderNames.*;
 
@@ -52,6 +62,11 @@ import static io.netty.handler.codec.http.HttpHeaderNames.*;
  * This handler must be placed after {@link HttpObjectEncoder} in the pipeline
  * so that this handler can intercept HTTP responses before {@link HttpObjectEncoder}
  * converts them into {@link ByteBuf}s.
+ * <p>
+ * If an {@link Executor} is given to {@link #HttpContentEncoder(Executor)}, the content is encoded on it by an
+ * {@link OffloadedCompressor}, so the {@link io.netty.channel.EventLoop} is not blocked while encoding. The encoded
+ * content is still written in order, but as the length of the encoded content is then not known when the response
+ * is written, the response always uses {@code chunked} transfer encoding.
  */
 public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpRequest, HttpObject> {
 
@@ -65,10 +80,42 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
     private static final CharSequence ZERO_LENGTH_CONNECT = "CONNECT";
     private static final int CONTINUE_CODE = HttpResponseStatus.CONTINUE.code();
 
+    private static final FutureListener<ByteBuf> RELEASE_OUTPUT = new FutureListener<ByteBuf>() {
+        @Override
+        public void operationComplete(Future<ByteBuf> future) {
+            if (future.isSuccess()) {
+                future.getNow().release();
+            }
+        }
+    };
+
     private final Queue<CharSequence> acceptEncodingQueue = new ArrayDeque<CharSequence>();
+    private final Executor contentEncoderExecutor;
+    // Only used if contentEncoderExecutor is set. Holds the writes which wait for the encoder output in front of them.
+    private final ArrayDeque<PendingWrite> pendingWrites;
     private EmbeddedChannel encoder;
+    private OffloadedCompressor offloadedEncoder;
     private State state = State.AWAIT_HEADERS;
 
+    /**
+     * Creates a new instance which encodes on the {@link io.netty.channel.EventLoop}.
+     */
+    protected HttpContentEncoder() {
+        this(null);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param contentEncoderExecutor the {@link Executor} which is used to encode the content or {@code null} if the
+     *                               {@link io.netty.channel.EventLoop} should be used.
+     */
+    @UnstableApi
+    protected HttpContentEncoder(Executor contentEncoderExecutor) {
+        this.contentEncoderExecutor = contentEncoderExecutor;
+        pendingWrites = contentEncoderExecutor == null ? null : new ArrayDeque<PendingWrite>();
+    }
+
     @Override
     public boolean acceptOutboundMessage(Object msg) throws Exception {
         return msg instanceof HttpContent || msg instanceof HttpResponse;
@@ -108,7 +155,7 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
         switch (state) {
             case AWAIT_HEADERS: {
                 ensureHeaders(msg);
-                assert encoder == null;
+                assert encoder == null && offloadedEncoder == null;
 
                 final HttpResponse res = (HttpResponse) msg;
                 final int code = res.status().code();
@@ -172,7 +219,12 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
                     break;
                 }
 
-                encoder = result.contentEncoder();
+                if (contentEncoderExecutor == null) {
+                    encoder = result.contentEncoder();
+                } else {
+                    offloadedEncoder = new OffloadedCompressor(
+                            result.contentEncoder(), contentEncoderExecutor, ctx.executor());
+                }
 
                 // Encode the content and remove or replace the existing headers
                 // so that the message looks like a decoded message.
@@ -226,7 +278,11 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
         int existingMessages = out.size();
         encodeContent(content, out);
 
-        if (HttpUtil.isContentLengthSet(newRes)) {
+        if (contentEncoderExecutor != null) {
+            // The length of the encoded content is not known yet.
+            newRes.headers().remove(HttpHeaderNames.CONTENT_LENGTH);
+            newRes.headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+        } else if (HttpUtil.isContentLengthSet(newRes)) {
             // adjust the content-length header
             int messageSize = 0;
             for (int i = existingMessages; i < out.size(); i++) {
@@ -313,12 +369,148 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
         super.channelInactive(ctx);
     }
 
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (contentEncoderExecutor == null) {
+            super.write(ctx, msg, promise);
+            return;
+        }
+        if (!acceptOutboundMessage(msg)) {
+            writeOrQueue(ctx, msg, promise);
+            return;
+        }
+
+        List<Object> out = new ArrayList<Object>(4);
+        try {
+            encode(ctx, (HttpObject) msg, out);
+        } catch (EncoderException e) {
+            discard(out);
+            throw e;
+        } catch (Throwable cause) {
+            discard(out);
+            throw new EncoderException(cause);
+        } finally {
+            ReferenceCountUtil.release(msg);
+        }
+
+        final int size = out.size();
+        if (size == 0) {
+            promise.trySuccess();
+        } else if (size == 1) {
+            writeOrQueue(ctx, out.get(0), promise);
+        } else if (promise == ctx.voidPromise()) {
+            for (int i = 0; i < size; i++) {
+                writeOrQueue(ctx, out.get(i), promise);
+            }
+        } else {
+            PromiseCombiner combiner = new PromiseCombiner(ctx.executor());
+            for (int i = 0; i < size; i++) {
+                ChannelPromise p = ctx.newPromise();
+                combiner.add(p);
+                writeOrQueue(ctx, out.get(i), p);
+            }
+            combiner.finish(promise);
+        }
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        PendingWrite last = pendingWrites == null ? null : pendingWrites.peekLast();
+        if (last != null) {
+            // Flush again once the queued writes are done.
+            last.flush = true;
+        }
+        ctx.flush();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeOrQueue(final ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        if (msg instanceof Future) {
+            pendingWrites.add(new PendingWrite(msg, promise));
+            ((Future<ByteBuf>) msg).addListener(new FutureListener<ByteBuf>() {
+                @Override
+                public void operationComplete(Future<ByteBuf> future) {
+                    writePending(ctx);
+                }
+            });
+        } else if (pendingWrites.isEmpty()) {
+            ctx.write(msg, promise);
+        } else {
+            pendingWrites.add(new PendingWrite(msg, promise));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writePending(ChannelHandlerContext ctx) {
+        boolean flush = false;
+        for (;;) {
+            PendingWrite pending = pendingWrites.peek();
+            if (pending == null) {
+                break;
+            }
+            if (pending.msg instanceof Future) {
+                Future<ByteBuf> future = (Future<ByteBuf>) pending.msg;
+                if (!future.isDone()) {
+                    break;
+                }
+                pendingWrites.poll();
+                if (!future.isSuccess()) {
+                    pending.promise.tryFailure(future.cause());
+                } else if (future.getNow().isReadable()) {
+                    ctx.write(new DefaultHttpContent(future.getNow()), pending.promise);
+                } else {
+                    future.getNow().release();
+                    pending.promise.trySuccess();
+                }
+            } else {
+                pendingWrites.poll();
+                ctx.write(pending.msg, pending.promise);
+            }
+            flush |= pending.flush;
+        }
+        if (flush) {
+            ctx.flush();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void discard(List<Object> out) {
+        for (Object msg : out) {
+            if (msg instanceof Future) {
+                ((Future<ByteBuf>) msg).addListener(RELEASE_OUTPUT);
+            } else {
+                ReferenceCountUtil.release(msg);
+            }
+        }
+    }
+
     private void cleanup() {
         if (encoder != null) {
             // Clean-up the previous encoder if not cleaned up correctly.
             encoder.finishAndReleaseAll();
             encoder = null;
         }
+        if (offloadedEncoder != null) {
+            offloadedEncoder.close();
+            offloadedEncoder = null;
+        }
+        if (pendingWrites != null && !pendingWrites.isEmpty()) {
+            ClosedChannelException cause = new ClosedChannelException();
+            for (;;) {
+                PendingWrite pending = pendingWrites.poll();
+                if (pending == null) {
+                    break;
+                }
+                if (pending.msg instanceof Future) {
+                    @SuppressWarnings("unchecked")
+                    Future<ByteBuf> future = (Future<ByteBuf>) pending.msg;
+                    future.addListener(RELEASE_OUTPUT);
+                } else {
+                    ReferenceCountUtil.release(pending.msg);
+                }
+                pending.promise.tryFailure(cause);
+            }
+        }
     }
 
     private void cleanupSafely(ChannelHandlerContext ctx) {
@@ -332,12 +524,22 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
     }
 
     private void encode(ByteBuf in, List<Object> out) {
+        if (offloadedEncoder != null) {
+            // The output is written once the returned future is done.
+            out.add(offloadedEncoder.compress(in.retain()));
+            return;
+        }
         // call retain here as it will call release after its written to the channel
         encoder.writeOutbound(in.retain());
         fetchEncoderOutput(out);
     }
 
     private void finishEncode(List<Object> out) {
+        if (offloadedEncoder != null) {
+            out.add(offloadedEncoder.finish());
+            offloadedEncoder = null;
+            return;
+        }
         if (encoder.finish()) {
             fetchEncoderOutput(out);
         }
@@ -358,6 +560,17 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
         }
     }
 
+    private static final class PendingWrite {
+        final Object msg;
+        final ChannelPromise promise;
+        boolean flush;
+
+        PendingWrite(Object msg, ChannelPromise promise) {
+            this.msg = msg;
+            this.promise = promise;
+        }
+    }
+
     public static final class Result {
         private final String targetContentEncoding;
         private final EmbeddedChannel contentEncoder;
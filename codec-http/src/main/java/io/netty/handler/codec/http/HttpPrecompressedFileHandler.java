@@ -0,0 +1,187 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLConnection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Serves compressed representations of static files below a root directory from a {@link HttpCompressedFileCache},
+ * so assets that are requested again and again are not compressed for every response.
+ * <p>
+ * A {@code GET} or {@code HEAD} request for a regular file below the root directory is answered with a
+ * {@link FullHttpResponse} if the client accepts one of the encodings of the {@link HttpCompressedFileCache} and the
+ * file can be served from it. Sibling files like {@code app.js.br} or {@code app.js.gz} are served if they exist, see
+ * {@link HttpCompressedFileCache}. All other requests, for example if the client only accepts the {@code identity}
+ * encoding or the file does not exist, are passed on to the next handler in the {@link ChannelPipeline}, which is
+ * expected to serve them.
+ * <p>
+ * Reading and compressing a file on a cache miss blocks the calling thread, so this handler should be added with an
+ * {@link io.netty.util.concurrent.EventExecutorGroup} if misses are expected to be frequent.
+ * <p>
+ * This handler must be placed after {@link HttpServerCodec} in the pipeline.
+ */
+@UnstableApi
+public class HttpPrecompressedFileHandler extends ChannelInboundHandlerAdapter {
+
+    private final File root;
+    private final String rootPath;
+    private final HttpCompressedFileCache cache;
+    private boolean discarding;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param root  the directory to serve the files from.
+     * @param cache the {@link HttpCompressedFileCache} to use, which may be shared with other handlers.
+     */
+    public HttpPrecompressedFileHandler(File root, HttpCompressedFileCache cache) {
+        ObjectUtil.checkNotNull(root, "root");
+        try {
+            this.root = root.getCanonicalFile();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("root: " + root, e);
+        }
+        if (!this.root.isDirectory()) {
+            throw new IllegalArgumentException("root: " + root + " (expected: directory)");
+        }
+        rootPath = this.root.getPath() + File.separatorChar;
+        this.cache = ObjectUtil.checkNotNull(cache, "cache");
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof HttpRequest) {
+            if (serve(ctx, (HttpRequest) msg)) {
+                // Discard the content of the request, if any.
+                discarding = !(msg instanceof LastHttpContent);
+                ReferenceCountUtil.release(msg);
+                return;
+            }
+        } else if (discarding && msg instanceof HttpContent) {
+            discarding = !(msg instanceof LastHttpContent);
+            ReferenceCountUtil.release(msg);
+            return;
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    private boolean serve(ChannelHandlerContext ctx, HttpRequest request) {
+        HttpMethod method = request.method();
+        boolean head = HttpMethod.HEAD.equals(method);
+        if ((!head && !HttpMethod.GET.equals(method)) || !request.decoderResult().isSuccess()) {
+            return false;
+        }
+        String acceptEncoding = request.headers().get(HttpHeaderNames.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        List<String> encodings = HttpAcceptEncoding.parse(acceptEncoding).acceptable(cache.encodings());
+        if (encodings.isEmpty()) {
+            return false;
+        }
+        File file = resolve(request.uri());
+        if (file == null) {
+            return false;
+        }
+        long lastModified = file.lastModified();
+        ByteBuf content = null;
+        String encoding = null;
+        try {
+            // Try the next acceptable encoding if the file does not compress with the preferred one.
+            for (int i = 0; i < encodings.size() && content == null; i++) {
+                encoding = encodings.get(i);
+                content = cache.get(file, encoding);
+            }
+        } catch (IOException ignore) {
+            // The file may have been removed in the meantime, let the next handler deal with it.
+            return false;
+        }
+        if (content == null) {
+            return false;
+        }
+
+        int contentLength = content.readableBytes();
+        if (head) {
+            content.release();
+            content = Unpooled.EMPTY_BUFFER;
+        }
+        FullHttpResponse response = new DefaultFullHttpResponse(
+                request.protocolVersion(), HttpResponseStatus.OK, content);
+        HttpHeaders headers = response.headers();
+        headers.set(HttpHeaderNames.CONTENT_ENCODING, encoding);
+        headers.set(HttpHeaderNames.CONTENT_LENGTH, contentLength);
+        headers.set(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+        headers.set(HttpHeaderNames.LAST_MODIFIED, DateFormatter.format(new Date(lastModified)));
+        String contentType = contentType(file);
+        if (contentType != null) {
+            headers.set(HttpHeaderNames.CONTENT_TYPE, contentType);
+        }
+
+        boolean keepAlive = HttpUtil.isKeepAlive(request);
+        HttpUtil.setKeepAlive(response, keepAlive);
+        ChannelFuture future = ctx.writeAndFlush(response);
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the value of the {@code Content-Type} header for the given file, or {@code null} if it is unknown.
+     */
+    protected String contentType(File file) {
+        return URLConnection.guessContentTypeFromName(file.getName());
+    }
+
+    private File resolve(String uri) {
+        String path;
+        try {
+            path = new QueryStringDecoder(uri).path();
+        } catch (IllegalArgumentException ignore) {
+            return null;
+        }
+        if (path.isEmpty() || path.charAt(0) != '/' || path.indexOf('\0') >= 0) {
+            return null;
+        }
+        File file;
+        try {
+            file = new File(root, path.substring(1).replace('/', File.separatorChar)).getCanonicalFile();
+        } catch (IOException ignore) {
+            return null;
+        }
+        // Never serve anything outside of the root directory.
+        if (!file.getPath().startsWith(rootPath) || !file.isFile()) {
+            return null;
+        }
+        return file;
+    }
+}
@@ -17,13 +17,17 @@ package io.netty.handler.codec.http.websocketx.extensions;
 
 import static io.netty.util.internal.ObjectUtil.checkNonEmpty;
 
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
 import io.netty.handler.codec.CodecException;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -39,6 +43,10 @@ import java.util.List;
  *
  * Find a basic implementation for compression extensions at
  * <tt>io.netty.handler.codec.http.websocketx.extensions.compression.WebSocketClientCompressionHandler</tt>.
+ *
+ * If this handler was added to the pipeline with an {@link EventExecutorGroup} the extension decoder and encoder use
+ * the same {@link EventExecutor}, which allows to run CPU intensive extensions like compression outside of the
+ * {@link EventLoop} of the {@link Channel}.
  */
 public class WebSocketClientExtensionHandler extends ChannelDuplexHandler {
 
@@ -110,11 +118,12 @@ public class WebSocketClientExtensionHandler extends ChannelDuplexHandler {
                         }
                     }
 
+                    EventExecutorGroup executor = WebSocketExtensionUtil.extensionExecutor(ctx);
                     for (WebSocketClientExtension validExtension : validExtensions) {
                         WebSocketExtensionDecoder decoder = validExtension.newExtensionDecoder();
                         WebSocketExtensionEncoder encoder = validExtension.newExtensionEncoder();
-                        ctx.pipeline().addAfter(ctx.name(), decoder.getClass().getName(), decoder);
-                        ctx.pipeline().addAfter(ctx.name(), encoder.getClass().getName(), encoder);
+                        ctx.pipeline().addAfter(executor, ctx.name(), decoder.getClass().getName(), decoder);
+                        ctx.pipeline().addAfter(executor, ctx.name(), encoder.getClass().getName(), encoder);
                     }
                 }
 
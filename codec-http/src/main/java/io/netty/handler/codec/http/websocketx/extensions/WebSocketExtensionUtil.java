@@ -15,9 +15,14 @@
  */
 package io.netty.handler.codec.http.websocketx.extensions;
 
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoop;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -44,6 +49,16 @@ public final class WebSocketExtensionUtil {
                 headers.contains(HttpHeaderNames.UPGRADE, HttpHeaderValues.WEBSOCKET, true);
     }
 
+    /**
+     * Returns the {@link EventExecutorGroup} to add the extension decoders and encoders with, which is the
+     * {@link EventExecutor} of the given extension handler or {@code null} if it runs on the {@link EventLoop} of the
+     * {@link Channel}.
+     */
+    static EventExecutorGroup extensionExecutor(ChannelHandlerContext ctx) {
+        EventExecutor executor = ctx.executor();
+        return executor == ctx.channel().eventLoop() ? null : executor;
+    }
+
     public static List<WebSocketExtensionData> extractExtensions(String extensionHeader) {
         String[] rawExtensions = extensionHeader.split(EXTENSION_SEPARATOR);
         if (rawExtensions.length > 0) {
@@ -17,16 +17,20 @@ package io.netty.handler.codec.http.websocketx.extensions;
 
 import static io.netty.util.internal.ObjectUtil.checkNonEmpty;
 
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -42,6 +46,10 @@ import java.util.List;
  *
  * Find a basic implementation for compression extensions at
  * <tt>io.netty.handler.codec.http.websocketx.extensions.compression.WebSocketServerCompressionHandler</tt>.
+ *
+ * If this handler was added to the pipeline with an {@link EventExecutorGroup} the extension decoder and encoder use
+ * the same {@link EventExecutor}, which allows to run CPU intensive extensions like compression outside of the
+ * {@link EventLoop} of the {@link Channel}.
  */
 public class WebSocketServerExtensionHandler extends ChannelDuplexHandler {
 
@@ -136,9 +144,10 @@ public class WebSocketServerExtensionHandler extends ChannelDuplexHandler {
                                 WebSocketExtensionDecoder decoder = extension.newExtensionDecoder();
                                 WebSocketExtensionEncoder encoder = extension.newExtensionEncoder();
                                 String name = ctx.name();
+                                EventExecutorGroup executor = WebSocketExtensionUtil.extensionExecutor(ctx);
                                 ctx.pipeline()
-                                    .addAfter(name, decoder.getClass().getName(), decoder)
-                                    .addAfter(name, encoder.getClass().getName(), encoder);
+                                    .addAfter(executor, name, decoder.getClass().getName(), decoder)
+                                    .addAfter(executor, name, encoder.getClass().getName(), encoder);
                             }
                         }
                     }
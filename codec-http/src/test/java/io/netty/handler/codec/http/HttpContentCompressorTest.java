@@ -21,6 +21,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
@@ -34,15 +35,28 @@ import io.netty.channel.local.LocalChannel;
 import io.netty.channel.local.LocalServerChannel;
 import io.netty.handler.codec.DecoderResult;
 import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.compression.StandardCompressionOptions;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
 import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.compression.Zstd;
+import io.netty.handler.codec.compression.ZstdDictionary;
 import io.netty.util.CharsetUtil;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.internal.PlatformDependent;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
 
 import java.nio.charset.StandardCharsets;
 
@@ -57,8 +71,10 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 public class HttpContentCompressorTest {
 
@@ -759,9 +775,235 @@ public class HttpContentCompressorTest {
         assertTrue(ch.finishAndReleaseAll());
     }
 
+    @Test
+    public void testSamplerSkipsIncompressibleContent() throws Exception {
+        HttpContentCompressionSampler sampler = new HttpContentCompressionSampler();
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor(0, sampler));
+        assertTrue(ch.writeInbound(newRequest()));
+
+        byte[] bytes = new byte[16384];
+        PlatformDependent.threadLocalRandom().nextBytes(bytes);
+        FullHttpResponse res = new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.wrappedBuffer(bytes));
+        res.headers().set(HttpHeaderNames.CONTENT_TYPE, "image/jpeg");
+        assertTrue(ch.writeOutbound(res));
+
+        FullHttpResponse response = ch.readOutbound();
+        assertFalse(response.headers().contains(HttpHeaderNames.CONTENT_ENCODING));
+        assertEquals(Unpooled.wrappedBuffer(bytes), response.content());
+        response.release();
+
+        // The decision is cached so the response is passed through even if its content is not known yet.
+        assertTrue(ch.writeInbound(newRequest()));
+        HttpResponse res2 = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        res2.headers().set(HttpHeaderNames.CONTENT_TYPE, "IMAGE/JPEG; quality=high");
+        res2.headers().set(HttpHeaderNames.CONTENT_LENGTH, 100);
+        assertTrue(ch.writeOutbound(res2));
+        HttpResponse response2 = ch.readOutbound();
+        assertFalse(response2.headers().contains(HttpHeaderNames.CONTENT_ENCODING));
+        assertTrue(ch.writeOutbound(new DefaultLastHttpContent(Unpooled.wrappedBuffer(new byte[100]))));
+        LastHttpContent last = ch.readOutbound();
+        assertEquals(100, last.content().readableBytes());
+        last.release();
+
+        assertEquals(1, sampler.sampledResponses());
+        assertEquals(2, sampler.skippedResponses());
+        assertEquals(bytes.length + 100, sampler.skippedBytes());
+        assertTrue(sampler.estimatedSavedNanos() > 0);
+        assertTrue(ch.finishAndReleaseAll());
+    }
+
+    @Test
+    public void testSamplerCompressesCompressibleContent() throws Exception {
+        HttpContentCompressionSampler sampler = new HttpContentCompressionSampler();
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor(0, sampler));
+
+        for (int i = 0; i < 2; i++) {
+            assertTrue(ch.writeInbound(newRequest()));
+            FullHttpResponse res = new DefaultFullHttpResponse(
+                    HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.wrappedBuffer(new byte[16384]));
+            res.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain");
+            assertTrue(ch.writeOutbound(res));
+            assertEncodedResponse(ch);
+            ch.releaseOutbound();
+        }
+
+        assertEquals(1, sampler.sampledResponses());
+        assertEquals(0, sampler.skippedResponses());
+        assertEquals(0, sampler.skippedBytes());
+        assertEquals(0, sampler.estimatedSavedNanos());
+        assertTrue(ch.finishAndReleaseAll());
+    }
+
+    @Test
+    public void testSamplerIgnoresSmallContent() throws Exception {
+        HttpContentCompressionSampler sampler = new HttpContentCompressionSampler();
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor(0, sampler));
+
+        // Too small to be sampled, so it is compressed and does not decide for the following responses.
+        assertTrue(ch.writeInbound(newRequest()));
+        assertTrue(ch.writeOutbound(newRandomResponse(100)));
+        assertEquals("gzip", ((HttpResponse) ch.readOutbound()).headers().get(HttpHeaderNames.CONTENT_ENCODING));
+        ch.releaseOutbound();
+        assertEquals(0, sampler.sampledResponses());
+
+        assertTrue(ch.writeInbound(newRequest()));
+        assertTrue(ch.writeOutbound(newRandomResponse(16384)));
+        FullHttpResponse response = ch.readOutbound();
+        assertFalse(response.headers().contains(HttpHeaderNames.CONTENT_ENCODING));
+        response.release();
+        assertEquals(1, sampler.sampledResponses());
+        assertTrue(ch.finishAndReleaseAll());
+    }
+
+    @Test
+    public void testSamplerCachesDecisionPerEncoding() throws Exception {
+        HttpContentCompressionSampler sampler = new HttpContentCompressionSampler();
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor(0, sampler));
+
+        assertTrue(ch.writeInbound(newRequest("gzip")));
+        assertTrue(ch.writeOutbound(newRandomResponse(16384)));
+        ch.releaseOutbound();
+        assertTrue(ch.writeInbound(newRequest("gzip")));
+        assertTrue(ch.writeOutbound(newRandomResponse(16384)));
+        ch.releaseOutbound();
+        assertEquals(1, sampler.sampledResponses());
+
+        // The decision for gzip says nothing about deflate.
+        assertTrue(ch.writeInbound(newRequest("deflate")));
+        assertTrue(ch.writeOutbound(newRandomResponse(16384)));
+        ch.releaseOutbound();
+        assertEquals(2, sampler.sampledResponses());
+        assertEquals(3, sampler.skippedResponses());
+        assertTrue(ch.finishAndReleaseAll());
+    }
+
+    @Test
+    public void testSamplerResamples() throws Exception {
+        HttpContentCompressionSampler sampler = new HttpContentCompressionSampler(1024, 8192, 0.9f, 256, 2);
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor(0, sampler));
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ch.writeInbound(newRequest()));
+            assertTrue(ch.writeOutbound(newRandomResponse(16384)));
+            ch.releaseOutbound();
+        }
+        // Sampled, cached for two responses and then sampled again.
+        assertEquals(2, sampler.sampledResponses());
+        assertEquals(4, sampler.skippedResponses());
+        assertTrue(ch.finishAndReleaseAll());
+    }
+
+    @Test
+    public void testDictionaryOptionsRejected() {
+        assumeTrue(Zstd.isAvailable());
+        // A dictionary can only be used once the client negotiated 'dcz', plain 'zstd' could not be decoded.
+        final ZstdDictionary dictionary = new ZstdDictionary("{\"id\":1}".getBytes(CharsetUtil.US_ASCII));
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() {
+                new HttpContentCompressor(StandardCompressionOptions.zstd(4096, 1 << 20, dictionary));
+            }
+        });
+    }
+
+    @Test
+    public void testCompressionExecutor() throws Exception {
+        final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+        final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor(0, null, executor) {
+            @Override
+            protected Result beginEncode(HttpResponse httpResponse, String acceptEncoding) throws Exception {
+                Result result = super.beginEncode(httpResponse, acceptEncoding);
+                result.contentEncoder().pipeline().addLast(new ChannelOutboundHandlerAdapter() {
+                    @Override
+                    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                        threads.add(Thread.currentThread());
+                        ctx.write(msg, promise);
+                    }
+                });
+                return result;
+            }
+        });
+        DefaultEventExecutor compressionExecutor = new DefaultEventExecutor();
+        try {
+            assertTrue(ch.writeInbound(newRequest()));
+            HttpResponse res = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+            res.headers().set(HttpHeaderNames.CONTENT_LENGTH, 6);
+            ChannelFuture headersFuture = ch.write(res);
+            ChannelFuture contentFuture = ch.write(
+                    new DefaultHttpContent(Unpooled.copiedBuffer("Hell", CharsetUtil.US_ASCII)));
+            ChannelFuture lastFuture = ch.writeAndFlush(
+                    new DefaultLastHttpContent(Unpooled.copiedBuffer("o!", CharsetUtil.US_ASCII)));
+
+            // The headers are written right away, the content once it was compressed.
+            assertTrue(headersFuture.isSuccess());
+            assertEncodedResponse(ch);
+            assertFalse(contentFuture.isDone());
+            assertNull(ch.readOutbound());
+
+            while (!tasks.isEmpty()) {
+                // Waits for the task, so the EmbeddedEventLoop is not used by two threads at the same time.
+                compressionExecutor.submit(tasks.poll()).sync();
+                ch.runPendingTasks();
+            }
+            assertTrue(contentFuture.isSuccess());
+            assertTrue(lastFuture.isSuccess());
+            assertFalse(threads.isEmpty());
+            for (Thread thread : threads) {
+                assertTrue(compressionExecutor.inEventLoop(thread));
+            }
+
+            EmbeddedChannel decoder = new EmbeddedChannel(ZlibCodecFactory.newZlibDecoder(ZlibWrapper.GZIP));
+            for (;;) {
+                HttpContent content = ch.readOutbound();
+                if (content instanceof LastHttpContent) {
+                    content.release();
+                    break;
+                }
+                decoder.writeInbound(content.content());
+            }
+            assertNull(ch.readOutbound());
+            ByteBuf decoded = Unpooled.buffer();
+            for (;;) {
+                ByteBuf buf = decoder.readInbound();
+                if (buf == null) {
+                    break;
+                }
+                decoded.writeBytes(buf);
+                buf.release();
+            }
+            assertEquals("Hello!", decoded.toString(CharsetUtil.US_ASCII));
+            decoded.release();
+            assertFalse(decoder.finish());
+            assertTrue(ch.finishAndReleaseAll());
+        } finally {
+            compressionExecutor.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        }
+    }
+
+    private static FullHttpResponse newRandomResponse(int length) {
+        byte[] bytes = new byte[length];
+        PlatformDependent.threadLocalRandom().nextBytes(bytes);
+        FullHttpResponse res = new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.wrappedBuffer(bytes));
+        res.headers().set(HttpHeaderNames.CONTENT_TYPE, "image/jpeg");
+        return res;
+    }
+
     private static FullHttpRequest newRequest() {
+        return newRequest("gzip");
+    }
+
+    private static FullHttpRequest newRequest(String acceptEncoding) {
         FullHttpRequest req = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
-        req.headers().set(HttpHeaderNames.ACCEPT_ENCODING, "gzip");
+        req.headers().set(HttpHeaderNames.ACCEPT_ENCODING, acceptEncoding);
         return req;
     }
 
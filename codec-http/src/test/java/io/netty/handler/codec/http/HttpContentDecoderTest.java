@@ -28,6 +28,8 @@ import io.netty.handler.codec.compression.ZlibCodecFactory;
 import io.netty.handler.codec.compression.ZlibDecoder;
 import io.netty.handler.codec.compression.ZlibEncoder;
 import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.compression.Zstd;
+import io.netty.handler.codec.compression.ZstdEncoder;
 import io.netty.util.CharsetUtil;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.internal.PlatformDependent;
@@ -244,6 +246,52 @@ public class HttpContentDecoderTest {
         assertFalse(channel.finish()); // assert that no messages are left in channel
     }
 
+    @Test
+    public void testResponseZstdDecompression() throws Throwable {
+        Zstd.ensureAvailability();
+
+        // Use a small block size so the content consists of several zstd frames.
+        EmbeddedChannel encoder = new EmbeddedChannel(new ZstdEncoder(3, 16, 1024));
+        assertTrue(encoder.writeOutbound(Unpooled.copiedBuffer(SAMPLE_STRING, CharsetUtil.UTF_8)));
+        assertTrue(encoder.finish());
+        ByteBuf compressed = Unpooled.buffer();
+        for (;;) {
+            ByteBuf msg = encoder.readOutbound();
+            if (msg == null) {
+                break;
+            }
+            compressed.writeBytes(msg);
+            msg.release();
+        }
+
+        HttpResponseDecoder decoder = new HttpResponseDecoder();
+        HttpContentDecoder decompressor = new HttpContentDecompressor();
+        HttpObjectAggregator aggregator = new HttpObjectAggregator(Integer.MAX_VALUE);
+        EmbeddedChannel channel = new EmbeddedChannel(decoder, decompressor, aggregator);
+
+        String headers = "HTTP/1.1 200 OK\r\n" +
+          "Content-Length: " + compressed.readableBytes() + "\r\n" +
+          "Content-Encoding: zstd\r\n" +
+          "\r\n";
+        assertFalse(channel.writeInbound(Unpooled.wrappedBuffer(headers.getBytes(CharsetUtil.US_ASCII))));
+        while (compressed.readableBytes() > 7) {
+            assertFalse(channel.writeInbound(compressed.readRetainedSlice(7)));
+        }
+        assertTrue(channel.writeInbound(compressed));
+
+        Object o = channel.readInbound();
+        assertThat(o, is(instanceOf(FullHttpResponse.class)));
+        FullHttpResponse resp = (FullHttpResponse) o;
+        assertNull(resp.headers().get(HttpHeaderNames.CONTENT_ENCODING), "Content-Encoding header should be removed");
+        assertEquals(SAMPLE_STRING, resp.content().toString(CharsetUtil.UTF_8),
+                "Response body should match uncompressed string");
+        resp.release();
+
+        assertHasInboundMessages(channel, false);
+        assertHasOutboundMessages(channel, false);
+        assertFalse(channel.finish()); // assert that no messages are left in channel
+    }
+
     @Test
     public void testExpectContinueResponse1() {
         // request with header "Expect: 100-continue" must be replied with one "100 Continue" response
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.StandardCompressionOptions;
+import io.netty.handler.codec.compression.Zstd;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.PlatformDependent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class HttpPrecompressedFileHandlerTest {
+
+    private static final String TEXT;
+
+    static {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 256; i++) {
+            sb.append("Hello, World ").append(i).append('\n');
+        }
+        TEXT = sb.toString();
+    }
+
+    @TempDir
+    File root;
+
+    private HttpCompressedFileCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new HttpCompressedFileCache(1024 * 1024, 64 * 1024, StandardCompressionOptions.gzip());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        cache.clear();
+    }
+
+    @Test
+    public void testServesCompressedFile() throws Exception {
+        write("test.txt", TEXT.getBytes(CharsetUtil.US_ASCII));
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpPrecompressedFileHandler(root, cache));
+
+        for (int i = 0; i < 2; i++) {
+            assertFalse(ch.writeInbound(newRequest(HttpMethod.GET, "/test.txt?v=1", "deflate, gzip")));
+            FullHttpResponse res = ch.readOutbound();
+            assertEquals(HttpResponseStatus.OK, res.status());
+            assertEquals("gzip", res.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+            assertEquals("text/plain", res.headers().get(HttpHeaderNames.CONTENT_TYPE));
+            assertEquals("accept-encoding", res.headers().get(HttpHeaderNames.VARY));
+            assertTrue(res.headers().contains(HttpHeaderNames.LAST_MODIFIED));
+            assertEquals(res.content().readableBytes(), HttpUtil.getContentLength(res));
+            assertTrue(res.content().readableBytes() < TEXT.length());
+            assertEquals(TEXT, gunzip(res.content()));
+            res.release();
+        }
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.hits());
+        assertTrue(cache.usedBytes() > 0);
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testServesSiblingFile() throws Exception {
+        File file = write("app.js", TEXT.getBytes(CharsetUtil.US_ASCII));
+        byte[] sibling = { 1, 2, 3, 4 };
+        File siblingFile = write("app.js.gz", sibling);
+        assertTrue(siblingFile.setLastModified(file.lastModified() + 1000));
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpPrecompressedFileHandler(root, cache));
+
+        assertFalse(ch.writeInbound(newRequest(HttpMethod.GET, "/app.js", "gzip")));
+        FullHttpResponse res = ch.readOutbound();
+        assertEquals("gzip", res.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+        assertEquals(Unpooled.wrappedBuffer(sibling), res.content());
+        res.release();
+
+        // A sibling which is older than the file itself is ignored.
+        assertTrue(siblingFile.setLastModified(file.lastModified() - 1000));
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+        assertFalse(ch.writeInbound(newRequest(HttpMethod.GET, "/app.js", "gzip")));
+        res = ch.readOutbound();
+        assertEquals(TEXT, gunzip(res.content()));
+        res.release();
+
+        assertEquals(2, cache.misses());
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testHead() throws Exception {
+        write("test.txt", TEXT.getBytes(CharsetUtil.US_ASCII));
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpPrecompressedFileHandler(root, cache));
+
+        assertFalse(ch.writeInbound(newRequest(HttpMethod.HEAD, "/test.txt", "gzip")));
+        FullHttpResponse res = ch.readOutbound();
+        assertEquals("gzip", res.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+        assertTrue(HttpUtil.getContentLength(res) > 0);
+        assertFalse(res.content().isReadable());
+        res.release();
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testDiscardsRequestContent() throws Exception {
+        write("test.txt", TEXT.getBytes(CharsetUtil.US_ASCII));
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpPrecompressedFileHandler(root, cache));
+
+        HttpRequest req = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/test.txt");
+        req.headers().set(HttpHeaderNames.ACCEPT_ENCODING, "gzip");
+        assertFalse(ch.writeInbound(req));
+        ByteBuf content = Unpooled.copiedBuffer("content", CharsetUtil.US_ASCII);
+        assertFalse(ch.writeInbound(new DefaultLastHttpContent(content)));
+        assertEquals(0, content.refCnt());
+        ReferenceCountUtil.release(ch.readOutbound());
+
+        // The next request is handled normally again.
+        assertTrue(ch.writeInbound(newRequest(HttpMethod.GET, "/missing.txt", "gzip")));
+        ReferenceCountUtil.release(ch.readInbound());
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testPassesThrough() throws Exception {
+        write("test.txt", TEXT.getBytes(CharsetUtil.US_ASCII));
+        write("empty.txt", new byte[0]);
+        byte[] random = new byte[4096];
+        PlatformDependent.threadLocalRandom().nextBytes(random);
+        write("random.bin", random);
+        assertTrue(new File(root, "dir").mkdir());
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpPrecompressedFileHandler(new File(root, "dir"), cache));
+
+        assertPassesThrough(ch, newRequest(HttpMethod.GET, "/../test.txt", "gzip"));
+        assertPassesThrough(ch, newRequest(HttpMethod.GET, "/%2e%2e/test.txt", "gzip"));
+
+        ch = new EmbeddedChannel(new HttpPrecompressedFileHandler(root, cache));
+        assertPassesThrough(ch, newRequest(HttpMethod.GET, "/test.txt", null));
+        assertPassesThrough(ch, newRequest(HttpMethod.GET, "/test.txt", "identity"));
+        assertPassesThrough(ch, newRequest(HttpMethod.GET, "/test.txt", "gzip;q=0, br"));
+        assertPassesThrough(ch, newRequest(HttpMethod.POST, "/test.txt", "gzip"));
+        assertPassesThrough(ch, newRequest(HttpMethod.GET, "/missing.txt", "gzip"));
+        assertPassesThrough(ch, newRequest(HttpMethod.GET, "/dir", "gzip"));
+        assertPassesThrough(ch, newRequest(HttpMethod.GET, "/empty.txt", "gzip"));
+        // Content which does not compress is only tried once.
+        assertPassesThrough(ch, newRequest(HttpMethod.GET, "/random.bin", "*"));
+        assertPassesThrough(ch, newRequest(HttpMethod.GET, "/random.bin", "*"));
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.hits());
+        assertEquals(0, cache.usedBytes());
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testFallsBackToNextAcceptedEncoding() throws Exception {
+        assumeTrue(Zstd.isAvailable());
+        HttpCompressedFileCache zstdCache = new HttpCompressedFileCache(1024 * 1024, 64 * 1024,
+                StandardCompressionOptions.zstd(), StandardCompressionOptions.gzip());
+        try {
+            byte[] random = new byte[4096];
+            PlatformDependent.threadLocalRandom().nextBytes(random);
+            File file = write("random.bin", random);
+            byte[] sibling = { 1, 2, 3, 4 };
+            File siblingFile = write("random.bin.gz", sibling);
+            assertTrue(siblingFile.setLastModified(file.lastModified() + 1000));
+            EmbeddedChannel ch = new EmbeddedChannel(new HttpPrecompressedFileHandler(root, zstdCache));
+
+            // zstd is preferred by the client but does not compress the file, so gzip is used.
+            assertFalse(ch.writeInbound(newRequest(HttpMethod.GET, "/random.bin", "gzip;q=0.5, zstd")));
+            FullHttpResponse res = ch.readOutbound();
+            assertEquals("gzip", res.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+            assertEquals(Unpooled.wrappedBuffer(sibling), res.content());
+            res.release();
+            assertEquals(2, zstdCache.misses());
+            assertFalse(ch.finish());
+        } finally {
+            zstdCache.clear();
+        }
+    }
+
+    @Test
+    public void testTruncatedFileIsNotRead() throws Exception {
+        final File file = write("test.txt", TEXT.getBytes(CharsetUtil.US_ASCII));
+        assertThrows(IOException.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                HttpCompressedFileCache.read(file, TEXT.length() + 1);
+            }
+        });
+        ByteBuf content = HttpCompressedFileCache.read(file, TEXT.length());
+        assertEquals(TEXT, content.toString(CharsetUtil.US_ASCII));
+        content.release();
+    }
+
+    @Test
+    public void testEntriesOfPreviousVersionAreDropped() throws Exception {
+        File file = write("test.txt", TEXT.getBytes(CharsetUtil.US_ASCII));
+        ByteBuf content = cache.get(file, "gzip");
+        content.release();
+        long usedBytes = cache.usedBytes();
+        assertEquals(1, cache.size());
+
+        assertTrue(file.setLastModified(file.lastModified() + 2000));
+        content = cache.get(file, "gzip");
+        content.release();
+        assertEquals(2, cache.misses());
+        assertEquals(1, cache.size());
+        assertEquals(usedBytes, cache.usedBytes());
+    }
+
+    @Test
+    public void testMaxEntries() throws Exception {
+        HttpCompressedFileCache smallCache = new HttpCompressedFileCache(1024 * 1024, 64 * 1024, 2,
+                StandardCompressionOptions.gzip());
+        try {
+            // Files that do not compress take no bytes, so only the number of entries limits them.
+            for (int i = 0; i < 4; i++) {
+                byte[] random = new byte[1024];
+                PlatformDependent.threadLocalRandom().nextBytes(random);
+                assertNull(smallCache.get(write("random" + i + ".bin", random), "gzip"));
+                assertEquals(0, smallCache.usedBytes());
+                assertTrue(smallCache.size() <= 2);
+            }
+            assertEquals(2, smallCache.size());
+        } finally {
+            smallCache.clear();
+        }
+    }
+
+    private static void assertPassesThrough(EmbeddedChannel ch, FullHttpRequest req) {
+        assertTrue(ch.writeInbound(req));
+        FullHttpRequest read = ch.readInbound();
+        assertSame(req, read);
+        read.release();
+        assertNull(ch.readOutbound());
+    }
+
+    private File write(String name, byte[] bytes) throws IOException {
+        File file = new File(root, name);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static FullHttpRequest newRequest(HttpMethod method, String uri, String acceptEncoding) {
+        FullHttpRequest req = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, uri);
+        if (acceptEncoding != null) {
+            req.headers().set(HttpHeaderNames.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return req;
+    }
+
+    private static String gunzip(ByteBuf content) {
+        EmbeddedChannel decoder = new EmbeddedChannel(ZlibCodecFactory.newZlibDecoder(ZlibWrapper.GZIP));
+        assertTrue(decoder.writeInbound(content.retainedDuplicate()));
+        StringBuilder sb = new StringBuilder();
+        for (;;) {
+            ByteBuf buf = decoder.readInbound();
+            if (buf == null) {
+                break;
+            }
+            sb.append(buf.toString(CharsetUtil.US_ASCII));
+            buf.release();
+        }
+        assertFalse(decoder.finish());
+        return sb.toString();
+    }
+}
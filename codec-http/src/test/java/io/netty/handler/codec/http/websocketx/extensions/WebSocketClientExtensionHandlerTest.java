@@ -20,6 +20,7 @@ import io.netty.handler.codec.CodecException;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
+import io.netty.util.concurrent.ImmediateEventExecutor;
 
 import java.util.Collections;
 import java.util.List;
@@ -28,7 +29,9 @@ import org.junit.jupiter.api.Test;
 
 import static io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionTestUtil.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.any;
@@ -274,4 +277,32 @@ public class WebSocketClientExtensionHandlerTest {
         verify(mainExtensionMock, atLeastOnce()).rsv();
         verify(fallbackExtensionMock, atLeastOnce()).rsv();
     }
+
+    @Test
+    public void testExtensionCodecsUseExecutorOfHandler() {
+        // initialize
+        when(mainHandshakerMock.newRequestData()).
+                thenReturn(new WebSocketExtensionData("main", Collections.<String, String>emptyMap()));
+        when(mainHandshakerMock.handshakeExtension(any(WebSocketExtensionData.class))).thenReturn(mainExtensionMock);
+        when(mainExtensionMock.rsv()).thenReturn(WebSocketExtension.RSV1);
+        when(mainExtensionMock.newExtensionEncoder()).thenReturn(new DummyEncoder());
+        when(mainExtensionMock.newExtensionDecoder()).thenReturn(new DummyDecoder());
+
+        // execute
+        EmbeddedChannel ch = new EmbeddedChannel();
+        ch.pipeline().addLast(ImmediateEventExecutor.INSTANCE, new WebSocketClientExtensionHandler(mainHandshakerMock));
+
+        ch.writeOutbound(newUpgradeRequest(null));
+        ch.writeInbound(newUpgradeResponse("main"));
+
+        HttpRequest req2 = ch.readOutbound();
+        HttpResponse res2 = ch.readInbound();
+
+        // test
+        assertNotNull(req2);
+        assertNotNull(res2);
+        assertSame(ImmediateEventExecutor.INSTANCE, ch.pipeline().context(DummyDecoder.class).executor());
+        assertSame(ImmediateEventExecutor.INSTANCE, ch.pipeline().context(DummyEncoder.class).executor());
+        assertFalse(ch.finish());
+    }
 }
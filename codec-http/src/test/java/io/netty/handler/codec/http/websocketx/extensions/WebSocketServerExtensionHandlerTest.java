@@ -20,6 +20,7 @@ import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
+import io.netty.util.concurrent.ImmediateEventExecutor;
 
 import java.io.IOException;
 import java.util.Collections;
@@ -32,6 +33,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -229,4 +231,33 @@ public class WebSocketServerExtensionHandlerTest {
         assertNotNull(ch.pipeline().context(extensionHandler));
         assertTrue(ch.finish());
     }
+
+    @Test
+    public void testExtensionCodecsUseExecutorOfHandler() {
+        // initialize
+        when(mainHandshakerMock.handshakeExtension(webSocketExtensionDataMatcher("main"))).
+                thenReturn(mainExtensionMock);
+        when(mainExtensionMock.rsv()).thenReturn(WebSocketExtension.RSV1);
+        when(mainExtensionMock.newReponseData()).thenReturn(
+                new WebSocketExtensionData("main", Collections.<String, String>emptyMap()));
+        when(mainExtensionMock.newExtensionEncoder()).thenReturn(new DummyEncoder());
+        when(mainExtensionMock.newExtensionDecoder()).thenReturn(new DummyDecoder());
+
+        // execute
+        EmbeddedChannel ch = new EmbeddedChannel();
+        ch.pipeline().addLast(ImmediateEventExecutor.INSTANCE, new WebSocketServerExtensionHandler(mainHandshakerMock));
+
+        ch.writeInbound(newUpgradeRequest("main"));
+        ch.writeOutbound(newUpgradeResponse(null));
+
+        HttpRequest req2 = ch.readInbound();
+        HttpResponse res2 = ch.readOutbound();
+
+        // test
+        assertNotNull(req2);
+        assertNotNull(res2);
+        assertSame(ImmediateEventExecutor.INSTANCE, ch.pipeline().context(DummyDecoder.class).executor());
+        assertSame(ImmediateEventExecutor.INSTANCE, ch.pipeline().context(DummyEncoder.class).executor());
+        assertFalse(ch.finish());
+    }
 }
@@ -17,6 +17,7 @@ package io.netty.handler.codec.http2;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.embedded.EmbeddedChannel;
@@ -29,13 +30,21 @@ import io.netty.handler.codec.compression.BrotliOptions;
 import io.netty.handler.codec.compression.CompressionOptions;
 import io.netty.handler.codec.compression.DeflateOptions;
 import io.netty.handler.codec.compression.GzipOptions;
+import io.netty.handler.codec.compression.OffloadedCompressor;
 import io.netty.handler.codec.compression.StandardCompressionOptions;
+import io.netty.handler.codec.compression.Zstd;
 import io.netty.handler.codec.compression.ZstdEncoder;
 import io.netty.handler.codec.compression.ZstdOptions;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
 import io.netty.util.concurrent.PromiseCombiner;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.UnstableApi;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
 import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_ENCODING;
 import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
 import static io.netty.handler.codec.http.HttpHeaderValues.BR;
@@ -49,6 +58,10 @@ import static io.netty.handler.codec.http.HttpHeaderValues.ZSTD;
 /**
  * A decorating HTTP2 encoder that will compress data frames according to the {@code content-encoding} header for each
  * stream. The compression provided by this class will be applied to the data for the entire stream.
+ * <p>
+ * If an {@link Executor} is given, the data is compressed on it by an {@link OffloadedCompressor}, so the
+ * {@link io.netty.channel.EventLoop} is not blocked while compressing. The compressed data is then written and flushed
+ * once it is ready.
  */
 @UnstableApi
 public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionEncoder {
@@ -61,6 +74,7 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
     private int windowBits;
     private int memLevel;
     private final Http2Connection.PropertyKey propertyKey;
+    private final Executor compressionExecutor;
 
     private final boolean supportsCompressionOptions;
 
@@ -78,13 +92,16 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
     }
 
     private static CompressionOptions[] defaultCompressionOptions() {
+        List<CompressionOptions> options = new ArrayList<CompressionOptions>(4);
         if (Brotli.isAvailable()) {
-            return new CompressionOptions[] {
-                    StandardCompressionOptions.brotli(),
-                    StandardCompressionOptions.gzip(),
-                    StandardCompressionOptions.deflate() };
+            options.add(StandardCompressionOptions.brotli());
+        }
+        if (Zstd.isAvailable()) {
+            options.add(StandardCompressionOptions.zstd());
         }
-        return new CompressionOptions[] { StandardCompressionOptions.gzip(), StandardCompressionOptions.deflate() };
+        options.add(StandardCompressionOptions.gzip());
+        options.add(StandardCompressionOptions.deflate());
+        return options.toArray(new CompressionOptions[0]);
     }
 
     /**
@@ -109,6 +126,7 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
             }
         });
 
+        compressionExecutor = null;
         supportsCompressionOptions = false;
     }
 
@@ -118,7 +136,20 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
      */
     public CompressorHttp2ConnectionEncoder(Http2ConnectionEncoder delegate,
                                             CompressionOptions... compressionOptionsArgs) {
+        this(delegate, null, compressionOptionsArgs);
+    }
+
+    /**
+     * Create a new {@link CompressorHttp2ConnectionEncoder} with
+     * specified {@link StandardCompressionOptions} which compresses on the given {@link Executor}.
+     *
+     * @param compressionExecutor the {@link Executor} which is used to compress or {@code null} if the
+     *                            {@link io.netty.channel.EventLoop} should be used.
+     */
+    public CompressorHttp2ConnectionEncoder(Http2ConnectionEncoder delegate, Executor compressionExecutor,
+                                            CompressionOptions... compressionOptionsArgs) {
         super(delegate);
+        this.compressionExecutor = compressionExecutor;
         ObjectUtil.checkNotNull(compressionOptionsArgs, "CompressionOptions");
         ObjectUtil.deepCheckNotNull("CompressionOptions", compressionOptionsArgs);
 
@@ -131,12 +162,22 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
             // and not complain about the missing Brotli classes.
             if (Brotli.isAvailable() && compressionOptions instanceof BrotliOptions) {
                 brotliOptions = (BrotliOptions) compressionOptions;
+                if (brotliOptions.dictionary() != null) {
+                    // A client can only decode this if it negotiated 'dcb' and sent 'Available-Dictionary'.
+                    throw new IllegalArgumentException(
+                            "dictionaries are not supported for HTTP content coding: " + compressionOptions);
+                }
             } else if (compressionOptions instanceof GzipOptions) {
                 gzipCompressionOptions = (GzipOptions) compressionOptions;
             } else if (compressionOptions instanceof DeflateOptions) {
                 deflateOptions = (DeflateOptions) compressionOptions;
             } else if (compressionOptions instanceof ZstdOptions) {
                 zstdOptions = (ZstdOptions) compressionOptions;
+                if (zstdOptions.dictionary() != null) {
+                    // A client can only decode this if it negotiated 'dcz' and sent 'Available-Dictionary'.
+                    throw new IllegalArgumentException(
+                            "dictionaries are not supported for HTTP content coding: " + compressionOptions);
+                }
             } else {
                 throw new IllegalArgumentException("Unsupported " + CompressionOptions.class.getSimpleName() +
                         ": " + compressionOptions);
@@ -149,9 +190,13 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
         connection().addListener(new Http2ConnectionAdapter() {
             @Override
             public void onStreamRemoved(Http2Stream stream) {
-                final EmbeddedChannel compressor = stream.getProperty(propertyKey);
-                if (compressor != null) {
-                    cleanup(stream, compressor);
+                final Object compressor = stream.getProperty(propertyKey);
+                if (compressor instanceof OffloadedCompressor) {
+                    // Fails the data which was not written yet.
+                    ((OffloadedCompressor) compressor).close();
+                    stream.removeProperty(propertyKey);
+                } else if (compressor != null) {
+                    cleanup(stream, (EmbeddedChannel) compressor);
                 }
             }
         });
@@ -161,11 +206,16 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
     public ChannelFuture writeData(final ChannelHandlerContext ctx, final int streamId, ByteBuf data, int padding,
             final boolean endOfStream, ChannelPromise promise) {
         final Http2Stream stream = connection().stream(streamId);
-        final EmbeddedChannel channel = stream == null ? null : (EmbeddedChannel) stream.getProperty(propertyKey);
-        if (channel == null) {
+        final Object compressor = stream == null ? null : stream.getProperty(propertyKey);
+        if (compressor == null) {
             // The compressor may be null if no compatible encoding type was found in this stream's headers
             return super.writeData(ctx, streamId, data, padding, endOfStream, promise);
         }
+        if (compressor instanceof OffloadedCompressor) {
+            return writeOffloadedData(ctx, streamId, stream, (OffloadedCompressor) compressor, data, padding,
+                    endOfStream, promise);
+        }
+        final EmbeddedChannel channel = (EmbeddedChannel) compressor;
 
         try {
             // The channel will release the buffer after being written
@@ -215,8 +265,25 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
     }
 
     @Override
-    public ChannelFuture writeHeaders(ChannelHandlerContext ctx, int streamId, Http2Headers headers, int padding,
-            boolean endStream, ChannelPromise promise) {
+    public ChannelFuture writeHeaders(final ChannelHandlerContext ctx, final int streamId,
+            final Http2Headers headers, final int padding, boolean endStream, final ChannelPromise promise) {
+        if (endStream) {
+            OffloadedCompressor offloaded = removeOffloadedCompressor(streamId);
+            if (offloaded != null) {
+                // The trailers must follow the remaining compressed data.
+                offloaded.finish().addListener(new FutureListener<ByteBuf>() {
+                    @Override
+                    public void operationComplete(Future<ByteBuf> future) {
+                        if (writeRemainingData(ctx, streamId, future, promise)) {
+                            CompressorHttp2ConnectionEncoder.super.writeHeaders(
+                                    ctx, streamId, headers, padding, true, promise);
+                            flushCompressed(ctx);
+                        }
+                    }
+                });
+                return promise;
+            }
+        }
         try {
             // Determine if compression is required and sanitize the headers.
             EmbeddedChannel compressor = newCompressor(ctx, headers, endStream);
@@ -225,7 +292,7 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
             ChannelFuture future = super.writeHeaders(ctx, streamId, headers, padding, endStream, promise);
 
             // After the stream object has been created, then attach the compressor as a property for data compression.
-            bindCompressorToStream(compressor, streamId);
+            bindCompressorToStream(ctx, compressor, streamId);
 
             return future;
         } catch (Throwable e) {
@@ -238,6 +305,23 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
     public ChannelFuture writeHeaders(final ChannelHandlerContext ctx, final int streamId, final Http2Headers headers,
             final int streamDependency, final short weight, final boolean exclusive, final int padding,
             final boolean endOfStream, final ChannelPromise promise) {
+        if (endOfStream) {
+            OffloadedCompressor offloaded = removeOffloadedCompressor(streamId);
+            if (offloaded != null) {
+                // The trailers must follow the remaining compressed data.
+                offloaded.finish().addListener(new FutureListener<ByteBuf>() {
+                    @Override
+                    public void operationComplete(Future<ByteBuf> future) {
+                        if (writeRemainingData(ctx, streamId, future, promise)) {
+                            CompressorHttp2ConnectionEncoder.super.writeHeaders(ctx, streamId, headers,
+                                    streamDependency, weight, exclusive, padding, true, promise);
+                            flushCompressed(ctx);
+                        }
+                    }
+                });
+                return promise;
+            }
+        }
         try {
             // Determine if compression is required and sanitize the headers.
             EmbeddedChannel compressor = newCompressor(ctx, headers, endOfStream);
@@ -247,7 +331,7 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
                                                       padding, endOfStream, promise);
 
             // After the stream object has been created, then attach the compressor as a property for data compression.
-            bindCompressorToStream(compressor, streamId);
+            bindCompressorToStream(ctx, compressor, streamId);
 
             return future;
         } catch (Throwable e) {
@@ -256,6 +340,104 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
         return promise;
     }
 
+    private ChannelFuture writeOffloadedData(ChannelHandlerContext ctx, int streamId, Http2Stream stream,
+            OffloadedCompressor compressor, ByteBuf data, int padding, boolean endOfStream, ChannelPromise promise) {
+        // The compressor releases the buffer after it was compressed.
+        Future<ByteBuf> compressed = compressor.compress(data);
+        if (!endOfStream) {
+            writeWhenCompressed(ctx, streamId, compressed, padding, false, promise);
+            return promise;
+        }
+        // The compressor releases itself once it is finished.
+        stream.removeProperty(propertyKey);
+        PromiseCombiner combiner = new PromiseCombiner(ctx.executor());
+        ChannelPromise dataPromise = ctx.newPromise();
+        combiner.add(dataPromise);
+        writeWhenCompressed(ctx, streamId, compressed, padding, false, dataPromise);
+        ChannelPromise lastPromise = ctx.newPromise();
+        combiner.add(lastPromise);
+        writeWhenCompressed(ctx, streamId, compressor.finish(), 0, true, lastPromise);
+        combiner.finish(promise);
+        return promise;
+    }
+
+    /**
+     * Writes the compressed data once it is ready. The futures of a stream are notified in the order in which the
+     * data was submitted, so the data is written in order.
+     */
+    private void writeWhenCompressed(final ChannelHandlerContext ctx, final int streamId, Future<ByteBuf> compressed,
+            final int padding, final boolean endOfStream, final ChannelPromise promise) {
+        compressed.addListener(new FutureListener<ByteBuf>() {
+            @Override
+            public void operationComplete(Future<ByteBuf> future) {
+                if (!future.isSuccess()) {
+                    promise.tryFailure(future.cause());
+                    return;
+                }
+                ByteBuf buf = future.getNow();
+                if (!endOfStream && !buf.isReadable()) {
+                    // END_STREAM is not set and the assumption is data is still forthcoming.
+                    buf.release();
+                    promise.trySuccess();
+                    return;
+                }
+                CompressorHttp2ConnectionEncoder.super.writeData(ctx, streamId, buf, padding, endOfStream, promise);
+                flushCompressed(ctx);
+            }
+        });
+    }
+
+    /**
+     * Writes the data which remained in a finished {@link OffloadedCompressor} before the trailers.
+     *
+     * @return {@code true} if the trailers should be written.
+     */
+    private boolean writeRemainingData(ChannelHandlerContext ctx, int streamId, Future<ByteBuf> future,
+                                       ChannelPromise headersPromise) {
+        if (!future.isSuccess()) {
+            headersPromise.tryFailure(future.cause());
+            return false;
+        }
+        ByteBuf buf = future.getNow();
+        if (buf.isReadable()) {
+            super.writeData(ctx, streamId, buf, 0, false, ctx.newPromise());
+        } else {
+            buf.release();
+        }
+        return true;
+    }
+
+    private OffloadedCompressor removeOffloadedCompressor(int streamId) {
+        Http2Stream stream = connection().stream(streamId);
+        if (stream == null) {
+            return null;
+        }
+        Object compressor = stream.getProperty(propertyKey);
+        if (compressor instanceof OffloadedCompressor) {
+            stream.removeProperty(propertyKey);
+            return (OffloadedCompressor) compressor;
+        }
+        return null;
+    }
+
+    /**
+     * Flushes the compressed data which was written after the last flush of the {@link Http2ConnectionHandler}.
+     */
+    private void flushCompressed(ChannelHandlerContext ctx) {
+        ChannelHandler handler = ctx.handler();
+        if (handler instanceof Http2ConnectionHandler) {
+            // Takes care of the remote flow controller and of its errors.
+            ((Http2ConnectionHandler) handler).flush(ctx);
+            return;
+        }
+        try {
+            flowController().writePendingBytes();
+        } catch (Http2Exception e) {
+            ctx.fireExceptionCaught(e);
+        }
+        ctx.flush();
+    }
+
     /**
      * Returns a new {@link EmbeddedChannel} that encodes the HTTP2 message content encoded in the specified
      * {@code contentEncoding}.
@@ -366,14 +548,16 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
 
     /**
      * Called after the super class has written the headers and created any associated stream objects.
+     * @param ctx the context.
      * @param compressor The compressor associated with the stream identified by {@code streamId}.
      * @param streamId The stream id for which the headers were written.
      */
-    private void bindCompressorToStream(EmbeddedChannel compressor, int streamId) {
+    private void bindCompressorToStream(ChannelHandlerContext ctx, EmbeddedChannel compressor, int streamId) {
         if (compressor != null) {
             Http2Stream stream = connection().stream(streamId);
             if (stream != null) {
-                stream.setProperty(propertyKey, compressor);
+                stream.setProperty(propertyKey, compressionExecutor == null ? compressor :
+                        new OffloadedCompressor(compressor, compressionExecutor, ctx.executor()));
             }
         }
     }
@@ -23,17 +23,22 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.compression.StandardCompressionOptions;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http2.Http2TestUtil.Http2Runnable;
 import io.netty.util.AsciiString;
 import io.netty.util.CharsetUtil;
 import io.netty.util.NetUtil;
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.Future;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -46,6 +51,9 @@ import org.mockito.stubbing.Answer;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
 
@@ -54,6 +62,7 @@ import static io.netty.handler.codec.http2.Http2TestUtil.runInChannel;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyBoolean;
@@ -87,6 +96,8 @@ public class DataCompressionHttp2Test {
     private Http2Connection clientConnection;
     private Http2ConnectionHandler clientHandler;
     private ByteArrayOutputStream serverOut;
+    private EventExecutor clientCompressionExecutor;
+    private final List<Thread> clientCompressionThreads = Collections.synchronizedList(new ArrayList<Thread>());
 
     @BeforeEach
     public void setup() throws InterruptedException, Http2Exception {
@@ -139,6 +150,9 @@ public class DataCompressionHttp2Test {
         serverGroup.sync();
         serverChildGroup.sync();
         clientGroup.sync();
+        if (clientCompressionExecutor != null) {
+            clientCompressionExecutor.shutdownGracefully(0, 0, MILLISECONDS).sync();
+        }
     }
 
     @Test
@@ -358,6 +372,72 @@ public class DataCompressionHttp2Test {
         }
     }
 
+    @Test
+    public void gzipEncodingOffloaded() throws Exception {
+        final String text1 = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaabbbbbbbbbbbbbbbbbbbbbbbbbbbbbccccccccccccccccccccccc";
+        final String text2 = "dddddddddddddddddddeeeeeeeeeeeeeeeeeeeffffffffffffffffffff";
+        final ByteBuf data1 = Unpooled.copiedBuffer(text1.getBytes());
+        final ByteBuf data2 = Unpooled.copiedBuffer(text2.getBytes());
+        clientCompressionExecutor = new DefaultEventExecutor();
+        bootstrapEnv(data1.readableBytes() + data2.readableBytes());
+        try {
+            final Http2Headers headers = new DefaultHttp2Headers().method(POST).path(PATH)
+                    .set(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.GZIP);
+
+            runInChannel(clientChannel, new Http2Runnable() {
+                @Override
+                public void run() throws Http2Exception {
+                    clientEncoder.writeHeaders(ctxClient(), 3, headers, 0, false, newPromiseClient());
+                    clientEncoder.writeData(ctxClient(), 3, data1.retain(), 0, false, newPromiseClient());
+                    clientEncoder.writeData(ctxClient(), 3, data2.retain(), 0, true, newPromiseClient());
+                    clientHandler.flush(ctxClient());
+                }
+            });
+            awaitServer();
+            assertEquals(text1 + text2, serverOut.toString(CharsetUtil.UTF_8.name()));
+            assertCompressedByExecutor();
+        } finally {
+            data1.release();
+            data2.release();
+        }
+    }
+
+    @Test
+    public void gzipEncodingOffloadedWithTrailers() throws Exception {
+        final String text = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaabbbbbbbbbbbbbbbbbbbbbbbbbbbbbccccccccccccccccccccccc";
+        final ByteBuf data = Unpooled.copiedBuffer(text.getBytes());
+        clientCompressionExecutor = new DefaultEventExecutor();
+        bootstrapEnv(data.readableBytes());
+        try {
+            final Http2Headers headers = new DefaultHttp2Headers().method(POST).path(PATH)
+                    .set(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.GZIP);
+            final Http2Headers trailers = new DefaultHttp2Headers().set("grpc-status", "0");
+
+            runInChannel(clientChannel, new Http2Runnable() {
+                @Override
+                public void run() throws Http2Exception {
+                    clientEncoder.writeHeaders(ctxClient(), 3, headers, 0, false, newPromiseClient());
+                    clientEncoder.writeData(ctxClient(), 3, data.retain(), 0, false, newPromiseClient());
+                    // The trailers are written after the remaining compressed data.
+                    clientEncoder.writeHeaders(ctxClient(), 3, trailers, 0, true, newPromiseClient());
+                    clientHandler.flush(ctxClient());
+                }
+            });
+            awaitServer();
+            assertEquals(text, serverOut.toString(CharsetUtil.UTF_8.name()));
+            assertCompressedByExecutor();
+        } finally {
+            data.release();
+        }
+    }
+
+    private void assertCompressedByExecutor() {
+        assertFalse(clientCompressionThreads.isEmpty());
+        for (Thread thread : clientCompressionThreads) {
+            assertTrue(clientCompressionExecutor.inEventLoop(thread));
+        }
+    }
+
     private void bootstrapEnv(int serverOutSize) throws Exception {
         final CountDownLatch prefaceWrittenLatch = new CountDownLatch(1);
         serverOut = new ByteArrayOutputStream(serverOutSize);
@@ -429,8 +509,29 @@ public class DataCompressionHttp2Test {
                         new DefaultHttp2RemoteFlowController(clientConnection));
                 clientConnection.local().flowController(
                         new DefaultHttp2LocalFlowController(clientConnection).frameWriter(frameWriter));
-                clientEncoder = new CompressorHttp2ConnectionEncoder(
-                        new DefaultHttp2ConnectionEncoder(clientConnection, frameWriter));
+                if (clientCompressionExecutor == null) {
+                    clientEncoder = new CompressorHttp2ConnectionEncoder(
+                            new DefaultHttp2ConnectionEncoder(clientConnection, frameWriter));
+                } else {
+                    clientEncoder = new CompressorHttp2ConnectionEncoder(
+                            new DefaultHttp2ConnectionEncoder(clientConnection, frameWriter),
+                            clientCompressionExecutor, StandardCompressionOptions.gzip()) {
+                        @Override
+                        protected EmbeddedChannel newContentCompressor(ChannelHandlerContext ctx,
+                                CharSequence contentEncoding) throws Http2Exception {
+                            EmbeddedChannel compressor = super.newContentCompressor(ctx, contentEncoding);
+                            // Records the threads which are used to compress.
+                            compressor.pipeline().addLast(new ChannelOutboundHandlerAdapter() {
+                                @Override
+                                public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                                    clientCompressionThreads.add(Thread.currentThread());
+                                    ctx.write(msg, promise);
+                                }
+                            });
+                            return compressor;
+                        }
+                    };
+                }
 
                 Http2ConnectionDecoder decoder =
                         new DefaultHttp2ConnectionDecoder(clientConnection, clientEncoder,
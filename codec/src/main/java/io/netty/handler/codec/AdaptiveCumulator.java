@@ -0,0 +1,169 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.handler.codec.ByteToMessageDecoder.Cumulator;
+import io.netty.util.internal.UnstableApi;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
+
+/**
+ * {@link Cumulator} which picks between {@link ByteToMessageDecoder#MERGE_CUMULATOR} and
+ * {@link ByteToMessageDecoder#COMPOSITE_CUMULATOR} based on the frames it observes:
+ * <ul>
+ *     <li>While the frames are small the bytes are copied into one {@link ByteBuf}, which is sized for the
+ *     expected frame instead of being doubled whenever it runs out of space.</li>
+ *     <li>Once the frames are at least {@code compositeThreshold} bytes big, or the current frame is known to be at
+ *     least that big, the {@link ByteBuf}s are composed without copying them.</li>
+ *     <li>If the decoder knows the length of the next frame, like a length-prefixed decoder does after it read the
+ *     header, it can announce it via {@link #expectFrameLength(int)}. The bytes are then copied into a {@link ByteBuf}
+ *     with exactly the needed capacity, so each byte is copied once and the frame is contiguous. Frames above 64 KiB
+ *     are only reserved in steps of at most twice the received bytes, as the announced length comes from the
+ *     peer.</li>
+ * </ul>
+ * The frame sizes are tracked per stream, so each {@link ByteToMessageDecoder} needs its own instance.
+ */
+@UnstableApi
+public final class AdaptiveCumulator implements Cumulator {
+
+    private static final int DEFAULT_COMPOSITE_THRESHOLD = 64 * 1024;
+
+    private final int compositeThreshold;
+    // Moving average of the number of bytes that were cumulated before the decoder consumed a frame.
+    private int frameSizeEstimate;
+    private int lastReadableBytes;
+    private int expectedFrameLength;
+    // true if expectFrameLength(...) was called since the last cumulate(...) call.
+    private boolean announced;
+
+    /**
+     * Creates a new instance which composes frames of at least 64 KiB.
+     */
+    public AdaptiveCumulator() {
+        this(DEFAULT_COMPOSITE_THRESHOLD);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param compositeThreshold the estimated frame size in bytes from which on {@link ByteBuf}s are composed
+     *                           instead of copied.
+     */
+    public AdaptiveCumulator(int compositeThreshold) {
+        this.compositeThreshold = checkPositive(compositeThreshold, "compositeThreshold");
+    }
+
+    /**
+     * Announce that the next frame needs {@code frameLength} readable bytes in the cumulation, counted from its
+     * current reader index. The announcement is dropped once the cumulation holds enough bytes or the decoder
+     * consumed bytes afterwards.
+     */
+    public void expectFrameLength(int frameLength) {
+        expectedFrameLength = checkPositiveOrZero(frameLength, "frameLength");
+        announced = true;
+    }
+
+    /**
+     * Returns the current estimate of the frame size in bytes.
+     */
+    public int frameSizeEstimate() {
+        return frameSizeEstimate;
+    }
+
+    @Override
+    public ByteBuf cumulate(ByteBufAllocator alloc, ByteBuf cumulation, ByteBuf in) {
+        if (cumulation == in) {
+            // when the in buffer is the same as the cumulation it is doubly retained, release it once
+            in.release();
+            return cumulation;
+        }
+        int readable = cumulation.readableBytes();
+        if (readable < lastReadableBytes) {
+            // The decoder consumed bytes since the last call, so all the bytes that were cumulated until then were
+            // needed to decode a frame.
+            frameSizeEstimate = frameSizeEstimate == 0 ? lastReadableBytes :
+                    (int) ((frameSizeEstimate * 7L + lastReadableBytes) >>> 3);
+            if (!announced) {
+                // The announcement belonged to the consumed frame.
+                expectedFrameLength = 0;
+            }
+        }
+        announced = false;
+
+        final ByteBuf result;
+        if (!cumulation.isReadable()) {
+            cumulation.release();
+            result = startCumulation(alloc, in);
+        } else if (cumulation instanceof CompositeByteBuf || expectedFrameLength == 0 &&
+                // The bytes that are cumulated but not consumed yet are a lower bound for the current frame size.
+                Math.max(frameSizeEstimate, readable) >= compositeThreshold) {
+            result = ByteToMessageDecoder.COMPOSITE_CUMULATOR.cumulate(alloc, cumulation, in);
+        } else {
+            result = merge(alloc, cumulation, in);
+        }
+
+        lastReadableBytes = result.readableBytes();
+        if (lastReadableBytes >= expectedFrameLength) {
+            expectedFrameLength = 0;
+        }
+        return result;
+    }
+
+    private ByteBuf startCumulation(ByteBufAllocator alloc, ByteBuf in) {
+        int required = in.readableBytes();
+        if (expectedFrameLength <= required && in.isContiguous()) {
+            // Use the buffer directly.
+            return in;
+        }
+        ByteBuf cumulation = alloc.buffer(Math.max(
+                ByteToMessageDecoder.reservedCapacity(expectedFrameLength, required), required));
+        try {
+            cumulation.writeBytes(in, in.readerIndex(), required);
+            in.readerIndex(in.writerIndex());
+            return cumulation;
+        } finally {
+            in.release();
+        }
+    }
+
+    private ByteBuf merge(ByteBufAllocator alloc, ByteBuf cumulation, ByteBuf in) {
+        try {
+            final int required = in.readableBytes();
+            if (required > cumulation.maxFastWritableBytes() || cumulation.isReadOnly()) {
+                // Replace the cumulation with one that fits the expected frame, instead of letting it grow
+                // step by step.
+                int total = cumulation.readableBytes() + required;
+                int capacity = Math.max(total, expectedFrameLength > 0 ?
+                        ByteToMessageDecoder.reservedCapacity(expectedFrameLength, total) : frameSizeEstimate);
+                if (capacity == total && expectedFrameLength == 0) {
+                    capacity = alloc.calculateNewCapacity(total, Integer.MAX_VALUE);
+                }
+                return ByteToMessageDecoder.expandCumulation(alloc, cumulation, in, capacity);
+            }
+            cumulation.writeBytes(in, in.readerIndex(), required);
+            in.readerIndex(in.writerIndex());
+            return cumulation;
+        } finally {
+            // We must release in all cases as otherwise it may produce a leak if writeBytes(...) throw
+            // for whatever release (for example because of OutOfMemoryError)
+            in.release();
+        }
+    }
+}
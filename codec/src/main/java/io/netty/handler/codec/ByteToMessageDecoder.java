@@ -30,6 +30,7 @@ import io.netty.util.internal.StringUtil;
 import java.util.List;
 
 import static io.netty.util.internal.ObjectUtil.checkPositive;
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
 import static java.lang.Integer.MAX_VALUE;
 
 /**
@@ -184,8 +185,14 @@ public abstract class ByteToMessageDecoder extends ChannelInboundHandlerAdapter
      * </ul>
      */
     private byte decodeState = STATE_INIT;
+    // The capacity up to which an announced frame is reserved at once, beyond that the reservation only grows with
+    // the received bytes so a peer can not make us allocate maxFrameLength bytes by sending a single header.
+    static final int MAX_RESERVE_AHEAD = 64 * 1024;
+
     private int discardAfterReads = 16;
     private int numReads;
+    // The number of readable bytes decode(...) needs to make progress, 0 if unknown.
+    private int expectedBytes;
 
     protected ByteToMessageDecoder() {
         ensureNotSharable();
@@ -227,6 +234,24 @@ public abstract class ByteToMessageDecoder extends ChannelInboundHandlerAdapter
         this.discardAfterReads = discardAfterReads;
     }
 
+    /**
+     * Announce that {@link #decode(ChannelHandlerContext, ByteBuf, List)} can not make any progress before the
+     * cumulation holds at least {@code readableBytes} readable bytes, counted from its current reader index. This is
+     * typically called by length-prefixed decoders once they read the header of a frame.
+     * <p>
+     * Until enough bytes were received {@link #decode(ChannelHandlerContext, ByteBuf, List)} is not called anymore,
+     * and the cumulation is grown directly to the needed capacity instead of step by step. As the announced length
+     * usually comes from the peer, frames above 64 KiB are only reserved in steps of at most twice the bytes that
+     * were actually received. The announcement is dropped once {@link #decode(ChannelHandlerContext, ByteBuf, List)}
+     * is called again.
+     */
+    protected final void expectBytes(int readableBytes) {
+        expectedBytes = checkPositiveOrZero(readableBytes, "readableBytes");
+        if (cumulator instanceof AdaptiveCumulator) {
+            ((AdaptiveCumulator) cumulator).expectFrameLength(readableBytes);
+        }
+    }
+
     /**
      * Returns the actual number of readable bytes in the internal cumulative
      * buffer of this decoder. You usually do not need to rely on this value
@@ -261,6 +286,7 @@ public abstract class ByteToMessageDecoder extends ChannelInboundHandlerAdapter
             // Directly set this to null, so we are sure we not access it in any other method here anymore.
             cumulation = null;
             numReads = 0;
+            expectedBytes = 0;
             int readable = buf.readableBytes();
             if (readable > 0) {
                 ctx.fireChannelRead(buf);
@@ -285,9 +311,15 @@ public abstract class ByteToMessageDecoder extends ChannelInboundHandlerAdapter
             CodecOutputList out = CodecOutputList.newInstance();
             try {
                 first = cumulation == null;
+                if (!first && expectedBytes > 0 && cumulator == MERGE_CUMULATOR) {
+                    reserveExpectedBytes(ctx.alloc(), ((ByteBuf) msg).readableBytes());
+                }
                 cumulation = cumulator.cumulate(ctx.alloc(),
                         first ? Unpooled.EMPTY_BUFFER : cumulation, (ByteBuf) msg);
-                callDecode(ctx, cumulation, out);
+                if (cumulation.readableBytes() >= expectedBytes) {
+                    expectedBytes = 0;
+                    callDecode(ctx, cumulation, out);
+                }
             } catch (DecoderException e) {
                 throw e;
             } catch (Exception e) {
@@ -325,6 +357,33 @@ public abstract class ByteToMessageDecoder extends ChannelInboundHandlerAdapter
         }
     }
 
+    private void reserveExpectedBytes(ByteBufAllocator alloc, int incomingBytes) {
+        ByteBuf oldCumulation = cumulation;
+        int readable = oldCumulation.readableBytes();
+        if (readable + incomingBytes >= expectedBytes || incomingBytes <= oldCumulation.maxFastWritableBytes() ||
+                oldCumulation.refCnt() > 1 || oldCumulation instanceof CompositeByteBuf) {
+            // Either there is enough room already or we can not safely replace the cumulation.
+            return;
+        }
+        ByteBuf newCumulation = alloc.buffer(reservedCapacity(expectedBytes, readable + incomingBytes));
+        ByteBuf toRelease = newCumulation;
+        try {
+            newCumulation.writeBytes(oldCumulation, oldCumulation.readerIndex(), readable);
+            cumulation = newCumulation;
+            toRelease = oldCumulation;
+        } finally {
+            toRelease.release();
+        }
+    }
+
+    /**
+     * Returns the capacity to reserve for a frame of {@code expectedBytes} of which {@code receivedBytes} were
+     * received so far, which is never more than {@link #MAX_RESERVE_AHEAD} or twice the received bytes.
+     */
+    static int reservedCapacity(int expectedBytes, int receivedBytes) {
+        return (int) Math.min(expectedBytes, Math.max(MAX_RESERVE_AHEAD, (long) receivedBytes << 1));
+    }
+
     /**
      * Get {@code numElements} out of the {@link List} and forward these through the pipeline.
      */
@@ -422,6 +481,7 @@ public abstract class ByteToMessageDecoder extends ChannelInboundHandlerAdapter
      * {@link ChannelInputShutdownEvent}.
      */
     void channelInputClosed(ChannelHandlerContext ctx, List<Object> out) throws Exception {
+        expectedBytes = 0;
         if (cumulation != null) {
             callDecode(ctx, cumulation, out);
             // If callDecode(...) removed the handle from the pipeline we should not call decodeLast(...) as this would
@@ -554,10 +614,15 @@ public abstract class ByteToMessageDecoder extends ChannelInboundHandlerAdapter
     }
 
     static ByteBuf expandCumulation(ByteBufAllocator alloc, ByteBuf oldCumulation, ByteBuf in) {
+        int totalBytes = oldCumulation.readableBytes() + in.readableBytes();
+        return expandCumulation(alloc, oldCumulation, in, alloc.calculateNewCapacity(totalBytes, MAX_VALUE));
+    }
+
+    static ByteBuf expandCumulation(ByteBufAllocator alloc, ByteBuf oldCumulation, ByteBuf in, int capacity) {
         int oldBytes = oldCumulation.readableBytes();
         int newBytes = in.readableBytes();
         int totalBytes = oldBytes + newBytes;
-        ByteBuf newCumulation = alloc.buffer(alloc.calculateNewCapacity(totalBytes, MAX_VALUE));
+        ByteBuf newCumulation = alloc.buffer(capacity);
         ByteBuf toRelease = newCumulation;
         try {
             // This avoids redundant checks and stack depth compared to calling writeBytes(...)
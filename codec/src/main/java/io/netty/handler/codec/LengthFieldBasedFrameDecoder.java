@@ -427,6 +427,7 @@ public class LengthFieldBasedFrameDecoder extends ByteToMessageDecoder {
             frameLengthInt = (int) frameLength;
         }
         if (in.readableBytes() < frameLengthInt) { // frameLengthInt exist , just check buf
+            expectBytes(frameLengthInt);
             return null;
         }
         if (initialBytesToStrip > frameLengthInt) {
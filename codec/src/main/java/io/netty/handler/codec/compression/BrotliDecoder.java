@@ -22,6 +22,7 @@ import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
 
 import java.nio.ByteBuffer;
 import java.util.List;
@@ -46,6 +47,7 @@ public final class BrotliDecoder extends ByteToMessageDecoder {
     }
 
     private final int inputBufferSize;
+    private final BrotliDictionary dictionary;
     private DecoderJNI.Wrapper decoder;
     private boolean destroyed;
 
@@ -61,7 +63,18 @@ public final class BrotliDecoder extends ByteToMessageDecoder {
      * @param inputBufferSize desired size of the input buffer in bytes
      */
     public BrotliDecoder(int inputBufferSize) {
+        this(inputBufferSize, null);
+    }
+
+    /**
+     * Creates a new BrotliDecoder which decompresses with a custom dictionary
+     * @param inputBufferSize desired size of the input buffer in bytes
+     * @param dictionary the {@link BrotliDictionary} the data was compressed with or {@code null}
+     */
+    @UnstableApi
+    public BrotliDecoder(int inputBufferSize, BrotliDictionary dictionary) {
         this.inputBufferSize = ObjectUtil.checkPositive(inputBufferSize, "inputBufferSize");
+        this.dictionary = dictionary;
     }
 
     private ByteBuf pull(ByteBufAllocator alloc) {
@@ -119,6 +132,11 @@ public final class BrotliDecoder extends ByteToMessageDecoder {
     @Override
     public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
         decoder = new DecoderJNI.Wrapper(inputBufferSize);
+        if (dictionary != null && !decoder.attachDictionary(dictionary.data())) {
+            decoder.destroy();
+            destroyed = true;
+            throw new DecompressionException("Failed to attach brotli dictionary");
+        }
     }
 
     @Override
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import com.aayushatharva.brotli4j.encoder.PreparedDictionary;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A custom brotli dictionary, which is used in addition to the built-in dictionary of brotli. A dictionary that
+ * contains strings which are common in the data that should be compressed improves the compression ratio of small
+ * payloads.
+ *
+ * The dictionary is copied into native memory and prepared for compression once when the instance is constructed,
+ * so a single instance should be created and shared by all {@link BrotliEncoder}s and {@link BrotliDecoder}s that
+ * use it. Data compressed with a dictionary can only be decompressed with the same dictionary.
+ *
+ * Please note that brotli only uses custom dictionaries for a quality of 5 and above.
+ */
+@UnstableApi
+public final class BrotliDictionary {
+
+    // See BROTLI_SHARED_DICTIONARY_RAW.
+    private static final int RAW_DICTIONARY = 0;
+
+    private final ByteBuffer data;
+    private final PreparedDictionary preparedDictionary;
+
+    /**
+     * Creates a new dictionary.
+     *
+     * @param dictionary the content of the dictionary
+     */
+    public BrotliDictionary(byte[] dictionary) {
+        if (!Brotli.isAvailable()) {
+            throw new IllegalStateException("Brotli is not available", Brotli.cause());
+        }
+        ObjectUtil.checkNonEmpty(dictionary, "dictionary");
+        // The native code keeps a reference to the memory, so it must be direct and must never be modified.
+        ByteBuffer data = ByteBuffer.allocateDirect(dictionary.length);
+        data.put(dictionary).flip();
+        this.data = data;
+        preparedDictionary = Encoder.prepareDictionary(data, RAW_DICTIONARY);
+    }
+
+    /**
+     * Returns the size of the dictionary in bytes.
+     */
+    public int size() {
+        return data.capacity();
+    }
+
+    ByteBuffer data() {
+        return data;
+    }
+
+    PreparedDictionary preparedDictionary() {
+        return preparedDictionary;
+    }
+}
@@ -15,15 +15,20 @@
  */
 package io.netty.handler.codec.compression;
 
+import com.aayushatharva.brotli4j.encoder.BrotliOutputStream;
 import com.aayushatharva.brotli4j.encoder.Encoder;
 import com.aayushatharva.brotli4j.encoder.Encoders;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.io.IOException;
 
 /**
  * Compress a {@link ByteBuf} with the brotli format.
@@ -34,6 +39,7 @@ import io.netty.util.internal.ObjectUtil;
 public final class BrotliEncoder extends MessageToByteEncoder<ByteBuf> {
 
     private final Encoder.Parameters parameters;
+    private final BrotliDictionary dictionary;
 
     /**
      * Create a new {@link BrotliEncoder} Instance
@@ -50,7 +56,19 @@ public final class BrotliEncoder extends MessageToByteEncoder<ByteBuf> {
      * @param parameters {@link Encoder.Parameters} Instance
      */
     public BrotliEncoder(Encoder.Parameters parameters) {
+        this(parameters, null);
+    }
+
+    /**
+     * Create a new {@link BrotliEncoder} Instance
+     *
+     * @param parameters {@link Encoder.Parameters} Instance
+     * @param dictionary {@link BrotliDictionary} to compress with or {@code null}
+     */
+    @UnstableApi
+    public BrotliEncoder(Encoder.Parameters parameters, BrotliDictionary dictionary) {
         this.parameters = ObjectUtil.checkNotNull(parameters, "Parameters");
+        this.dictionary = dictionary;
     }
 
     /**
@@ -59,7 +77,7 @@ public final class BrotliEncoder extends MessageToByteEncoder<ByteBuf> {
      * @param brotliOptions {@link BrotliOptions} to use.
      */
     public BrotliEncoder(BrotliOptions brotliOptions) {
-        this(brotliOptions.parameters());
+        this(brotliOptions.parameters(), brotliOptions.dictionary());
     }
 
     @Override
@@ -81,11 +99,27 @@ public final class BrotliEncoder extends MessageToByteEncoder<ByteBuf> {
             } else {
                 out = ctx.alloc().buffer();
             }
-            Encoders.compress(msg, out, parameters);
+            if (dictionary == null) {
+                Encoders.compress(msg, out, parameters);
+            } else {
+                compress(msg, out);
+            }
             return out;
         } catch (Exception e) {
             ReferenceCountUtil.release(msg);
             throw e;
         }
     }
+
+    private void compress(ByteBuf msg, ByteBuf out) throws IOException {
+        // Encoders does not support dictionaries, so use the streaming API. The prepared dictionary is shared and
+        // only referenced by the native encoder.
+        BrotliOutputStream os = new BrotliOutputStream(new ByteBufOutputStream(out), parameters);
+        try {
+            os.attachDictionary(dictionary.preparedDictionary());
+            msg.readBytes(os, msg.readableBytes());
+        } finally {
+            os.close();
+        }
+    }
 }
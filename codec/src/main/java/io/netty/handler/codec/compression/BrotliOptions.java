@@ -25,6 +25,7 @@ import io.netty.util.internal.ObjectUtil;
 public final class BrotliOptions implements CompressionOptions {
 
     private final Encoder.Parameters parameters;
+    private final BrotliDictionary dictionary;
 
     /**
      * @see StandardCompressionOptions#brotli()
@@ -34,14 +35,26 @@ public final class BrotliOptions implements CompressionOptions {
     );
 
     BrotliOptions(Encoder.Parameters parameters) {
+        this(parameters, null);
+    }
+
+    BrotliOptions(Encoder.Parameters parameters, BrotliDictionary dictionary) {
         if (!Brotli.isAvailable()) {
             throw new IllegalStateException("Brotli is not available", Brotli.cause());
         }
 
         this.parameters = ObjectUtil.checkNotNull(parameters, "Parameters");
+        this.dictionary = dictionary;
     }
 
     public Encoder.Parameters parameters() {
         return parameters;
     }
+
+    /**
+     * Returns the {@link BrotliDictionary} to compress with or {@code null} if no custom dictionary is used.
+     */
+    public BrotliDictionary dictionary() {
+        return dictionary;
+    }
 }
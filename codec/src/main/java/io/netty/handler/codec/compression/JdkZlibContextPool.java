@@ -0,0 +1,200 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.ThreadExecutorMap;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Pools the {@link Deflater}s and {@link Inflater}s used by {@link JdkZlibEncoder} and {@link JdkZlibDecoder}.
+ * Each of them holds native zlib state (about 256KB for deflate at the default level), so allocating a new one for
+ * every short-lived connection or HTTP response is expensive and puts pressure on the native memory and the
+ * finalizer / cleaner.
+ * <p>
+ * Every {@link io.netty.util.concurrent.EventExecutor} has its own bounded pool, so no synchronization is needed.
+ * Contexts are {@code reset()} when they are returned and are only pooled if they are returned on an
+ * {@link io.netty.util.concurrent.EventExecutor}, otherwise they are {@code end()}ed as before. The maximum number
+ * of pooled contexts per executor and kind can be configured with {@code -Dio.netty.jdkzlib.maxPooledContexts},
+ * {@code 0} disables pooling.
+ */
+@UnstableApi
+public final class JdkZlibContextPool {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(JdkZlibContextPool.class);
+
+    private static final int MAX_POOLED_CONTEXTS;
+
+    private static final LongCounter DEFLATER_HITS = PlatformDependent.newLongCounter();
+    private static final LongCounter DEFLATER_MISSES = PlatformDependent.newLongCounter();
+    private static final LongCounter INFLATER_HITS = PlatformDependent.newLongCounter();
+    private static final LongCounter INFLATER_MISSES = PlatformDependent.newLongCounter();
+
+    private static final FastThreadLocal<Contexts> CONTEXTS = new FastThreadLocal<Contexts>() {
+        @Override
+        protected Contexts initialValue() {
+            return new Contexts();
+        }
+
+        @Override
+        protected void onRemoval(Contexts contexts) {
+            contexts.free();
+        }
+    };
+
+    static {
+        MAX_POOLED_CONTEXTS = Math.max(0, SystemPropertyUtil.getInt("io.netty.jdkzlib.maxPooledContexts", 4));
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.jdkzlib.maxPooledContexts: {}", MAX_POOLED_CONTEXTS);
+        }
+    }
+
+    private JdkZlibContextPool() {
+    }
+
+    /**
+     * Returns the number of {@link Deflater}s which were taken from the pool.
+     */
+    public static long deflaterHits() {
+        return DEFLATER_HITS.value();
+    }
+
+    /**
+     * Returns the number of {@link Deflater}s which had to be created because the pool was empty.
+     */
+    public static long deflaterMisses() {
+        return DEFLATER_MISSES.value();
+    }
+
+    /**
+     * Returns the number of {@link Inflater}s which were taken from the pool.
+     */
+    public static long inflaterHits() {
+        return INFLATER_HITS.value();
+    }
+
+    /**
+     * Returns the number of {@link Inflater}s which had to be created because the pool was empty.
+     */
+    public static long inflaterMisses() {
+        return INFLATER_MISSES.value();
+    }
+
+    static Deflater newDeflater(int compressionLevel, boolean nowrap) {
+        Contexts contexts = contexts();
+        if (contexts != null) {
+            Deflater deflater = contexts.deflaters(nowrap).pollLast();
+            if (deflater != null) {
+                DEFLATER_HITS.increment();
+                // The level is applied when the next stream starts, which is what we want after reset().
+                deflater.setLevel(compressionLevel);
+                return deflater;
+            }
+        }
+        DEFLATER_MISSES.increment();
+        return new Deflater(compressionLevel, nowrap);
+    }
+
+    static void release(Deflater deflater, boolean nowrap) {
+        Contexts contexts = contexts();
+        if (contexts != null) {
+            ArrayDeque<Deflater> deflaters = contexts.deflaters(nowrap);
+            if (deflaters.size() < MAX_POOLED_CONTEXTS) {
+                deflater.reset();
+                deflaters.addLast(deflater);
+                return;
+            }
+        }
+        deflater.end();
+    }
+
+    static Inflater newInflater(boolean nowrap) {
+        Contexts contexts = contexts();
+        if (contexts != null) {
+            Inflater inflater = contexts.inflaters(nowrap).pollLast();
+            if (inflater != null) {
+                INFLATER_HITS.increment();
+                return inflater;
+            }
+        }
+        INFLATER_MISSES.increment();
+        return new Inflater(nowrap);
+    }
+
+    static void release(Inflater inflater, boolean nowrap) {
+        Contexts contexts = contexts();
+        if (contexts != null) {
+            ArrayDeque<Inflater> inflaters = contexts.inflaters(nowrap);
+            if (inflaters.size() < MAX_POOLED_CONTEXTS) {
+                inflater.reset();
+                inflaters.addLast(inflater);
+                return;
+            }
+        }
+        inflater.end();
+    }
+
+    private static Contexts contexts() {
+        if (MAX_POOLED_CONTEXTS == 0 || ThreadExecutorMap.currentExecutor() == null) {
+            return null;
+        }
+        return CONTEXTS.get();
+    }
+
+    private static final class Contexts {
+        // A Deflater / Inflater can not switch between the zlib and the raw format, so they are pooled separately.
+        private final ArrayDeque<Deflater> zlibDeflaters = new ArrayDeque<Deflater>();
+        private final ArrayDeque<Deflater> rawDeflaters = new ArrayDeque<Deflater>();
+        private final ArrayDeque<Inflater> zlibInflaters = new ArrayDeque<Inflater>();
+        private final ArrayDeque<Inflater> rawInflaters = new ArrayDeque<Inflater>();
+
+        ArrayDeque<Deflater> deflaters(boolean nowrap) {
+            return nowrap ? rawDeflaters : zlibDeflaters;
+        }
+
+        ArrayDeque<Inflater> inflaters(boolean nowrap) {
+            return nowrap ? rawInflaters : zlibInflaters;
+        }
+
+        void free() {
+            for (Deflater deflater : zlibDeflaters) {
+                deflater.end();
+            }
+            for (Deflater deflater : rawDeflaters) {
+                deflater.end();
+            }
+            for (Inflater inflater : zlibInflaters) {
+                inflater.end();
+            }
+            for (Inflater inflater : rawInflaters) {
+                inflater.end();
+            }
+            zlibDeflaters.clear();
+            rawDeflaters.clear();
+            zlibInflaters.clear();
+            rawInflaters.clear();
+        }
+    }
+}
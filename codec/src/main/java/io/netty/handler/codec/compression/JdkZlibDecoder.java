@@ -19,6 +19,8 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SuppressJava6Requirement;
 
 import java.util.List;
 import java.util.zip.CRC32;
@@ -35,8 +37,14 @@ public class JdkZlibDecoder extends ZlibDecoder {
     private static final int FNAME = 0x08;
     private static final int FCOMMENT = 0x10;
     private static final int FRESERVED = 0xE0;
+    /**
+     * {@link Inflater} supports {@link java.nio.ByteBuffer}s since Java 11, which allows to decompress direct buffers
+     * without copying them to the heap first.
+     */
+    private static final boolean BYTE_BUFFER_SUPPORTED = PlatformDependent.javaVersion() >= 11;
 
     private Inflater inflater;
+    private boolean nowrap;
     private final byte[] dictionary;
 
     // GZIP related
@@ -149,15 +157,17 @@ public class JdkZlibDecoder extends ZlibDecoder {
         this.decompressConcatenated = decompressConcatenated;
         switch (wrapper) {
             case GZIP:
-                inflater = new Inflater(true);
+                nowrap = true;
+                inflater = JdkZlibContextPool.newInflater(true);
                 crc = ByteBufChecksum.wrapChecksum(new CRC32());
                 break;
             case NONE:
-                inflater = new Inflater(true);
+                nowrap = true;
+                inflater = JdkZlibContextPool.newInflater(true);
                 crc = null;
                 break;
             case ZLIB:
-                inflater = new Inflater();
+                inflater = JdkZlibContextPool.newInflater(false);
                 crc = null;
                 break;
             case ZLIB_OR_NONE:
@@ -195,8 +205,8 @@ public class JdkZlibDecoder extends ZlibDecoder {
                 return;
             }
 
-            boolean nowrap = !looksLikeZlib(in.getShort(in.readerIndex()));
-            inflater = new Inflater(nowrap);
+            nowrap = !looksLikeZlib(in.getShort(in.readerIndex()));
+            inflater = JdkZlibContextPool.newInflater(nowrap);
             decideZlibOrNone = false;
         }
 
@@ -225,6 +235,8 @@ public class JdkZlibDecoder extends ZlibDecoder {
         if (inflater.needsInput()) {
             if (in.hasArray()) {
                 inflater.setInput(in.array(), in.arrayOffset() + in.readerIndex(), readableBytes);
+            } else if (BYTE_BUFFER_SUPPORTED && in.nioBufferCount() == 1) {
+                setInputNio(in, readableBytes);
             } else {
                 byte[] array = new byte[readableBytes];
                 in.getBytes(in.readerIndex(), array);
@@ -283,6 +295,12 @@ public class JdkZlibDecoder extends ZlibDecoder {
         }
     }
 
+    @SuppressJava6Requirement(reason = "Usage guarded by java version check")
+    private void setInputNio(ByteBuf in, int readableBytes) {
+        // Use a dedicated NIO buffer as the inflater keeps a reference to it until all input was consumed.
+        inflater.setInput(in.nioBuffer(in.readerIndex(), readableBytes));
+    }
+
     private boolean handleGzipFooter(ByteBuf in) {
         if (readGZIPFooter(in)) {
             finished = !decompressConcatenated;
@@ -306,7 +324,8 @@ public class JdkZlibDecoder extends ZlibDecoder {
     protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
         super.handlerRemoved0(ctx);
         if (inflater != null) {
-            inflater.end();
+            JdkZlibContextPool.release(inflater, nowrap);
+            inflater = null;
         }
     }
 
@@ -30,6 +30,7 @@ import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.TimeUnit;
 import java.util.zip.CRC32;
 import java.util.zip.Deflater;
@@ -50,6 +51,11 @@ public class JdkZlibEncoder extends ZlibEncoder {
      * Max size for temporary heap buffers used to copy input data to heap.
      */
     private static final int MAX_INPUT_BUFFER_SIZE;
+    /**
+     * {@link Deflater} supports {@link ByteBuffer}s since Java 11, which allows to compress direct buffers without
+     * copying them to the heap first.
+     */
+    private static final boolean BYTE_BUFFER_SUPPORTED = PlatformDependent.javaVersion() >= 11;
 
     private final ZlibWrapper wrapper;
     private final Deflater deflater;
@@ -59,7 +65,7 @@ public class JdkZlibEncoder extends ZlibEncoder {
     /*
      * GZIP support
      */
-    private final CRC32 crc = new CRC32();
+    private final ByteBufChecksum crc = ByteBufChecksum.wrapChecksum(new CRC32());
     private static final byte[] gzipHeader = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
     private boolean writeHeader = true;
     private static final int THREAD_POOL_DELAY_SECONDS = 10;
@@ -135,7 +141,7 @@ public class JdkZlibEncoder extends ZlibEncoder {
         }
 
         this.wrapper = wrapper;
-        deflater = new Deflater(compressionLevel, wrapper != ZlibWrapper.ZLIB);
+        deflater = JdkZlibContextPool.newDeflater(compressionLevel, wrapper != ZlibWrapper.ZLIB);
     }
 
     /**
@@ -171,7 +177,7 @@ public class JdkZlibEncoder extends ZlibEncoder {
         ObjectUtil.checkNotNull(dictionary, "dictionary");
 
         wrapper = ZlibWrapper.ZLIB;
-        deflater = new Deflater(compressionLevel);
+        deflater = JdkZlibContextPool.newDeflater(compressionLevel, false);
         deflater.setDictionary(dictionary);
     }
 
@@ -227,6 +233,9 @@ public class JdkZlibEncoder extends ZlibEncoder {
         if (uncompressed.hasArray()) {
             // if it is backed by an array we not need to do a copy at all
             encodeSome(uncompressed, out);
+        } else if (BYTE_BUFFER_SUPPORTED && uncompressed.nioBufferCount() == 1) {
+            // the deflater can directly consume the memory of the buffer, so no copy is needed either
+            encodeSomeNio(uncompressed, out);
         } else {
             int heapBufferSize = Math.min(len, MAX_INPUT_BUFFER_SIZE);
             ByteBuf heapBuf = ctx.alloc().heapBuffer(heapBufferSize, heapBufferSize);
@@ -245,11 +254,21 @@ public class JdkZlibEncoder extends ZlibEncoder {
     }
 
     private void encodeSome(ByteBuf in, ByteBuf out) {
-        // both in and out are heap buffers, here
+        // in is a heap buffer, here
+        int len = writeHeaderAndUpdateCrc(in, out);
+        deflater.setInput(in.array(), in.arrayOffset() + in.readerIndex(), len);
+        deflateAll(in, len, out);
+    }
 
-        byte[] inAry = in.array();
-        int offset = in.arrayOffset() + in.readerIndex();
+    @SuppressJava6Requirement(reason = "Usage guarded by java version check")
+    private void encodeSomeNio(ByteBuf in, ByteBuf out) {
+        // in has exactly one NIO buffer, here
+        int len = writeHeaderAndUpdateCrc(in, out);
+        deflater.setInput(in.internalNioBuffer(in.readerIndex(), len));
+        deflateAll(in, len, out);
+    }
 
+    private int writeHeaderAndUpdateCrc(ByteBuf in, ByteBuf out) {
         if (writeHeader) {
             writeHeader = false;
             if (wrapper == ZlibWrapper.GZIP) {
@@ -259,10 +278,12 @@ public class JdkZlibEncoder extends ZlibEncoder {
 
         int len = in.readableBytes();
         if (wrapper == ZlibWrapper.GZIP) {
-            crc.update(inAry, offset, len);
+            crc.update(in, in.readerIndex(), len);
         }
+        return len;
+    }
 
-        deflater.setInput(inAry, offset, len);
+    private void deflateAll(ByteBuf in, int len, ByteBuf out) {
         for (;;) {
             deflate(out);
             if (!out.isWritable()) {
@@ -296,7 +317,12 @@ public class JdkZlibEncoder extends ZlibEncoder {
         // sizeEstimate might overflow if close to 2G
         if (sizeEstimate < 0 || sizeEstimate > MAX_INITIAL_OUTPUT_BUFFER_SIZE) {
             // can always expand later
-            return ctx.alloc().heapBuffer(MAX_INITIAL_OUTPUT_BUFFER_SIZE);
+            sizeEstimate = MAX_INITIAL_OUTPUT_BUFFER_SIZE;
+        }
+        if (BYTE_BUFFER_SUPPORTED && msg.isDirect()) {
+            // the input is direct memory, so most likely the output will end up in a socket as well. Compress
+            // straight into direct memory to save the copy from heap to direct memory when writing it.
+            return ctx.alloc().directBuffer(sizeEstimate);
         }
         return ctx.alloc().heapBuffer(sizeEstimate);
     }
@@ -358,7 +384,8 @@ public class JdkZlibEncoder extends ZlibEncoder {
             footer.writeByte(uncBytes >>> 16);
             footer.writeByte(uncBytes >>> 24);
         }
-        deflater.end();
+        // The deflater is not used anymore once finished, so it can be reused by another encoder.
+        JdkZlibContextPool.release(deflater, wrapper != ZlibWrapper.ZLIB);
         return ctx.writeAndFlush(footer, promise);
     }
 
@@ -366,6 +393,11 @@ public class JdkZlibEncoder extends ZlibEncoder {
     private void deflate(ByteBuf out) {
         if (PlatformDependent.javaVersion() < 7) {
             deflateJdk6(out);
+            return;
+        }
+        if (!out.hasArray()) {
+            deflateNio(out);
+            return;
         }
         int numBytes;
         do {
@@ -376,6 +408,19 @@ public class JdkZlibEncoder extends ZlibEncoder {
         } while (numBytes > 0);
     }
 
+    @SuppressJava6Requirement(reason = "Usage guarded by java version check")
+    private void deflateNio(ByteBuf out) {
+        // only direct buffers which were allocated by allocateBuffer(...) end up here, these have one NIO buffer.
+        assert BYTE_BUFFER_SUPPORTED && out.nioBufferCount() == 1;
+        int numBytes;
+        do {
+            int writerIndex = out.writerIndex();
+            numBytes = deflater.deflate(
+                    out.internalNioBuffer(writerIndex, out.writableBytes()), Deflater.SYNC_FLUSH);
+            out.writerIndex(writerIndex + numBytes);
+        } while (numBytes > 0);
+    }
+
     private void deflateJdk6(ByteBuf out) {
         int numBytes;
         do {
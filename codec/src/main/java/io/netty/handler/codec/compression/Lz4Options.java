@@ -0,0 +1,44 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * {@link Lz4Options} holds the configuration for LZ4 compression in the format of {@link Lz4FrameEncoder}.
+ */
+@UnstableApi
+public final class Lz4Options implements CompressionOptions {
+
+    /**
+     * @see StandardCompressionOptions#lz4()
+     */
+    static final Lz4Options DEFAULT = new Lz4Options(false);
+
+    private final boolean highCompressor;
+
+    Lz4Options(boolean highCompressor) {
+        this.highCompressor = highCompressor;
+    }
+
+    /**
+     * Returns {@code true} if the high compression ratio compressor is used, {@code false} if the fastest
+     * compressor is used.
+     */
+    public boolean highCompressor() {
+        return highCompressor;
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs a compression encoder, like {@link BrotliEncoder}, {@link ZstdEncoder} or one created by
+ * {@link ZlibCodecFactory}, on an {@link Executor}, so the {@link EventExecutor} of the
+ * {@link io.netty.channel.Channel} the compressed data is written to is not blocked while compressing. The encoder is
+ * part of an {@link EmbeddedChannel}, like the ones used by {@code HttpContentCompressor} and
+ * {@code CompressorHttp2ConnectionEncoder}.
+ * <p>
+ * The data is compressed in the order in which it was submitted and the {@link EmbeddedChannel} is only used by one
+ * thread at a time, so any {@link Executor} can be used. The returned {@link Future}s are notified by the given
+ * {@link EventExecutor}, in the same order. All methods must be called from this {@link EventExecutor}.
+ */
+@UnstableApi
+public final class OffloadedCompressor {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(OffloadedCompressor.class);
+
+    private final EmbeddedChannel encoder;
+    private final Executor executor;
+    private final EventExecutor resultExecutor;
+    // Tasks which were not handed to the executor yet, as only one task runs at a time.
+    private final ArrayDeque<Task> tasks = new ArrayDeque<Task>();
+    private boolean running;
+    private boolean finished;
+    private boolean closed;
+    private boolean released;
+    private Throwable failure;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param encoder           the {@link EmbeddedChannel} which contains the compression encoder. It is owned by
+     *                          this instance from now on.
+     * @param executor          the {@link Executor} which is used to compress.
+     * @param resultExecutor    the {@link EventExecutor} which notifies the returned {@link Future}s, usually the
+     *                          {@link io.netty.channel.EventLoop} of the {@link io.netty.channel.Channel}.
+     */
+    public OffloadedCompressor(EmbeddedChannel encoder, Executor executor, EventExecutor resultExecutor) {
+        this.encoder = ObjectUtil.checkNotNull(encoder, "encoder");
+        this.executor = ObjectUtil.checkNotNull(executor, "executor");
+        this.resultExecutor = ObjectUtil.checkNotNull(resultExecutor, "resultExecutor");
+    }
+
+    /**
+     * Compresses the given {@link ByteBuf}, which is released once it was compressed. The returned {@link Future}
+     * is notified with the compressed data produced for it, which may be empty and must be released by the caller.
+     */
+    public Future<ByteBuf> compress(ByteBuf in) {
+        ObjectUtil.checkNotNull(in, "in");
+        if (finished || closed) {
+            in.release();
+            return resultExecutor.newFailedFuture(new IllegalStateException("compressor finished or closed"));
+        }
+        return submit(new Task(in));
+    }
+
+    /**
+     * Finishes the compressed stream. The returned {@link Future} is notified with the remaining compressed data,
+     * which may be empty and must be released by the caller. Afterwards the encoder is released.
+     */
+    public Future<ByteBuf> finish() {
+        if (finished || closed) {
+            return resultExecutor.newFailedFuture(new IllegalStateException("compressor finished or closed"));
+        }
+        finished = true;
+        return submit(new Task(null));
+    }
+
+    /**
+     * Fails all data which was not compressed yet and releases the encoder, once it is not used anymore.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        failPending(new IllegalStateException("compressor closed"));
+        if (!running) {
+            release();
+        }
+    }
+
+    private Future<ByteBuf> submit(Task task) {
+        if (failure != null) {
+            task.fail(failure);
+            if (task.last) {
+                close();
+            }
+        } else {
+            tasks.add(task);
+            runNext();
+        }
+        return task.promise;
+    }
+
+    private void runNext() {
+        if (running) {
+            return;
+        }
+        Task task = tasks.poll();
+        if (task == null) {
+            return;
+        }
+        running = true;
+        try {
+            executor.execute(task);
+        } catch (Throwable cause) {
+            running = false;
+            task.fail(cause);
+            fail(cause);
+            if (closed) {
+                release();
+            }
+        }
+    }
+
+    private void complete(Task task) {
+        running = false;
+        if (task.cause != null) {
+            fail(task.cause);
+            task.promise.tryFailure(task.cause);
+        } else if (closed) {
+            ReferenceCountUtil.release(task.output);
+            task.promise.tryFailure(new IllegalStateException("compressor closed"));
+        } else {
+            if (task.last) {
+                // The stream is complete, nothing else can be compressed.
+                closed = true;
+            }
+            if (!task.promise.trySuccess(task.output)) {
+                task.output.release();
+            }
+        }
+        if (closed) {
+            release();
+        } else {
+            runNext();
+        }
+    }
+
+    private void fail(Throwable cause) {
+        if (failure == null) {
+            failure = cause;
+        }
+        failPending(cause);
+        if (finished) {
+            // Nothing uses the encoder anymore.
+            closed = true;
+        }
+    }
+
+    private void failPending(Throwable cause) {
+        for (;;) {
+            Task task = tasks.poll();
+            if (task == null) {
+                break;
+            }
+            task.fail(cause);
+        }
+    }
+
+    private void release() {
+        if (!released) {
+            released = true;
+            encoder.finishAndReleaseAll();
+        }
+    }
+
+    private ByteBuf readOutput() {
+        ByteBuf first = null;
+        CompositeByteBuf composite = null;
+        for (;;) {
+            ByteBuf buf = encoder.readOutbound();
+            if (buf == null) {
+                break;
+            }
+            if (!buf.isReadable()) {
+                buf.release();
+            } else if (first == null) {
+                first = buf;
+            } else {
+                if (composite == null) {
+                    composite = encoder.alloc().compositeBuffer();
+                    composite.addComponent(true, first);
+                }
+                composite.addComponent(true, buf);
+            }
+        }
+        if (composite != null) {
+            return composite;
+        }
+        return first == null ? Unpooled.EMPTY_BUFFER : first;
+    }
+
+    private final class Task implements Runnable {
+        final Promise<ByteBuf> promise = resultExecutor.newPromise();
+        final boolean last;
+        ByteBuf input;
+
+        // Set by the executor.
+        ByteBuf output;
+        Throwable cause;
+
+        Task(ByteBuf input) {
+            this.input = input;
+            last = input == null;
+        }
+
+        void fail(Throwable cause) {
+            ReferenceCountUtil.release(input);
+            input = null;
+            promise.tryFailure(cause);
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (last) {
+                    encoder.finish();
+                } else {
+                    ByteBuf in = input;
+                    input = null;
+                    // The encoder releases the buffer.
+                    encoder.writeOutbound(in);
+                }
+                output = readOutput();
+            } catch (Throwable t) {
+                cause = t;
+            }
+            try {
+                resultExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        complete(Task.this);
+                    }
+                });
+            } catch (Throwable t) {
+                logger.warn("Failed to hand over compressed data to {}", resultExecutor, t);
+                ReferenceCountUtil.release(output);
+            }
+        }
+    }
+}
@@ -0,0 +1,820 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import com.github.luben.zstd.Zstd;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.PendingWriteQueue;
+import io.netty.util.NettyRuntime;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.PromiseNotifier;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.SuppressJava6Requirement;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+
+import static io.netty.handler.codec.compression.Lz4Constants.BLOCK_TYPE_COMPRESSED;
+import static io.netty.handler.codec.compression.Lz4Constants.BLOCK_TYPE_NON_COMPRESSED;
+import static io.netty.handler.codec.compression.Lz4Constants.CHECKSUM_OFFSET;
+import static io.netty.handler.codec.compression.Lz4Constants.COMPRESSED_LENGTH_OFFSET;
+import static io.netty.handler.codec.compression.Lz4Constants.DECOMPRESSED_LENGTH_OFFSET;
+import static io.netty.handler.codec.compression.Lz4Constants.DEFAULT_SEED;
+import static io.netty.handler.codec.compression.Lz4Constants.HEADER_LENGTH;
+import static io.netty.handler.codec.compression.Lz4Constants.MAGIC_NUMBER;
+import static io.netty.handler.codec.compression.Lz4Constants.TOKEN_OFFSET;
+
+/**
+ * Compresses {@link ByteBuf}s by splitting them into blocks which are compressed independently of each other on an
+ * {@link Executor}, for example an {@link EventExecutorGroup} or a {@code ForkJoinPool}. The compressed blocks are
+ * written in order by the {@link EventExecutor} of the {@link ChannelHandlerContext}, which is therefore not blocked
+ * while a large payload is compressed.
+ * <p>
+ * The produced stream can be decoded by any decoder of the respective format:
+ * <ul>
+ *     <li>{@link GzipOptions} and {@link DeflateOptions}: a single gzip or zlib stream. Every block is terminated
+ *     by a sync flush and the checksums of all blocks are combined, like done by {@code pigz}.
+ *     {@link DeflateOptions#windowBits()} and {@link DeflateOptions#memLevel()} are ignored.</li>
+ *     <li>{@link ZstdOptions}: one zstd frame per block. {@link ZstdOptions#blockSize()} and
+ *     {@link ZstdOptions#maxEncodeSize()} are ignored.</li>
+ *     <li>{@link Lz4Options}: one LZ4 block per block, in the format of {@link Lz4FrameEncoder}.</li>
+ * </ul>
+ * As the blocks do not share any history the compression ratio is slightly worse than the one of the sequential
+ * encoders, larger blocks make the difference smaller.
+ * <p>
+ * Data which was written but not compressed and written yet is accounted for in {@link Channel#isWritable()}, so
+ * producers which respect the writability of the {@link Channel} are slowed down if the {@link Executor} can not
+ * keep up. In addition at most {@code maxPendingBlocks} blocks of this handler are compressed at the same time.
+ * <p>
+ * A {@link ChannelHandlerContext#flush()} compresses the data written so far even if it does not fill a block, and
+ * flushes it once it was compressed. Messages which are not {@link ByteBuf}s are passed through in order.
+ */
+@UnstableApi
+public final class ParallelCompressionEncoder extends ChannelOutboundHandlerAdapter {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(ParallelCompressionEncoder.class);
+
+    static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    private final Executor executor;
+    private final BlockFormat format;
+    private final int blockSize;
+    private final int maxPendingBlocks;
+
+    // All blocks in the order in which they need to be written.
+    private final ArrayDeque<Block> blocks = new ArrayDeque<Block>();
+    // Blocks which were not handed to the executor yet because of maxPendingBlocks.
+    private final ArrayDeque<Block> waitingBlocks = new ArrayDeque<Block>();
+    private int runningBlocks;
+
+    private ChannelHandlerContext ctx;
+    private PendingWriteQueue pendingWrites;
+    // The data of the block which is currently filled and the number of pending writes which end in it.
+    private CompositeByteBuf current;
+    private int currentWrites;
+
+    private boolean headerWritten;
+    private long checksum;
+    private long length;
+    private boolean finished;
+    private ChannelPromise finishPromise;
+    private Throwable failure;
+
+    /**
+     * Creates a new instance which uses blocks of {@code 1MiB} and compresses as many blocks at the same time
+     * as there are processors.
+     *
+     * @param executor the {@link Executor} which is used to compress the blocks.
+     * @param options  the {@link GzipOptions}, {@link DeflateOptions}, {@link ZstdOptions} or {@link Lz4Options}
+     *                 which specify the format and the compression level.
+     */
+    public ParallelCompressionEncoder(Executor executor, CompressionOptions options) {
+        this(executor, options, DEFAULT_BLOCK_SIZE, NettyRuntime.availableProcessors());
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param executor          the {@link Executor} which is used to compress the blocks.
+     * @param options           the {@link GzipOptions}, {@link DeflateOptions}, {@link ZstdOptions} or
+     *                          {@link Lz4Options} which specify the format and the compression level.
+     * @param blockSize         the number of uncompressed bytes per block.
+     * @param maxPendingBlocks  the maximum number of blocks which are compressed at the same time.
+     */
+    public ParallelCompressionEncoder(Executor executor, CompressionOptions options, int blockSize,
+                                      int maxPendingBlocks) {
+        this.executor = ObjectUtil.checkNotNull(executor, "executor");
+        this.blockSize = ObjectUtil.checkPositive(blockSize, "blockSize");
+        this.maxPendingBlocks = ObjectUtil.checkPositive(maxPendingBlocks, "maxPendingBlocks");
+        ObjectUtil.checkNotNull(options, "options");
+        if (options instanceof GzipOptions) {
+            format = new DeflateFormat(((GzipOptions) options).compressionLevel(), true);
+        } else if (options instanceof DeflateOptions) {
+            format = new DeflateFormat(((DeflateOptions) options).compressionLevel(), false);
+        } else if (options instanceof ZstdOptions) {
+            format = new ZstdFormat((ZstdOptions) options);
+        } else if (options instanceof Lz4Options) {
+            format = new Lz4Format(((Lz4Options) options).highCompressor(), blockSize);
+        } else {
+            throw new IllegalArgumentException("Unsupported CompressionOptions: " + options);
+        }
+    }
+
+    /**
+     * Finishes the compressed stream once all data written so far was compressed, without closing the
+     * {@link Channel}. Data written afterwards is passed through without compression.
+     */
+    public ChannelFuture finish() {
+        return finish(ctx().newPromise());
+    }
+
+    /**
+     * Finishes the compressed stream once all data written so far was compressed, without closing the
+     * {@link Channel}. Data written afterwards is passed through without compression.
+     *
+     * The given {@link ChannelPromise} will be notified once the end of the stream was written.
+     */
+    public ChannelFuture finish(final ChannelPromise promise) {
+        ChannelHandlerContext ctx = ctx();
+        EventExecutor executor = ctx.executor();
+        if (executor.inEventLoop()) {
+            return finish0(promise);
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                finish0(promise);
+            }
+        });
+        return promise;
+    }
+
+    /**
+     * Returns {@code true} if and only if the compressed stream has been finished.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    private ChannelHandlerContext ctx() {
+        ChannelHandlerContext ctx = this.ctx;
+        if (ctx == null) {
+            throw new IllegalStateException("not added to a pipeline");
+        }
+        return ctx;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+        pendingWrites = new PendingWriteQueue(ctx);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        fail(new ChannelException(StringUtil.simpleClassName(this) + " removed from the pipeline"));
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        if (failure != null) {
+            ReferenceCountUtil.release(msg);
+            promise.setFailure(failure);
+            return;
+        }
+        if (finished || !(msg instanceof ByteBuf)) {
+            if (blocks.isEmpty() && current == null && currentWrites == 0) {
+                // Nothing is pending, so no need to preserve any order.
+                ctx.write(msg, promise);
+                return;
+            }
+            cutBlock(false);
+            pendingWrites.add(msg, promise);
+            blocks.add(new Block(1, true));
+            drain();
+            return;
+        }
+
+        ByteBuf buf = (ByteBuf) msg;
+        pendingWrites.add(buf, promise);
+        int index = buf.readerIndex();
+        int remaining = buf.readableBytes();
+        boolean counted = false;
+        while (remaining > 0) {
+            if (current == null) {
+                current = ctx.alloc().compositeBuffer();
+            }
+            int n = Math.min(remaining, blockSize - current.readableBytes());
+            current.addComponent(true, buf.retainedSlice(index, n));
+            index += n;
+            remaining -= n;
+            if (current.readableBytes() == blockSize) {
+                if (remaining == 0) {
+                    // The write is complete once this block was written.
+                    currentWrites++;
+                    counted = true;
+                }
+                cutBlock(false);
+                if (failure != null) {
+                    return;
+                }
+            }
+        }
+        if (!counted) {
+            currentWrites++;
+        }
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+        if (failure == null) {
+            cutBlock(false);
+        }
+        Block tail = blocks.peekLast();
+        if (tail == null) {
+            ctx.flush();
+        } else {
+            tail.flush = true;
+            drain();
+        }
+    }
+
+    @Override
+    public void close(final ChannelHandlerContext ctx, final ChannelPromise promise) {
+        finish0(ctx.newPromise()).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                ctx.close(promise);
+            }
+        });
+    }
+
+    private ChannelFuture finish0(ChannelPromise promise) {
+        if (finishPromise != null) {
+            finishPromise.addListener(new PromiseNotifier<Void, ChannelFuture>(false, promise));
+            return promise;
+        }
+        if (failure != null) {
+            promise.setFailure(failure);
+            return promise;
+        }
+        finished = true;
+        finishPromise = promise;
+        cutBlock(true);
+        Block tail = blocks.peekLast();
+        if (failure != null || tail == null) {
+            // Submitting the last block failed, which also failed the whole stream.
+            promise.tryFailure(failure != null ? failure : new IllegalStateException("last block is missing"));
+            return promise;
+        }
+        tail.flush = true;
+        return promise;
+    }
+
+    /**
+     * Turns the data and writes which were collected so far into a {@link Block}.
+     */
+    private void cutBlock(boolean last) {
+        if (current == null && currentWrites == 0 && !last) {
+            return;
+        }
+        final Block block;
+        if (current == null && !last) {
+            // Only writes of empty buffers, there is nothing to compress.
+            block = new Block(currentWrites, false);
+        } else {
+            block = new Block(current == null ? Unpooled.EMPTY_BUFFER : current, currentWrites, last);
+        }
+        current = null;
+        currentWrites = 0;
+        blocks.add(block);
+        if (!block.done) {
+            if (runningBlocks < maxPendingBlocks) {
+                submit(block);
+            } else {
+                waitingBlocks.add(block);
+            }
+        }
+    }
+
+    private void submit(Block block) {
+        runningBlocks++;
+        try {
+            executor.execute(block);
+        } catch (Throwable cause) {
+            runningBlocks--;
+            block.input.release();
+            fail(cause);
+        }
+    }
+
+    /**
+     * Writes all blocks that are done, in order.
+     */
+    private void drain() {
+        boolean flush = false;
+        for (;;) {
+            Block block = blocks.peek();
+            if (block == null || !block.done) {
+                break;
+            }
+            blocks.poll();
+            if (block.cause != null) {
+                ReferenceCountUtil.release(block.output);
+                fail(block.cause);
+                return;
+            }
+            flush |= block.flush;
+            if (block.output == null) {
+                completeWrites(block, null);
+                continue;
+            }
+
+            if (!headerWritten) {
+                headerWritten = true;
+                checksum = block.checksum;
+                ByteBuf header = format.header(ctx.alloc());
+                if (header != null) {
+                    ctx.write(header, ctx.voidPromise());
+                }
+            } else {
+                checksum = format.combine(checksum, block.checksum, block.length);
+            }
+            length += block.length;
+
+            ChannelFuture future;
+            if (block.output.isReadable() || block.writes > 0) {
+                future = ctx.write(block.output, block.writes == 0 ? ctx.voidPromise() : ctx.newPromise());
+            } else {
+                block.output.release();
+                future = null;
+            }
+            completeWrites(block, future);
+
+            if (block.last) {
+                ByteBuf trailer = format.trailer(ctx.alloc(), checksum, length);
+                ctx.write(trailer == null ? Unpooled.EMPTY_BUFFER : trailer, finishPromise);
+            }
+        }
+        if (flush) {
+            ctx.flush();
+        }
+    }
+
+    private void completeWrites(Block block, ChannelFuture future) {
+        for (int i = 0; i < block.writes; i++) {
+            if (block.passThrough) {
+                pendingWrites.removeAndWrite();
+                continue;
+            }
+            ChannelPromise promise = pendingWrites.remove();
+            if (future == null) {
+                promise.trySuccess();
+            } else if (!promise.isVoid()) {
+                future.addListener(new PromiseNotifier<Void, ChannelFuture>(false, promise));
+            }
+        }
+    }
+
+    private void fail(Throwable cause) {
+        if (failure != null) {
+            return;
+        }
+        failure = cause;
+        if (current != null) {
+            current.release();
+            current = null;
+        }
+        currentWrites = 0;
+        for (Block block: waitingBlocks) {
+            block.input.release();
+        }
+        waitingBlocks.clear();
+        for (Block block: blocks) {
+            if (block.done) {
+                // Blocks which are still compressed are released once they are done.
+                ReferenceCountUtil.release(block.output);
+            }
+        }
+        blocks.clear();
+        if (pendingWrites != null) {
+            pendingWrites.removeAndFailAll(cause);
+        }
+        if (finishPromise != null) {
+            finishPromise.tryFailure(cause);
+        }
+    }
+
+    private final class Block implements Runnable {
+        final int writes;
+        final boolean passThrough;
+        final boolean last;
+        ByteBuf input;
+        boolean flush;
+
+        // Set by the executor.
+        ByteBuf output;
+        long checksum;
+        int length;
+        Throwable cause;
+
+        // Set once the block can be written.
+        boolean done;
+
+        Block(ByteBuf input, int writes, boolean last) {
+            this.input = input;
+            this.writes = writes;
+            this.last = last;
+            passThrough = false;
+        }
+
+        // A block without any data, used to pass through messages or to complete writes of empty buffers.
+        Block(int writes, boolean passThrough) {
+            this.writes = writes;
+            this.passThrough = passThrough;
+            last = false;
+            done = true;
+        }
+
+        @Override
+        public void run() {
+            try {
+                length = input.readableBytes();
+                format.compress(ctx.alloc(), this);
+            } catch (Throwable t) {
+                cause = t;
+            } finally {
+                input.release();
+                input = null;
+            }
+            try {
+                ctx.executor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        complete();
+                    }
+                });
+            } catch (Throwable t) {
+                logger.warn("Failed to hand over compressed block to {}", ctx.channel(), t);
+                ReferenceCountUtil.release(output);
+            }
+        }
+
+        void complete() {
+            runningBlocks--;
+            done = true;
+            if (failure != null) {
+                ReferenceCountUtil.release(output);
+                return;
+            }
+            while (runningBlocks < maxPendingBlocks && !waitingBlocks.isEmpty()) {
+                submit(waitingBlocks.poll());
+            }
+            drain();
+        }
+    }
+
+    private abstract static class BlockFormat {
+        ByteBuf header(ByteBufAllocator alloc) {
+            return null;
+        }
+
+        /**
+         * Compresses {@link Block#input} and sets {@link Block#output} and {@link Block#checksum}. This is
+         * called concurrently for multiple blocks.
+         */
+        abstract void compress(ByteBufAllocator alloc, Block block) throws Exception;
+
+        long combine(long checksum1, long checksum2, long length2) {
+            return 0;
+        }
+
+        ByteBuf trailer(ByteBufAllocator alloc, long checksum, long length) {
+            return null;
+        }
+    }
+
+    private static final class DeflateFormat extends BlockFormat {
+        private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+        private static final int ADLER32_BASE = 65521;
+
+        private final int level;
+        private final boolean gzip;
+
+        DeflateFormat(int level, boolean gzip) {
+            if (PlatformDependent.javaVersion() < 7) {
+                throw new UnsupportedOperationException("Parallel deflate compression requires Java 7+");
+            }
+            this.level = ObjectUtil.checkInRange(level, 0, 9, "compressionLevel");
+            this.gzip = gzip;
+        }
+
+        @Override
+        ByteBuf header(ByteBufAllocator alloc) {
+            if (gzip) {
+                return alloc.heapBuffer(GZIP_HEADER.length).writeBytes(GZIP_HEADER);
+            }
+            // CMF is deflate with a 32K window, FLG contains the compression level and makes the header a
+            // multiple of 31. See https://www.rfc-editor.org/rfc/rfc1950
+            int cmf = 0x78;
+            int flg = (level < 2 ? 0 : level < 6 ? 1 : level == 6 ? 2 : 3) << 6;
+            flg += 31 - (cmf << 8 | flg) % 31;
+            return alloc.heapBuffer(2).writeByte(cmf).writeByte(flg);
+        }
+
+        @SuppressJava6Requirement(reason = "Usage guarded by java version check in constructor")
+        @Override
+        void compress(ByteBufAllocator alloc, Block block) {
+            ByteBuf in = block.input;
+            int len = in.readableBytes();
+            byte[] array;
+            int offset;
+            if (in.hasArray()) {
+                array = in.array();
+                offset = in.arrayOffset() + in.readerIndex();
+            } else {
+                array = ByteBufUtil.getBytes(in);
+                offset = 0;
+            }
+
+            Checksum checksum = gzip ? new CRC32() : new Adler32();
+            checksum.update(array, offset, len);
+            block.checksum = checksum.getValue();
+
+            // The same estimation as done by JdkZlibEncoder, plus the bytes of the sync flush marker.
+            ByteBuf out = alloc.heapBuffer((int) Math.min(Integer.MAX_VALUE, (long) (len * 1.001) + 17));
+            Deflater deflater = JdkZlibContextPool.newDeflater(level, true);
+            boolean success = false;
+            try {
+                deflater.setInput(array, offset, len);
+                int flushMode;
+                if (block.last) {
+                    deflater.finish();
+                    flushMode = Deflater.NO_FLUSH;
+                } else {
+                    // Ends the block on a byte boundary, so the next block can be appended.
+                    flushMode = Deflater.SYNC_FLUSH;
+                }
+                for (;;) {
+                    int numBytes;
+                    do {
+                        int writerIndex = out.writerIndex();
+                        numBytes = deflater.deflate(
+                                out.array(), out.arrayOffset() + writerIndex, out.writableBytes(), flushMode);
+                        out.writerIndex(writerIndex + numBytes);
+                    } while (numBytes > 0);
+                    if (!out.isWritable()) {
+                        out.ensureWritable(out.writerIndex());
+                    } else if (block.last ? deflater.finished() : deflater.needsInput()) {
+                        break;
+                    }
+                }
+                success = true;
+            } finally {
+                JdkZlibContextPool.release(deflater, true);
+                if (!success) {
+                    out.release();
+                }
+            }
+            block.output = out;
+        }
+
+        @Override
+        long combine(long checksum1, long checksum2, long length2) {
+            return gzip ? crc32Combine(checksum1, checksum2, length2) : adler32Combine(checksum1, checksum2, length2);
+        }
+
+        @Override
+        ByteBuf trailer(ByteBufAllocator alloc, long checksum, long length) {
+            if (gzip) {
+                return alloc.heapBuffer(8).writeIntLE((int) checksum).writeIntLE((int) length);
+            }
+            return alloc.heapBuffer(4).writeInt((int) checksum);
+        }
+
+        /**
+         * Returns the Adler-32 of two concatenated sequences, port of {@code adler32_combine} of zlib.
+         */
+        static long adler32Combine(long adler1, long adler2, long length2) {
+            long rem = length2 % ADLER32_BASE;
+            long sum1 = adler1 & 0xffff;
+            long sum2 = rem * sum1 % ADLER32_BASE;
+            sum1 += (adler2 & 0xffff) + ADLER32_BASE - 1;
+            sum2 += (adler1 >>> 16 & 0xffff) + (adler2 >>> 16 & 0xffff) + ADLER32_BASE - rem;
+            if (sum1 >= ADLER32_BASE) {
+                sum1 -= ADLER32_BASE;
+            }
+            if (sum1 >= ADLER32_BASE) {
+                sum1 -= ADLER32_BASE;
+            }
+            if (sum2 >= (long) ADLER32_BASE << 1) {
+                sum2 -= (long) ADLER32_BASE << 1;
+            }
+            if (sum2 >= ADLER32_BASE) {
+                sum2 -= ADLER32_BASE;
+            }
+            return sum1 | sum2 << 16;
+        }
+
+        /**
+         * Returns the CRC-32 of two concatenated sequences, port of {@code crc32_combine} of zlib.
+         */
+        static long crc32Combine(long crc1, long crc2, long length2) {
+            if (length2 <= 0) {
+                return crc1;
+            }
+            long[] even = new long[32];
+            long[] odd = new long[32];
+
+            // The operator for one zero bit.
+            odd[0] = 0xedb88320L;
+            long row = 1;
+            for (int n = 1; n < 32; n++) {
+                odd[n] = row;
+                row <<= 1;
+            }
+            // The operators for two and four zero bits.
+            gf2MatrixSquare(even, odd);
+            gf2MatrixSquare(odd, even);
+
+            // Apply length2 zeros to crc1, the first square puts the operator for one zero byte in even.
+            do {
+                gf2MatrixSquare(even, odd);
+                if ((length2 & 1) != 0) {
+                    crc1 = gf2MatrixTimes(even, crc1);
+                }
+                length2 >>>= 1;
+                if (length2 == 0) {
+                    break;
+                }
+                gf2MatrixSquare(odd, even);
+                if ((length2 & 1) != 0) {
+                    crc1 = gf2MatrixTimes(odd, crc1);
+                }
+                length2 >>>= 1;
+            } while (length2 != 0);
+            return crc1 ^ crc2;
+        }
+
+        private static long gf2MatrixTimes(long[] matrix, long vector) {
+            long sum = 0;
+            for (int i = 0; vector != 0; i++, vector >>>= 1) {
+                if ((vector & 1) != 0) {
+                    sum ^= matrix[i];
+                }
+            }
+            return sum;
+        }
+
+        private static void gf2MatrixSquare(long[] square, long[] matrix) {
+            for (int n = 0; n < 32; n++) {
+                square[n] = gf2MatrixTimes(matrix, matrix[n]);
+            }
+        }
+    }
+
+    private static final class ZstdFormat extends BlockFormat {
+        private final ZstdOptions options;
+
+        ZstdFormat(ZstdOptions options) {
+            this.options = options;
+        }
+
+        @Override
+        void compress(ByteBufAllocator alloc, Block block) {
+            ByteBuf in = block.input;
+            int len = in.readableBytes();
+            if (len == 0) {
+                block.output = Unpooled.EMPTY_BUFFER;
+                return;
+            }
+            ByteBuf src = in.isDirect() && in.nioBufferCount() == 1 ? in : alloc.directBuffer(len).writeBytes(in);
+            ByteBuf out = alloc.directBuffer((int) Zstd.compressBound(len));
+            try {
+                ByteBuffer outNioBuffer = out.internalNioBuffer(0, out.writableBytes());
+                // The input is a slice of the written buffer, which may be shared with blocks that are compressed on
+                // other threads at the same time, so we must not use its internal NIO buffer.
+                ByteBuffer inNioBuffer = src.nioBuffer(src.readerIndex(), len);
+                ZstdDictionary dictionary = options.dictionary();
+                int compressedLength;
+                if (dictionary == null) {
+                    compressedLength = Zstd.compress(
+                            outNioBuffer, inNioBuffer, options.compressionLevel());
+                } else {
+                    compressedLength = Zstd.compress(
+                            outNioBuffer, inNioBuffer, dictionary.compressDictionary());
+                }
+                out.writerIndex(compressedLength);
+            } catch (Throwable cause) {
+                out.release();
+                throw new CompressionException(cause);
+            } finally {
+                if (src != in) {
+                    src.release();
+                }
+            }
+            block.output = out;
+        }
+    }
+
+    private static final class Lz4Format extends BlockFormat {
+        private final LZ4Compressor compressor;
+        private final int compressionLevel;
+
+        Lz4Format(boolean highCompressor, int blockSize) {
+            LZ4Factory factory = LZ4Factory.fastestInstance();
+            compressor = highCompressor ? factory.highCompressor() : factory.fastCompressor();
+            compressionLevel = Lz4FrameEncoder.compressionLevel(blockSize);
+        }
+
+        @Override
+        void compress(ByteBufAllocator alloc, Block block) {
+            ByteBuf in = block.input;
+            int len = in.readableBytes();
+            if (len == 0) {
+                block.output = Unpooled.EMPTY_BUFFER;
+                return;
+            }
+            // The input is a slice of the written buffer, which may be shared with blocks that are compressed on
+            // other threads at the same time, so we must not use its internal NIO buffer.
+            ByteBuffer inNioBuffer = in.nioBuffer(in.readerIndex(), len);
+            Lz4XXHash32 checksum = new Lz4XXHash32(DEFAULT_SEED);
+            checksum.update(Unpooled.wrappedBuffer(inNioBuffer), 0, len);
+
+            ByteBuf out = alloc.buffer(compressor.maxCompressedLength(len) + HEADER_LENGTH);
+            int compressedLength;
+            try {
+                ByteBuffer outNioBuffer = out.internalNioBuffer(HEADER_LENGTH, out.writableBytes() - HEADER_LENGTH);
+                int pos = outNioBuffer.position();
+                compressor.compress(inNioBuffer, outNioBuffer);
+                compressedLength = outNioBuffer.position() - pos;
+            } catch (Throwable cause) {
+                out.release();
+                throw new CompressionException(cause);
+            }
+            final int blockType;
+            if (compressedLength >= len) {
+                blockType = BLOCK_TYPE_NON_COMPRESSED;
+                compressedLength = len;
+                out.setBytes(HEADER_LENGTH, in, in.readerIndex(), len);
+            } else {
+                blockType = BLOCK_TYPE_COMPRESSED;
+            }
+            out.setLong(0, MAGIC_NUMBER);
+            out.setByte(TOKEN_OFFSET, (byte) (blockType | compressionLevel));
+            out.setIntLE(COMPRESSED_LENGTH_OFFSET, compressedLength);
+            out.setIntLE(DECOMPRESSED_LENGTH_OFFSET, len);
+            out.setIntLE(CHECKSUM_OFFSET, (int) checksum.getValue());
+            out.writerIndex(HEADER_LENGTH + compressedLength);
+            block.output = out;
+        }
+
+        @Override
+        ByteBuf trailer(ByteBufAllocator alloc, long checksum, long length) {
+            // The end of the stream is marked by an empty block.
+            ByteBuf trailer = alloc.heapBuffer(HEADER_LENGTH);
+            trailer.writeLong(MAGIC_NUMBER);
+            trailer.writeByte((byte) (BLOCK_TYPE_NON_COMPRESSED | compressionLevel));
+            trailer.writeZero(HEADER_LENGTH - TOKEN_OFFSET - 1);
+            return trailer;
+        }
+    }
+}
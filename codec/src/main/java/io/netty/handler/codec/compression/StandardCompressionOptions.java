@@ -16,6 +16,8 @@
 package io.netty.handler.codec.compression;
 
 import com.aayushatharva.brotli4j.encoder.Encoder;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
 
 /**
  * Standard Compression Options for {@link BrotliOptions},
@@ -45,6 +47,18 @@ public final class StandardCompressionOptions {
         return new BrotliOptions(parameters);
     }
 
+    /**
+     * Create a new {@link BrotliOptions} which compresses with a custom dictionary
+     *
+     * @param parameters {@link Encoder.Parameters} Instance
+     * @param dictionary the {@link BrotliDictionary} which is shared by all encoders created from these options
+     * @throws NullPointerException If {@link Encoder.Parameters} or {@link BrotliDictionary} is {@code null}
+     */
+    @UnstableApi
+    public static BrotliOptions brotli(Encoder.Parameters parameters, BrotliDictionary dictionary) {
+        return new BrotliOptions(parameters, ObjectUtil.checkNotNull(dictionary, "dictionary"));
+    }
+
     /**
      * Default implementation of {@link ZstdOptions} with{compressionLevel(int)} set to
      * {@link ZstdConstants#DEFAULT_COMPRESSION_LEVEL},{@link ZstdConstants#DEFAULT_BLOCK_SIZE},
@@ -68,6 +82,41 @@ public final class StandardCompressionOptions {
         return new ZstdOptions(compressionLevel, blockSize, maxEncodeSize);
     }
 
+    /**
+     * Create a new {@link ZstdOptions} which compresses with a dictionary
+     *
+     * @param  blockSize
+     *           is used to calculate the compressionLevel
+     * @param  maxEncodeSize
+     *           specifies the size of the largest compressed object
+     * @param  dictionary
+     *           the {@link ZstdDictionary} which is shared by all encoders created from these options, it also
+     *           specifies the level of the compression
+     */
+    @UnstableApi
+    public static ZstdOptions zstd(int blockSize, int maxEncodeSize, ZstdDictionary dictionary) {
+        return new ZstdOptions(blockSize, maxEncodeSize, dictionary);
+    }
+
+    /**
+     * Default implementation of {@link Lz4Options} which uses the fastest compressor.
+     */
+    @UnstableApi
+    public static Lz4Options lz4() {
+        return Lz4Options.DEFAULT;
+    }
+
+    /**
+     * Create a new {@link Lz4Options}
+     *
+     * @param highCompressor if {@code true} the high compression ratio compressor is used, otherwise the fastest
+     *                       compressor is used
+     */
+    @UnstableApi
+    public static Lz4Options lz4(boolean highCompressor) {
+        return highCompressor ? new Lz4Options(true) : Lz4Options.DEFAULT;
+    }
+
      /**
      * Default implementation of {@link GzipOptions} with
      * {@code compressionLevel()} set to 6, {@code windowBits()} set to 15 and {@code memLevel()} set to 8.
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.util.internal.ObjectUtil;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static io.netty.handler.codec.compression.ZstdConstants.DEFAULT_BLOCK_SIZE;
+
+/**
+ * Decompresses a {@link ByteBuf} encoded with the zstd format, which may consist of any number of frames.
+ *
+ * The same native decompression context is used for all frames of the stream. Input and output are passed to
+ * zstd as direct {@link ByteBuffer}s, so no copy is needed unless the input is not backed by a single direct
+ * {@link ByteBuffer}.
+ *
+ * See <a href="https://github.com/facebook/zstd">zstd</a>.
+ */
+public final class ZstdDecoder extends ByteToMessageDecoder {
+
+    static {
+        try {
+            Zstd.ensureAvailability();
+        } catch (Throwable throwable) {
+            throw new ExceptionInInitializerError(throwable);
+        }
+    }
+
+    private final int outputBufferSize;
+    private final ZstdDictionary dictionary;
+    private ZstdDecompressCtx decompressor;
+    private boolean destroyed;
+
+    /**
+     * Creates a new ZstdDecoder with a default 64kB output buffer
+     */
+    public ZstdDecoder() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a new ZstdDecoder
+     * @param outputBufferSize desired size of the output buffers in bytes
+     */
+    public ZstdDecoder(int outputBufferSize) {
+        this(outputBufferSize, null);
+    }
+
+    /**
+     * Creates a new ZstdDecoder which decompresses with a dictionary
+     * @param dictionary the {@link ZstdDictionary} the data was compressed with
+     */
+    public ZstdDecoder(ZstdDictionary dictionary) {
+        this(DEFAULT_BLOCK_SIZE, ObjectUtil.checkNotNull(dictionary, "dictionary"));
+    }
+
+    /**
+     * Creates a new ZstdDecoder
+     * @param outputBufferSize desired size of the output buffers in bytes
+     * @param dictionary the {@link ZstdDictionary} the data was compressed with or {@code null}
+     */
+    public ZstdDecoder(int outputBufferSize, ZstdDictionary dictionary) {
+        this.outputBufferSize = ObjectUtil.checkPositive(outputBufferSize, "outputBufferSize");
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        decompressor = new ZstdDecompressCtx();
+        if (dictionary != null) {
+            // Only references the shared native dictionary, so this is cheap.
+            decompressor.loadDict(dictionary.decompressDictionary());
+        }
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        if (destroyed) {
+            // Skip data received after the decoder was destroyed.
+            in.skipBytes(in.readableBytes());
+            return;
+        }
+
+        if (!in.isReadable()) {
+            return;
+        }
+
+        ByteBuf input = in;
+        if (!in.isDirect() || in.nioBufferCount() != 1) {
+            // zstd can only consume a single direct buffer, so we need to copy.
+            input = ctx.alloc().directBuffer(in.readableBytes());
+            input.writeBytes(in);
+        }
+        try {
+            decompress(input, out, ctx.alloc());
+        } catch (ZstdException e) {
+            destroy();
+            throw new DecompressionException("zstd stream corrupted", e);
+        } catch (Exception e) {
+            destroy();
+            throw e;
+        } finally {
+            if (input != in) {
+                input.release();
+            }
+        }
+    }
+
+    private void decompress(ByteBuf input, List<Object> out, ByteBufAllocator alloc) {
+        final int readerIndex = input.readerIndex();
+        final ByteBuffer src = input.internalNioBuffer(readerIndex, input.readableBytes());
+        final int srcStart = src.position();
+        for (;;) {
+            ByteBuf output = alloc.directBuffer(outputBufferSize);
+            ByteBuffer dst = output.internalNioBuffer(output.writerIndex(), output.writableBytes());
+            final int dstStart = dst.position();
+            try {
+                decompressor.decompressDirectByteBufferStream(dst, src);
+            } catch (ZstdException e) {
+                output.release();
+                throw e;
+            }
+            int produced = dst.position() - dstStart;
+            if (produced > 0) {
+                output.writerIndex(output.writerIndex() + produced);
+                out.add(output);
+            } else {
+                output.release();
+            }
+            // If the output buffer was filled completely zstd may still hold data which was not flushed yet.
+            if (!src.hasRemaining() && dst.hasRemaining()) {
+                break;
+            }
+        }
+        input.readerIndex(readerIndex + src.position() - srcStart);
+    }
+
+    private void destroy() {
+        if (!destroyed) {
+            destroyed = true;
+            if (decompressor != null) {
+                decompressor.close();
+            }
+        }
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        try {
+            destroy();
+        } finally {
+            super.handlerRemoved0(ctx);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        try {
+            destroy();
+        } finally {
+            super.channelInactive(ctx);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+
+import static io.netty.handler.codec.compression.ZstdConstants.DEFAULT_COMPRESSION_LEVEL;
+import static io.netty.handler.codec.compression.ZstdConstants.MAX_COMPRESSION_LEVEL;
+
+/**
+ * A zstd dictionary, typically trained with {@code zstd --train} on samples of the data that should be compressed.
+ * Dictionaries improve the compression ratio of small payloads, for which zstd has not enough data to learn from
+ * otherwise.
+ *
+ * The native compression and decompression dictionaries are created once when the instance is constructed, so a
+ * single instance should be created and shared by all {@link ZstdEncoder}s and {@link ZstdDecoder}s that use it.
+ * Data compressed with a dictionary can only be decompressed with the same dictionary.
+ */
+@UnstableApi
+public final class ZstdDictionary {
+
+    private final int compressionLevel;
+    private final int id;
+    private final ZstdDictCompress compressDictionary;
+    private final ZstdDictDecompress decompressDictionary;
+
+    /**
+     * Creates a new dictionary which is used for compression with
+     * {@link ZstdConstants#DEFAULT_COMPRESSION_LEVEL}.
+     *
+     * @param dictionary the content of the dictionary
+     */
+    public ZstdDictionary(byte[] dictionary) {
+        this(dictionary, DEFAULT_COMPRESSION_LEVEL);
+    }
+
+    /**
+     * Creates a new dictionary.
+     *
+     * @param dictionary       the content of the dictionary
+     * @param compressionLevel the level used when compressing with this dictionary
+     */
+    public ZstdDictionary(byte[] dictionary, int compressionLevel) {
+        if (!Zstd.isAvailable()) {
+            throw new IllegalStateException("zstd-jni is not available", Zstd.cause());
+        }
+        ObjectUtil.checkNonEmpty(dictionary, "dictionary");
+        this.compressionLevel = ObjectUtil.checkInRange(
+                compressionLevel, 0, MAX_COMPRESSION_LEVEL, "compressionLevel");
+        id = (int) com.github.luben.zstd.Zstd.getDictIdFromDict(dictionary);
+        compressDictionary = new ZstdDictCompress(dictionary, compressionLevel);
+        decompressDictionary = new ZstdDictDecompress(dictionary);
+    }
+
+    /**
+     * Returns the level used when compressing with this dictionary.
+     */
+    public int compressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Returns the id of this dictionary, or {@code 0} if the dictionary is not a trained zstd dictionary but raw
+     * content.
+     */
+    public int id() {
+        return id;
+    }
+
+    ZstdDictCompress compressDictionary() {
+        return compressDictionary;
+    }
+
+    ZstdDictDecompress decompressDictionary() {
+        return decompressDictionary;
+    }
+}
@@ -22,6 +22,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.EncoderException;
 import io.netty.handler.codec.MessageToByteEncoder;
 import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
 import java.nio.ByteBuffer;
 
 import static io.netty.handler.codec.compression.ZstdConstants.DEFAULT_COMPRESSION_LEVEL;
@@ -38,6 +39,7 @@ public final class ZstdEncoder extends MessageToByteEncoder<ByteBuf> {
     private final int blockSize;
     private final int compressionLevel;
     private final int maxEncodeSize;
+    private final ZstdDictionary dictionary;
     private ByteBuf buffer;
 
     /**
@@ -84,6 +86,45 @@ public final class ZstdEncoder extends MessageToByteEncoder<ByteBuf> {
         this.compressionLevel = ObjectUtil.checkInRange(compressionLevel, 0, MAX_COMPRESSION_LEVEL, "compressionLevel");
         this.blockSize = ObjectUtil.checkPositive(blockSize, "blockSize");
         this.maxEncodeSize = ObjectUtil.checkPositive(maxEncodeSize, "maxEncodeSize");
+        this.dictionary = null;
+    }
+
+    /**
+     * Creates a new Zstd encoder which compresses with a dictionary.
+     *
+     * @param  blockSize
+     *           is used to calculate the compressionLevel
+     * @param  maxEncodeSize
+     *           specifies the size of the largest compressed object
+     * @param  dictionary
+     *           the {@link ZstdDictionary} to use, which also specifies the level of the compression
+     */
+    @UnstableApi
+    public ZstdEncoder(int blockSize, int maxEncodeSize, ZstdDictionary dictionary) {
+        super(true);
+        this.dictionary = ObjectUtil.checkNotNull(dictionary, "dictionary");
+        this.compressionLevel = dictionary.compressionLevel();
+        this.blockSize = ObjectUtil.checkPositive(blockSize, "blockSize");
+        this.maxEncodeSize = ObjectUtil.checkPositive(maxEncodeSize, "maxEncodeSize");
+    }
+
+    /**
+     * Creates a new Zstd encoder from the given {@link ZstdOptions}. If these carry a {@link ZstdDictionary}, its
+     * level of the compression is used.
+     *
+     * @param  options
+     *           the {@link ZstdOptions} to use
+     */
+    @UnstableApi
+    public ZstdEncoder(ZstdOptions options) {
+        super(true);
+        ObjectUtil.checkNotNull(options, "options");
+        this.dictionary = options.dictionary();
+        // The level is part of the prepared dictionary, so it always wins over what the options report.
+        this.compressionLevel = dictionary != null ? dictionary.compressionLevel() :
+                ObjectUtil.checkInRange(options.compressionLevel(), 0, MAX_COMPRESSION_LEVEL, "compressionLevel");
+        this.blockSize = ObjectUtil.checkPositive(options.blockSize(), "blockSize");
+        this.maxEncodeSize = ObjectUtil.checkPositive(options.maxEncodeSize(), "maxEncodeSize");
     }
 
     @Override
@@ -146,10 +187,12 @@ public final class ZstdEncoder extends MessageToByteEncoder<ByteBuf> {
         int compressedLength;
         try {
             ByteBuffer outNioBuffer = out.internalNioBuffer(idx, out.writableBytes());
-            compressedLength = Zstd.compress(
-                    outNioBuffer,
-                    buffer.internalNioBuffer(buffer.readerIndex(), flushableBytes),
-                    compressionLevel);
+            ByteBuffer inNioBuffer = buffer.internalNioBuffer(buffer.readerIndex(), flushableBytes);
+            if (dictionary == null) {
+                compressedLength = Zstd.compress(outNioBuffer, inNioBuffer, compressionLevel);
+            } else {
+                compressedLength = Zstd.compress(outNioBuffer, inNioBuffer, dictionary.compressDictionary());
+            }
         } catch (Exception e) {
             throw new CompressionException(e);
         }
@@ -31,6 +31,7 @@ public class ZstdOptions implements CompressionOptions {
     private final int blockSize;
     private final int compressionLevel;
     private final int maxEncodeSize;
+    private final ZstdDictionary dictionary;
 
     /**
      * Default implementation of {@link ZstdOptions} with{compressionLevel(int)} set to
@@ -57,6 +58,24 @@ public class ZstdOptions implements CompressionOptions {
         this.compressionLevel = ObjectUtil.checkInRange(compressionLevel, 0, MAX_COMPRESSION_LEVEL, "compressionLevel");
         this.blockSize = ObjectUtil.checkPositive(blockSize, "blockSize");
         this.maxEncodeSize = ObjectUtil.checkPositive(maxEncodeSize, "maxEncodeSize");
+        this.dictionary = null;
+    }
+
+    /**
+     * Create a new {@link ZstdOptions} which compresses with a {@link ZstdDictionary}
+     *
+     * @param  blockSize
+     *           is used to calculate the compressionLevel
+     * @param  maxEncodeSize
+     *           specifies the size of the largest compressed object
+     * @param  dictionary
+     *           the dictionary to use, which also specifies the level of the compression
+     */
+    ZstdOptions(int blockSize, int maxEncodeSize, ZstdDictionary dictionary) {
+        this.dictionary = ObjectUtil.checkNotNull(dictionary, "dictionary");
+        this.compressionLevel = dictionary.compressionLevel();
+        this.blockSize = ObjectUtil.checkPositive(blockSize, "blockSize");
+        this.maxEncodeSize = ObjectUtil.checkPositive(maxEncodeSize, "maxEncodeSize");
     }
 
     public int compressionLevel() {
@@ -70,4 +89,11 @@ public class ZstdOptions implements CompressionOptions {
     public int maxEncodeSize() {
         return maxEncodeSize;
     }
+
+    /**
+     * Returns the {@link ZstdDictionary} to compress with or {@code null} if no dictionary is used.
+     */
+    public ZstdDictionary dictionary() {
+        return dictionary;
+    }
 }
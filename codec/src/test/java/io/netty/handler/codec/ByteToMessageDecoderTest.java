@@ -606,6 +606,97 @@ public class ByteToMessageDecoderTest {
         testReusedBuffer(Unpooled.buffer(1024), true, ByteToMessageDecoder.COMPOSITE_CUMULATOR);
     }
 
+    @Test
+    public void testReuseInputBufferJustLargeEnoughToContainMessage_AdaptiveCumulator() {
+        testReusedBuffer(Unpooled.buffer(16), false, new AdaptiveCumulator());
+    }
+
+    @Test
+    public void testReuseInputBufferSufficientlyLargeToContainDuplicateMessagePartiallyReceived2x_AdaptiveCumulator() {
+        testReusedBuffer(Unpooled.buffer(1024), true, new AdaptiveCumulator());
+    }
+
+    @Test
+    public void testAdaptiveCumulatorMergesSmallFrames() {
+        AdaptiveCumulator cumulator = new AdaptiveCumulator(16);
+        ByteBufAllocator alloc = UnpooledByteBufAllocator.DEFAULT;
+        ByteBuf cumulation = cumulator.cumulate(alloc, Unpooled.EMPTY_BUFFER, wrappedBuffer(new byte[] { 1, 2 }));
+        cumulation = cumulator.cumulate(alloc, cumulation, wrappedBuffer(new byte[] { 3, 4 }));
+        cumulation = cumulator.cumulate(alloc, cumulation, wrappedBuffer(new byte[] { 5 }));
+        assertFalse(cumulation instanceof CompositeByteBuf);
+        assertEquals(wrappedBuffer(new byte[] { 1, 2, 3, 4, 5 }), cumulation);
+        cumulation.release();
+    }
+
+    @Test
+    public void testAdaptiveCumulatorComposesLargeFrames() {
+        AdaptiveCumulator cumulator = new AdaptiveCumulator(12);
+        ByteBufAllocator alloc = UnpooledByteBufAllocator.DEFAULT;
+        ByteBuf cumulation = Unpooled.EMPTY_BUFFER;
+        for (int i = 0; i < 3; i++) {
+            cumulation = cumulator.cumulate(alloc, cumulation, Unpooled.wrappedBuffer(new byte[5]));
+        }
+        assertFalse(cumulation instanceof CompositeByteBuf);
+        // Consume the frame, the next call will record its size.
+        cumulation.skipBytes(cumulation.readableBytes());
+        cumulation = cumulator.cumulate(alloc, cumulation, Unpooled.wrappedBuffer(new byte[5]));
+        assertEquals(15, cumulator.frameSizeEstimate());
+
+        cumulation = cumulator.cumulate(alloc, cumulation, Unpooled.wrappedBuffer(new byte[5]));
+        assertTrue(cumulation instanceof CompositeByteBuf);
+        assertEquals(10, cumulation.readableBytes());
+        cumulation.release();
+    }
+
+    @Test
+    public void testAdaptiveCumulatorComposesOnceFrameIsKnownToBeLarge() {
+        AdaptiveCumulator cumulator = new AdaptiveCumulator(12);
+        ByteBufAllocator alloc = UnpooledByteBufAllocator.DEFAULT;
+        ByteBuf cumulation = Unpooled.EMPTY_BUFFER;
+        for (int i = 0; i < 3; i++) {
+            cumulation = cumulator.cumulate(alloc, cumulation, Unpooled.wrappedBuffer(new byte[5]));
+        }
+        assertFalse(cumulation instanceof CompositeByteBuf);
+        // 15 bytes are not consumed yet, so the frame is at least that big.
+        cumulation = cumulator.cumulate(alloc, cumulation, Unpooled.wrappedBuffer(new byte[5]));
+        assertTrue(cumulation instanceof CompositeByteBuf);
+        assertEquals(20, cumulation.readableBytes());
+        cumulation.release();
+    }
+
+    @Test
+    public void testAdaptiveCumulatorPresizesExpectedFrame() {
+        AdaptiveCumulator cumulator = new AdaptiveCumulator(16);
+        ByteBufAllocator alloc = UnpooledByteBufAllocator.DEFAULT;
+        ByteBuf cumulation = cumulator.cumulate(alloc, Unpooled.EMPTY_BUFFER, Unpooled.wrappedBuffer(new byte[4]));
+        cumulator.expectFrameLength(100);
+        // The cumulation is replaced once by a buffer that can hold the whole frame.
+        cumulation = cumulator.cumulate(alloc, cumulation, Unpooled.wrappedBuffer(new byte[40]));
+        assertEquals(100, cumulation.capacity());
+        ByteBuf expected = cumulation;
+        cumulation = cumulator.cumulate(alloc, cumulation, Unpooled.wrappedBuffer(new byte[56]));
+        assertSame(expected, cumulation);
+        assertEquals(100, cumulation.readableBytes());
+        assertFalse(cumulation instanceof CompositeByteBuf);
+        cumulation.release();
+    }
+
+    @Test
+    public void testAdaptiveCumulatorCapsReservationOfLargeExpectedFrame() {
+        AdaptiveCumulator cumulator = new AdaptiveCumulator();
+        ByteBufAllocator alloc = UnpooledByteBufAllocator.DEFAULT;
+        ByteBuf cumulation = cumulator.cumulate(alloc, Unpooled.EMPTY_BUFFER, Unpooled.wrappedBuffer(new byte[4]));
+        cumulator.expectFrameLength(64 * 1024 * 1024);
+        // Only reserve what the peer actually sent and not the announced length.
+        cumulation = cumulator.cumulate(alloc, cumulation, Unpooled.wrappedBuffer(new byte[40]));
+        assertEquals(ByteToMessageDecoder.MAX_RESERVE_AHEAD, cumulation.capacity());
+        cumulation = cumulator.cumulate(alloc, cumulation,
+                Unpooled.wrappedBuffer(new byte[ByteToMessageDecoder.MAX_RESERVE_AHEAD]));
+        assertEquals((ByteToMessageDecoder.MAX_RESERVE_AHEAD + 44) * 2, cumulation.capacity());
+        assertFalse(cumulation instanceof CompositeByteBuf);
+        cumulation.release();
+    }
+
     static void testReusedBuffer(ByteBuf buffer, boolean secondPartial, ByteToMessageDecoder.Cumulator cumulator) {
         ByteToMessageDecoder decoder = new ByteToMessageDecoder() {
             @Override
@@ -17,11 +17,16 @@ package io.netty.handler.codec;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -86,4 +91,65 @@ public class LengthFieldBasedFrameDecoderTest {
 
         buf.release();
     }
+
+    @Test
+    public void testExpectedFrameLength() {
+        final AtomicInteger decodeCalls = new AtomicInteger();
+        LengthFieldBasedFrameDecoder decoder = new LengthFieldBasedFrameDecoder(1024, 0, 4, 0, 4) {
+            @Override
+            protected Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+                decodeCalls.incrementAndGet();
+                return super.decode(ctx, in);
+            }
+        };
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
+
+        ByteBuf header = Unpooled.wrappedBuffer(new byte[14]);
+        header.setInt(0, 100);
+        assertFalse(channel.writeInbound(header));
+        assertEquals(1, decodeCalls.get());
+
+        // The cumulation is replaced once by one that can hold the whole frame, and decode(...) is not called
+        // before the frame is complete.
+        assertFalse(channel.writeInbound(Unpooled.wrappedBuffer(new byte[10])));
+        ByteBuf cumulation = decoder.internalBuffer();
+        assertEquals(104, cumulation.capacity());
+        for (int i = 0; i < 7; i++) {
+            assertFalse(channel.writeInbound(Unpooled.wrappedBuffer(new byte[10])));
+            assertSame(cumulation, decoder.internalBuffer());
+        }
+        assertEquals(1, decodeCalls.get());
+
+        assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(new byte[10])));
+        assertEquals(2, decodeCalls.get());
+        ByteBuf frame = channel.readInbound();
+        assertEquals(100, frame.readableBytes());
+        frame.release();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testExpectedFrameLengthIsNotReservedUpFront() {
+        int frameLength = 16 * 1024 * 1024;
+        LengthFieldBasedFrameDecoder decoder = new LengthFieldBasedFrameDecoder(frameLength + 4, 0, 4, 0, 4);
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
+
+        ByteBuf header = Unpooled.wrappedBuffer(new byte[14]);
+        header.setInt(0, frameLength);
+        assertFalse(channel.writeInbound(header));
+
+        // A peer that announces a large frame but does not send it must not make us allocate all of it.
+        assertFalse(channel.writeInbound(Unpooled.wrappedBuffer(new byte[10])));
+        assertEquals(ByteToMessageDecoder.MAX_RESERVE_AHEAD, decoder.internalBuffer().capacity());
+        assertFalse(channel.writeInbound(Unpooled.wrappedBuffer(new byte[ByteToMessageDecoder.MAX_RESERVE_AHEAD])));
+        assertEquals((ByteToMessageDecoder.MAX_RESERVE_AHEAD + 24) * 2, decoder.internalBuffer().capacity());
+
+        // The frame is still decoded once it is complete.
+        int remaining = frameLength + 4 - decoder.internalBuffer().readableBytes();
+        assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(new byte[remaining])));
+        ByteBuf frame = channel.readInbound();
+        assertEquals(frameLength, frame.readableBytes());
+        frame.release();
+        assertFalse(channel.finish());
+    }
 }
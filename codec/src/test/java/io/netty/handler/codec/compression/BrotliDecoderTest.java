@@ -17,13 +17,16 @@
 package io.netty.handler.codec.compression;
 
 import com.aayushatharva.brotli4j.encoder.BrotliOutputStream;
+import com.aayushatharva.brotli4j.encoder.Encoder;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
@@ -32,6 +35,7 @@ import java.io.IOException;
 import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class BrotliDecoderTest {
@@ -123,6 +127,39 @@ public class BrotliDecoderTest {
         testDecompressionOfBatchedFlow(WRAPPED_BYTES_LARGE, data);
     }
 
+    @Test
+    public void testDecompressionWithDictionary() {
+        String payload = "{\"id\":42,\"name\":\"netty\",\"tags\":[\"network\",\"async\"],\"active\":true}";
+        BrotliDictionary dictionary = new BrotliDictionary(
+                "{\"id\":1,\"name\":\"\",\"tags\":[\"network\",\"async\",\"event\"],\"active\":false}"
+                        .getBytes(CharsetUtil.US_ASCII));
+
+        // Custom dictionaries are only used for a quality of 5 and above.
+        Encoder.Parameters parameters = new Encoder.Parameters().setQuality(5);
+        ByteBuf compressed = compress(new BrotliEncoder(parameters, dictionary), payload);
+        ByteBuf withoutDictionary = compress(new BrotliEncoder(parameters), payload);
+
+        // The dictionary contains almost the whole payload, so it must compress much better.
+        assertTrue(compressed.readableBytes() < withoutDictionary.readableBytes(),
+                compressed.readableBytes() + " >= " + withoutDictionary.readableBytes());
+        withoutDictionary.release();
+
+        channel.finishAndReleaseAll();
+        channel = new EmbeddedChannel(new BrotliDecoder(8 * 1024, dictionary));
+        assertTrue(channel.writeInbound(compressed));
+        ByteBuf decompressed = readDecompressed(channel);
+        assertEquals(payload, decompressed.toString(CharsetUtil.US_ASCII));
+        decompressed.release();
+    }
+
+    private static ByteBuf compress(BrotliEncoder encoder, String payload) {
+        EmbeddedChannel channel = new EmbeddedChannel(encoder);
+        assertTrue(channel.writeOutbound(Unpooled.copiedBuffer(payload, CharsetUtil.US_ASCII)));
+        ByteBuf compressed = channel.readOutbound();
+        assertFalse(channel.finish());
+        return compressed;
+    }
+
     private void testDecompression(final ByteBuf expected, final ByteBuf data) {
         assertTrue(channel.writeInbound(data));
 
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.EventLoop;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JdkZlibContextPoolTest {
+
+    private static final String DATA = "Netty is an asynchronous event-driven network application framework. " +
+            "Netty is an asynchronous event-driven network application framework.";
+
+    private EventLoop eventLoop;
+
+    @BeforeEach
+    public void setUp() {
+        eventLoop = new DefaultEventLoop();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        eventLoop.shutdownGracefully();
+    }
+
+    @Test
+    public void testContextsAreReusedOnEventLoop() throws Exception {
+        eventLoop.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+                // Make sure the pool holds a context of each kind.
+                roundTrip(ZlibWrapper.GZIP);
+                roundTrip(ZlibWrapper.ZLIB);
+
+                long deflaterHits = JdkZlibContextPool.deflaterHits();
+                long inflaterHits = JdkZlibContextPool.inflaterHits();
+                for (int i = 0; i < 3; i++) {
+                    roundTrip(ZlibWrapper.GZIP);
+                    roundTrip(ZlibWrapper.ZLIB);
+                    roundTrip(ZlibWrapper.NONE);
+                }
+                assertTrue(JdkZlibContextPool.deflaterHits() - deflaterHits >= 8);
+                assertTrue(JdkZlibContextPool.inflaterHits() - inflaterHits >= 8);
+                return null;
+            }
+        }).sync();
+    }
+
+    @Test
+    public void testContextsAreNotPooledOutsideEventLoop() {
+        long deflaterHits = JdkZlibContextPool.deflaterHits();
+        long deflaterMisses = JdkZlibContextPool.deflaterMisses();
+        roundTrip(ZlibWrapper.GZIP);
+        roundTrip(ZlibWrapper.GZIP);
+        assertEquals(deflaterHits, JdkZlibContextPool.deflaterHits());
+        assertEquals(deflaterMisses + 2, JdkZlibContextPool.deflaterMisses());
+    }
+
+    private static void roundTrip(ZlibWrapper wrapper) {
+        EmbeddedChannel encoder = new EmbeddedChannel(new JdkZlibEncoder(wrapper));
+        assertTrue(encoder.writeOutbound(Unpooled.copiedBuffer(DATA, CharsetUtil.US_ASCII)));
+        assertTrue(encoder.finish());
+
+        EmbeddedChannel decoder = new EmbeddedChannel(new JdkZlibDecoder(wrapper));
+        for (;;) {
+            ByteBuf compressed = encoder.readOutbound();
+            if (compressed == null) {
+                break;
+            }
+            decoder.writeInbound(compressed);
+        }
+        CompositeByteBuf decompressed = Unpooled.compositeBuffer();
+        for (;;) {
+            ByteBuf buf = decoder.readInbound();
+            if (buf == null) {
+                break;
+            }
+            decompressed.addComponent(true, buf);
+        }
+        assertEquals(DATA, decompressed.toString(CharsetUtil.US_ASCII));
+        decompressed.release();
+        // Removes the decoder from the pipeline, which returns the inflater.
+        decoder.finishAndReleaseAll();
+    }
+}
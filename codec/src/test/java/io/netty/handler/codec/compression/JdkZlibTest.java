@@ -183,6 +183,48 @@ public class JdkZlibTest extends ZlibTest {
         assertTrue(channel.releaseOutbound());
     }
 
+    @Test
+    public void testDirectBuffers() throws Exception {
+        byte[] data = new byte[256 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 13 == 0 ? i : i % 7);
+        }
+        for (ZlibWrapper wrapper: new ZlibWrapper[] { ZlibWrapper.GZIP, ZlibWrapper.ZLIB, ZlibWrapper.NONE }) {
+            EmbeddedChannel encoder = new EmbeddedChannel(createEncoder(wrapper));
+            assertTrue(encoder.writeOutbound(Unpooled.directBuffer(data.length).writeBytes(data)));
+            assertTrue(encoder.finish());
+
+            EmbeddedChannel decoder = new EmbeddedChannel(createDecoder(wrapper));
+            boolean directOutput = false;
+            for (;;) {
+                ByteBuf compressed = encoder.readOutbound();
+                if (compressed == null) {
+                    break;
+                }
+                directOutput |= compressed.isDirect();
+                // Feed the decoder with direct buffers only so the inflater needs to consume direct memory.
+                ByteBuf direct = Unpooled.directBuffer(compressed.readableBytes()).writeBytes(compressed);
+                compressed.release();
+                decoder.writeInbound(direct);
+            }
+            // Direct input is compressed straight into direct memory if supported.
+            assertEquals(PlatformDependent.javaVersion() >= 11, directOutput);
+
+            ByteBuf decompressed = Unpooled.buffer(data.length);
+            for (;;) {
+                ByteBuf buf = decoder.readInbound();
+                if (buf == null) {
+                    break;
+                }
+                decompressed.writeBytes(buf);
+                buf.release();
+            }
+            assertEquals(Unpooled.wrappedBuffer(data), decompressed);
+            decompressed.release();
+            decoder.finishAndReleaseAll();
+        }
+    }
+
     /**
      * Allocator that will limit buffer capacity to 1M.
      */
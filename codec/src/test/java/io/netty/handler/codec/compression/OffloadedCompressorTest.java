@@ -0,0 +1,211 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OffloadedCompressorTest {
+
+    private static final byte[] DATA = new byte[64 * 1024];
+
+    static {
+        byte[] words = "netty event loop channel pipeline handler buffer future promise ".getBytes();
+        for (int i = 0; i < DATA.length; i++) {
+            DATA[i] = words[(i * 7 + i / 1000) % words.length];
+        }
+    }
+
+    private final EventExecutor compressionExecutor = new DefaultEventExecutor();
+    private final EventExecutor eventLoop = new DefaultEventExecutor();
+
+    @AfterEach
+    public void tearDown() {
+        compressionExecutor.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        eventLoop.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testCompressesOnExecutor() throws Exception {
+        final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+        final EmbeddedChannel encoder = new EmbeddedChannel(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                threads.add(Thread.currentThread());
+                ctx.write(msg, promise);
+            }
+        }, ZlibCodecFactory.newZlibEncoder(ZlibWrapper.GZIP));
+        final List<Integer> completed = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<Future<ByteBuf>> futures = eventLoop.submit(new Callable<List<Future<ByteBuf>>>() {
+            @Override
+            public List<Future<ByteBuf>> call() {
+                OffloadedCompressor compressor = new OffloadedCompressor(encoder, compressionExecutor, eventLoop);
+                List<Future<ByteBuf>> futures = new ArrayList<Future<ByteBuf>>();
+                for (int i = 0; i < 4; i++) {
+                    futures.add(compressor.compress(Unpooled.wrappedBuffer(DATA, i * 16 * 1024, 16 * 1024)));
+                }
+                futures.add(compressor.finish());
+                for (int i = 0; i < futures.size(); i++) {
+                    final int index = i;
+                    futures.get(i).addListener(new FutureListener<ByteBuf>() {
+                        @Override
+                        public void operationComplete(Future<ByteBuf> future) {
+                            assertTrue(eventLoop.inEventLoop());
+                            completed.add(index);
+                        }
+                    });
+                }
+                return futures;
+            }
+        }).sync().getNow();
+
+        CompositeByteBuf compressed = Unpooled.compositeBuffer();
+        for (Future<ByteBuf> future : futures) {
+            compressed.addComponent(true, future.sync().getNow());
+        }
+        assertArrayEquals(DATA, readFully(new GZIPInputStream(new ByteBufInputStream(compressed, true))));
+        // The listeners may still run when sync() returns.
+        eventLoop.submit(new Runnable() {
+            @Override
+            public void run() {
+                // NOOP
+            }
+        }).sync();
+        assertEquals(5, completed.size());
+        for (int i = 0; i < completed.size(); i++) {
+            assertEquals(i, completed.get(i));
+        }
+        assertFalse(threads.isEmpty());
+        for (Thread thread : threads) {
+            assertTrue(compressionExecutor.inEventLoop(thread));
+        }
+        assertFalse(encoder.isOpen());
+    }
+
+    @Test
+    public void testCloseReleasesPendingData() {
+        final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+        EmbeddedChannel encoder = new EmbeddedChannel(ZlibCodecFactory.newZlibEncoder(ZlibWrapper.GZIP));
+        OffloadedCompressor compressor = new OffloadedCompressor(
+                encoder, executor, ImmediateEventExecutor.INSTANCE);
+        ByteBuf first = Unpooled.copiedBuffer(DATA);
+        ByteBuf second = Unpooled.copiedBuffer(DATA);
+        Future<ByteBuf> firstFuture = compressor.compress(first);
+        Future<ByteBuf> secondFuture = compressor.compress(second);
+        // Only one task runs at a time.
+        assertEquals(1, tasks.size());
+
+        compressor.close();
+        assertTrue(secondFuture.isDone());
+        assertFalse(secondFuture.isSuccess());
+        assertEquals(0, second.refCnt());
+        assertFalse(firstFuture.isDone());
+        assertTrue(encoder.isOpen());
+
+        // The running task completes, its output is released as nobody is interested in it anymore.
+        tasks.poll().run();
+        assertFalse(firstFuture.isSuccess());
+        assertEquals(0, first.refCnt());
+        assertFalse(encoder.isOpen());
+        assertTrue(tasks.isEmpty());
+
+        ByteBuf third = Unpooled.copiedBuffer(DATA);
+        assertTrue(compressor.compress(third).cause() instanceof IllegalStateException);
+        assertEquals(0, third.refCnt());
+    }
+
+    @Test
+    public void testFailureFailsFollowingData() {
+        final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+        final IllegalStateException cause = new IllegalStateException();
+        EmbeddedChannel encoder = new EmbeddedChannel(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                ((ByteBuf) msg).release();
+                promise.setFailure(cause);
+            }
+        });
+        OffloadedCompressor compressor = new OffloadedCompressor(
+                encoder, executor, ImmediateEventExecutor.INSTANCE);
+        ByteBuf second = Unpooled.copiedBuffer(DATA);
+        Future<ByteBuf> firstFuture = compressor.compress(Unpooled.copiedBuffer(DATA));
+        Future<ByteBuf> secondFuture = compressor.compress(second);
+        Future<ByteBuf> finishFuture = compressor.finish();
+
+        tasks.poll().run();
+        assertTrue(tasks.isEmpty());
+        assertEquals(cause, firstFuture.cause());
+        assertEquals(cause, secondFuture.cause());
+        assertEquals(cause, finishFuture.cause());
+        assertEquals(0, second.refCnt());
+        // The encoder is released as the stream can not be finished anymore.
+        assertFalse(encoder.isOpen());
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import com.github.luben.zstd.ZstdInputStream;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.internal.EmptyArrays;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParallelCompressionEncoderTest {
+
+    private static final byte[] DATA = new byte[300 * 1024 + 17];
+
+    static {
+        byte[] words = "netty event loop channel pipeline handler buffer future promise ".getBytes();
+        for (int i = 0; i < DATA.length; i++) {
+            DATA[i] = words[(i * 7 + i / 1000) % words.length];
+        }
+    }
+
+    // Executes the compression tasks once the test asks for it, in reverse order to verify the blocks are
+    // reassembled in the right order.
+    private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+    private final Executor executor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+    };
+
+    @Test
+    public void testGzip() throws Exception {
+        byte[] compressed = compress(StandardCompressionOptions.gzip(), 64 * 1024, DATA);
+        assertArrayEquals(DATA, readFully(new GZIPInputStream(new ByteBufInputStream(
+                Unpooled.wrappedBuffer(compressed)))));
+    }
+
+    @Test
+    public void testGzipEmpty() throws Exception {
+        byte[] compressed = compress(StandardCompressionOptions.gzip(), 64 * 1024, EmptyArrays.EMPTY_BYTES);
+        assertArrayEquals(EmptyArrays.EMPTY_BYTES, readFully(new GZIPInputStream(new ByteBufInputStream(
+                Unpooled.wrappedBuffer(compressed)))));
+    }
+
+    @Test
+    public void testGzipDecodedByJdkZlibDecoder() {
+        byte[] compressed = compress(StandardCompressionOptions.gzip(1, 15, 8), 1000, DATA);
+        EmbeddedChannel channel = new EmbeddedChannel(new JdkZlibDecoder(ZlibWrapper.GZIP));
+        assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(compressed)));
+        assertArrayEquals(DATA, readInbound(channel));
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testDeflate() throws Exception {
+        for (int level = 0; level <= 9; level++) {
+            byte[] compressed = compress(StandardCompressionOptions.deflate(level, 15, 8), 50 * 1024, DATA);
+            // InflaterInputStream verifies the Adler-32 of the stream.
+            assertArrayEquals(DATA, readFully(new InflaterInputStream(new ByteBufInputStream(
+                    Unpooled.wrappedBuffer(compressed)))));
+        }
+    }
+
+    @Test
+    public void testZstd() throws Exception {
+        byte[] compressed = compress(StandardCompressionOptions.zstd(), 64 * 1024, DATA);
+        assertArrayEquals(DATA, readFully(new ZstdInputStream(new ByteBufInputStream(
+                Unpooled.wrappedBuffer(compressed)))));
+    }
+
+    @Test
+    public void testLz4() {
+        byte[] compressed = compress(StandardCompressionOptions.lz4(), 64 * 1024, DATA);
+        Lz4FrameDecoder decoder = new Lz4FrameDecoder(true);
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
+        assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(compressed)));
+        assertArrayEquals(DATA, readInbound(channel));
+        assertTrue(decoder.isClosed());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testWritesCompleteInOrder() throws Exception {
+        ParallelCompressionEncoder encoder = new ParallelCompressionEncoder(
+                executor, StandardCompressionOptions.gzip(), 1024, 8);
+        EmbeddedChannel channel = new EmbeddedChannel(encoder);
+        ChannelFuture first = channel.write(Unpooled.wrappedBuffer(DATA, 0, 4000));
+        ChannelFuture marker = channel.write("marker");
+        ChannelFuture second = channel.write(Unpooled.wrappedBuffer(DATA, 4000, 100));
+        channel.flush();
+        // The data was split into four blocks plus the block in front of the marker and after it.
+        assertEquals(5, tasks.size());
+        assertFalse(first.isDone());
+        assertFalse(marker.isDone());
+        assertNull(channel.readOutbound());
+
+        ChannelFuture finish = encoder.finish();
+        runTasks(channel);
+        assertTrue(first.isSuccess());
+        assertTrue(marker.isSuccess());
+        assertTrue(second.isSuccess());
+        assertTrue(finish.isSuccess());
+
+        CompositeByteBuf beforeMarker = Unpooled.compositeBuffer();
+        CompositeByteBuf afterMarker = Unpooled.compositeBuffer();
+        CompositeByteBuf target = beforeMarker;
+        for (;;) {
+            Object msg = channel.readOutbound();
+            if (msg == null) {
+                break;
+            }
+            if ("marker".equals(msg)) {
+                assertTrue(target == beforeMarker);
+                target = afterMarker;
+            } else {
+                target.addComponent(true, (ByteBuf) msg);
+            }
+        }
+        CompositeByteBuf compressed = Unpooled.compositeBuffer();
+        compressed.addComponents(true, beforeMarker, afterMarker);
+        byte[] decompressed = readFully(new GZIPInputStream(new ByteBufInputStream(compressed, true)));
+        byte[] expected = new byte[4100];
+        System.arraycopy(DATA, 0, expected, 0, expected.length);
+        assertArrayEquals(expected, decompressed);
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testBackpressure() {
+        ParallelCompressionEncoder encoder = new ParallelCompressionEncoder(
+                executor, StandardCompressionOptions.lz4(), 1024, 2);
+        EmbeddedChannel channel = new EmbeddedChannel(encoder);
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(1024, 4 * 1024));
+        channel.write(Unpooled.wrappedBuffer(DATA, 0, 8 * 1024));
+        // Only maxPendingBlocks blocks are compressed at the same time.
+        assertEquals(2, tasks.size());
+        // The data which is not compressed yet makes the channel unwritable.
+        assertFalse(channel.isWritable());
+
+        ChannelFuture finish = encoder.finish();
+        runTasks(channel);
+        assertTrue(finish.isSuccess());
+        assertTrue(channel.isWritable());
+        assertTrue(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    public void testCloseFinishesStream() throws Exception {
+        ParallelCompressionEncoder encoder = new ParallelCompressionEncoder(
+                executor, StandardCompressionOptions.gzip(), 1024, 4);
+        EmbeddedChannel channel = new EmbeddedChannel(encoder);
+        channel.write(Unpooled.wrappedBuffer(DATA, 0, 3000));
+        ChannelFuture close = channel.close();
+        assertFalse(close.isDone());
+        runTasks(channel);
+        assertTrue(close.isSuccess());
+        assertTrue(encoder.isFinished());
+
+        CompositeByteBuf compressed = Unpooled.compositeBuffer();
+        for (;;) {
+            ByteBuf buf = channel.readOutbound();
+            if (buf == null) {
+                break;
+            }
+            compressed.addComponent(true, buf);
+        }
+        byte[] expected = new byte[3000];
+        System.arraycopy(DATA, 0, expected, 0, expected.length);
+        assertArrayEquals(expected, readFully(new GZIPInputStream(new ByteBufInputStream(compressed, true))));
+    }
+
+    @Test
+    public void testFinishFailsIfLastBlockIsRejected() {
+        ParallelCompressionEncoder encoder = new ParallelCompressionEncoder(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        }, StandardCompressionOptions.gzip(), 1024, 4);
+        EmbeddedChannel channel = new EmbeddedChannel(encoder);
+        ChannelFuture write = channel.write(Unpooled.wrappedBuffer(DATA, 0, 100));
+        ChannelFuture finish = encoder.finish();
+        assertTrue(finish.cause() instanceof RejectedExecutionException);
+        assertTrue(write.cause() instanceof RejectedExecutionException);
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testCompressOnExecutorGroup() throws Exception {
+        byte[] data = compressOnExecutorGroup(StandardCompressionOptions.gzip(), new JdkZlibDecoder(ZlibWrapper.GZIP),
+                DATA, false);
+        assertArrayEquals(DATA, data);
+    }
+
+    @Test
+    public void testZstdPooledDirectBufferOnExecutorGroup() throws Exception {
+        // All blocks are slices of the same pooled buffer and compressed at the same time.
+        byte[] expected = repeat(DATA, 4);
+        assertArrayEquals(expected, compressOnExecutorGroup(
+                StandardCompressionOptions.zstd(), new ZstdDecoder(), expected, true));
+    }
+
+    @Test
+    public void testLz4PooledDirectBufferOnExecutorGroup() throws Exception {
+        byte[] expected = repeat(DATA, 4);
+        assertArrayEquals(expected, compressOnExecutorGroup(
+                StandardCompressionOptions.lz4(), new Lz4FrameDecoder(true), expected, true));
+    }
+
+    private byte[] compressOnExecutorGroup(CompressionOptions options, final ChannelHandler decoder,
+                                           final byte[] data, boolean singlePooledDirectWrite) throws Exception {
+        EventLoopGroup group = new DefaultEventLoopGroup(2);
+        EventExecutorGroup compressionGroup = new DefaultEventExecutorGroup(4);
+        Channel serverChannel = null;
+        Channel clientChannel = null;
+        ParallelCompressionEncoder encoder = new ParallelCompressionEncoder(compressionGroup, options, 1024, 16);
+        try {
+            final ByteBuf received = Unpooled.buffer(data.length);
+            final Promise<ByteBuf> receivedPromise = group.next().newPromise();
+            LocalAddress address = new LocalAddress(getClass());
+            serverChannel = new ServerBootstrap()
+                    .group(group)
+                    .channel(LocalServerChannel.class)
+                    .childHandler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            ch.pipeline().addLast(decoder);
+                            ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                                @Override
+                                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                    ByteBuf buf = (ByteBuf) msg;
+                                    received.writeBytes(buf);
+                                    buf.release();
+                                    if (received.writerIndex() == data.length) {
+                                        receivedPromise.setSuccess(received);
+                                    }
+                                }
+                            });
+                        }
+                    }).bind(address).sync().channel();
+            clientChannel = new Bootstrap()
+                    .group(group)
+                    .channel(LocalChannel.class)
+                    .handler(encoder)
+                    .connect(address).sync().channel();
+
+            if (singlePooledDirectWrite) {
+                ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer(data.length);
+                clientChannel.write(buf.writeBytes(data));
+            } else {
+                for (int i = 0; i < data.length; i += 3000) {
+                    clientChannel.write(Unpooled.wrappedBuffer(data, i, Math.min(3000, data.length - i)));
+                }
+            }
+            encoder.finish().sync();
+
+            ByteBuf decompressed = receivedPromise.sync().getNow();
+            byte[] bytes = new byte[decompressed.readableBytes()];
+            decompressed.readBytes(bytes);
+            decompressed.release();
+            return bytes;
+        } finally {
+            if (clientChannel != null) {
+                clientChannel.close().sync();
+            }
+            if (serverChannel != null) {
+                serverChannel.close().sync();
+            }
+            group.shutdownGracefully();
+            compressionGroup.shutdownGracefully();
+        }
+    }
+
+    private static byte[] repeat(byte[] data, int times) {
+        byte[] result = new byte[data.length * times];
+        for (int i = 0; i < times; i++) {
+            System.arraycopy(data, 0, result, i * data.length, data.length);
+        }
+        return result;
+    }
+
+    private byte[] compress(CompressionOptions options, int blockSize, byte[] data) {
+        ParallelCompressionEncoder encoder = new ParallelCompressionEncoder(executor, options, blockSize, 4);
+        EmbeddedChannel channel = new EmbeddedChannel(encoder);
+        // Use writes which do not line up with the blocks.
+        for (int i = 0; i < data.length; i += 10000) {
+            channel.write(Unpooled.wrappedBuffer(data, i, Math.min(10000, data.length - i)));
+        }
+        ChannelFuture finish = encoder.finish();
+        runTasks(channel);
+        assertTrue(finish.isSuccess());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (;;) {
+            ByteBuf buf = channel.readOutbound();
+            if (buf == null) {
+                break;
+            }
+            byte[] bytes = new byte[buf.readableBytes()];
+            buf.readBytes(bytes);
+            buf.release();
+            out.write(bytes, 0, bytes.length);
+        }
+        assertFalse(channel.finish());
+        return out.toByteArray();
+    }
+
+    private void runTasks(EmbeddedChannel channel) {
+        while (!tasks.isEmpty()) {
+            List<Runnable> list = new ArrayList<Runnable>(tasks);
+            tasks.clear();
+            Collections.reverse(list);
+            for (Runnable task: list) {
+                task.run();
+            }
+            channel.runPendingTasks();
+        }
+    }
+
+    private static byte[] readInbound(EmbeddedChannel channel) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (;;) {
+            ByteBuf buf = channel.readInbound();
+            if (buf == null) {
+                break;
+            }
+            byte[] bytes = new byte[buf.readableBytes()];
+            buf.readBytes(bytes);
+            buf.release();
+            out.write(bytes, 0, bytes.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
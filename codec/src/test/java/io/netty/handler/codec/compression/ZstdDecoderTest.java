@@ -0,0 +1,135 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ZstdDecoderTest extends AbstractDecoderTest {
+
+    public ZstdDecoderTest() throws Exception {
+    }
+
+    @Override
+    protected EmbeddedChannel createChannel() {
+        return new EmbeddedChannel(new ZstdDecoder());
+    }
+
+    @Override
+    protected byte[] compress(byte[] data) throws Exception {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ZstdOutputStream zstdOs = new ZstdOutputStream(os);
+        zstdOs.write(data);
+        zstdOs.close();
+        return os.toByteArray();
+    }
+
+    @Test
+    public void testDecompressionOfMultipleFrames() {
+        // ZstdEncoder writes one frame per block.
+        EmbeddedChannel encoder = new EmbeddedChannel(new ZstdEncoder(3, 4096, 1 << 20));
+        assertTrue(encoder.writeOutbound(WRAPPED_BYTES_LARGE.retainedDuplicate()));
+        assertTrue(encoder.finish());
+
+        CompositeByteBuf compressed = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        ByteBuf msg;
+        while ((msg = encoder.readOutbound()) != null) {
+            compressed.addComponent(true, msg);
+        }
+
+        // Feed the data in chunks that do not line up with the frames.
+        while (compressed.isReadable()) {
+            channel.writeInbound(compressed.readRetainedSlice(Math.min(1000, compressed.readableBytes())));
+        }
+        compressed.release();
+
+        ByteBuf decompressed = readDecompressed(channel);
+        assertEquals(WRAPPED_BYTES_LARGE, decompressed);
+        decompressed.release();
+    }
+
+    @Test
+    public void testDecompressionWithSmallOutputBuffer() {
+        channel = new EmbeddedChannel(new ZstdDecoder(16));
+        assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(compressedBytesLarge)));
+
+        ByteBuf decompressed = readDecompressed(channel);
+        assertEquals(WRAPPED_BYTES_LARGE, decompressed);
+        decompressed.release();
+    }
+
+    @Test
+    public void testDecompressionWithDictionary() throws Exception {
+        String payload = "{\"id\":42,\"name\":\"netty\",\"tags\":[\"network\",\"async\"],\"active\":true}";
+        ZstdDictionary dictionary = new ZstdDictionary(
+                "{\"id\":1,\"name\":\"\",\"tags\":[\"network\",\"async\",\"event\"],\"active\":false}"
+                        .getBytes(CharsetUtil.US_ASCII));
+
+        EmbeddedChannel encoder = new EmbeddedChannel(new ZstdEncoder(4096, 1 << 20, dictionary));
+        assertTrue(encoder.writeOutbound(Unpooled.copiedBuffer(payload, CharsetUtil.US_ASCII)));
+        assertTrue(encoder.finish());
+        CompositeByteBuf compressed = Unpooled.compositeBuffer();
+        ByteBuf msg;
+        while ((msg = encoder.readOutbound()) != null) {
+            compressed.addComponent(true, msg);
+        }
+
+        // The dictionary contains almost the whole payload, so it must compress much better.
+        int withoutDictionary = compress(payload.getBytes(CharsetUtil.US_ASCII)).length;
+        assertTrue(compressed.readableBytes() < withoutDictionary,
+                compressed.readableBytes() + " >= " + withoutDictionary);
+
+        // Without the dictionary the data can not be decompressed.
+        final ByteBuf copy = compressed.copy();
+        assertThrows(DecompressionException.class, new Executable() {
+            @Override
+            public void execute() {
+                tryDecodeAndCatchBufLeaks(channel, copy);
+            }
+        });
+
+        channel = new EmbeddedChannel(new ZstdDecoder(dictionary));
+        assertTrue(channel.writeInbound(compressed));
+        ByteBuf decompressed = readDecompressed(channel);
+        assertEquals(payload, decompressed.toString(CharsetUtil.US_ASCII));
+        decompressed.release();
+    }
+
+    @Test
+    public void testInvalidData() {
+        final ByteBuf data = Unpooled.directBuffer(compressedBytesSmall.length);
+        data.writeBytes(compressedBytesSmall);
+        data.setByte(0, data.getByte(0) + 1);
+        assertThrows(DecompressionException.class, new Executable() {
+            @Override
+            public void execute() {
+                tryDecodeAndCatchBufLeaks(channel, data);
+            }
+        });
+    }
+}
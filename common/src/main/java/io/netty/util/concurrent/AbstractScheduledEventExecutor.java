@@ -18,6 +18,9 @@ package io.netty.util.concurrent;
 import io.netty.util.internal.DefaultPriorityQueue;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.PriorityQueue;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.util.Comparator;
 import java.util.Queue;
@@ -28,6 +31,18 @@ import java.util.concurrent.TimeUnit;
  * Abstract base class for {@link EventExecutor}s that want to support scheduling.
  */
 public abstract class AbstractScheduledEventExecutor extends AbstractEventExecutor {
+    private static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(AbstractScheduledEventExecutor.class);
+
+    private static final boolean USE_TIMING_WHEEL =
+            SystemPropertyUtil.getBoolean("io.netty.eventexecutor.useTimingWheel", false);
+
+    static {
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.eventexecutor.useTimingWheel: {}", USE_TIMING_WHEEL);
+        }
+    }
+
     private static final Comparator<ScheduledFutureTask<?>> SCHEDULED_FUTURE_TASK_COMPARATOR =
             new Comparator<ScheduledFutureTask<?>>() {
                 @Override
@@ -106,10 +121,14 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
 
     PriorityQueue<ScheduledFutureTask<?>> scheduledTaskQueue() {
         if (scheduledTaskQueue == null) {
-            scheduledTaskQueue = new DefaultPriorityQueue<ScheduledFutureTask<?>>(
-                    SCHEDULED_FUTURE_TASK_COMPARATOR,
-                    // Use same initial capacity as java.util.PriorityQueue
-                    11);
+            if (USE_TIMING_WHEEL) {
+                scheduledTaskQueue = new TimingWheelScheduledTaskQueue(SCHEDULED_FUTURE_TASK_COMPARATOR);
+            } else {
+                scheduledTaskQueue = new DefaultPriorityQueue<ScheduledFutureTask<?>>(
+                        SCHEDULED_FUTURE_TASK_COMPARATOR,
+                        // Use same initial capacity as java.util.PriorityQueue
+                        11);
+            }
         }
         return scheduledTaskQueue;
     }
@@ -33,6 +33,8 @@ final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFu
     private final long periodNanos;
 
     private int queueIndex = INDEX_NOT_IN_QUEUE;
+    // The bucket of the TimingWheelScheduledTaskQueue this task is stored in, queueIndex is the index in the bucket.
+    private int wheelBucket = INDEX_NOT_IN_QUEUE;
 
     ScheduledFutureTask(AbstractScheduledEventExecutor executor,
             Runnable runnable, long nanoTime) {
@@ -208,6 +210,19 @@ final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFu
                   .append(')');
     }
 
+    int wheelBucket() {
+        return wheelBucket;
+    }
+
+    int wheelIndex() {
+        return queueIndex;
+    }
+
+    void wheelPosition(int bucket, int index) {
+        wheelBucket = bucket;
+        queueIndex = index;
+    }
+
     @Override
     public int priorityQueueIndex(DefaultPriorityQueue<?> queue) {
         return queueIndex;
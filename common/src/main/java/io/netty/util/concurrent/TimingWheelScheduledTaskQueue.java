@@ -0,0 +1,354 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.DefaultPriorityQueue;
+import io.netty.util.internal.PriorityQueue;
+
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static io.netty.util.internal.PriorityQueueNode.INDEX_NOT_IN_QUEUE;
+
+/**
+ * A {@link PriorityQueue} for {@link ScheduledFutureTask}s which is backed by a hierarchical timing wheel.
+ * <p>
+ * Only the tasks which are due up to the current tick of the wheel are kept in an exact binary heap, all other tasks
+ * are stored in the buckets of the wheel, which makes scheduling and cancelling tasks {@code O(1)}. The wheel consists
+ * of {@value #LEVELS} levels of {@value #SLOTS} slots, with a tick duration of {@code 2^}{@value #TICK_SHIFT}
+ * nanoseconds (~1ms) on the lowest level. Whenever the heap runs empty the wheel advances to the next occupied slot
+ * and redistributes its tasks into the heap or a lower level, so every task is moved at most {@value #LEVELS} times.
+ * Tasks which are too far in the future for the wheel are kept in an overflow heap.
+ * <p>
+ * This class is not thread-safe and must only be used from the {@link EventExecutor} thread.
+ */
+final class TimingWheelScheduledTaskQueue extends AbstractQueue<ScheduledFutureTask<?>>
+        implements PriorityQueue<ScheduledFutureTask<?>> {
+
+    private static final int TICK_SHIFT = 20;
+    private static final int SLOT_BITS = 8;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final int INITIAL_BUCKET_CAPACITY = 8;
+    private static final int MAX_RETAINED_BUCKET_CAPACITY = 256;
+
+    private final DefaultPriorityQueue<ScheduledFutureTask<?>> near;
+    private final DefaultPriorityQueue<ScheduledFutureTask<?>> overflow;
+    private final ScheduledFutureTask<?>[][] buckets = new ScheduledFutureTask<?>[LEVELS * SLOTS][];
+    private final int[] bucketSizes = new int[LEVELS * SLOTS];
+    private final long[] occupied = new long[LEVELS * SLOTS / Long.SIZE];
+    private long currentTick;
+    private int wheelSize;
+
+    TimingWheelScheduledTaskQueue(Comparator<ScheduledFutureTask<?>> comparator) {
+        near = new DefaultPriorityQueue<ScheduledFutureTask<?>>(comparator, 11);
+        overflow = new DefaultPriorityQueue<ScheduledFutureTask<?>>(comparator, 11);
+    }
+
+    private static long tick(ScheduledFutureTask<?> task) {
+        return task.deadlineNanos() >>> TICK_SHIFT;
+    }
+
+    @Override
+    public boolean offer(ScheduledFutureTask<?> task) {
+        if (task.wheelBucket() != INDEX_NOT_IN_QUEUE) {
+            throw new IllegalArgumentException("task already in the queue: " + task);
+        }
+        final long tick = tick(task);
+        if (tick <= currentTick) {
+            return near.offer(task);
+        }
+        // The level is determined by the most significant bit which differs between the current tick and the tick of
+        // the task, so all tasks on a level share the same higher order bits with the current tick.
+        int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(tick ^ currentTick)) / SLOT_BITS;
+        if (level >= LEVELS) {
+            return overflow.offer(task);
+        }
+        addToBucket((level << SLOT_BITS) | ((int) (tick >>> (level * SLOT_BITS)) & SLOT_MASK), task);
+        return true;
+    }
+
+    @Override
+    public ScheduledFutureTask<?> poll() {
+        ScheduledFutureTask<?> task = peek();
+        return task == null ? null : near.poll();
+    }
+
+    @Override
+    public ScheduledFutureTask<?> peek() {
+        ScheduledFutureTask<?> task = near.peek();
+        if (task == null && advance()) {
+            task = near.peek();
+        }
+        return task;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof ScheduledFutureTask && removeTyped((ScheduledFutureTask<?>) o);
+    }
+
+    @Override
+    public boolean removeTyped(ScheduledFutureTask<?> task) {
+        int bucket = task.wheelBucket();
+        if (bucket == INDEX_NOT_IN_QUEUE) {
+            return near.removeTyped(task) || overflow.removeTyped(task);
+        }
+        int index = task.wheelIndex();
+        if (index >= bucketSizes[bucket] || buckets[bucket][index] != task) {
+            return false;
+        }
+        removeFromBucket(bucket, index);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof ScheduledFutureTask && containsTyped((ScheduledFutureTask<?>) o);
+    }
+
+    @Override
+    public boolean containsTyped(ScheduledFutureTask<?> task) {
+        int bucket = task.wheelBucket();
+        if (bucket == INDEX_NOT_IN_QUEUE) {
+            return near.containsTyped(task) || overflow.containsTyped(task);
+        }
+        int index = task.wheelIndex();
+        return index < bucketSizes[bucket] && buckets[bucket][index] == task;
+    }
+
+    @Override
+    public void priorityChanged(ScheduledFutureTask<?> task) {
+        if (removeTyped(task)) {
+            offer(task);
+        }
+    }
+
+    @Override
+    public int size() {
+        return near.size() + wheelSize + overflow.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return near.isEmpty() && wheelSize == 0 && overflow.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        near.clear();
+        overflow.clear();
+        for (int i = 0; i < buckets.length; i++) {
+            ScheduledFutureTask<?>[] bucket = buckets[i];
+            for (int j = 0; j < bucketSizes[i]; j++) {
+                bucket[j].wheelPosition(INDEX_NOT_IN_QUEUE, INDEX_NOT_IN_QUEUE);
+            }
+        }
+        clearBuckets();
+    }
+
+    @Override
+    public void clearIgnoringIndexes() {
+        near.clearIgnoringIndexes();
+        overflow.clearIgnoringIndexes();
+        clearBuckets();
+    }
+
+    private void clearBuckets() {
+        Arrays.fill(buckets, null);
+        Arrays.fill(bucketSizes, 0);
+        Arrays.fill(occupied, 0);
+        wheelSize = 0;
+    }
+
+    @Override
+    public Iterator<ScheduledFutureTask<?>> iterator() {
+        return new Itr();
+    }
+
+    /**
+     * Make sure the {@code near} heap contains the next task(s) if there are any tasks left. Returns {@code false} if
+     * this queue is empty.
+     */
+    private boolean advance() {
+        while (near.isEmpty()) {
+            if (wheelSize == 0) {
+                ScheduledFutureTask<?> task = overflow.peek();
+                if (task == null) {
+                    return false;
+                }
+                // Jump straight to the next task and move all tasks that fit into the wheel now out of the overflow.
+                currentTick = tick(task);
+                do {
+                    overflow.poll();
+                    offer(task);
+                    task = overflow.peek();
+                } while (task != null && (tick(task) ^ currentTick) >>> (LEVELS * SLOT_BITS) == 0);
+            } else {
+                cascade();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Advance the current tick to the start of the next occupied slot and redistribute its tasks.
+     */
+    private void cascade() {
+        for (int level = 0; level < LEVELS; level++) {
+            final int shift = level * SLOT_BITS;
+            int slot = nextOccupiedSlot(level, (int) (currentTick >>> shift) & SLOT_MASK);
+            if (slot >= 0) {
+                // All lower levels are empty, so we can move forward to the start of the slot. Its tasks will either
+                // end up in the near heap or on a lower level.
+                long mask = ((long) SLOT_MASK << shift) | ((1L << shift) - 1);
+                currentTick = (currentTick & ~mask) | ((long) slot << shift);
+                drainBucket((level << SLOT_BITS) | slot);
+                return;
+            }
+        }
+        throw new IllegalStateException("wheelSize: " + wheelSize + " but no occupied slot found");
+    }
+
+    /**
+     * Returns the next occupied slot on the given level after {@code slot} or {@code -1} if there is none.
+     */
+    private int nextOccupiedSlot(int level, int slot) {
+        if (slot == SLOT_MASK) {
+            return -1;
+        }
+        final int base = level << SLOT_BITS;
+        final int end = base + SLOTS;
+        int bit = base + slot + 1;
+        int word = bit >>> 6;
+        long bits = occupied[word] & (-1L << bit);
+        for (;;) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits) - base;
+            }
+            if (++word << 6 >= end) {
+                return -1;
+            }
+            bits = occupied[word];
+        }
+    }
+
+    private void addToBucket(int bucket, ScheduledFutureTask<?> task) {
+        ScheduledFutureTask<?>[] tasks = buckets[bucket];
+        int size = bucketSizes[bucket];
+        if (tasks == null) {
+            buckets[bucket] = tasks = new ScheduledFutureTask<?>[INITIAL_BUCKET_CAPACITY];
+        } else if (size == tasks.length) {
+            buckets[bucket] = tasks = Arrays.copyOf(tasks, size << 1);
+        }
+        tasks[size] = task;
+        task.wheelPosition(bucket, size);
+        bucketSizes[bucket] = size + 1;
+        occupied[bucket >>> 6] |= 1L << bucket;
+        wheelSize++;
+    }
+
+    private void removeFromBucket(int bucket, int index) {
+        ScheduledFutureTask<?>[] tasks = buckets[bucket];
+        int last = --bucketSizes[bucket];
+        tasks[index].wheelPosition(INDEX_NOT_IN_QUEUE, INDEX_NOT_IN_QUEUE);
+        if (index != last) {
+            ScheduledFutureTask<?> moved = tasks[last];
+            tasks[index] = moved;
+            moved.wheelPosition(bucket, index);
+        }
+        tasks[last] = null;
+        wheelSize--;
+        if (last == 0) {
+            bucketEmptied(bucket, tasks);
+        }
+    }
+
+    private void drainBucket(int bucket) {
+        ScheduledFutureTask<?>[] tasks = buckets[bucket];
+        int size = bucketSizes[bucket];
+        bucketSizes[bucket] = 0;
+        wheelSize -= size;
+        bucketEmptied(bucket, tasks);
+        for (int i = 0; i < size; i++) {
+            ScheduledFutureTask<?> task = tasks[i];
+            tasks[i] = null;
+            task.wheelPosition(INDEX_NOT_IN_QUEUE, INDEX_NOT_IN_QUEUE);
+            // This will never add the task to the same bucket again as the current tick was moved forward.
+            offer(task);
+        }
+    }
+
+    private void bucketEmptied(int bucket, ScheduledFutureTask<?>[] tasks) {
+        occupied[bucket >>> 6] &= ~(1L << bucket);
+        if (tasks.length > MAX_RETAINED_BUCKET_CAPACITY) {
+            // Don't hold on to big arrays after a burst of tasks.
+            buckets[bucket] = null;
+        }
+    }
+
+    private final class Itr implements Iterator<ScheduledFutureTask<?>> {
+        private Iterator<ScheduledFutureTask<?>> heapIterator = near.iterator();
+        private boolean overflowIterator;
+        private int bucket;
+        private int index;
+
+        @Override
+        public boolean hasNext() {
+            for (;;) {
+                if (heapIterator != null) {
+                    if (heapIterator.hasNext()) {
+                        return true;
+                    }
+                    if (overflowIterator) {
+                        return false;
+                    }
+                    heapIterator = null;
+                }
+                if (bucket < buckets.length) {
+                    if (index < bucketSizes[bucket]) {
+                        return true;
+                    }
+                    bucket++;
+                    index = 0;
+                } else {
+                    heapIterator = overflow.iterator();
+                    overflowIterator = true;
+                }
+            }
+        }
+
+        @Override
+        public ScheduledFutureTask<?> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (heapIterator != null) {
+                return heapIterator.next();
+            }
+            return buckets[bucket][index++];
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+    }
+}
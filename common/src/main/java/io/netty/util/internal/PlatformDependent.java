@@ -22,10 +22,12 @@ import org.jctools.queues.MpscArrayQueue;
 import org.jctools.queues.MpscChunkedArrayQueue;
 import org.jctools.queues.MpscUnboundedArrayQueue;
 import org.jctools.queues.SpscLinkedQueue;
+import org.jctools.queues.SpscUnboundedArrayQueue;
 import org.jctools.queues.atomic.MpscAtomicArrayQueue;
 import org.jctools.queues.atomic.MpscChunkedAtomicArrayQueue;
 import org.jctools.queues.atomic.MpscUnboundedAtomicArrayQueue;
 import org.jctools.queues.atomic.SpscLinkedAtomicQueue;
+import org.jctools.queues.atomic.SpscUnboundedAtomicArrayQueue;
 import org.jctools.util.Pow2;
 import org.jctools.util.UnsafeAccess;
 
@@ -555,6 +557,10 @@ public final class PlatformDependent {
         PlatformDependent0.putIntOrdered(adddress, newValue);
     }
 
+    public static void putIntVolatile(long address, int newValue) {
+        PlatformDependent0.putIntVolatile(address, newValue);
+    }
+
     public static byte getByte(long address) {
         return PlatformDependent0.getByte(address);
     }
@@ -1065,6 +1071,17 @@ public final class PlatformDependent {
         return hasUnsafe() ? new SpscLinkedQueue<T>() : new SpscLinkedAtomicQueue<T>();
     }
 
+    /**
+     * Create a new unbounded {@link Queue} which is safe to use for single producer (one thread!) and a single
+     * consumer (one thread!). The elements are stored in linked array chunks of the given size, so only one
+     * allocation per {@code chunkSize} elements is needed instead of one per element.
+     */
+    public static <T> Queue<T> newSpscQueue(int chunkSize) {
+        ObjectUtil.checkPositive(chunkSize, "chunkSize");
+        return hasUnsafe() ? new SpscUnboundedArrayQueue<T>(chunkSize)
+                : new SpscUnboundedAtomicArrayQueue<T>(chunkSize);
+    }
+
     /**
      * Create a new {@link Queue} which is safe to use for multiple producers (different threads) and a single
      * consumer (one thread!) with the given fixes {@code capacity}.
@@ -672,6 +672,10 @@ final class PlatformDependent0 {
         UNSAFE.putOrderedInt(null, adddress, newValue);
     }
 
+    static void putIntVolatile(long address, int newValue) {
+        UNSAFE.putIntVolatile(null, address, newValue);
+    }
+
     static long getLong(byte[] data, int index) {
         return UNSAFE.getLong(data, BYTE_ARRAY_BASE_OFFSET + index);
     }
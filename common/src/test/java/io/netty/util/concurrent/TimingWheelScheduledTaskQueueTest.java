@@ -0,0 +1,159 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimingWheelScheduledTaskQueueTest {
+    private static final Comparator<ScheduledFutureTask<?>> COMPARATOR = new Comparator<ScheduledFutureTask<?>>() {
+        @Override
+        public int compare(ScheduledFutureTask<?> o1, ScheduledFutureTask<?> o2) {
+            return o1.compareTo(o2);
+        }
+    };
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+            // NOOP
+        }
+    };
+
+    private long nextId;
+
+    private ScheduledFutureTask<Void> newTask(long deadlineNanos) {
+        return new ScheduledFutureTask<Void>(GlobalEventExecutor.INSTANCE, NOOP, deadlineNanos).setId(++nextId);
+    }
+
+    @Test
+    public void testPollOrder() {
+        TimingWheelScheduledTaskQueue queue = new TimingWheelScheduledTaskQueue(COMPARATOR);
+        ScheduledFutureTask<Void> far = newTask(Long.MAX_VALUE);
+        ScheduledFutureTask<Void> hour = newTask(3600000000000L);
+        ScheduledFutureTask<Void> second = newTask(1000000000L);
+        ScheduledFutureTask<Void> sameSecond = newTask(1000000000L);
+        ScheduledFutureTask<Void> now = newTask(0);
+        assertTrue(queue.offer(far));
+        assertTrue(queue.offer(hour));
+        assertTrue(queue.offer(second));
+        assertTrue(queue.offer(sameSecond));
+        assertTrue(queue.offer(now));
+        assertEquals(5, queue.size());
+
+        assertSame(now, queue.poll());
+        assertSame(second, queue.poll());
+        assertSame(sameSecond, queue.poll());
+        assertSame(hour, queue.poll());
+        assertSame(far, queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testRemoveAndContains() {
+        TimingWheelScheduledTaskQueue queue = new TimingWheelScheduledTaskQueue(COMPARATOR);
+        ScheduledFutureTask<Void> first = newTask(5000000L);
+        ScheduledFutureTask<Void> second = newTask(6000000L);
+        ScheduledFutureTask<Void> notAdded = newTask(6000000L);
+        queue.offer(first);
+        queue.offer(second);
+        assertTrue(queue.containsTyped(first));
+        assertFalse(queue.containsTyped(notAdded));
+        assertFalse(queue.removeTyped(notAdded));
+
+        assertTrue(queue.removeTyped(first));
+        assertFalse(queue.containsTyped(first));
+        assertSame(second, queue.peek());
+        assertTrue(queue.removeTyped(second));
+        assertTrue(queue.isEmpty());
+
+        // The tasks can be added again after they were removed.
+        queue.offer(first);
+        assertSame(first, queue.poll());
+    }
+
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(42);
+        TimingWheelScheduledTaskQueue queue = new TimingWheelScheduledTaskQueue(COMPARATOR);
+        TreeSet<ScheduledFutureTask<?>> expected = new TreeSet<ScheduledFutureTask<?>>(COMPARATOR);
+        List<ScheduledFutureTask<?>> tasks = new ArrayList<ScheduledFutureTask<?>>();
+        long now = 0;
+        for (int i = 0; i < 100000; i++) {
+            int op = random.nextInt(10);
+            if (op < 5) {
+                // Mix of near, medium and very far deadlines.
+                long delay;
+                switch (random.nextInt(3)) {
+                    case 0:
+                        delay = random.nextInt(10000000);
+                        break;
+                    case 1:
+                        delay = (long) random.nextInt(Integer.MAX_VALUE) * 1000;
+                        break;
+                    default:
+                        delay = random.nextLong() & Long.MAX_VALUE;
+                        break;
+                }
+                ScheduledFutureTask<Void> task = newTask(AbstractScheduledEventExecutor.deadlineNanos(now, delay));
+                queue.offer(task);
+                expected.add(task);
+                tasks.add(task);
+            } else if (op < 8 && !tasks.isEmpty()) {
+                ScheduledFutureTask<?> task = tasks.remove(random.nextInt(tasks.size()));
+                assertEquals(expected.remove(task), queue.removeTyped(task));
+            } else {
+                ScheduledFutureTask<?> task = queue.poll();
+                assertSame(expected.pollFirst(), task);
+                if (task != null) {
+                    now = Math.max(now, task.deadlineNanos());
+                }
+            }
+            assertEquals(expected.size(), queue.size());
+        }
+        assertEquals(expected.size(), queue.toArray().length);
+        while (!expected.isEmpty()) {
+            assertSame(expected.pollFirst(), queue.poll());
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testClear() {
+        TimingWheelScheduledTaskQueue queue = new TimingWheelScheduledTaskQueue(COMPARATOR);
+        ScheduledFutureTask<Void> task = newTask(100000000L);
+        queue.offer(task);
+        queue.offer(newTask(0));
+        queue.offer(newTask(Long.MAX_VALUE));
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertFalse(queue.containsTyped(task));
+        queue.offer(task);
+        assertSame(task, queue.poll());
+    }
+}
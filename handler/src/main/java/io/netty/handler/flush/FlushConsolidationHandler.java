@@ -19,13 +19,16 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.ChannelOutboundHandler;
 import io.netty.channel.ChannelOutboundInvoker;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
+import io.netty.channel.MessageSizeEstimator;
 import io.netty.util.internal.ObjectUtil;
 
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@link ChannelDuplexHandler} which consolidates {@link Channel#flush()} / {@link ChannelHandlerContext#flush()}
@@ -51,6 +54,12 @@ import java.util.concurrent.Future;
  * If {@code explicitFlushAfterFlushes} is reached the flush will be forwarded as well (whether while in a read loop, or
  * while batching outside of a read loop).
  * <p>
+ * Alternatively a {@code maxFlushDelay} can be given, in which case flushes outside of a read loop are consolidated
+ * adaptively: the handler tracks how often flushes happen and how many bytes were written between them. As long as
+ * flushes arrive faster than the {@code maxFlushDelay} and the pending bytes stay below the low water mark of the
+ * {@link Channel}, the flush is delayed by at most {@code maxFlushDelay}, so all flushes within that time are batched
+ * into one. If the flush rate is low, delaying would only add latency and so the flush is forwarded directly.
+ * <p>
  * If the {@link Channel} becomes non-writable it will also try to execute any pending flush operations.
  * <p>
  * The {@link FlushConsolidationHandler} should be put as first {@link ChannelHandler} in the
@@ -65,6 +74,14 @@ public class FlushConsolidationHandler extends ChannelDuplexHandler {
     private ChannelHandlerContext ctx;
     private Future<?> nextScheduledFlush;
 
+    // Only used in adaptive mode, see FlushConsolidationHandler(int, long, TimeUnit).
+    private final long maxFlushDelayNanos;
+    private long lastFlushNanos;
+    private long avgFlushIntervalNanos;
+    private long avgFlushBytes;
+    private long bytesSinceFlush;
+    private MessageSizeEstimator.Handle estimatorHandle;
+
     /**
      * The default number of flushes after which a flush will be forwarded to downstream handlers (whether while in a
      * read loop, or while batching outside of a read loop).
@@ -99,18 +116,39 @@ public class FlushConsolidationHandler extends ChannelDuplexHandler {
         this.explicitFlushAfterFlushes =
                 ObjectUtil.checkPositive(explicitFlushAfterFlushes, "explicitFlushAfterFlushes");
         this.consolidateWhenNoReadInProgress = consolidateWhenNoReadInProgress;
-        this.flushTask = consolidateWhenNoReadInProgress ?
-                new Runnable() {
-                    @Override
-                    public void run() {
-                        if (flushPendingCount > 0 && !readInProgress) {
-                            flushPendingCount = 0;
-                            nextScheduledFlush = null;
-                            ctx.flush();
-                        } // else we'll flush when the read completes
-                    }
-                }
-                : null;
+        maxFlushDelayNanos = 0;
+        this.flushTask = consolidateWhenNoReadInProgress ? newFlushTask() : null;
+    }
+
+    /**
+     * Create new instance which consolidates flushes adaptively when no read is in progress.
+     *
+     * @param explicitFlushAfterFlushes the number of flushes after which an explicit flush will be done.
+     * @param maxFlushDelay the maximum time a flush may be delayed to consolidate it with the following ones.
+     * @param unit the {@link TimeUnit} of {@code maxFlushDelay}.
+     */
+    public FlushConsolidationHandler(int explicitFlushAfterFlushes, long maxFlushDelay, TimeUnit unit) {
+        this.explicitFlushAfterFlushes =
+                ObjectUtil.checkPositive(explicitFlushAfterFlushes, "explicitFlushAfterFlushes");
+        maxFlushDelayNanos = ObjectUtil.checkNotNull(unit, "unit").toNanos(
+                ObjectUtil.checkPositive(maxFlushDelay, "maxFlushDelay"));
+        // Start with the assumption that flushes are rare, so nothing is delayed until we know better.
+        avgFlushIntervalNanos = maxFlushDelayNanos;
+        consolidateWhenNoReadInProgress = true;
+        flushTask = newFlushTask();
+    }
+
+    private Runnable newFlushTask() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (flushPendingCount > 0 && !readInProgress) {
+                    flushPendingCount = 0;
+                    nextScheduledFlush = null;
+                    ctx.flush();
+                } // else we'll flush when the read completes
+            }
+        };
     }
 
     @Override
@@ -118,14 +156,39 @@ public class FlushConsolidationHandler extends ChannelDuplexHandler {
         this.ctx = ctx;
     }
 
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (maxFlushDelayNanos > 0) {
+            if (estimatorHandle == null) {
+                estimatorHandle = ctx.channel().config().getMessageSizeEstimator().newHandle();
+            }
+            int size = estimatorHandle.size(msg);
+            if (size > 0) {
+                bytesSinceFlush += size;
+            }
+        }
+        ctx.write(msg, promise);
+    }
+
     @Override
     public void flush(ChannelHandlerContext ctx) throws Exception {
+        if (maxFlushDelayNanos > 0) {
+            // Update the statistics for every flush, no matter if it is forwarded or consolidated.
+            updateFlushStatistics();
+        }
         if (readInProgress) {
             // If there is still a read in progress we are sure we will see a channelReadComplete(...) call. Thus
             // we only need to flush if we reach the explicitFlushAfterFlushes limit.
             if (++flushPendingCount == explicitFlushAfterFlushes) {
                 flushNow(ctx);
             }
+        } else if (maxFlushDelayNanos > 0) {
+            // Flush immediately if we reach the threshold or delaying is not worth it, otherwise schedule
+            if (++flushPendingCount == explicitFlushAfterFlushes || !shouldDelayFlush(ctx)) {
+                flushNow(ctx);
+            } else {
+                scheduleDelayedFlush(ctx);
+            }
         } else if (consolidateWhenNoReadInProgress) {
             // Flush immediately if we reach the threshold, otherwise schedule
             if (++flushPendingCount == explicitFlushAfterFlushes) {
@@ -204,6 +267,35 @@ public class FlushConsolidationHandler extends ChannelDuplexHandler {
         ctx.flush();
     }
 
+    private void updateFlushStatistics() {
+        long now = System.nanoTime();
+        // Cap the sample so a single idle period does not disable consolidation for a long time.
+        long interval = Math.min(now - lastFlushNanos, maxFlushDelayNanos << 2);
+        lastFlushNanos = now;
+        avgFlushIntervalNanos += (interval - avgFlushIntervalNanos) >> 3;
+        avgFlushBytes += (bytesSinceFlush - avgFlushBytes) >> 3;
+        bytesSinceFlush = 0;
+    }
+
+    private boolean shouldDelayFlush(ChannelHandlerContext ctx) {
+        Channel channel = ctx.channel();
+        ChannelOutboundBuffer buffer = channel.unsafe().outboundBuffer();
+        long pendingBytes = buffer == null ? 0 : buffer.totalPendingWriteBytes();
+
+        // Only delay if we expect more flushes within the latency budget and the flushes are small enough that
+        // batching them saves more than the syscall itself.
+        return avgFlushIntervalNanos < maxFlushDelayNanos && channel.isWritable() &&
+                Math.max(pendingBytes, avgFlushBytes) < channel.config().getWriteBufferLowWaterMark();
+    }
+
+    private void scheduleDelayedFlush(final ChannelHandlerContext ctx) {
+        if (nextScheduledFlush == null) {
+            // Schedule relative to the first pending flush so no flush is delayed by more than the budget.
+            nextScheduledFlush = ctx.channel().eventLoop().schedule(
+                    flushTask, maxFlushDelayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
     private void scheduleFlush(final ChannelHandlerContext ctx) {
         if (nextScheduledFlush == null) {
             // Run as soon as possible, but still yield to give a chance for additional writes to enqueue.
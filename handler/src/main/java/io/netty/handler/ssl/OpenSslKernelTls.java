@@ -0,0 +1,183 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.ssl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.unix.KernelTlsCryptoInfo;
+import io.netty.util.CharsetUtil;
+
+import javax.crypto.spec.SecretKeySpec;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import java.util.Arrays;
+
+/**
+ * Derives the {@link KernelTlsCryptoInfo}s of an established TLS session from a
+ * {@link ReferenceCountedOpenSslEngine}, so the record layer can be offloaded to the kernel.
+ * <p>
+ * Only {@code TLSv1.2} with {@code AES-GCM} is supported, as this is the only combination for which the traffic keys
+ * can be derived from what {@code netty-tcnative} exposes (the master secret and the randoms). As
+ * {@code netty-tcnative} does not expose the record sequence numbers either, they are tracked by a
+ * {@link RecordSequence} per direction, which counts the records since the last {@code ChangeCipherSpec}.
+ * <p>
+ * See <a href="https://tools.ietf.org/html/rfc5246#section-6.3">rfc5246</a> and
+ * <a href="https://tools.ietf.org/html/rfc5288">rfc5288</a>.
+ */
+final class OpenSslKernelTls {
+
+    private static final byte[] KEY_EXPANSION = "key expansion".getBytes(CharsetUtil.US_ASCII);
+    private static final int FIXED_IV_LENGTH = 4;
+    private static final int EXPLICIT_NONCE_LENGTH = 8;
+
+    private OpenSslKernelTls() { }
+
+    /**
+     * Returns {@code true} if the negotiated TLS session of the given {@link SSLEngine} can be offloaded.
+     */
+    static boolean isSupported(SSLEngine engine) {
+        if (!(engine instanceof ReferenceCountedOpenSslEngine)) {
+            return false;
+        }
+        SSLSession session = engine.getSession();
+        return SslProtocols.TLS_v1_2.equals(session.getProtocol()) && keyLength(session.getCipherSuite()) > 0;
+    }
+
+    private static int keyLength(String cipherSuite) {
+        if (cipherSuite == null) {
+            return -1;
+        }
+        if (cipherSuite.endsWith("_WITH_AES_128_GCM_SHA256")) {
+            return 16;
+        }
+        if (cipherSuite.endsWith("_WITH_AES_256_GCM_SHA384")) {
+            return 32;
+        }
+        return -1;
+    }
+
+    /**
+     * Derives the {@link KernelTlsCryptoInfo}s for writing (index {@code 0}) and reading (index {@code 1}).
+     *
+     * @param txSequence the sequence number of the next record that is written.
+     * @param rxSequence the sequence number of the next record that is read.
+     * @return the {@link KernelTlsCryptoInfo}s or {@code null} if the key material could not be retrieved.
+     */
+    static KernelTlsCryptoInfo[] newCryptoInfos(ReferenceCountedOpenSslEngine engine, long txSequence,
+                                                long rxSequence) {
+        SSLSession session = engine.getSession();
+        int keyLength = keyLength(session.getCipherSuite());
+        SecretKeySpec masterKey = engine.masterKey();
+        byte[] clientRandom = engine.clientRandom();
+        byte[] serverRandom = engine.serverRandom();
+        if (keyLength <= 0 || masterKey == null || clientRandom == null || serverRandom == null) {
+            return null;
+        }
+        byte[] seed = new byte[serverRandom.length + clientRandom.length];
+        System.arraycopy(serverRandom, 0, seed, 0, serverRandom.length);
+        System.arraycopy(clientRandom, 0, seed, serverRandom.length, clientRandom.length);
+
+        // AEAD ciphers have no MAC key, so the key block is:
+        // client_write_key, server_write_key, client_write_IV, server_write_IV
+        byte[] secret = masterKey.getEncoded();
+        byte[] keyBlock = PseudoRandomFunction.hash(secret, KEY_EXPANSION, seed,
+                2 * (keyLength + FIXED_IV_LENGTH), keyLength == 16 ? "HmacSHA256" : "HmacSHA384");
+        Arrays.fill(secret, (byte) 0);
+        try {
+            byte[] clientKey = Arrays.copyOfRange(keyBlock, 0, keyLength);
+            byte[] serverKey = Arrays.copyOfRange(keyBlock, keyLength, 2 * keyLength);
+            byte[] clientSalt = Arrays.copyOfRange(keyBlock, 2 * keyLength, 2 * keyLength + FIXED_IV_LENGTH);
+            byte[] serverSalt = Arrays.copyOfRange(keyBlock, 2 * keyLength + FIXED_IV_LENGTH, keyBlock.length);
+            boolean client = engine.getUseClientMode();
+            KernelTlsCryptoInfo tx = newAesGcm(client ? clientKey : serverKey, client ? clientSalt : serverSalt,
+                    txSequence);
+            KernelTlsCryptoInfo rx = newAesGcm(client ? serverKey : clientKey, client ? serverSalt : clientSalt,
+                    rxSequence);
+            Arrays.fill(clientKey, (byte) 0);
+            Arrays.fill(serverKey, (byte) 0);
+            return new KernelTlsCryptoInfo[] { tx, rx };
+        } finally {
+            Arrays.fill(keyBlock, (byte) 0);
+        }
+    }
+
+    private static KernelTlsCryptoInfo newAesGcm(byte[] key, byte[] salt, long sequence) {
+        // The explicit nonce is incremented for every record by the kernel. Like OpenSSL we use the sequence number,
+        // which ensures it is unique for the key.
+        byte[] iv = new byte[EXPLICIT_NONCE_LENGTH];
+        long value = sequence;
+        for (int i = iv.length - 1; i >= 0; i--) {
+            iv[i] = (byte) value;
+            value >>>= 8;
+        }
+        return KernelTlsCryptoInfo.newAesGcm(KernelTlsCryptoInfo.TLS_1_2_VERSION, key, salt, iv, sequence);
+    }
+
+    /**
+     * Tracks the sequence number of the records of one direction by parsing the record headers of the ciphertext
+     * that was produced or consumed by the {@link SSLEngine}. The sequence number is reset by every
+     * {@code ChangeCipherSpec} and incremented by every other record.
+     */
+    static final class RecordSequence {
+        private int headerIndex;
+        private int contentType;
+        private int lengthHigh;
+        private int remaining;
+        private long sequence = -1;
+
+        /**
+         * Update the state with the given region of ciphertext, which MUST directly follow the previous region.
+         */
+        void update(ByteBuf buffer, int index, int length) {
+            int end = index + length;
+            while (index < end) {
+                if (remaining > 0) {
+                    int skip = Math.min(remaining, end - index);
+                    remaining -= skip;
+                    index += skip;
+                    continue;
+                }
+                int value = buffer.getUnsignedByte(index++);
+                switch (headerIndex++) {
+                    case 0:
+                        contentType = value;
+                        break;
+                    case 3:
+                        lengthHigh = value;
+                        break;
+                    case SslUtils.SSL_RECORD_HEADER_LENGTH - 1:
+                        remaining = lengthHigh << 8 | value;
+                        headerIndex = 0;
+                        if (contentType == SslUtils.SSL_CONTENT_TYPE_CHANGE_CIPHER_SPEC) {
+                            sequence = 0;
+                        } else if (sequence >= 0) {
+                            sequence++;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Returns the sequence number of the next record, or {@code -1} if it is not known because no
+         * {@code ChangeCipherSpec} was seen yet or a record was only partially seen.
+         */
+        long nextSequence() {
+            return headerIndex == 0 && remaining == 0 ? sequence : -1;
+        }
+    }
+}
@@ -33,6 +33,8 @@ import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.ChannelOutboundHandler;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
+import io.netty.channel.unix.KernelTlsChannel;
+import io.netty.channel.unix.KernelTlsCryptoInfo;
 import io.netty.channel.unix.UnixChannel;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.DecoderException;
@@ -191,6 +193,13 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
      */
     private static final int STATE_FIRE_CHANNEL_READ = 1 << 8;
     private static final int STATE_UNWRAP_REENTRY = 1 << 9;
+    /**
+     * Set while we wait for the handshake messages to be flushed before offloading to kernel TLS. Writes are queued
+     * during this time.
+     */
+    private static final int STATE_KERNEL_TLS_PENDING = 1 << 10;
+    private static final int STATE_KERNEL_TLS_TX = 1 << 11;
+    private static final int STATE_KERNEL_TLS_RX = 1 << 12;
 
     /**
      * <a href="https://tools.ietf.org/html/rfc5246#section-6.2">2^14</a> which is the maximum sized plaintext chunk
@@ -406,6 +415,10 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
     private volatile long closeNotifyFlushTimeoutMillis = 3000;
     private volatile long closeNotifyReadTimeoutMillis;
     volatile int wrapDataSize = MAX_PLAINTEXT_LENGTH;
+    private volatile boolean kernelTlsOffload;
+    // Only used if kernelTlsOffload is enabled, as netty-tcnative does not expose the record sequence numbers.
+    private OpenSslKernelTls.RecordSequence txRecordSequence;
+    private OpenSslKernelTls.RecordSequence rxRecordSequence;
 
     /**
      * Creates a new instance which runs all delegated tasks directly on the {@link EventExecutor}.
@@ -494,6 +507,41 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
         this.wrapDataSize = wrapDataSize;
     }
 
+    /**
+     * Sets if the record layer should be offloaded to the kernel once the handshake is complete (also known as
+     * {@code kTLS}). This is only done if the {@link Channel} is a {@link KernelTlsChannel}, the {@link SSLEngine} is
+     * a {@link ReferenceCountedOpenSslEngine}, and the negotiated session uses {@code TLSv1.2} with an
+     * {@code AES-GCM} cipher. If any of these does not hold, or the kernel does not support it, the
+     * {@link SSLEngine} is used as before.
+     * <p>
+     * Once offloaded, writes are passed through as they are, which also allows to use
+     * {@link io.netty.channel.FileRegion} and so {@code sendfile}. The {@code close_notify} is written by the kernel
+     * as well, while a received alert will result in an {@link IOException} when reading.
+     * Writing is only offloaded together with reading, as otherwise records produced by the {@link SSLEngine} in
+     * reply to received ones would be encrypted twice. Once offloaded {@link #renegotiate()} fails.
+     * This must be set before the handshake starts.
+     */
+    @UnstableApi
+    public final void setKernelTlsOffload(boolean kernelTlsOffload) {
+        this.kernelTlsOffload = kernelTlsOffload;
+    }
+
+    /**
+     * Returns {@code true} if the encryption of written data is done by the kernel.
+     */
+    @UnstableApi
+    public final boolean isKernelTlsTx() {
+        return isStateSet(STATE_KERNEL_TLS_TX);
+    }
+
+    /**
+     * Returns {@code true} if the decryption of read data is done by the kernel.
+     */
+    @UnstableApi
+    public final boolean isKernelTlsRx() {
+        return isStateSet(STATE_KERNEL_TLS_RX);
+    }
+
     /**
      * @deprecated use {@link #getCloseNotifyFlushTimeoutMillis()}
      */
@@ -746,7 +794,9 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
 
     @Override
     public void write(final ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
-        if (!(msg instanceof ByteBuf)) {
+        if (isStateSet(STATE_KERNEL_TLS_TX)) {
+            ctx.write(msg, promise);
+        } else if (!(msg instanceof ByteBuf)) {
             UnsupportedMessageTypeException exception = new UnsupportedMessageTypeException(msg, ByteBuf.class);
             ReferenceCountUtil.safeRelease(msg);
             promise.setFailure(exception);
@@ -760,6 +810,14 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
 
     @Override
     public void flush(ChannelHandlerContext ctx) throws Exception {
+        if (isStateSet(STATE_KERNEL_TLS_TX)) {
+            ctx.flush();
+            return;
+        }
+        if (isStateSet(STATE_KERNEL_TLS_PENDING)) {
+            // The queued writes are either flushed or wrapped once the offload completed.
+            return;
+        }
         // Do not encrypt the first write request if this handler is
         // created with startTLS flag turned on.
         if (startTls && !isStateSet(STATE_SENT_FIRST_MESSAGE)) {
@@ -812,7 +870,7 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
             final int wrapDataSize = this.wrapDataSize;
             // Only continue to loop if the handler was not removed in the meantime.
             // See https://github.com/netty/netty/issues/5860
-            outer: while (!ctx.isRemoved()) {
+            outer: while (!ctx.isRemoved() && !isStateSet(STATE_KERNEL_TLS_PENDING)) {
                 ChannelPromise promise = ctx.newPromise();
                 ByteBuf buf = wrapDataSize > 0 ?
                         pendingUnencryptedWrites.remove(alloc, wrapDataSize, promise) :
@@ -912,6 +970,10 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
      * @return {@code true} if this method ends on {@link SSLEngineResult.HandshakeStatus#NOT_HANDSHAKING}.
      */
     private boolean wrapNonAppData(final ChannelHandlerContext ctx, boolean inUnwrap) throws SSLException {
+        if (isStateSet(STATE_KERNEL_TLS_TX)) {
+            // Records produced by the SSLEngine would be encrypted a second time by the kernel.
+            throw new SSLException("SSLEngine can not produce records once offloaded to the kernel");
+        }
         ByteBuf out = null;
         ByteBufAllocator alloc = ctx.alloc();
         try {
@@ -1040,6 +1102,7 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
                 ByteBuffer out0 = out.nioBuffer(out.writerIndex(), out.writableBytes());
                 SSLEngineResult result = engine.wrap(in0, out0);
                 in.skipBytes(result.bytesConsumed());
+                updateRecordSequence(true, out, out.writerIndex(), result.bytesProduced());
                 out.writerIndex(out.writerIndex() + result.bytesProduced());
 
                 if (result.getStatus() == Status.BUFFER_OVERFLOW) {
@@ -1278,6 +1341,12 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws SSLException {
+        if (isStateSet(STATE_KERNEL_TLS_RX)) {
+            // The kernel already decrypted the data.
+            setState(STATE_FIRE_CHANNEL_READ);
+            out.add(in.readRetainedSlice(in.readableBytes()));
+            return;
+        }
         if (isStateSet(STATE_PROCESS_TASK)) {
             return;
         }
@@ -1349,6 +1418,7 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
                 // Skip bytes now in case unwrap is called in a re-entry scenario. For example LocalChannel.read()
                 // may entry this method in a re-entry fashion and if the peer is writing into a shared buffer we may
                 // unwrap the same data multiple times.
+                updateRecordSequence(false, packet, packet.readerIndex(), consumed);
                 packet.skipBytes(consumed);
                 length -= consumed;
 
@@ -1365,6 +1435,11 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
                 // in a re-entry fashion we execute a task on the executor queue to process after the stack unwinds
                 // to preserve order of events.
                 if (decodeOut.isReadable()) {
+                    if (isStateSet(STATE_KERNEL_TLS_PENDING)) {
+                        // Application data was already decrypted, we can not offload anymore.
+                        clearState(STATE_KERNEL_TLS_PENDING);
+                        wrapLater = true;
+                    }
                     setState(STATE_FIRE_CHANNEL_READ);
                     if (isStateSet(STATE_UNWRAP_REENTRY)) {
                         executedRead = true;
@@ -1835,6 +1910,8 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
                         session.getProtocol(),
                         session.getCipherSuite());
             }
+            // Start the offload before notifying the user so writes done as a reaction to the event are queued.
+            startKernelTlsOffload();
             ctx.fireUserEventTriggered(SslHandshakeCompletionEvent.SUCCESS);
         }
         if (isStateSet(STATE_READ_DURING_HANDSHAKE)) {
@@ -1846,6 +1923,86 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
         return notified;
     }
 
+    private void updateRecordSequence(boolean tx, ByteBuf buffer, int index, int length) {
+        if (length == 0 || !kernelTlsOffload || engineType != SslEngineType.TCNATIVE) {
+            return;
+        }
+        OpenSslKernelTls.RecordSequence sequence = tx ? txRecordSequence : rxRecordSequence;
+        if (sequence == null) {
+            sequence = new OpenSslKernelTls.RecordSequence();
+            if (tx) {
+                txRecordSequence = sequence;
+            } else {
+                rxRecordSequence = sequence;
+            }
+        }
+        sequence.update(buffer, index, length);
+    }
+
+    private void startKernelTlsOffload() {
+        final ChannelHandlerContext ctx = this.ctx;
+        if (!kernelTlsOffload || !(ctx.channel() instanceof KernelTlsChannel) ||
+                !OpenSslKernelTls.isSupported(engine)) {
+            return;
+        }
+        setState(STATE_KERNEL_TLS_PENDING);
+        // Once this write completes all the handshake records were written to the socket, so it is safe to let the
+        // kernel encrypt everything that follows.
+        ctx.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                finishKernelTlsOffload(ctx, future.isSuccess());
+            }
+        });
+    }
+
+    private void finishKernelTlsOffload(ChannelHandlerContext ctx, boolean offload) {
+        if (!isStateSet(STATE_KERNEL_TLS_PENDING)) {
+            // Offloading was aborted in the meantime.
+            return;
+        }
+        clearState(STATE_KERNEL_TLS_PENDING);
+        long txSequence = txRecordSequence == null ? -1 : txRecordSequence.nextSequence();
+        long rxSequence = rxRecordSequence == null ? -1 : rxRecordSequence.nextSequence();
+        // Both directions must be offloaded at the same time: once the kernel encrypts, any record the SSLEngine
+        // produces in reply to a received record (an alert or a renegotiation message) would be encrypted twice.
+        // We can only offload the reading side if we know the sequence number and the SSLEngine does not hold any
+        // data that was already received and so not all handshake records are consumed yet.
+        if (offload && txSequence >= 0 && rxSequence >= 0 && !internalBuffer().isReadable() && !ctx.isRemoved()) {
+            KernelTlsCryptoInfo[] infos = OpenSslKernelTls.newCryptoInfos(
+                    (ReferenceCountedOpenSslEngine) engine, txSequence, rxSequence);
+            if (infos != null) {
+                KernelTlsChannel ch = (KernelTlsChannel) ctx.channel();
+                try {
+                    // Enable the reading side first, as only offloading RX is still consistent: the SSLEngine keeps
+                    // encrypting and never sees a record it would need to reply to.
+                    ch.enableKernelTlsRx(infos[1]);
+                    setState(STATE_KERNEL_TLS_RX);
+                    ch.enableKernelTlsTx(infos[0]);
+                    setState(STATE_KERNEL_TLS_TX);
+                } catch (IOException e) {
+                    logger.debug("{} Unable to offload TLS to the kernel", ctx.channel(), e);
+                } finally {
+                    infos[0].destroy();
+                    infos[1].destroy();
+                }
+            }
+        }
+        if (pendingUnencryptedWrites == null || pendingUnencryptedWrites.isEmpty()) {
+            return;
+        }
+        if (isStateSet(STATE_KERNEL_TLS_TX)) {
+            pendingUnencryptedWrites.writeAndRemoveAll(ctx);
+            forceFlush(ctx);
+        } else {
+            try {
+                wrapAndFlush(ctx);
+            } catch (Throwable cause) {
+                setHandshakeFailure(ctx, cause);
+            }
+        }
+    }
+
     /**
      * Notify all the handshake futures about the failure during the handshake.
      */
@@ -1926,6 +2083,9 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
             final ChannelHandlerContext ctx, final ChannelPromise promise, boolean disconnect) throws Exception {
         setState(STATE_OUTBOUND_CLOSED);
         engine.closeOutbound();
+        // If the offload is still pending let the SSLEngine produce the close_notify as usual. Once offloaded to the
+        // kernel the SSLEngine can not produce any records anymore.
+        clearState(STATE_KERNEL_TLS_PENDING);
 
         if (!ctx.channel().isActive()) {
             if (disconnect) {
@@ -1938,7 +2098,11 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
 
         ChannelPromise closeNotifyPromise = ctx.newPromise();
         try {
-            flush(ctx, closeNotifyPromise);
+            if (isStateSet(STATE_KERNEL_TLS_TX)) {
+                kernelTlsCloseNotify(ctx, closeNotifyPromise);
+            } else {
+                flush(ctx, closeNotifyPromise);
+            }
         } finally {
             if (!isStateSet(STATE_CLOSE_NOTIFY)) {
                 setState(STATE_CLOSE_NOTIFY);
@@ -1963,6 +2127,27 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
         }
     }
 
+    private static void kernelTlsCloseNotify(final ChannelHandlerContext ctx, final ChannelPromise promise) {
+        // Once offloaded the SSLEngine can not produce any records anymore, so let the kernel write the alert after
+        // everything that was written before.
+        ctx.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                if (!future.isSuccess()) {
+                    promise.tryFailure(future.cause());
+                    return;
+                }
+                try {
+                    ((KernelTlsChannel) ctx.channel()).sendKernelTlsAlert(
+                            SslUtils.SSL_ALERT_LEVEL_WARNING, SslUtils.SSL_ALERT_CLOSE_NOTIFY);
+                    promise.trySuccess();
+                } catch (IOException e) {
+                    promise.tryFailure(e);
+                }
+            }
+        });
+    }
+
     private void flush(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
         if (pendingUnencryptedWrites != null) {
             pendingUnencryptedWrites.add(Unpooled.EMPTY_BUFFER, promise);
@@ -2050,6 +2235,11 @@ public class SslHandler extends ByteToMessageDecoder implements ChannelOutboundH
     }
 
     private void renegotiateOnEventLoop(final Promise<Channel> newHandshakePromise) {
+        if (isStateSet(STATE_KERNEL_TLS_TX)) {
+            // The SSLEngine can not produce any records anymore once the kernel encrypts.
+            newHandshakePromise.tryFailure(new SSLException("renegotiation not supported with kernel TLS"));
+            return;
+        }
         final Promise<Channel> oldHandshakePromise = handshakePromise;
         if (!oldHandshakePromise.isDone()) {
             // There's no need to handshake because handshake is in progress already.
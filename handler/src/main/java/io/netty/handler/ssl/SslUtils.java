@@ -73,6 +73,16 @@ final class SslUtils {
      */
     static final int SSL_CONTENT_TYPE_ALERT = 21;
 
+    /**
+     * alert level warning
+     */
+    static final byte SSL_ALERT_LEVEL_WARNING = 1;
+
+    /**
+     * close_notify alert
+     */
+    static final byte SSL_ALERT_CLOSE_NOTIFY = 0;
+
     /**
      * handshake
      */
@@ -18,18 +18,21 @@ package io.netty.handler.flush;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GenericFutureListener;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class FlushConsolidationHandlerTest {
 
@@ -183,6 +186,77 @@ public class FlushConsolidationHandlerTest {
         assertFalse(channel.finish());
     }
 
+    @Test
+    public void testAdaptiveFlushDelayedWhenFlushingFrequently() {
+        final AtomicInteger flushCount = new AtomicInteger();
+        EmbeddedChannel channel = newAdaptiveChannel(flushCount);
+        // The first flushes go through directly until the handler observed that flushes happen frequently.
+        for (int i = 0; i < 16; i++) {
+            channel.flush();
+        }
+        int flushes = flushCount.get();
+        assertTrue(flushes > 0);
+        assertTrue(flushes < 16);
+
+        // The consolidated flushes are only forwarded once the delay elapsed.
+        channel.runPendingTasks();
+        assertEquals(flushes, flushCount.get());
+        channel.advanceTimeBy(1, TimeUnit.SECONDS);
+        channel.runScheduledPendingTasks();
+        assertEquals(flushes + 1, flushCount.get());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testAdaptiveFlushImmediateWhenPendingBytesExceedLowWaterMark() {
+        final AtomicInteger flushCount = new AtomicInteger();
+        EmbeddedChannel channel = newAdaptiveChannel(flushCount);
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(8, 1024));
+        for (int i = 0; i < 16; i++) {
+            channel.write(1L);
+            channel.flush();
+        }
+        assertEquals(16, flushCount.get());
+        for (int i = 0; i < 16; i++) {
+            assertEquals(1L, (Long) channel.readOutbound());
+        }
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testAdaptiveFlushViaReadComplete() {
+        final AtomicInteger flushCount = new AtomicInteger();
+        EmbeddedChannel channel = newAdaptiveChannel(flushCount);
+        // Simulate read loop;
+        channel.pipeline().fireChannelRead(1L);
+        channel.pipeline().fireChannelRead(2L);
+        assertEquals(0, flushCount.get());
+        channel.pipeline().fireChannelReadComplete();
+        assertEquals(1, flushCount.get());
+        assertEquals(1L, (Long) channel.readOutbound());
+        assertEquals(2L, (Long) channel.readOutbound());
+        assertNull(channel.readOutbound());
+        assertFalse(channel.finish());
+    }
+
+    private static EmbeddedChannel newAdaptiveChannel(final AtomicInteger flushCount) {
+        return new EmbeddedChannel(
+                new ChannelOutboundHandlerAdapter() {
+                    @Override
+                    public void flush(ChannelHandlerContext ctx) throws Exception {
+                        flushCount.incrementAndGet();
+                        ctx.flush();
+                    }
+                },
+                new FlushConsolidationHandler(256, 1, TimeUnit.SECONDS),
+                new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                        ctx.writeAndFlush(msg);
+                    }
+                });
+    }
+
     private static EmbeddedChannel newChannel(final AtomicInteger flushCount, boolean consolidateWhenNoReadInProgress) {
         return new EmbeddedChannel(
                 new ChannelOutboundHandlerAdapter() {
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.nio;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Compares the ways {@link NioEventLoop} can process the selected keys when the selected key set of the JDK
+ * implementation can not be replaced: the plain {@link Selector#selectedKeys()} and
+ * {@link SelectedSelectionKeyConsumerSelector}. All registered keys are always ready.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class SelectedKeysBenchmark extends AbstractMicrobenchmark {
+
+    public enum SelectMode {
+        SELECTED_KEYS,
+        SELECT_CONSUMER
+    }
+
+    @Param
+    public SelectMode mode;
+
+    @Param({ "1", "16", "256" })
+    public int readyKeys;
+
+    private Pipe[] pipes;
+    private Selector unwrappedSelector;
+    private Selector selector;
+    private SelectedSelectionKeySet selectedKeySet;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        if (mode == SelectMode.SELECT_CONSUMER && !SelectedSelectionKeyConsumerSelector.isSupported()) {
+            throw new IllegalStateException("Selector.select(Consumer) requires Java 11+");
+        }
+        unwrappedSelector = Selector.open();
+        if (mode == SelectMode.SELECT_CONSUMER) {
+            selectedKeySet = new SelectedSelectionKeySet();
+            selector = new SelectedSelectionKeyConsumerSelector(unwrappedSelector, selectedKeySet);
+        } else {
+            selector = unwrappedSelector;
+        }
+        pipes = new Pipe[readyKeys];
+        for (int i = 0; i < readyKeys; i++) {
+            Pipe pipe = Pipe.open();
+            pipe.sink().configureBlocking(false);
+            pipe.sink().register(unwrappedSelector, SelectionKey.OP_WRITE, pipe);
+            pipes[i] = pipe;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        for (Pipe pipe : pipes) {
+            pipe.sink().close();
+            pipe.source().close();
+        }
+        selector.close();
+    }
+
+    @Benchmark
+    public int selectAndProcess() throws Exception {
+        selector.selectNow();
+        int ops = 0;
+        if (selectedKeySet != null) {
+            for (int i = 0; i < selectedKeySet.size; i++) {
+                SelectionKey k = selectedKeySet.keys[i];
+                selectedKeySet.keys[i] = null;
+                ops += process(k);
+            }
+        } else {
+            Set<SelectionKey> keys = selector.selectedKeys();
+            if (!keys.isEmpty()) {
+                Iterator<SelectionKey> it = keys.iterator();
+                while (it.hasNext()) {
+                    SelectionKey k = it.next();
+                    it.remove();
+                    ops += process(k);
+                }
+            }
+        }
+        return ops;
+    }
+
+    private static int process(SelectionKey k) {
+        return k.attachment() != null ? k.readyOps() : 0;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decodes length-prefixed frames which arrive in chunks of {@code chunkSize} bytes, like they would be read from a
+ * socket, with the different {@link ByteToMessageDecoder.Cumulator}s.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ByteToMessageDecoderCumulatorBenchmark extends AbstractMicrobenchmark {
+
+    private static final int FRAMES_BYTES = 4 * 1024 * 1024;
+
+    @Param({ "merge", "composite", "adaptive" })
+    public String cumulator;
+
+    @Param({ "64", "16384", "1048576" })
+    public int frameSize;
+
+    @Param({ "8192" })
+    public int chunkSize;
+
+    private ByteBuf frames;
+    private EmbeddedChannel channel;
+    private long decoded;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int frameCount = Math.max(1, FRAMES_BYTES / (frameSize + 4));
+        frames = PooledByteBufAllocator.DEFAULT.directBuffer(frameCount * (frameSize + 4));
+        for (int i = 0; i < frameCount; i++) {
+            frames.writeInt(frameSize);
+            frames.writeZero(frameSize);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setupChannel() {
+        LengthFieldBasedFrameDecoder decoder = new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, 4, 0, 4);
+        if ("merge".equals(cumulator)) {
+            decoder.setCumulator(ByteToMessageDecoder.MERGE_CUMULATOR);
+        } else if ("composite".equals(cumulator)) {
+            decoder.setCumulator(ByteToMessageDecoder.COMPOSITE_CUMULATOR);
+        } else {
+            decoder.setCumulator(new AdaptiveCumulator());
+        }
+        channel = new EmbeddedChannel(decoder, new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                ByteBuf frame = (ByteBuf) msg;
+                // Touch the whole frame, as a consumer would.
+                decoded += frame.getByte(frame.readerIndex()) + frame.getByte(frame.writerIndex() - 1);
+                ReferenceCountUtil.release(msg);
+            }
+        });
+        channel.config().setAllocator(PooledByteBufAllocator.DEFAULT);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownChannel() {
+        channel.finishAndReleaseAll();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        frames.release();
+    }
+
+    @Benchmark
+    public long decode() {
+        int readable = frames.readableBytes();
+        for (int i = 0; i < readable; i += chunkSize) {
+            int length = Math.min(chunkSize, readable - i);
+            // Copy the chunk like a socket read would.
+            ByteBuf chunk = PooledByteBufAllocator.DEFAULT.directBuffer(length);
+            chunk.writeBytes(frames, i, length);
+            channel.writeInbound(chunk);
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import com.github.luben.zstd.ZstdDictTrainer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+/**
+ * Compresses and decompresses small JSON payloads with zstd and brotli, with and without a shared dictionary.
+ * The {@link Ratio} counters report the compressed and uncompressed bytes, which gives the compression ratio.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class DictionaryCompressionBenchmark extends AbstractMicrobenchmark {
+
+    private static final int SAMPLES = 1024;
+    private static final int DICTIONARY_SIZE = 16 * 1024;
+
+    @Param({ "zstd", "brotli" })
+    public String codec;
+
+    @Param({ "false", "true" })
+    public boolean dictionary;
+
+    private ByteBuf[] payloads;
+    private ZstdDictionary zstdDictionary;
+    private BrotliDictionary brotliDictionary;
+    private EmbeddedChannel encoder;
+    private int index;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Ratio {
+        public long compressedBytes;
+        public long uncompressedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            compressedBytes = 0;
+            uncompressedBytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        // Train the dictionaries on other samples than the ones that are compressed, like it would be done with
+        // real traffic.
+        ZstdDictTrainer trainer = new ZstdDictTrainer(SAMPLES * 256, DICTIONARY_SIZE);
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        for (int i = 0; i < SAMPLES; i++) {
+            byte[] sample = newPayload(random);
+            trainer.addSample(sample);
+            if (raw.size() < DICTIONARY_SIZE) {
+                raw.write(sample, 0, sample.length);
+            }
+        }
+        zstdDictionary = new ZstdDictionary(trainer.trainSamples());
+        brotliDictionary = new BrotliDictionary(raw.toByteArray());
+
+        payloads = new ByteBuf[SAMPLES];
+        for (int i = 0; i < payloads.length; i++) {
+            payloads[i] = Unpooled.unreleasableBuffer(Unpooled.directBuffer().writeBytes(newPayload(random)));
+        }
+        encoder = new EmbeddedChannel(newEncoder());
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        encoder.finishAndReleaseAll();
+        for (ByteBuf payload : payloads) {
+            payload.unwrap().release();
+        }
+    }
+
+    private static byte[] newPayload(Random random) {
+        String payload = "{\"id\":" + random.nextInt(1000000) +
+                ",\"user\":{\"name\":\"user" + random.nextInt(10000) + "\",\"verified\":" + random.nextBoolean() +
+                "},\"status\":\"" + (random.nextBoolean() ? "ACTIVE" : "SUSPENDED") +
+                "\",\"balance\":" + random.nextInt(100000) + '.' + random.nextInt(100) +
+                ",\"currency\":\"EUR\",\"tags\":[\"payments\",\"recurring\"],\"createdAt\":\"2022-0" +
+                (1 + random.nextInt(9)) + "-1" + random.nextInt(10) + "T10:" + (10 + random.nextInt(50)) + ":00Z\"}";
+        return payload.getBytes(CharsetUtil.US_ASCII);
+    }
+
+    private ChannelHandler newEncoder() {
+        if ("zstd".equals(codec)) {
+            return dictionary ? new ZstdEncoder(64 * 1024, 1024 * 1024, zstdDictionary) : new ZstdEncoder();
+        }
+        // Custom dictionaries are only used for a quality of 5 and above.
+        Encoder.Parameters parameters = new Encoder.Parameters().setQuality(5).setMode(Encoder.Mode.TEXT);
+        return new BrotliEncoder(parameters, dictionary ? brotliDictionary : null);
+    }
+
+    private ChannelHandler newDecoder() {
+        if ("zstd".equals(codec)) {
+            return new ZstdDecoder(64 * 1024, dictionary ? zstdDictionary : null);
+        }
+        return new BrotliDecoder(8 * 1024, dictionary ? brotliDictionary : null);
+    }
+
+    private ByteBuf nextPayload() {
+        ByteBuf payload = payloads[index];
+        index = (index + 1) % payloads.length;
+        return payload.duplicate();
+    }
+
+    @Benchmark
+    public int compress(Ratio ratio) {
+        ByteBuf payload = nextPayload();
+        ratio.uncompressedBytes += payload.readableBytes();
+        encoder.writeOutbound(payload);
+        int compressed = 0;
+        for (;;) {
+            ByteBuf buf = encoder.readOutbound();
+            if (buf == null) {
+                break;
+            }
+            compressed += buf.readableBytes();
+            buf.release();
+        }
+        ratio.compressedBytes += compressed;
+        return compressed;
+    }
+
+    @Benchmark
+    public int roundTrip() {
+        encoder.writeOutbound(nextPayload());
+        // Every response is decoded by a new decoder, so this also includes setting up the dictionary.
+        EmbeddedChannel decoder = new EmbeddedChannel(newDecoder());
+        for (;;) {
+            ByteBuf buf = encoder.readOutbound();
+            if (buf == null) {
+                break;
+            }
+            decoder.writeInbound(buf);
+        }
+        int decompressed = 0;
+        for (;;) {
+            ByteBuf buf = decoder.readInbound();
+            if (buf == null) {
+                break;
+            }
+            decompressed += buf.readableBytes();
+            ReferenceCountUtil.release(buf);
+        }
+        decoder.finishAndReleaseAll();
+        return decompressed;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Simulates pipelined RPC writes: a batch of small messages is written, flushed and then written out via a
+ * gathering write, the same way the socket transports use the {@link ChannelOutboundBuffer}.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class ChannelOutboundBufferBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "1", "16", "256" })
+    public int batchSize;
+
+    @Param({ "64" })
+    public int messageSize;
+
+    private EmbeddedChannel channel;
+    private ChannelOutboundBuffer buffer;
+    private ByteBuf message;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        channel = new EmbeddedChannel();
+        buffer = channel.unsafe().outboundBuffer();
+        message = Unpooled.directBuffer(messageSize).writeZero(messageSize);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        channel.close();
+        message.release();
+    }
+
+    @Benchmark
+    public long pipelinedWritesVoidPromise() {
+        ChannelPromise promise = channel.voidPromise();
+        for (int i = 0; i < batchSize; i++) {
+            buffer.addMessage(message.retainedDuplicate(), messageSize, promise);
+        }
+        return flushAndWrite();
+    }
+
+    @Benchmark
+    public long pipelinedWrites() {
+        for (int i = 0; i < batchSize; i++) {
+            buffer.addMessage(message.retainedDuplicate(), messageSize, channel.newPromise());
+        }
+        return flushAndWrite();
+    }
+
+    private long flushAndWrite() {
+        buffer.addFlush();
+        buffer.nioBuffers();
+        long written = buffer.nioBufferSize();
+        buffer.removeBytes(written);
+        return written;
+    }
+}
@@ -19,6 +19,7 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelPipeline;
+import io.netty.channel.DefaultChannelPipeline;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.microbench.util.AbstractMicrobenchmark;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -59,6 +60,9 @@ public class DefaultChannelPipelineBenchmark extends AbstractMicrobenchmark {
     @Param({ "4" })
     public int extraHandlers;
 
+    @Param({ "false", "true" })
+    public boolean sealed;
+
     private ChannelPipeline pipeline;
 
     @Setup(Level.Iteration)
@@ -68,6 +72,9 @@ public class DefaultChannelPipelineBenchmark extends AbstractMicrobenchmark {
             pipeline.addLast(NOOP_HANDLER);
         }
         pipeline.addLast(CONSUMING_HANDLER);
+        if (sealed) {
+            ((DefaultChannelPipeline) pipeline).seal();
+        }
     }
 
     @TearDown
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalChannelOption;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Does {@link #FLUSHES} flushes of {@link #messagesPerFlush} messages each from the event loop of a
+ * {@link LocalChannel} whose peer is served by another event loop, with and without
+ * {@link LocalChannelOption#BATCH_HANDOFF}, and waits until the peer read all of them.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class LocalChannelBenchmark extends AbstractMicrobenchmark {
+
+    private static final Object MESSAGE = new Object();
+    private static final int FLUSHES = 64;
+
+    @Param({ "false", "true" })
+    public boolean batchHandoff;
+
+    @Param({ "1", "16" })
+    public int messagesPerFlush;
+
+    private final AtomicLong received = new AtomicLong();
+    private EventLoopGroup group;
+    private Channel serverChannel;
+    private Channel channel;
+    private long expected;
+    private final Runnable writeTask = new Runnable() {
+        @Override
+        public void run() {
+            for (int i = 0; i < FLUSHES; i++) {
+                for (int j = 1; j < messagesPerFlush; j++) {
+                    channel.write(MESSAGE, channel.voidPromise());
+                }
+                channel.writeAndFlush(MESSAGE, channel.voidPromise());
+            }
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        // The event loops are assigned round-robin, so the client and the accepted channel use different ones.
+        group = new DefaultEventLoopGroup(2);
+        LocalAddress address = new LocalAddress(LocalChannelBenchmark.class);
+        serverChannel = new ServerBootstrap()
+                .group(group)
+                .channel(LocalServerChannel.class)
+                .childOption(LocalChannelOption.BATCH_HANDOFF, batchHandoff)
+                .childHandler(new ChannelInboundHandlerAdapter() {
+                    private long count;
+
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        count++;
+                    }
+
+                    @Override
+                    public void channelReadComplete(ChannelHandlerContext ctx) {
+                        received.lazySet(count);
+                    }
+                })
+                .bind(address).sync().channel();
+        channel = new Bootstrap()
+                .group(group)
+                .channel(LocalChannel.class)
+                .option(LocalChannelOption.BATCH_HANDOFF, batchHandoff)
+                .handler(new ChannelInboundHandlerAdapter())
+                .connect(address).sync().channel();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        channel.close().sync();
+        serverChannel.close().sync();
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+    }
+
+    @Benchmark
+    public long writeAndFlush() {
+        channel.eventLoop().execute(writeTask);
+        expected += FLUSHES * messagesPerFlush;
+        long count;
+        while ((count = received.get()) < expected) {
+            // Busy spin.
+        }
+        return count;
+    }
+}
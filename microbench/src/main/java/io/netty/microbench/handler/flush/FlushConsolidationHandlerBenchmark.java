@@ -0,0 +1,198 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.handler.flush;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes bursts of small messages from a non {@link io.netty.channel.EventLoop} thread over a loopback connection and
+ * measures the time until all bytes of a burst were received by the peer. The {@link FlushCounters} report how many
+ * flushes (and so syscalls) reached the transport, which allows to compare the flush reduction of the different
+ * modes of {@link FlushConsolidationHandler} with the latency they add.
+ * <p>
+ * The epoll transport is used when available as its timers have a sub-millisecond resolution, which the delayed
+ * flushes of the adaptive mode depend on.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FlushConsolidationHandlerBenchmark extends AbstractMicrobenchmark {
+
+    public enum FlushMode {
+        NONE,
+        CONSOLIDATE,
+        ADAPTIVE
+    }
+
+    @Param
+    public FlushMode flushMode;
+
+    @Param({ "1", "16", "128" })
+    public int burst;
+
+    @Param({ "64" })
+    public int messageSize;
+
+    @Param({ "50" })
+    public long maxFlushDelayMicros;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private EventLoopGroup group;
+    private Channel serverChannel;
+    private Channel channel;
+    private ByteBuf message;
+    private long expected;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        final Class<? extends ServerChannel> serverChannelClass;
+        final Class<? extends Channel> channelClass;
+        if (Epoll.isAvailable()) {
+            group = new EpollEventLoopGroup(2);
+            serverChannelClass = EpollServerSocketChannel.class;
+            channelClass = EpollSocketChannel.class;
+        } else {
+            group = new NioEventLoopGroup(2);
+            serverChannelClass = NioServerSocketChannel.class;
+            channelClass = NioSocketChannel.class;
+        }
+        message = Unpooled.directBuffer(messageSize).writeZero(messageSize);
+        serverChannel = new ServerBootstrap()
+                .group(group)
+                .channel(serverChannelClass)
+                .childHandler(new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        ByteBuf buf = (ByteBuf) msg;
+                        received.addAndGet(buf.readableBytes());
+                        buf.release();
+                    }
+                })
+                .bind(0).sync().channel();
+        channel = new Bootstrap()
+                .group(group)
+                .channel(channelClass)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(new ChannelOutboundHandlerAdapter() {
+                            @Override
+                            public void flush(ChannelHandlerContext ctx) {
+                                flushes.lazySet(flushes.get() + 1);
+                                ctx.flush();
+                            }
+                        });
+                        ChannelHandler handler = newFlushHandler();
+                        if (handler != null) {
+                            ch.pipeline().addLast(handler);
+                        }
+                    }
+                })
+                .connect(serverChannel.localAddress()).sync().channel();
+    }
+
+    private ChannelHandler newFlushHandler() {
+        switch (flushMode) {
+            case CONSOLIDATE:
+                return new FlushConsolidationHandler(
+                        FlushConsolidationHandler.DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES, true);
+            case ADAPTIVE:
+                return new FlushConsolidationHandler(FlushConsolidationHandler.DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES,
+                        maxFlushDelayMicros, TimeUnit.MICROSECONDS);
+            default:
+                return null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        channel.close().sync();
+        serverChannel.close().sync();
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        message.release();
+    }
+
+    @Benchmark
+    public long writeBurst(FlushCounters counters) {
+        final long flushesBefore = flushes.get();
+        final long target = expected += (long) burst * messageSize;
+        for (int i = 0; i < burst; i++) {
+            channel.writeAndFlush(message.retainedDuplicate(), channel.voidPromise());
+        }
+        long bytes;
+        while ((bytes = received.get()) < target) {
+            // Busy spin to not add wakeup latency to the measurement.
+        }
+        counters.flushes += flushes.get() - flushesBefore;
+        counters.writes += burst;
+        return bytes;
+    }
+
+    /**
+     * The number of flushes that reached the transport compared to the number of writes.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class FlushCounters {
+        public long flushes;
+        public long writes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            flushes = 0;
+            writes = 0;
+        }
+    }
+}
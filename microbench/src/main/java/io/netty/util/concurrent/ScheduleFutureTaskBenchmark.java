@@ -47,13 +47,19 @@ public class ScheduleFutureTaskBenchmark extends AbstractMicrobenchmark {
     @State(Scope.Thread)
     public static class ThreadState {
 
-        @Param({ "100000" })
+        @Param({ "100000", "1000000" })
         int num;
 
+        @Param({ "false", "true" })
+        boolean timingWheel;
+
         AbstractScheduledEventExecutor eventLoop;
 
         @Setup(Level.Trial)
         public void reset() {
+            // Read once when AbstractScheduledEventExecutor is initialized, which happens below as every trial
+            // runs in its own fork.
+            System.setProperty("io.netty.eventexecutor.useTimingWheel", String.valueOf(timingWheel));
             eventLoop = (AbstractScheduledEventExecutor) new NioEventLoopGroup(1).next();
         }
 
@@ -97,6 +103,20 @@ public class ScheduleFutureTaskBenchmark extends AbstractMicrobenchmark {
         return null;
     }
 
+    @Benchmark
+    @Threads(1)
+    public Future<?> scheduleCancelLotsInsideLoop(final ThreadState threadState) {
+        return threadState.eventLoop.submit(new Runnable() {
+            @Override
+            public void run() {
+                final AbstractScheduledEventExecutor eventLoop = threadState.eventLoop;
+                for (int i = 1; i <= threadState.num; i++) {
+                    eventLoop.schedule(NO_OP, i, TimeUnit.MILLISECONDS).cancel(false);
+                }
+            }
+        }).syncUninterruptibly();
+    }
+
     @Benchmark
     @Threads(1)
     public Future<?> scheduleCancelLotsOutsideLoop(final ThreadState threadState) {
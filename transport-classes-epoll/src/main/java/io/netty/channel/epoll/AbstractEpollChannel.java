@@ -446,7 +446,13 @@ abstract class AbstractEpollChannel extends AbstractChannel implements UnixChann
                 // autoRead is true the call to channelReadComplete would also call read, but maybeMoreDataToRead is set
                 // to false before every read operation to prevent re-entry into epollInReady() we will not read from
                 // the underlying OS again unless the user happens to call read again.
-                executeEpollInReadyRunnable(config);
+                if (allocHandle.isReadBudgetExhausted()) {
+                    // The read budget for this loop iteration is used up, continue reading once the other
+                    // channels of the EventLoop had a chance to read.
+                    addToContinueReading(config);
+                } else {
+                    executeEpollInReadyRunnable(config);
+                }
             } else if (!readPending && !config.isAutoRead()) {
                 // Check if there is a readPending which was not processed yet.
                 // This could be for two reasons:
@@ -458,6 +464,22 @@ abstract class AbstractEpollChannel extends AbstractChannel implements UnixChann
             }
         }
 
+        private void addToContinueReading(ChannelConfig config) {
+            if (epollInReadyRunnablePending || !isActive() || shouldBreakEpollInReady(config)) {
+                return;
+            }
+            epollInReadyRunnablePending = true;
+            ((EpollEventLoop) eventLoop()).addContinueReading(AbstractEpollChannel.this);
+        }
+
+        /**
+         * Called by the {@link EpollEventLoop} to continue reading after the read budget was used up.
+         */
+        final void continueReading() {
+            epollInReadyRunnablePending = false;
+            epollInReady();
+        }
+
         final void executeEpollInReadyRunnable(ChannelConfig config) {
             if (epollInReadyRunnablePending || !isActive() || shouldBreakEpollInReady(config)) {
                 return;
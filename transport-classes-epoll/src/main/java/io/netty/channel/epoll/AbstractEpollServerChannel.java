@@ -96,6 +96,7 @@ public abstract class AbstractEpollServerChannel extends AbstractEpollChannel im
             }
             final EpollRecvByteAllocatorHandle allocHandle = recvBufAllocHandle();
             allocHandle.edgeTriggered(isFlagSet(Native.EPOLLET));
+            ((EpollEventLoop) eventLoop()).applyReadBudget(allocHandle);
 
             final ChannelPipeline pipeline = pipeline();
             allocHandle.reset(config);
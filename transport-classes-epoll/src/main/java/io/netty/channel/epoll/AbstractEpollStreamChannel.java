@@ -748,6 +748,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             }
             final EpollRecvByteAllocatorHandle allocHandle = recvBufAllocHandle();
             allocHandle.edgeTriggered(isFlagSet(Native.EPOLLET));
+            ((EpollEventLoop) eventLoop()).applyReadBudget(allocHandle);
 
             final ChannelPipeline pipeline = pipeline();
             final ByteBufAllocator allocator = config.getAllocator();
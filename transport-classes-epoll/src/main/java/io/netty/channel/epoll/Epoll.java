@@ -113,6 +113,16 @@ public final class Epoll {
         return isAvailable() && Native.IS_SUPPORTING_TCP_FASTOPEN_SERVER;
     }
 
+    /**
+     * Returns {@code true} if the epoll native transport is both {@linkplain #isAvailable() available} and the kernel
+     * allows to offload the TLS record layer of an {@link EpollSocketChannel} (also known as {@code kTLS}).
+     *
+     * @return {@code true} if it's possible to use kernel TLS via epoll, otherwise {@code false}.
+     */
+    public static boolean isKernelTlsSupported() {
+        return isAvailable() && Native.IS_SUPPORTING_KERNEL_TLS;
+    }
+
     private Epoll() {
     }
 }
@@ -56,6 +56,12 @@ public final class EpollChannelOption<T> extends UnixChannelOption<T> {
     public static final ChannelOption<Integer> MAX_DATAGRAM_PAYLOAD_SIZE = valueOf("MAX_DATAGRAM_PAYLOAD_SIZE");
     public static final ChannelOption<Boolean> UDP_GRO = valueOf("UDP_GRO");
 
+    /**
+     * The number of bytes each direction of a {@link EpollSharedMemoryChannel} can buffer in shared memory.
+     */
+    public static final ChannelOption<Integer> SHARED_MEMORY_CAPACITY =
+            valueOf(EpollChannelOption.class, "SHARED_MEMORY_CAPACITY");
+
     @SuppressWarnings({ "unused", "deprecation" })
     private EpollChannelOption() {
     }
@@ -497,6 +497,7 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             }
             final EpollRecvByteAllocatorHandle allocHandle = recvBufAllocHandle();
             allocHandle.edgeTriggered(isFlagSet(Native.EPOLLET));
+            ((EpollEventLoop) eventLoop()).applyReadBudget(allocHandle);
 
             final ChannelPipeline pipeline = pipeline();
             final ByteBufAllocator allocator = config.getAllocator();
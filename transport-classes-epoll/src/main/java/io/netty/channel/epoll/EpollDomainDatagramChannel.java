@@ -298,6 +298,7 @@ public final class EpollDomainDatagramChannel extends AbstractEpollChannel imple
             }
             final EpollRecvByteAllocatorHandle allocHandle = recvBufAllocHandle();
             allocHandle.edgeTriggered(isFlagSet(Native.EPOLLET));
+            ((EpollEventLoop) eventLoop()).applyReadBudget(allocHandle);
 
             final ChannelPipeline pipeline = pipeline();
             final ByteBufAllocator allocator = config.getAllocator();
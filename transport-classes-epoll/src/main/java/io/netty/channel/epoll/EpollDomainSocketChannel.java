@@ -153,6 +153,7 @@ public final class EpollDomainSocketChannel extends AbstractEpollStreamChannel i
             final ChannelConfig config = config();
             final EpollRecvByteAllocatorHandle allocHandle = recvBufAllocHandle();
             allocHandle.edgeTriggered(isFlagSet(Native.EPOLLET));
+            ((EpollEventLoop) eventLoop()).applyReadBudget(allocHandle);
 
             final ChannelPipeline pipeline = pipeline();
             allocHandle.reset(config);
@@ -35,6 +35,7 @@ import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Iterator;
 import java.util.Queue;
 import java.util.concurrent.Executor;
@@ -49,6 +50,12 @@ class EpollEventLoop extends SingleThreadEventLoop {
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(EpollEventLoop.class);
     private static final long EPOLL_WAIT_MILLIS_THRESHOLD =
             SystemPropertyUtil.getLong("io.netty.channel.epoll.epollWaitThreshold", 10);
+    private static final long DEFAULT_ADAPTIVE_BUSY_POLL_MAX_NANOS = Math.max(0,
+            SystemPropertyUtil.getLong("io.netty.channel.epoll.adaptiveBusyPollMaxNanos", 0));
+    private static final long DEFAULT_READ_BUDGET_BYTES = Math.max(0,
+            SystemPropertyUtil.getLong("io.netty.channel.epoll.readBudgetBytes", 0));
+    private static final long DEFAULT_READ_BUDGET_NANOS = Math.max(0,
+            SystemPropertyUtil.getLong("io.netty.channel.epoll.readBudgetNanos", 0));
 
     static {
         // Ensure JNI is initialized by the time this class is loaded by this time!
@@ -60,6 +67,11 @@ class EpollEventLoop extends SingleThreadEventLoop {
     private final FileDescriptor eventFd;
     private final FileDescriptor timerFd;
     private final IntObjectMap<AbstractEpollChannel> channels = new IntObjectHashMap<AbstractEpollChannel>(4096);
+    // Additional file-descriptors (like eventfds) which are used by a Channel to get notified. These are not part of
+    // the channels map as they don't represent a Channel of their own.
+    private final IntObjectMap<AbstractEpollChannel> notificationFds = new IntObjectHashMap<AbstractEpollChannel>();
+    // Channels that used up their read budget and need to continue reading in one of the next loop iterations.
+    private final ArrayDeque<AbstractEpollChannel> continueReadingChannels = new ArrayDeque<AbstractEpollChannel>();
     private final boolean allowGrowing;
     private final EpollEventArray events;
 
@@ -85,6 +97,14 @@ class EpollEventLoop extends SingleThreadEventLoop {
     private final AtomicLong nextWakeupNanos = new AtomicLong(AWAKE);
     private boolean pendingWakeup;
     private volatile int ioRatio = 50;
+    private volatile long adaptiveBusyPollMaxNanos = DEFAULT_ADAPTIVE_BUSY_POLL_MAX_NANOS;
+    private volatile long readBudgetBytes = DEFAULT_READ_BUDGET_BYTES;
+    private volatile long readBudgetNanos = DEFAULT_READ_BUDGET_NANOS;
+
+    // State of the adaptive busy-poll mode, only accessed from the EventLoop thread.
+    private long lastIoReadyNanos;
+    private long avgIoInterArrivalNanos = Long.MAX_VALUE;
+    private long busyPollWindowNanos;
 
     // See https://man7.org/linux/man-pages/man2/timerfd_create.2.html.
     private static final long MAX_SCHEDULED_TIMERFD_NS = 999999999;
@@ -247,6 +267,36 @@ class EpollEventLoop extends SingleThreadEventLoop {
         }
     }
 
+    /**
+     * Register an additional file-descriptor for the given {@link AbstractEpollChannel}. Once the file-descriptor
+     * becomes readable {@link AbstractEpollUnsafe#epollInReady()} of the {@link AbstractEpollChannel} is called.
+     */
+    void addNotificationFd(AbstractEpollChannel ch, int fd) throws IOException {
+        assert inEventLoop();
+        Native.epollCtlAdd(epollFd.intValue(), fd, Native.EPOLLIN | Native.EPOLLET);
+        notificationFds.put(fd, ch);
+    }
+
+    /**
+     * Deregister a file-descriptor that was registered via {@link #addNotificationFd(AbstractEpollChannel, int)}.
+     */
+    void removeNotificationFd(AbstractEpollChannel ch, int fd) throws IOException {
+        assert inEventLoop();
+        if (notificationFds.get(fd) == ch) {
+            notificationFds.remove(fd);
+            Native.epollCtlDel(epollFd.intValue(), fd);
+        }
+    }
+
+    /**
+     * Add the given {@link AbstractEpollChannel} to the round-robin list of channels that used up their read budget
+     * and so will continue reading in one of the next loop iterations.
+     */
+    void addContinueReading(AbstractEpollChannel ch) {
+        assert inEventLoop();
+        continueReadingChannels.add(ch);
+    }
+
     @Override
     protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
         return newTaskQueue0(maxPendingTasks);
@@ -276,6 +326,58 @@ class EpollEventLoop extends SingleThreadEventLoop {
         this.ioRatio = ioRatio;
     }
 
+    /**
+     * Returns the upper bound (in nanoseconds) of the adaptive busy-poll window, or {@code 0} if the adaptive
+     * busy-poll mode is disabled.
+     */
+    public long getAdaptiveBusyPollMaxNanos() {
+        return adaptiveBusyPollMaxNanos;
+    }
+
+    /**
+     * Sets the upper bound (in nanoseconds) of the adaptive busy-poll window. If {@code > 0} the {@link EventLoop}
+     * will spin on a non-blocking {@code epoll_wait} for a bounded window before parking in {@code epoll_wait}.
+     * The window is self-tuned based on the recently observed inter-arrival times of I/O events and shrinks to
+     * nothing when events arrive less frequently than {@code maxNanos}, so an idle {@link EventLoop} does not
+     * burn a core. As spinning is done via non-blocking {@code epoll_wait} calls this can be combined with
+     * {@link EpollChannelOption#SO_BUSY_POLL}. The default value is {@code 0}, which disables the adaptive mode.
+     */
+    public void setAdaptiveBusyPollMaxNanos(long maxNanos) {
+        this.adaptiveBusyPollMaxNanos = ObjectUtil.checkPositiveOrZero(maxNanos, "maxNanos");
+    }
+
+    /**
+     * Returns the maximum number of bytes a channel may read per loop iteration in
+     * {@link EpollMode#EDGE_TRIGGERED} mode, or {@code 0} if unlimited.
+     */
+    public long getReadBudgetBytes() {
+        return readBudgetBytes;
+    }
+
+    /**
+     * Returns the maximum number of nanoseconds a channel may spend reading per loop iteration in
+     * {@link EpollMode#EDGE_TRIGGERED} mode, or {@code 0} if unlimited.
+     */
+    public long getReadBudgetNanos() {
+        return readBudgetNanos;
+    }
+
+    /**
+     * Sets the byte- and time-based read budget a channel has per loop iteration in {@link EpollMode#EDGE_TRIGGERED}
+     * mode. Once a channel used up its budget it stops reading, even if {@code maxMessagesPerRead} was not reached
+     * yet, and is put on a round-robin list of channels which continue reading in the next loop iteration. This
+     * prevents a single channel with a huge backlog from starving the other channels of the {@link EventLoop}.
+     * A value of {@code 0} means unlimited, which is the default.
+     */
+    public void setReadBudget(long maxBytes, long maxNanos) {
+        this.readBudgetBytes = ObjectUtil.checkPositiveOrZero(maxBytes, "maxBytes");
+        this.readBudgetNanos = ObjectUtil.checkPositiveOrZero(maxNanos, "maxNanos");
+    }
+
+    void applyReadBudget(EpollRecvByteAllocatorHandle allocHandle) {
+        allocHandle.readBudget(readBudgetBytes, readBudgetNanos);
+    }
+
     @Override
     public int registeredChannels() {
         return channels.size();
@@ -314,6 +416,88 @@ class EpollEventLoop extends SingleThreadEventLoop {
         return Native.epollBusyWait(epollFd, events);
     }
 
+    /**
+     * Spin on a non-blocking {@code epoll_wait} for the current adaptive busy-poll window. Returns the number of
+     * ready events or {@code 0} if the window elapsed or tasks were submitted in the meantime.
+     */
+    private int epollAdaptiveBusyWait(long deadlineNanos) throws IOException {
+        long windowNanos = busyPollWindowNanos;
+        if (windowNanos <= 0) {
+            return 0;
+        }
+        if (deadlineNanos != NONE) {
+            windowNanos = min(windowNanos, deadlineToDelayNanos(deadlineNanos));
+        }
+        final long startNanos = System.nanoTime();
+        do {
+            int ready = epollBusyWait();
+            if (ready != 0) {
+                return ready;
+            }
+        } while (!hasTasks() && System.nanoTime() - startNanos < windowNanos);
+        return 0;
+    }
+
+    /**
+     * Feed the time at which socket events were processed into the adaptive busy-poll estimator and re-calculate
+     * the spin window.
+     */
+    private void updateBusyPollWindow(long maxNanos, long nowNanos) {
+        // Clamp the sample so an idle period does not dominate the average once traffic picks up again.
+        long gap = min(nowNanos - lastIoReadyNanos, maxNanos << 1);
+        lastIoReadyNanos = nowNanos;
+        long avg = avgIoInterArrivalNanos;
+        // Exponentially weighted moving average with a weight of 1/8 for the new sample.
+        avg = avg == Long.MAX_VALUE ? gap : avg + ((gap - avg) >> 3);
+        setBusyPollAverage(maxNanos, avg);
+    }
+
+    /**
+     * Decay the adaptive busy-poll estimator after a wakeup without socket events, so the spin window collapses
+     * once the traffic stops instead of being kept alive by task or timer wakeups.
+     */
+    private void decayBusyPollWindow(long maxNanos, long nowNanos) {
+        long avg = avgIoInterArrivalNanos;
+        if (avg == Long.MAX_VALUE) {
+            return;
+        }
+        // The time since the last socket event is a lower bound of the current inter-arrival time.
+        long gap = min(nowNanos - lastIoReadyNanos, maxNanos << 1);
+        if (gap > avg) {
+            setBusyPollAverage(maxNanos, avg + ((gap - avg) >> 3));
+        }
+    }
+
+    private void setBusyPollAverage(long maxNanos, long avg) {
+        avgIoInterArrivalNanos = avg;
+        // Only spin if the next event is likely to arrive within the bounded window.
+        busyPollWindowNanos = avg <= maxNanos ? min(maxNanos, avg << 1) : 0;
+    }
+
+    /**
+     * Returns the current adaptive busy-poll window. Must be called from the {@link EventLoop}, visible for testing.
+     */
+    long adaptiveBusyPollWindowNanos() {
+        assert inEventLoop();
+        return busyPollWindowNanos;
+    }
+
+    /**
+     * Returns {@code true} if the ready events contain at least one event of a {@link Channel}, which excludes
+     * wakeups via the eventfd and the timerfd.
+     */
+    private boolean hasChannelEvents(int ready) {
+        final int eventFd = this.eventFd.intValue();
+        final int timerFd = this.timerFd.intValue();
+        for (int i = 0; i < ready; i++) {
+            final int fd = events.fd(i);
+            if (fd != eventFd && fd != timerFd) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private int epollWaitTimeboxed() throws IOException {
         // Wait with 1 second "safeguard" timeout
         return Native.epollWait(epollFd, events, 1000);
@@ -324,7 +508,8 @@ class EpollEventLoop extends SingleThreadEventLoop {
         long prevDeadlineNanos = NONE;
         for (;;) {
             try {
-                int strategy = selectStrategy.calculateStrategy(selectNowSupplier, hasTasks());
+                int strategy = selectStrategy.calculateStrategy(selectNowSupplier,
+                        hasTasks() || !continueReadingChannels.isEmpty());
                 switch (strategy) {
                     case SelectStrategy.CONTINUE:
                         continue;
@@ -355,9 +540,17 @@ class EpollEventLoop extends SingleThreadEventLoop {
                         if (curDeadlineNanos == -1L) {
                             curDeadlineNanos = NONE; // nothing on the calendar
                         }
+                        if (adaptiveBusyPollMaxNanos > 0 && !hasTasks() && continueReadingChannels.isEmpty()) {
+                            // Spin for a bounded window before parking. nextWakeupNanos is still AWAKE so
+                            // submitted tasks will not write to the eventfd and are picked up via hasTasks().
+                            strategy = epollAdaptiveBusyWait(curDeadlineNanos);
+                            if (strategy != 0 || hasTasks()) {
+                                break;
+                            }
+                        }
                         nextWakeupNanos.set(curDeadlineNanos);
                         try {
-                            if (!hasTasks()) {
+                            if (!hasTasks() && continueReadingChannels.isEmpty()) {
                                 if (curDeadlineNanos == prevDeadlineNanos) {
                                     // No timer activity needed
                                     strategy = epollWaitNoTimerChange();
@@ -381,22 +574,42 @@ class EpollEventLoop extends SingleThreadEventLoop {
                     default:
                 }
 
+                final long busyPollMaxNanos = adaptiveBusyPollMaxNanos;
+                if (busyPollMaxNanos > 0) {
+                    if (strategy > 0 && hasChannelEvents(strategy)) {
+                        updateBusyPollWindow(busyPollMaxNanos, System.nanoTime());
+                    } else {
+                        decayBusyPollWindow(busyPollMaxNanos, System.nanoTime());
+                    }
+                } else {
+                    busyPollWindowNanos = 0;
+                }
+
+                // Only serve the channels that were queued before this iteration, channels that use up their
+                // budget again during this iteration are served in the next one.
+                final int continueReading = continueReadingChannels.size();
                 final int ioRatio = this.ioRatio;
                 if (ioRatio == 100) {
                     try {
                         if (strategy > 0 && processReady(events, strategy)) {
                             prevDeadlineNanos = NONE;
                         }
+                        if (continueReading > 0) {
+                            processContinueReading(continueReading);
+                        }
                     } finally {
                         // Ensure we always run tasks.
                         runAllTasks();
                     }
-                } else if (strategy > 0) {
+                } else if (strategy > 0 || continueReading > 0) {
                     final long ioStartTime = System.nanoTime();
                     try {
-                        if (processReady(events, strategy)) {
+                        if (strategy > 0 && processReady(events, strategy)) {
                             prevDeadlineNanos = NONE;
                         }
+                        if (continueReading > 0) {
+                            processContinueReading(continueReading);
+                        }
                     } finally {
                         // Ensure we always run tasks.
                         final long ioTime = System.nanoTime() - ioStartTime;
@@ -446,6 +659,19 @@ class EpollEventLoop extends SingleThreadEventLoop {
         }
     }
 
+    private void processContinueReading(int count) {
+        for (int i = 0; i < count; i++) {
+            AbstractEpollChannel ch = continueReadingChannels.poll();
+            if (ch == null) {
+                break;
+            }
+            // The Channel may have been deregistered (and maybe registered with another EventLoop) in the meantime.
+            if (ch.isRegistered() && ch.eventLoop() == this) {
+                ((AbstractEpollUnsafe) ch.unsafe()).continueReading();
+            }
+        }
+    }
+
     private void closeAll() {
         // Using the intermediate collection to prevent ConcurrentModificationException.
         // In the `close()` method, the channel is deleted from `channels` map.
@@ -454,6 +680,7 @@ class EpollEventLoop extends SingleThreadEventLoop {
         for (AbstractEpollChannel ch: localChannels) {
             ch.unsafe().close(ch.unsafe().voidPromise());
         }
+        continueReadingChannels.clear();
     }
 
     // Returns true if a timerFd event was encountered
@@ -505,6 +732,8 @@ class EpollEventLoop extends SingleThreadEventLoop {
                     if ((ev & Native.EPOLLRDHUP) != 0) {
                         unsafe.epollRdHupReady();
                     }
+                } else if ((ch = notificationFds.get(fd)) != null) {
+                    ((AbstractEpollUnsafe) ch.unsafe()).epollInReady();
                 } else {
                     // We received an event for an fd which we not use anymore. Remove it from the epoll_event set.
                     try {
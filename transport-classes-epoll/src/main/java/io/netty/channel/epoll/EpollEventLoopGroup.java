@@ -168,6 +168,30 @@ public final class EpollEventLoopGroup extends MultithreadEventLoopGroup {
         }
     }
 
+    /**
+     * Sets the upper bound (in nanoseconds) of the adaptive busy-poll window in the child event loops. If
+     * {@code > 0} the event loops spin on a non-blocking {@code epoll_wait} for a self-tuned window after I/O
+     * activity before parking, which can be combined with {@link EpollChannelOption#SO_BUSY_POLL}. The default
+     * value is {@code 0}, which disables the adaptive busy-poll mode.
+     */
+    public void setAdaptiveBusyPollMaxNanos(long maxNanos) {
+        for (EventExecutor e: this) {
+            ((EpollEventLoop) e).setAdaptiveBusyPollMaxNanos(maxNanos);
+        }
+    }
+
+    /**
+     * Sets the byte- and time-based read budget a channel has per loop iteration in the child event loops when
+     * using {@link EpollMode#EDGE_TRIGGERED}. Channels that use up their budget are served round-robin in the next
+     * loop iterations so a single busy channel can not starve the others. A value of {@code 0} means unlimited,
+     * which is the default.
+     */
+    public void setReadBudget(long maxBytes, long maxNanos) {
+        for (EventExecutor e: this) {
+            ((EpollEventLoop) e).setReadBudget(maxBytes, maxNanos);
+        }
+    }
+
     @Override
     protected EventLoop newChild(Executor executor, Object... args) throws Exception {
         Integer maxEvents = (Integer) args[0];
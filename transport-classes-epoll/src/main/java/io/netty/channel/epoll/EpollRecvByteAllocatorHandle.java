@@ -17,6 +17,7 @@ package io.netty.channel.epoll;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelConfig;
 import io.netty.channel.RecvByteBufAllocator.DelegatingHandle;
 import io.netty.channel.RecvByteBufAllocator.ExtendedHandle;
 import io.netty.channel.unix.PreferredDirectByteBufAllocator;
@@ -33,6 +34,11 @@ class EpollRecvByteAllocatorHandle extends DelegatingHandle implements ExtendedH
     };
     private boolean isEdgeTriggered;
     private boolean receivedRdHup;
+    private long readBudgetBytes;
+    private long readBudgetNanos;
+    private long readStartNanos;
+    private long totalBytesRead;
+    private boolean readBudgetExhausted;
 
     EpollRecvByteAllocatorHandle(ExtendedHandle handle) {
         super(handle);
@@ -68,6 +74,52 @@ class EpollRecvByteAllocatorHandle extends DelegatingHandle implements ExtendedH
         return isEdgeTriggered;
     }
 
+    /**
+     * Set the byte- and time-based budget for the next read loop, a value of {@code 0} means unlimited. The budget
+     * is only enforced in edge-triggered mode.
+     */
+    final void readBudget(long maxBytes, long maxNanos) {
+        readBudgetBytes = maxBytes;
+        readBudgetNanos = maxNanos;
+    }
+
+    /**
+     * Returns {@code true} if the last read loop was stopped because it used up its read budget.
+     */
+    final boolean isReadBudgetExhausted() {
+        return readBudgetExhausted;
+    }
+
+    private boolean checkReadBudget() {
+        if (!isEdgeTriggered) {
+            return true;
+        }
+        if ((readBudgetBytes > 0 && totalBytesRead >= readBudgetBytes) ||
+                (readBudgetNanos > 0 && System.nanoTime() - readStartNanos >= readBudgetNanos)) {
+            readBudgetExhausted = true;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void reset(ChannelConfig config) {
+        super.reset(config);
+        totalBytesRead = 0;
+        readBudgetExhausted = false;
+        if (readBudgetNanos > 0) {
+            readStartNanos = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void lastBytesRead(int bytes) {
+        super.lastBytesRead(bytes);
+        if (bytes > 0) {
+            totalBytesRead += bytes;
+        }
+    }
+
     @Override
     public final ByteBuf allocate(ByteBufAllocator alloc) {
         // We need to ensure we always allocate a direct ByteBuf as we can only use a direct buffer to read via JNI.
@@ -77,7 +129,7 @@ class EpollRecvByteAllocatorHandle extends DelegatingHandle implements ExtendedH
 
     @Override
     public final boolean continueReading(UncheckedBooleanSupplier maybeMoreDataSupplier) {
-        return ((ExtendedHandle) delegate()).continueReading(maybeMoreDataSupplier);
+        return ((ExtendedHandle) delegate()).continueReading(maybeMoreDataSupplier) && checkReadBudget();
     }
 
     @Override
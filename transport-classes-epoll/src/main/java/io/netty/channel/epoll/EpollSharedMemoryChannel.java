@@ -0,0 +1,491 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.util.internal.MathUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketAddress;
+
+import static io.netty.channel.epoll.LinuxSocket.newSocketDomain;
+
+/**
+ * A {@link Channel} to a peer on the same host which transfers all data through memory that is shared between the
+ * two sides, instead of copying it through the kernel.
+ * <p>
+ * The connection is established via a unix domain socket. Once connected, the connecting side creates a
+ * {@code memfd} which holds one {@link SharedMemoryRing} per direction, and one {@code eventfd} per side, and passes
+ * them to the accepting side via {@code SCM_RIGHTS}. From then on the domain socket is only used to detect that the
+ * peer closed the connection, while the {@code eventfd}s are used to notify a side that went to sleep because its
+ * ring was empty (reader) or full (writer). As long as both sides are busy no system call is needed at all.
+ * <p>
+ * Both sides must use this {@link Channel} type, the accepting side an {@link EpollServerSharedMemoryChannel}. Only
+ * {@link ByteBuf}s can be written, half-closure is not supported.
+ */
+@UnstableApi
+public final class EpollSharedMemoryChannel extends AbstractEpollChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false, 16);
+    private static final String EXPECTED_TYPES = " (expected: " + StringUtil.simpleClassName(ByteBuf.class) + ')';
+
+    // The header of the shared memory, followed by the ring which is written by the connecting side and then the ring
+    // which is written by the accepting side.
+    private static final int MAGIC = 0x4e534d31;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int HEADER_SIZE = 64;
+    private static final int REQUIRED_SEALS = Native.F_SEAL_SHRINK | Native.F_SEAL_GROW;
+    private static final boolean MEMFD_SUPPORTED = isMemfdSupported();
+
+    private final EpollSharedMemoryChannelConfig config = new EpollSharedMemoryChannelConfig(this);
+    private final boolean client;
+    private final FileDescriptor[] handshakeFds;
+    private int handshakeFdsReceived;
+
+    private long memoryAddress;
+    private int memorySize;
+    private SharedMemoryRing inbound;
+    private SharedMemoryRing outbound;
+    // Set once the shared memory is mapped, can be read from any thread.
+    private volatile boolean mapped;
+    // The eventfd we are notified by, and the eventfd we use to notify the peer.
+    private FileDescriptor notificationFd;
+    private FileDescriptor peerNotificationFd;
+
+    private volatile DomainSocketAddress local;
+    private volatile DomainSocketAddress remote;
+
+    /**
+     * Returns {@code true} if {@link EpollSharedMemoryChannel}s can be used on this platform.
+     */
+    public static boolean isAvailable() {
+        return MEMFD_SUPPORTED && PlatformDependent.hasUnsafe();
+    }
+
+    private static boolean isMemfdSupported() {
+        if (!Epoll.isAvailable()) {
+            return false;
+        }
+        try {
+            // memfd_create(...) may not be supported by the kernel or the architecture the native code was built for.
+            Native.memfdCreate("netty-shm-probe", 0).close();
+            return true;
+        } catch (IOException ignore) {
+            return false;
+        }
+    }
+
+    public EpollSharedMemoryChannel() {
+        super(newSocketDomain());
+        client = true;
+        handshakeFds = null;
+        flags |= Native.EPOLLRDHUP;
+    }
+
+    EpollSharedMemoryChannel(Channel parent, LinuxSocket fd) {
+        // Not active before the shared memory was received from the connecting side.
+        super(parent, fd, false);
+        client = false;
+        handshakeFds = new FileDescriptor[3];
+        // Always read the file-descriptors of the handshake, even if auto-read is disabled.
+        flags |= Native.EPOLLRDHUP | Native.EPOLLIN;
+    }
+
+    @Override
+    public EpollSharedMemoryChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    public boolean isActive() {
+        return mapped && super.isActive();
+    }
+
+    @Override
+    protected AbstractEpollUnsafe newUnsafe() {
+        return new EpollSharedMemoryUnsafe();
+    }
+
+    @Override
+    protected DomainSocketAddress localAddress0() {
+        return local;
+    }
+
+    @Override
+    protected DomainSocketAddress remoteAddress0() {
+        return remote;
+    }
+
+    @Override
+    public DomainSocketAddress remoteAddress() {
+        return (DomainSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public DomainSocketAddress localAddress() {
+        return (DomainSocketAddress) super.localAddress();
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        socket.bind(localAddress);
+        local = (DomainSocketAddress) localAddress;
+    }
+
+    @Override
+    protected boolean doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception {
+        if (!super.doConnect(remoteAddress, localAddress)) {
+            // connect(...) of a unix domain socket either succeeds or fails directly.
+            throw new ConnectException("connect(..) did not complete: " + remoteAddress);
+        }
+        local = (DomainSocketAddress) localAddress;
+        remote = (DomainSocketAddress) remoteAddress;
+        sendHandshake();
+        return true;
+    }
+
+    private void sendHandshake() throws IOException {
+        int capacity = MathUtil.safeFindNextPositivePowerOfTwo(config.getSharedMemoryCapacity());
+        int size = sharedMemorySize(capacity);
+        FileDescriptor memfd = Native.memfdCreate("netty-shm", size);
+        try {
+            mapMemory(memfd, size, capacity);
+            PlatformDependent.putInt(memoryAddress + MAGIC_OFFSET, MAGIC);
+            PlatformDependent.putInt(memoryAddress + CAPACITY_OFFSET, capacity);
+
+            notificationFd = Native.newEventFd();
+            peerNotificationFd = Native.newEventFd();
+            sendFd(memfd);
+            sendFd(peerNotificationFd);
+            sendFd(notificationFd);
+        } finally {
+            // The mapping stays valid after the file-descriptor was closed.
+            memfd.close();
+        }
+        addNotificationFd();
+    }
+
+    private void sendFd(FileDescriptor fd) throws IOException {
+        // The socket was just connected, so there is always space for the few file-descriptors we send.
+        if (socket.sendFd(fd.intValue()) <= 0) {
+            throw new IOException("Unable to send file-descriptor to peer");
+        }
+    }
+
+    /**
+     * Receive the file-descriptors that were sent by {@link #sendHandshake()}.
+     *
+     * @return {@code true} if the handshake is complete.
+     */
+    private boolean receiveHandshake() throws IOException {
+        while (handshakeFdsReceived < handshakeFds.length) {
+            int fd = socket.recvFd();
+            if (fd == 0) {
+                return false;
+            }
+            if (fd < 0) {
+                throw new IOException("Connection closed before handshake was complete");
+            }
+            handshakeFds[handshakeFdsReceived++] = new FileDescriptor(fd);
+        }
+
+        FileDescriptor memfd = handshakeFds[0];
+        try {
+            // The peer could shrink the memory while we access it, which would result in a SIGBUS. Only accept
+            // memory whose size is sealed and which is big enough for what is described by the header.
+            if ((Native.memfdSeals(memfd.intValue()) & REQUIRED_SEALS) != REQUIRED_SEALS) {
+                throw new IOException("Shared memory is not sealed");
+            }
+            long fileSize = Native.memfdSize(memfd.intValue());
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Invalid shared memory size: " + fileSize);
+            }
+            long address = Native.mmap(memfd.intValue(), HEADER_SIZE);
+            int magic = PlatformDependent.getInt(address + MAGIC_OFFSET);
+            int capacity = PlatformDependent.getInt(address + CAPACITY_OFFSET);
+            Native.munmap(address, HEADER_SIZE);
+            if (magic != MAGIC || capacity <= 0 || capacity > SharedMemoryRing.MAX_CAPACITY ||
+                    (capacity & capacity - 1) != 0) {
+                throw new IOException("Invalid shared memory header");
+            }
+            int size = sharedMemorySize(capacity);
+            if (fileSize != size) {
+                throw new IOException("Invalid shared memory size: " + fileSize + " (expected: " + size + ')');
+            }
+            mapMemory(memfd, size, capacity);
+        } finally {
+            memfd.close();
+        }
+        notificationFd = handshakeFds[1];
+        peerNotificationFd = handshakeFds[2];
+        addNotificationFd();
+        return true;
+    }
+
+    private static int sharedMemorySize(int capacity) {
+        long size = HEADER_SIZE + 2L * SharedMemoryRing.size(capacity);
+        // Can only happen if MAX_CAPACITY is changed.
+        assert size <= Integer.MAX_VALUE;
+        return (int) size;
+    }
+
+    private void mapMemory(FileDescriptor memfd, int size, int capacity) throws IOException {
+        memoryAddress = Native.mmap(memfd.intValue(), size);
+        memorySize = size;
+        SharedMemoryRing first = new SharedMemoryRing(memoryAddress + HEADER_SIZE, capacity);
+        SharedMemoryRing second = new SharedMemoryRing(
+                memoryAddress + HEADER_SIZE + SharedMemoryRing.size(capacity), capacity);
+        inbound = client ? second : first;
+        outbound = client ? first : second;
+        mapped = true;
+    }
+
+    private void addNotificationFd() throws IOException {
+        if (isRegistered()) {
+            ((EpollEventLoop) eventLoop()).addNotificationFd(this, notificationFd.intValue());
+        }
+    }
+
+    private void notifyPeer() {
+        Native.eventFdWrite(peerNotificationFd.intValue(), 1L);
+    }
+
+    @Override
+    protected void doRegister() throws Exception {
+        super.doRegister();
+        if (notificationFd != null) {
+            addNotificationFd();
+        }
+    }
+
+    @Override
+    protected void doDeregister() throws Exception {
+        try {
+            if (notificationFd != null && notificationFd.isOpen()) {
+                ((EpollEventLoop) eventLoop()).removeNotificationFd(this, notificationFd.intValue());
+            }
+        } finally {
+            super.doDeregister();
+        }
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        try {
+            super.doClose();
+        } finally {
+            mapped = false;
+            inbound = null;
+            outbound = null;
+            if (memoryAddress != 0) {
+                long address = memoryAddress;
+                memoryAddress = 0;
+                Native.munmap(address, memorySize);
+            }
+            if (handshakeFds != null) {
+                for (int i = handshakeFdsReceived; i > 0; i--) {
+                    handshakeFds[i - 1].close();
+                }
+                handshakeFdsReceived = 0;
+            }
+            if (notificationFd != null) {
+                notificationFd.close();
+            }
+            if (peerNotificationFd != null) {
+                peerNotificationFd.close();
+            }
+        }
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof ByteBuf) {
+            return msg;
+        }
+        throw new UnsupportedOperationException(
+                "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        final SharedMemoryRing outbound = this.outbound;
+        boolean written = false;
+        try {
+            for (;;) {
+                ByteBuf buf = (ByteBuf) in.current();
+                if (buf == null) {
+                    break;
+                }
+                int readable = buf.readableBytes();
+                int localWritten = readable == 0 ? 0 : outbound.write(buf);
+                if (localWritten > 0) {
+                    written = true;
+                    in.removeBytes(localWritten);
+                } else if (readable == 0) {
+                    in.remove();
+                } else if (outbound.parkWriter()) {
+                    // The ring is full, we will be notified once the peer has consumed some data.
+                    break;
+                } else {
+                    // The peer consumed some data in the meantime.
+                    outbound.unparkWriter();
+                }
+            }
+        } finally {
+            if (written && outbound.isReaderWaiting()) {
+                notifyPeer();
+            }
+        }
+    }
+
+    private final class EpollSharedMemoryUnsafe extends AbstractEpollUnsafe {
+        @Override
+        void epollInReady() {
+            if (inbound == null) {
+                if (handshakeFds != null && isOpen()) {
+                    epollInHandshake();
+                }
+                return;
+            }
+            try {
+                if (outbound.isWriterWaiting() && outbound.isWritable()) {
+                    // The peer consumed some data, so continue writing.
+                    outbound.unparkWriter();
+                    flush0();
+                    if (inbound == null) {
+                        // Closed while flushing.
+                        return;
+                    }
+                }
+            } catch (IOException e) {
+                pipeline().fireExceptionCaught(e);
+                close(voidPromise());
+                return;
+            }
+            inbound.unparkReader();
+
+            final ChannelConfig config = config();
+            if (!isFlagSet(Native.EPOLLIN)) {
+                // We don't want to read atm, so we need to check once we are asked to read again.
+                maybeMoreDataToRead = true;
+                return;
+            }
+            if (shouldBreakEpollInReady(config)) {
+                clearEpollIn0();
+                return;
+            }
+            final EpollRecvByteAllocatorHandle allocHandle = recvBufAllocHandle();
+            allocHandle.edgeTriggered(true);
+            ((EpollEventLoop) eventLoop()).applyReadBudget(allocHandle);
+
+            final ChannelPipeline pipeline = pipeline();
+            final ByteBufAllocator allocator = config.getAllocator();
+            final SharedMemoryRing inbound = EpollSharedMemoryChannel.this.inbound;
+            allocHandle.reset(config);
+            epollInBefore();
+
+            ByteBuf byteBuf = null;
+            boolean read = false;
+            boolean close = false;
+            try {
+                do {
+                    byteBuf = allocHandle.allocate(allocator);
+                    allocHandle.attemptedBytesRead(byteBuf.writableBytes());
+                    allocHandle.lastBytesRead(inbound.read(byteBuf));
+                    if (allocHandle.lastBytesRead() <= 0) {
+                        // nothing was read, release the buffer.
+                        byteBuf.release();
+                        byteBuf = null;
+                        // The peer writes all data before it closes the socket, so once we saw the RDHUP and the ring
+                        // is empty there is nothing left to read.
+                        close = allocHandle.isReceivedRdHup() && !inbound.isReadable();
+                        if (close) {
+                            readPending = false;
+                        }
+                        break;
+                    }
+                    read = true;
+                    allocHandle.incMessagesRead(1);
+                    readPending = false;
+                    pipeline.fireChannelRead(byteBuf);
+                    byteBuf = null;
+
+                    if (shouldBreakEpollInReady(config) || !isActive()) {
+                        break;
+                    }
+                } while (allocHandle.continueReading());
+
+                if (read && inbound.isWriterWaiting()) {
+                    notifyPeer();
+                }
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+
+                if (close) {
+                    close(voidPromise());
+                } else if (allocHandle.lastBytesRead() == 0 && isActive() && !inbound.parkReader()) {
+                    // Data was written before we marked ourselves as waiting, so we will not be notified for it.
+                    executeEpollInReadyRunnable(config);
+                }
+            } catch (Throwable t) {
+                if (byteBuf != null) {
+                    byteBuf.release();
+                }
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+                pipeline.fireExceptionCaught(t);
+                close(voidPromise());
+            } finally {
+                epollInFinally(config);
+            }
+        }
+
+        private void epollInHandshake() {
+            try {
+                if (receiveHandshake()) {
+                    if (!config().isAutoRead()) {
+                        // EPOLLIN was only set to be able to receive the handshake.
+                        clearEpollIn0();
+                    }
+                    active = true;
+                    pipeline().fireChannelActive();
+                    // Data may already be written by the peer before we were able to register for notifications.
+                    executeEpollInReadyRunnable(config());
+                }
+            } catch (Throwable t) {
+                pipeline().fireExceptionCaught(t);
+                close(voidPromise());
+            }
+        }
+    }
+}
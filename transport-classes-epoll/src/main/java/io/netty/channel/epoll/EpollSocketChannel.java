@@ -22,6 +22,8 @@ import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.socket.InternetProtocolFamily;
 import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.unix.KernelTlsChannel;
+import io.netty.channel.unix.KernelTlsCryptoInfo;
 import io.netty.util.concurrent.GlobalEventExecutor;
 
 import java.io.IOException;
@@ -40,12 +42,17 @@ import static io.netty.channel.epoll.Native.IS_SUPPORTING_TCP_FASTOPEN_CLIENT;
  * {@link SocketChannel} implementation that uses linux EPOLL Edge-Triggered Mode for
  * maximal performance.
  */
-public final class EpollSocketChannel extends AbstractEpollStreamChannel implements SocketChannel {
+public final class EpollSocketChannel extends AbstractEpollStreamChannel implements SocketChannel, KernelTlsChannel {
 
     private final EpollSocketChannelConfig config;
 
     private volatile Collection<InetAddress> tcpMd5SigAddresses = Collections.emptyList();
 
+    // Only modified from the EventLoop.
+    private boolean tcpUlpTls;
+    private volatile boolean kernelTlsTx;
+    private volatile boolean kernelTlsRx;
+
     public EpollSocketChannel() {
         super(newSocketStream(), false);
         config = new EpollSocketChannelConfig(this);
@@ -96,6 +103,54 @@ public final class EpollSocketChannel extends AbstractEpollStreamChannel impleme
         }
     }
 
+    @Override
+    public void enableKernelTlsTx(KernelTlsCryptoInfo info) throws IOException {
+        enableKernelTls(true, info);
+        kernelTlsTx = true;
+    }
+
+    @Override
+    public void enableKernelTlsRx(KernelTlsCryptoInfo info) throws IOException {
+        enableKernelTls(false, info);
+        kernelTlsRx = true;
+    }
+
+    private void enableKernelTls(boolean tx, KernelTlsCryptoInfo info) throws IOException {
+        assert eventLoop().inEventLoop();
+        if (tx ? kernelTlsTx : kernelTlsRx) {
+            throw new IllegalStateException("kernel TLS already enabled");
+        }
+        try {
+            if (!tcpUlpTls) {
+                socket.setTcpUlpTls();
+                tcpUlpTls = true;
+            }
+            socket.setKernelTls(tx, info);
+        } catch (ChannelException e) {
+            // Thrown by the native code if setsockopt(...) failed, for example because the tls module is not loaded.
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void sendKernelTlsAlert(byte level, byte description) throws IOException {
+        assert eventLoop().inEventLoop();
+        if (!kernelTlsTx) {
+            throw new IllegalStateException("kernel TLS not enabled for writing");
+        }
+        socket.sendTlsAlert(level, description);
+    }
+
+    @Override
+    public boolean isKernelTlsTx() {
+        return kernelTlsTx;
+    }
+
+    @Override
+    public boolean isKernelTlsRx() {
+        return kernelTlsRx;
+    }
+
     @Override
     public InetSocketAddress remoteAddress() {
         return (InetSocketAddress) super.remoteAddress();
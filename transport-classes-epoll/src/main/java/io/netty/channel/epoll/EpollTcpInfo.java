@@ -56,12 +56,27 @@ package io.netty.channel.epoll;
  *      __u32   tcpi_rcv_space;
  *
  *      __u32   tcpi_total_retrans;
+ *
+ *      __u64   tcpi_pacing_rate;
+ *      __u64   tcpi_max_pacing_rate;
+ *      __u64   tcpi_bytes_acked;
+ *      __u64   tcpi_bytes_received;
+ *      __u32   tcpi_segs_out;
+ *      __u32   tcpi_segs_in;
+ *
+ *      __u32   tcpi_notsent_bytes;
+ *      __u32   tcpi_min_rtt;
+ *      __u32   tcpi_data_segs_in;
+ *      __u32   tcpi_data_segs_out;
+ *
+ *      __u64   tcpi_delivery_rate;
  * };
  * </p>
+ * The fields after {@code tcpi_total_retrans} are only filled by newer kernels and are {@code 0} otherwise.
  */
 public final class EpollTcpInfo {
 
-    final long[] info = new long[32];
+    final long[] info = new long[43];
 
     public int state() {
         return (int) info[0];
@@ -190,4 +205,48 @@ public final class EpollTcpInfo {
     public long totalRetrans() {
         return info[31];
     }
+
+    public long pacingRate() {
+        return info[32];
+    }
+
+    public long maxPacingRate() {
+        return info[33];
+    }
+
+    public long bytesAcked() {
+        return info[34];
+    }
+
+    public long bytesReceived() {
+        return info[35];
+    }
+
+    public long segsOut() {
+        return info[36];
+    }
+
+    public long segsIn() {
+        return info[37];
+    }
+
+    public long notsentBytes() {
+        return info[38];
+    }
+
+    public long minRtt() {
+        return info[39];
+    }
+
+    public long dataSegsIn() {
+        return info[40];
+    }
+
+    public long dataSegsOut() {
+        return info[41];
+    }
+
+    public long deliveryRate() {
+        return info[42];
+    }
 }
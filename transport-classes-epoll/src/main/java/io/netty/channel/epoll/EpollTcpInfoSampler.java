@@ -0,0 +1,286 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.MathUtil;
+import io.netty.util.internal.ObjectUtil;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Periodically samples the {@code TCP_INFO} of all {@link EpollSocketChannel}s that are registered to an
+ * {@link EventLoop} and publishes the most important metrics into a ring buffer, from which they can be exported
+ * by any thread via {@link #drain(SampleProcessor)}.
+ * <p>
+ * Neither sampling nor draining allocates per {@link Channel}. The ring buffer has a single writer (the
+ * {@link EventLoop}) and is expected to have a single reader. If the reader does not keep up the oldest samples are
+ * overwritten, which is reported by {@link #droppedSamples()}.
+ */
+public final class EpollTcpInfoSampler {
+
+    private static final int TIMESTAMP = 0;
+    private static final int RTT = 1;
+    private static final int RTT_VAR = 2;
+    private static final int SND_CWND = 3;
+    private static final int TOTAL_RETRANS = 4;
+    private static final int DELIVERY_RATE = 5;
+    private static final int BYTES_ACKED = 6;
+    private static final int FIELDS = 7;
+
+    private final EventLoop eventLoop;
+    private final EpollTcpInfo info = new EpollTcpInfo();
+    private final Runnable sampleTask = new Runnable() {
+        @Override
+        public void run() {
+            sample();
+        }
+    };
+    private final int mask;
+    // All slots are accessed with volatile semantics. Each slot has a stamp which is odd while the sample with the
+    // sequence (stamp - 1) / 2 is written and (sequence + 1) * 2 once it was written completely. A reader which sees
+    // the same even stamp before and after reading a slot therefore read a sample that was not torn.
+    private final AtomicLongArray stamps;
+    private final AtomicReferenceArray<Channel> channels;
+    private final AtomicLongArray samples;
+    // The sequence of the next sample that will be written, only modified by the EventLoop.
+    private final AtomicLong writeSequence = new AtomicLong();
+    // The sequence of the next sample that will be drained, only modified by the reader.
+    private volatile long readSequence;
+    // The Channels of all samples before this sequence were cleared, only accessed by the EventLoop.
+    private long clearedSequence;
+    private long droppedSamples;
+    private ScheduledFuture<?> future;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param eventLoop the {@link EventLoop} whose {@link EpollSocketChannel}s are sampled, must be an event loop of
+     *                  an {@link EpollEventLoopGroup}.
+     * @param capacity  the number of samples the ring buffer can hold, rounded up to the next power of two.
+     */
+    public EpollTcpInfoSampler(EventLoop eventLoop, int capacity) {
+        ObjectUtil.checkNotNull(eventLoop, "eventLoop");
+        if (!(eventLoop instanceof EpollEventLoop)) {
+            throw new IllegalArgumentException("eventLoop must be an EventLoop of an EpollEventLoopGroup: " +
+                    eventLoop);
+        }
+        this.eventLoop = eventLoop;
+        int size = MathUtil.safeFindNextPositivePowerOfTwo(ObjectUtil.checkPositive(capacity, "capacity"));
+        mask = size - 1;
+        stamps = new AtomicLongArray(size);
+        channels = new AtomicReferenceArray<Channel>(size);
+        samples = new AtomicLongArray(size * FIELDS);
+    }
+
+    /**
+     * Start sampling with the given interval.
+     */
+    public void start(final long interval, final TimeUnit unit) {
+        ObjectUtil.checkPositive(interval, "interval");
+        ObjectUtil.checkNotNull(unit, "unit");
+        if (eventLoop.inEventLoop()) {
+            start0(interval, unit);
+        } else {
+            eventLoop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    start0(interval, unit);
+                }
+            });
+        }
+    }
+
+    private void start0(long interval, TimeUnit unit) {
+        if (future != null) {
+            future.cancel(false);
+        }
+        future = eventLoop.scheduleAtFixedRate(sampleTask, interval, interval, unit);
+    }
+
+    /**
+     * Stop sampling. Samples that were already published can still be drained.
+     */
+    public void stop() {
+        if (eventLoop.inEventLoop()) {
+            stop0();
+        } else {
+            eventLoop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    stop0();
+                }
+            });
+        }
+    }
+
+    private void stop0() {
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+    }
+
+    /**
+     * Take one sample of all registered and active {@link EpollSocketChannel}s. This is done automatically once
+     * {@link #start(long, TimeUnit)} was called, but can also be triggered manually.
+     *
+     * This method MUST be called from the {@link EventLoop}.
+     */
+    public void sample() {
+        assert eventLoop.inEventLoop();
+        final long timestamp = System.nanoTime();
+        Iterator<Channel> it = ((EpollEventLoop) eventLoop).registeredChannelsIterator();
+        while (it.hasNext()) {
+            Channel ch = it.next();
+            if (!(ch instanceof EpollSocketChannel) || !ch.isActive()) {
+                continue;
+            }
+            try {
+                ((EpollSocketChannel) ch).socket.getTcpInfo(info);
+            } catch (IOException ignore) {
+                // The socket may have been closed in the meantime, just skip it.
+                continue;
+            }
+            publish(ch, timestamp, info.rtt(), info.rttvar(), info.sndCwnd(), info.totalRetrans(),
+                    info.deliveryRate(), info.bytesAcked());
+        }
+        clearDrainedChannels();
+    }
+
+    // Package-private for testing. Must only be called by a single thread, which is the EventLoop unless testing.
+    void publish(Channel ch, long timestamp, long rtt, long rttVar, long sndCwnd, long totalRetrans,
+                 long deliveryRate, long bytesAcked) {
+        final long sequence = writeSequence.get();
+        final int index = (int) sequence & mask;
+        final int offset = index * FIELDS;
+        // Mark the slot as being written before touching it, so a reader can detect that it was overwritten.
+        stamps.set(index, (sequence << 1) + 1);
+        channels.set(index, ch);
+        samples.set(offset + TIMESTAMP, timestamp);
+        samples.set(offset + RTT, rtt);
+        samples.set(offset + RTT_VAR, rttVar);
+        samples.set(offset + SND_CWND, sndCwnd);
+        samples.set(offset + TOTAL_RETRANS, totalRetrans);
+        samples.set(offset + DELIVERY_RATE, deliveryRate);
+        samples.set(offset + BYTES_ACKED, bytesAcked);
+        stamps.set(index, (sequence + 1) << 1);
+        writeSequence.set(sequence + 1);
+    }
+
+    /**
+     * Do not retain the {@link Channel}s of drained samples until their slots are overwritten. This is done by the
+     * writer, so the reader never clears a slot that was reused in the meantime.
+     */
+    private void clearDrainedChannels() {
+        final long drained = readSequence;
+        // Slots of older samples were overwritten already.
+        long sequence = Math.max(clearedSequence, writeSequence.get() - (mask + 1));
+        for (; sequence < drained; sequence++) {
+            channels.set((int) sequence & mask, null);
+        }
+        clearedSequence = Math.max(clearedSequence, drained);
+    }
+
+    /**
+     * Pass all samples which were published since the last call to the given {@link SampleProcessor}. This method
+     * may be called from any thread but must not be called concurrently.
+     *
+     * @return the number of samples that were passed to the {@link SampleProcessor}.
+     */
+    public int drain(SampleProcessor processor) {
+        ObjectUtil.checkNotNull(processor, "processor");
+        final int capacity = mask + 1;
+        int processed = 0;
+        long sequence = readSequence;
+        long written = writeSequence.get();
+        while (sequence < written) {
+            if (written - sequence > capacity) {
+                // The writer lapped us, skip the samples that were overwritten already.
+                long next = written - capacity;
+                droppedSamples += next - sequence;
+                sequence = next;
+            }
+            final int index = (int) sequence & mask;
+            final int offset = index * FIELDS;
+            final long stamp = (sequence + 1) << 1;
+            if (stamps.get(index) != stamp) {
+                // Overwritten by a later sample or currently being overwritten.
+                droppedSamples++;
+                sequence++;
+                continue;
+            }
+            Channel ch = channels.get(index);
+            long timestamp = samples.get(offset + TIMESTAMP);
+            long rtt = samples.get(offset + RTT);
+            long rttVar = samples.get(offset + RTT_VAR);
+            long sndCwnd = samples.get(offset + SND_CWND);
+            long totalRetrans = samples.get(offset + TOTAL_RETRANS);
+            long deliveryRate = samples.get(offset + DELIVERY_RATE);
+            long bytesAcked = samples.get(offset + BYTES_ACKED);
+
+            sequence++;
+            if (stamps.get(index) != stamp) {
+                // The slot was overwritten while we read it, drop the torn sample.
+                droppedSamples++;
+                continue;
+            }
+            processed++;
+            if (!processor.process(ch, timestamp, rtt, rttVar, sndCwnd, totalRetrans, deliveryRate, bytesAcked)) {
+                break;
+            }
+            written = writeSequence.get();
+        }
+        readSequence = sequence;
+        return processed;
+    }
+
+    /**
+     * Returns the number of samples which were overwritten before they could be drained.
+     */
+    public long droppedSamples() {
+        return droppedSamples;
+    }
+
+    /**
+     * Processes the samples passed to {@link #drain(SampleProcessor)}.
+     */
+    public interface SampleProcessor {
+        /**
+         * Process one sample.
+         *
+         * @param channel       the sampled {@link Channel}.
+         * @param timestamp     the {@link System#nanoTime()} at which the sample was taken.
+         * @param rtt           the smoothed round trip time in microseconds.
+         * @param rttVar        the round trip time variance in microseconds.
+         * @param sndCwnd       the congestion window in segments.
+         * @param totalRetrans  the total number of retransmitted segments.
+         * @param deliveryRate  the most recent delivery rate in bytes per second, {@code 0} if not supported by
+         *                      the kernel.
+         * @param bytesAcked    the number of bytes that were acknowledged, {@code 0} if not supported by the kernel.
+         * @return {@code true} if the processor wants to continue, {@code false} if it wants to stop.
+         */
+        boolean process(Channel channel, long timestamp, long rtt, long rttVar, long sndCwnd, long totalRetrans,
+                        long deliveryRate, long bytesAcked);
+    }
+}
@@ -17,6 +17,7 @@ package io.netty.channel.epoll;
 
 import io.netty.channel.ChannelException;
 import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.unix.KernelTlsCryptoInfo;
 import io.netty.channel.unix.NativeInetAddress;
 import io.netty.channel.unix.PeerCredentials;
 import io.netty.channel.unix.Socket;
@@ -42,6 +43,9 @@ public final class LinuxSocket extends Socket {
     static final InetAddress INET6_ANY = unsafeInetAddrByName("::");
     private static final InetAddress INET_ANY = unsafeInetAddrByName("0.0.0.0");
     private static final long MAX_UINT32_T = 0xFFFFFFFFL;
+    // See linux/tls.h
+    private static final int TLS_TX = 1;
+    private static final int TLS_RX = 2;
 
     LinuxSocket(int fd) {
         super(fd);
@@ -232,6 +236,22 @@ public final class LinuxSocket extends Socket {
         setTcpMd5Sig(intValue(), ipv6, a.address(), a.scopeId(), key);
     }
 
+    void setKernelTls(boolean tx, KernelTlsCryptoInfo info) throws IOException {
+        setTlsCryptoInfo(intValue(), tx ? TLS_TX : TLS_RX, info.version(), info.cipherType(),
+                info.iv(), info.key(), info.salt(), info.recordSequence());
+    }
+
+    void setTcpUlpTls() throws IOException {
+        setTcpUlpTls(intValue());
+    }
+
+    void sendTlsAlert(byte level, byte description) throws IOException {
+        int res = sendTlsAlert(intValue(), level, description);
+        if (res < 0) {
+            ioResult("sendmsg", res);
+        }
+    }
+
     boolean isTcpCork() throws IOException  {
         return isTcpCork(intValue()) != 0;
     }
@@ -407,6 +427,11 @@ public final class LinuxSocket extends Socket {
     private static native void setIpFreeBind(int fd, int freeBind) throws IOException;
     private static native void setIpTransparent(int fd, int transparent) throws IOException;
     private static native void setIpRecvOrigDestAddr(int fd, int transparent) throws IOException;
+    private static native void setTcpUlpTls(int fd) throws IOException;
+    private static native void setTlsCryptoInfo(int fd, int direction, int version, int cipherType,
+                                                byte[] iv, byte[] key, byte[] salt, byte[] recSeq)
+            throws IOException;
+    private static native int sendTlsAlert(int fd, byte level, byte description);
     private static native void setTcpMd5Sig(
             int fd, boolean ipv6, byte[] address, int scopeId, byte[] key) throws IOException;
     private static native void setInterface(
@@ -20,6 +20,7 @@ import io.netty.channel.unix.FileDescriptor;
 import io.netty.channel.unix.PeerCredentials;
 import io.netty.channel.unix.Socket;
 import io.netty.channel.unix.Unix;
+import io.netty.util.CharsetUtil;
 import io.netty.util.internal.ClassInitializerUtil;
 import io.netty.util.internal.NativeLibraryLoader;
 import io.netty.util.internal.PlatformDependent;
@@ -27,7 +28,10 @@ import io.netty.util.internal.ThrowableUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.io.BufferedReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.nio.channels.FileChannel;
 import java.nio.channels.Selector;
 
@@ -134,9 +138,41 @@ public final class Native {
     @Deprecated
     public static final boolean IS_SUPPORTING_TCP_FASTOPEN = IS_SUPPORTING_TCP_FASTOPEN_CLIENT ||
             IS_SUPPORTING_TCP_FASTOPEN_SERVER;
+    /**
+     * {@code true} if the <a href="https://www.kernel.org/doc/html/latest/networking/tls.html">tls</a> upper layer
+     * protocol is available, which is the case once the {@code tls} module was loaded.
+     */
+    static final boolean IS_SUPPORTING_KERNEL_TLS = isSupportingKernelTls();
     public static final int TCP_MD5SIG_MAXKEYLEN = tcpMd5SigMaxKeyLen();
     public static final String KERNEL_VERSION = kernelVersion();
 
+    private static boolean isSupportingKernelTls() {
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream("/proc/sys/net/ipv4/tcp_available_ulp"), CharsetUtil.US_ASCII));
+            String line = reader.readLine();
+            if (line != null) {
+                for (String ulp : line.trim().split("\\s+")) {
+                    if ("tls".equals(ulp)) {
+                        return true;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Unable to detect the available upper layer protocols", e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignore) {
+                    // ignore
+                }
+            }
+        }
+        return false;
+    }
+
     public static FileDescriptor newEventFd() {
         return new FileDescriptor(eventFd());
     }
@@ -266,6 +302,70 @@ public final class Native {
 
     private static native int splice0(int fd, long offIn, int fdOut, long offOut, long len);
 
+    // Shared memory operations
+
+    /**
+     * Creates a {@code memfd} of the given size, which is sealed so it can neither shrink nor grow.
+     */
+    static FileDescriptor memfdCreate(String name, long size) throws IOException {
+        int res = memfdCreate0(name, size);
+        if (res < 0) {
+            throw newIOException("memfd_create", res);
+        }
+        return new FileDescriptor(res);
+    }
+
+    private static native int memfdCreate0(String name, long size);
+
+    // See linux/fcntl.h
+    static final int F_SEAL_SHRINK = 0x0002;
+    static final int F_SEAL_GROW = 0x0004;
+
+    /**
+     * Returns the size of the given {@code memfd}.
+     */
+    static long memfdSize(int fd) throws IOException {
+        long res = memfdSize0(fd);
+        if (res < 0) {
+            throw newIOException("fstat", (int) res);
+        }
+        return res;
+    }
+
+    private static native long memfdSize0(int fd);
+
+    /**
+     * Returns the seals of the given {@code memfd}.
+     */
+    static int memfdSeals(int fd) throws IOException {
+        int res = memfdSeals0(fd);
+        if (res < 0) {
+            throw newIOException("fcntl", res);
+        }
+        return res;
+    }
+
+    private static native int memfdSeals0(int fd);
+
+    static long mmap(int fd, long size) throws IOException {
+        long res = mmap0(fd, size);
+        if (res < 0) {
+            throw newIOException("mmap", (int) res);
+        }
+        return res;
+    }
+
+    private static native long mmap0(int fd, long size);
+
+    static void munmap(long address, long size) throws IOException {
+        int res = munmap0(address, size);
+        if (res < 0) {
+            throw newIOException("munmap", res);
+        }
+    }
+
+    private static native int munmap0(long address, long size);
+
     @Deprecated
     public static int sendmmsg(int fd, NativeDatagramPacketArray.NativeDatagramPacket[] msgs,
                                int offset, int len) throws IOException {
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.IOException;
+
+/**
+ * A single-producer / single-consumer byte ring that lives in memory which is shared between two processes (or two
+ * {@link io.netty.channel.Channel}s of the same process). The indices are free-running {@code int}s, the capacity
+ * must be a power of two.
+ * <p>
+ * Besides the indices the header contains a flag for each side that signals it went to sleep and so needs to be
+ * notified. Both sides publish their index with a volatile store before they read the flag of the other side, and
+ * set their own flag with a volatile store before they re-read the index of the other side, so a notification can
+ * never be lost.
+ * <p>
+ * As the memory is shared with the peer, nothing that is read from it can be trusted. Each side keeps its own index
+ * locally and validates the index of the peer on every access, so a misbehaving peer can not make us access memory
+ * outside of the ring.
+ */
+final class SharedMemoryRing {
+    // Every field is on its own cache-line to prevent false-sharing between the two processes.
+    private static final int WRITE_INDEX_OFFSET = 0;
+    private static final int READ_INDEX_OFFSET = 64;
+    private static final int READER_WAITING_OFFSET = 128;
+    private static final int WRITER_WAITING_OFFSET = 192;
+    static final int HEADER_SIZE = 256;
+    static final int MAX_CAPACITY = 1 << 29;
+
+    private final long address;
+    private final long dataAddress;
+    private final int capacity;
+    private final int mask;
+    // Only the index of the side this instance is used for is maintained.
+    private int writeIndex;
+    private int readIndex;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param address   the address of the ring within the shared memory region.
+     * @param capacity  the number of bytes the ring can hold, must be a power of two and at most
+     *                  {@link #MAX_CAPACITY}.
+     */
+    SharedMemoryRing(long address, int capacity) {
+        assert (capacity & capacity - 1) == 0 && capacity <= MAX_CAPACITY;
+        this.address = address;
+        this.dataAddress = address + HEADER_SIZE;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+    }
+
+    static int size(int capacity) {
+        return HEADER_SIZE + capacity;
+    }
+
+    /**
+     * Copy as many of the readable bytes of {@code src} into the ring as fit, without changing the indices of
+     * {@code src}, and publish them to the reader.
+     *
+     * @return the number of bytes that were copied.
+     * @throws IOException if the peer corrupted the ring.
+     */
+    int write(ByteBuf src) throws IOException {
+        final int writeIndex = ownIndex(WRITE_INDEX_OFFSET, this.writeIndex);
+        final int readIndex = PlatformDependent.getIntVolatile(address + READ_INDEX_OFFSET);
+        final int length = Math.min(capacity - size(writeIndex, readIndex), src.readableBytes());
+        if (length <= 0) {
+            return 0;
+        }
+        final int offset = writeIndex & mask;
+        final int first = Math.min(length, capacity - offset);
+        copy(src, src.readerIndex(), dataAddress + offset, first);
+        if (first < length) {
+            copy(src, src.readerIndex() + first, dataAddress, length - first);
+        }
+        this.writeIndex = writeIndex + length;
+        PlatformDependent.putIntVolatile(address + WRITE_INDEX_OFFSET, writeIndex + length);
+        return length;
+    }
+
+    /**
+     * Copy as many bytes out of the ring as fit into the writable bytes of {@code dst} and release them to the
+     * writer.
+     *
+     * @return the number of bytes that were copied.
+     * @throws IOException if the peer corrupted the ring.
+     */
+    int read(ByteBuf dst) throws IOException {
+        final int readIndex = ownIndex(READ_INDEX_OFFSET, this.readIndex);
+        final int writeIndex = PlatformDependent.getIntVolatile(address + WRITE_INDEX_OFFSET);
+        final int length = Math.min(size(writeIndex, readIndex), dst.writableBytes());
+        if (length <= 0) {
+            return 0;
+        }
+        final int offset = readIndex & mask;
+        final int first = Math.min(length, capacity - offset);
+        copy(dataAddress + offset, dst, dst.writerIndex(), first);
+        if (first < length) {
+            copy(dataAddress, dst, dst.writerIndex() + first, length - first);
+        }
+        dst.writerIndex(dst.writerIndex() + length);
+        this.readIndex = readIndex + length;
+        PlatformDependent.putIntVolatile(address + READ_INDEX_OFFSET, readIndex + length);
+        return length;
+    }
+
+    /**
+     * Returns our own index after validating that the peer did not modify it.
+     */
+    private int ownIndex(int offset, int expected) throws IOException {
+        int index = PlatformDependent.getInt(address + offset);
+        if (index != expected) {
+            throw new IOException("Shared memory ring was corrupted by the peer, index: " + index +
+                    " (expected: " + expected + ')');
+        }
+        return index;
+    }
+
+    /**
+     * Returns the number of readable bytes after validating that it is within the capacity.
+     */
+    private int size(int writeIndex, int readIndex) throws IOException {
+        // The indices are free-running, so the difference is correct even if they wrapped around.
+        int size = writeIndex - readIndex;
+        if (size < 0 || size > capacity) {
+            throw new IOException("Shared memory ring was corrupted by the peer, writeIndex: " + writeIndex +
+                    ", readIndex: " + readIndex + " (capacity: " + capacity + ')');
+        }
+        return size;
+    }
+
+    private static void copy(ByteBuf src, int index, long dstAddress, int length) {
+        if (src.hasMemoryAddress()) {
+            PlatformDependent.copyMemory(src.memoryAddress() + index, dstAddress, length);
+        } else if (src.hasArray()) {
+            PlatformDependent.copyMemory(src.array(), src.arrayOffset() + index, dstAddress, length);
+        } else {
+            byte[] tmp = new byte[length];
+            src.getBytes(index, tmp);
+            PlatformDependent.copyMemory(tmp, 0, dstAddress, length);
+        }
+    }
+
+    private static void copy(long srcAddress, ByteBuf dst, int index, int length) {
+        if (dst.hasMemoryAddress()) {
+            PlatformDependent.copyMemory(srcAddress, dst.memoryAddress() + index, length);
+        } else if (dst.hasArray()) {
+            PlatformDependent.copyMemory(srcAddress, dst.array(), dst.arrayOffset() + index, length);
+        } else {
+            byte[] tmp = new byte[length];
+            PlatformDependent.copyMemory(srcAddress, tmp, 0, length);
+            dst.setBytes(index, tmp);
+        }
+    }
+
+    /**
+     * Returns {@code true} if there is at least one byte that can be read. Must only be used by the reader.
+     *
+     * @throws IOException if the peer corrupted the ring.
+     */
+    boolean isReadable() throws IOException {
+        return size(PlatformDependent.getIntVolatile(address + WRITE_INDEX_OFFSET), readIndex) != 0;
+    }
+
+    /**
+     * Returns {@code true} if there is space for at least one byte. Must only be used by the writer.
+     *
+     * @throws IOException if the peer corrupted the ring.
+     */
+    boolean isWritable() throws IOException {
+        return size(writeIndex, PlatformDependent.getIntVolatile(address + READ_INDEX_OFFSET)) != capacity;
+    }
+
+    /**
+     * Mark the reader as waiting for a notification.
+     *
+     * @return {@code true} if the ring is still empty and so the reader should wait, {@code false} if data was
+     *         written in the meantime.
+     * @throws IOException if the peer corrupted the ring.
+     */
+    boolean parkReader() throws IOException {
+        PlatformDependent.putIntVolatile(address + READER_WAITING_OFFSET, 1);
+        return !isReadable();
+    }
+
+    void unparkReader() {
+        PlatformDependent.putIntOrdered(address + READER_WAITING_OFFSET, 0);
+    }
+
+    /**
+     * Returns {@code true} if the reader waits for a notification.
+     */
+    boolean isReaderWaiting() {
+        return PlatformDependent.getIntVolatile(address + READER_WAITING_OFFSET) != 0;
+    }
+
+    /**
+     * Mark the writer as waiting for a notification.
+     *
+     * @return {@code true} if the ring is still full and so the writer should wait, {@code false} if space was
+     *         released in the meantime.
+     * @throws IOException if the peer corrupted the ring.
+     */
+    boolean parkWriter() throws IOException {
+        PlatformDependent.putIntVolatile(address + WRITER_WAITING_OFFSET, 1);
+        return !isWritable();
+    }
+
+    void unparkWriter() {
+        PlatformDependent.putIntOrdered(address + WRITER_WAITING_OFFSET, 0);
+    }
+
+    /**
+     * Returns {@code true} if the writer waits for a notification.
+     */
+    boolean isWriterWaiting() {
+        return PlatformDependent.getIntVolatile(address + WRITER_WAITING_OFFSET) != 0;
+    }
+}
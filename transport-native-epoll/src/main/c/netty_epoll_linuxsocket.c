@@ -62,6 +62,27 @@
 #define UDP_GRO 104
 #endif
 
+// TCP_ULP and SOL_TLS are defined in linux 4.13. We define this here so older kernels can compile.
+#ifndef TCP_ULP
+#define TCP_ULP 31
+#endif
+
+#ifndef SOL_TLS
+#define SOL_TLS 282
+#endif
+
+#ifndef TLS_SET_RECORD_TYPE
+#define TLS_SET_RECORD_TYPE 1
+#endif
+
+// See https://tools.ietf.org/html/rfc5246#section-6.2.1
+#define NETTY_TLS_RECORD_TYPE_ALERT 21
+
+// The layout of the kernel TLS crypto info is the tls_crypto_info header followed by iv, key, salt and rec_seq.
+// The biggest key we support is 32 bytes (AES-GCM-256).
+#define NETTY_TLS_CRYPTO_INFO_HEADER_SIZE 4
+#define NETTY_TLS_CRYPTO_INFO_MAX_SIZE (NETTY_TLS_CRYPTO_INFO_HEADER_SIZE + 8 + 32 + 4 + 8)
+
 static jclass peerCredentialsClass = NULL;
 static jmethodID peerCredentialsMethodId = NULL;
 
@@ -382,6 +403,82 @@ static void netty_epoll_linuxsocket_leaveSsmGroup(JNIEnv* env, jclass clazz, jin
     }
 }
 
+static void netty_epoll_linuxsocket_setTcpUlpTls(JNIEnv* env, jclass clazz, jint fd) {
+    netty_unix_socket_setOption(env, fd, IPPROTO_TCP, TCP_ULP, "tls", sizeof("tls"));
+}
+
+static int netty_epoll_linuxsocket_copyCryptoInfo(JNIEnv* env, jbyteArray array, char* dst, int offset) {
+    jsize len = (*env)->GetArrayLength(env, array);
+    if (offset + len > NETTY_TLS_CRYPTO_INFO_MAX_SIZE) {
+        netty_unix_errors_throwIOException(env, "crypto info too large");
+        return -1;
+    }
+    (*env)->GetByteArrayRegion(env, array, 0, len, (jbyte*) (dst + offset));
+    if ((*env)->ExceptionCheck(env) == JNI_TRUE) {
+        return -1;
+    }
+    return offset + len;
+}
+
+static void netty_epoll_linuxsocket_setTlsCryptoInfo(JNIEnv* env, jclass clazz, jint fd, jint direction, jint version,
+        jint cipherType, jbyteArray iv, jbyteArray key, jbyteArray salt, jbyteArray recSeq) {
+    char info[NETTY_TLS_CRYPTO_INFO_MAX_SIZE];
+    int len = NETTY_TLS_CRYPTO_INFO_HEADER_SIZE;
+    uint16_t header[2];
+
+    memset(info, 0, sizeof(info));
+    header[0] = (uint16_t) version;
+    header[1] = (uint16_t) cipherType;
+    memcpy(info, header, sizeof(header));
+
+    if ((len = netty_epoll_linuxsocket_copyCryptoInfo(env, iv, info, len)) == -1 ||
+        (len = netty_epoll_linuxsocket_copyCryptoInfo(env, key, info, len)) == -1 ||
+        (len = netty_epoll_linuxsocket_copyCryptoInfo(env, salt, info, len)) == -1 ||
+        (len = netty_epoll_linuxsocket_copyCryptoInfo(env, recSeq, info, len)) == -1) {
+        return;
+    }
+    netty_unix_socket_setOption(env, fd, SOL_TLS, direction, info, len);
+    // Do not keep the key material on the stack longer than needed.
+    memset(info, 0, sizeof(info));
+}
+
+static jint netty_epoll_linuxsocket_sendTlsAlert(JNIEnv* env, jclass clazz, jint fd, jbyte level, jbyte description) {
+    unsigned char alert[2];
+    char control[CMSG_SPACE(sizeof(unsigned char))];
+    struct iovec iov;
+    struct msghdr msg;
+    struct cmsghdr* cmsg;
+    ssize_t res;
+    int err;
+
+    alert[0] = (unsigned char) level;
+    alert[1] = (unsigned char) description;
+    iov.iov_base = alert;
+    iov.iov_len = sizeof(alert);
+
+    memset(&msg, 0, sizeof(msg));
+    memset(control, 0, sizeof(control));
+    msg.msg_iov = &iov;
+    msg.msg_iovlen = 1;
+    msg.msg_control = control;
+    msg.msg_controllen = sizeof(control);
+
+    // Let the kernel write the payload as an alert record instead of an application data record.
+    cmsg = CMSG_FIRSTHDR(&msg);
+    cmsg->cmsg_level = SOL_TLS;
+    cmsg->cmsg_type = TLS_SET_RECORD_TYPE;
+    cmsg->cmsg_len = CMSG_LEN(sizeof(unsigned char));
+    *CMSG_DATA(cmsg) = NETTY_TLS_RECORD_TYPE_ALERT;
+
+    do {
+        res = sendmsg(fd, &msg, 0);
+    } while (res == -1 && ((err = errno) == EINTR));
+    if (res < 0) {
+        return -err;
+    }
+    return (jint) res;
+}
+
 static void netty_epoll_linuxsocket_setTcpMd5Sig(JNIEnv* env, jclass clazz, jint fd, jboolean ipv6, jbyteArray address, jint scopeId, jbyteArray key) {
     struct sockaddr_storage addr;
     socklen_t addrSize;
@@ -522,12 +619,71 @@ static jint netty_epoll_linuxsocket_isIpRecvOrigDestAddr(JNIEnv* env, jclass cla
      return optval;
 }
 
+// Mirror of struct tcp_info as defined in linux/tcp.h. The headers we compile against may be older than the kernel we
+// run on and so may not define all of the fields. The kernel only copies as many bytes as it knows about, which is
+// why we zero the struct before.
+struct netty_tcp_info {
+    uint8_t  tcpi_state;
+    uint8_t  tcpi_ca_state;
+    uint8_t  tcpi_retransmits;
+    uint8_t  tcpi_probes;
+    uint8_t  tcpi_backoff;
+    uint8_t  tcpi_options;
+    uint8_t  tcpi_snd_wscale : 4, tcpi_rcv_wscale : 4;
+
+    uint32_t tcpi_rto;
+    uint32_t tcpi_ato;
+    uint32_t tcpi_snd_mss;
+    uint32_t tcpi_rcv_mss;
+
+    uint32_t tcpi_unacked;
+    uint32_t tcpi_sacked;
+    uint32_t tcpi_lost;
+    uint32_t tcpi_retrans;
+    uint32_t tcpi_fackets;
+
+    uint32_t tcpi_last_data_sent;
+    uint32_t tcpi_last_ack_sent;
+    uint32_t tcpi_last_data_recv;
+    uint32_t tcpi_last_ack_recv;
+
+    uint32_t tcpi_pmtu;
+    uint32_t tcpi_rcv_ssthresh;
+    uint32_t tcpi_rtt;
+    uint32_t tcpi_rttvar;
+    uint32_t tcpi_snd_ssthresh;
+    uint32_t tcpi_snd_cwnd;
+    uint32_t tcpi_advmss;
+    uint32_t tcpi_reordering;
+
+    uint32_t tcpi_rcv_rtt;
+    uint32_t tcpi_rcv_space;
+
+    uint32_t tcpi_total_retrans;
+
+    // Since Linux 3.15 / 4.1 / 4.2
+    uint64_t tcpi_pacing_rate;
+    uint64_t tcpi_max_pacing_rate;
+    uint64_t tcpi_bytes_acked;
+    uint64_t tcpi_bytes_received;
+    uint32_t tcpi_segs_out;
+    uint32_t tcpi_segs_in;
+
+    // Since Linux 4.6 / 4.9
+    uint32_t tcpi_notsent_bytes;
+    uint32_t tcpi_min_rtt;
+    uint32_t tcpi_data_segs_in;
+    uint32_t tcpi_data_segs_out;
+    uint64_t tcpi_delivery_rate;
+};
+
 static void netty_epoll_linuxsocket_getTcpInfo(JNIEnv* env, jclass clazz, jint fd, jlongArray array) {
-     struct tcp_info tcp_info;
+     struct netty_tcp_info tcp_info;
+     memset(&tcp_info, 0, sizeof(tcp_info));
      if (netty_unix_socket_getOption(env, fd, IPPROTO_TCP, TCP_INFO, &tcp_info, sizeof(tcp_info)) == -1) {
          return;
      }
-     jlong cArray[32];
+     jlong cArray[43];
      // Expand to 64 bits, then cast away unsigned-ness.
      cArray[0] = (jlong) (uint64_t) tcp_info.tcpi_state;
      cArray[1] = (jlong) (uint64_t) tcp_info.tcpi_ca_state;
@@ -561,8 +717,19 @@ static void netty_epoll_linuxsocket_getTcpInfo(JNIEnv* env, jclass clazz, jint f
      cArray[29] = (jlong) (uint64_t) tcp_info.tcpi_rcv_rtt;
      cArray[30] = (jlong) (uint64_t) tcp_info.tcpi_rcv_space;
      cArray[31] = (jlong) (uint64_t) tcp_info.tcpi_total_retrans;
+     cArray[32] = (jlong) tcp_info.tcpi_pacing_rate;
+     cArray[33] = (jlong) tcp_info.tcpi_max_pacing_rate;
+     cArray[34] = (jlong) tcp_info.tcpi_bytes_acked;
+     cArray[35] = (jlong) tcp_info.tcpi_bytes_received;
+     cArray[36] = (jlong) (uint64_t) tcp_info.tcpi_segs_out;
+     cArray[37] = (jlong) (uint64_t) tcp_info.tcpi_segs_in;
+     cArray[38] = (jlong) (uint64_t) tcp_info.tcpi_notsent_bytes;
+     cArray[39] = (jlong) (uint64_t) tcp_info.tcpi_min_rtt;
+     cArray[40] = (jlong) (uint64_t) tcp_info.tcpi_data_segs_in;
+     cArray[41] = (jlong) (uint64_t) tcp_info.tcpi_data_segs_out;
+     cArray[42] = (jlong) tcp_info.tcpi_delivery_rate;
 
-     (*env)->SetLongArrayRegion(env, array, 0, 32, cArray);
+     (*env)->SetLongArrayRegion(env, array, 0, 43, cArray);
 }
 
 static jint netty_epoll_linuxsocket_isTcpCork(JNIEnv* env, jclass clazz, jint fd) {
@@ -698,6 +865,9 @@ static const JNINativeMethod fixed_method_table[] = {
   { "isIpRecvOrigDestAddr", "(I)I", (void *) netty_epoll_linuxsocket_isIpRecvOrigDestAddr },
   { "getTcpInfo", "(I[J)V", (void *) netty_epoll_linuxsocket_getTcpInfo },
   { "setTcpMd5Sig", "(IZ[BI[B)V", (void *) netty_epoll_linuxsocket_setTcpMd5Sig },
+  { "setTcpUlpTls", "(I)V", (void *) netty_epoll_linuxsocket_setTcpUlpTls },
+  { "setTlsCryptoInfo", "(IIII[B[B[B[B)V", (void *) netty_epoll_linuxsocket_setTlsCryptoInfo },
+  { "sendTlsAlert", "(IBB)I", (void *) netty_epoll_linuxsocket_sendTlsAlert },
   { "joinGroup", "(IZ[B[BII)V", (void *) netty_epoll_linuxsocket_joinGroup },
   { "joinSsmGroup", "(IZ[B[BII[B)V", (void *) netty_epoll_linuxsocket_joinSsmGroup },
   { "leaveGroup", "(IZ[B[BII)V", (void *) netty_epoll_linuxsocket_leaveGroup },
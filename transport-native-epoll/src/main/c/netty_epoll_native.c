@@ -27,6 +27,8 @@
 #include <sys/types.h>
 #include <sys/socket.h>
 #include <sys/timerfd.h>
+#include <sys/mman.h>
+#include <sys/stat.h>
 #include <unistd.h>
 #include <arpa/inet.h>
 #include <fcntl.h>
@@ -120,6 +122,39 @@ struct mmsghdr {
 #endif
 #endif // SYS_sendmmsg
 
+#ifndef SYS_memfd_create
+// Only support SYS_memfd_create for __x86_64__ / __i386__ for now
+#if defined(__x86_64__)
+// See https://github.com/torvalds/linux/blob/v5.4/arch/x86/entry/syscalls/syscall_64.tbl
+#define SYS_memfd_create 319
+#elif defined(__i386__)
+// See https://github.com/torvalds/linux/blob/v5.4/arch/x86/entry/syscalls/syscall_32.tbl
+#define SYS_memfd_create 356
+#elif defined(__aarch64__)
+// See https://github.com/torvalds/linux/blob/v5.4/include/uapi/asm-generic/unistd.h
+#define SYS_memfd_create 279
+#else
+#define SYS_memfd_create -1
+#endif
+#endif // SYS_memfd_create
+
+#ifndef MFD_CLOEXEC
+#define MFD_CLOEXEC 0x0001U
+#endif
+
+#ifndef MFD_ALLOW_SEALING
+#define MFD_ALLOW_SEALING 0x0002U
+#endif
+
+// File sealing was added in linux 3.17. We define this here so older kernels can compile.
+#ifndef F_ADD_SEALS
+#define F_ADD_SEALS (1024 + 9)
+#define F_GET_SEALS (1024 + 10)
+#define F_SEAL_SEAL 0x0001
+#define F_SEAL_SHRINK 0x0002
+#define F_SEAL_GROW 0x0004
+#endif
+
 // Those are initialized in the init(...) method and cached for performance reasons
 static jfieldID packetSenderAddrFieldId = NULL;
 static jfieldID packetSenderAddrLenFieldId = NULL;
@@ -649,6 +684,66 @@ static jint netty_epoll_native_splice0(JNIEnv* env, jclass clazz, jint fd, jlong
     return (jint) res;
 }
 
+static jint netty_epoll_native_memfdCreate0(JNIEnv* env, jclass clazz, jstring name, jlong size) {
+    const char* n;
+    int fd;
+    int err;
+
+    if (SYS_memfd_create == -1) {
+        return -ENOSYS;
+    }
+    n = (*env)->GetStringUTFChars(env, name, 0);
+    if (n == NULL) {
+        return -ENOMEM;
+    }
+    // We directly use the syscall to prevent depending on GLIBC 2.27.
+    fd = syscall(SYS_memfd_create, n, MFD_CLOEXEC | MFD_ALLOW_SEALING);
+    err = errno;
+    (*env)->ReleaseStringUTFChars(env, name, n);
+    if (fd < 0) {
+        return -err;
+    }
+    // Seal the size, so the peer can not shrink the memory while it is mapped (which would result in a SIGBUS).
+    if (ftruncate(fd, (off_t) size) != 0 ||
+        fcntl(fd, F_ADD_SEALS, F_SEAL_SHRINK | F_SEAL_GROW | F_SEAL_SEAL) != 0) {
+        err = errno;
+        close(fd);
+        return -err;
+    }
+    return fd;
+}
+
+static jlong netty_epoll_native_memfdSize0(JNIEnv* env, jclass clazz, jint fd) {
+    struct stat st;
+    if (fstat(fd, &st) != 0) {
+        return -errno;
+    }
+    return (jlong) st.st_size;
+}
+
+static jint netty_epoll_native_memfdSeals0(JNIEnv* env, jclass clazz, jint fd) {
+    int seals = fcntl(fd, F_GET_SEALS);
+    if (seals < 0) {
+        return -errno;
+    }
+    return seals;
+}
+
+static jlong netty_epoll_native_mmap0(JNIEnv* env, jclass clazz, jint fd, jlong size) {
+    void* addr = mmap(NULL, (size_t) size, PROT_READ | PROT_WRITE, MAP_SHARED, fd, 0);
+    if (addr == MAP_FAILED) {
+        return -errno;
+    }
+    return (jlong) addr;
+}
+
+static jint netty_epoll_native_munmap0(JNIEnv* env, jclass clazz, jlong address, jlong size) {
+    if (munmap((void*) address, (size_t) size) != 0) {
+        return -errno;
+    }
+    return 0;
+}
+
 static jint netty_epoll_native_tcpMd5SigMaxKeyLen(JNIEnv* env, jclass clazz) {
     struct tcp_md5sig md5sig;
 
@@ -697,6 +792,11 @@ static const JNINativeMethod fixed_method_table[] = {
   { "sizeofEpollEvent", "()I", (void *) netty_epoll_native_sizeofEpollEvent },
   { "offsetofEpollData", "()I", (void *) netty_epoll_native_offsetofEpollData },
   { "splice0", "(IJIJJ)I", (void *) netty_epoll_native_splice0 },
+  { "memfdCreate0", "(Ljava/lang/String;J)I", (void *) netty_epoll_native_memfdCreate0 },
+  { "memfdSize0", "(I)J", (void *) netty_epoll_native_memfdSize0 },
+  { "memfdSeals0", "(I)I", (void *) netty_epoll_native_memfdSeals0 },
+  { "mmap0", "(IJ)J", (void *) netty_epoll_native_mmap0 },
+  { "munmap0", "(JJ)I", (void *) netty_epoll_native_munmap0 },
   { "isSupportingUdpSegment", "()Z", (void *) netty_epoll_native_isSupportingUdpSegment },
   { "registerUnix", "()I", (void *) netty_epoll_native_registerUnix },
 
@@ -15,6 +15,12 @@
  */
 package io.netty.channel.epoll;
 
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.testsuite.transport.AbstractSingleThreadEventLoopTest;
 import io.netty.channel.DefaultSelectStrategyFactory;
 import io.netty.channel.EventLoop;
@@ -22,13 +28,17 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ServerChannel;
 import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.unix.FileDescriptor;
+import io.netty.util.NetUtil;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
 import io.netty.util.concurrent.RejectedExecutionHandlers;
 import io.netty.util.concurrent.ThreadPerTaskExecutor;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -92,6 +102,106 @@ public class EpollEventLoopTest extends AbstractSingleThreadEventLoopTest {
         }
     }
 
+    @Test
+    public void testAdaptiveBusyPollRunsTasks() throws Exception {
+        final EpollEventLoopGroup group = new EpollEventLoopGroup(1);
+        try {
+            group.setAdaptiveBusyPollMaxNanos(TimeUnit.MICROSECONDS.toNanos(50));
+            final EventLoop eventLoop = group.next();
+            for (int i = 0; i < 100; i++) {
+                assertTrue(eventLoop.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        // NOOP
+                    }
+                }).await(5, TimeUnit.SECONDS));
+            }
+            Future<?> future = eventLoop.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    // NOOP
+                }
+            }, 10, TimeUnit.MILLISECONDS);
+            assertTrue(future.await(5, TimeUnit.SECONDS));
+            assertTrue(future.isSuccess());
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testAdaptiveBusyPollWindowRisesAndFalls() throws Exception {
+        final EpollEventLoopGroup group = new EpollEventLoopGroup(1);
+        Channel serverChannel = null;
+        Channel clientChannel = null;
+        try {
+            group.setAdaptiveBusyPollMaxNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            final EpollEventLoop eventLoop = (EpollEventLoop) group.next();
+            assertEquals(0, busyPollWindow(eventLoop));
+
+            serverChannel = new ServerBootstrap().group(group)
+                    .channel(EpollServerSocketChannel.class)
+                    .childHandler(new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            // Echo
+                            ctx.writeAndFlush(msg);
+                        }
+                    }).bind(NetUtil.LOCALHOST, 0).sync().channel();
+
+            // Ping-pong a single byte, every round trip results in socket events.
+            final Promise<Void> done = eventLoop.newPromise();
+            clientChannel = new Bootstrap().group(group)
+                    .channel(EpollSocketChannel.class)
+                    .handler(new ChannelInboundHandlerAdapter() {
+                        private int count;
+
+                        @Override
+                        public void channelActive(ChannelHandlerContext ctx) {
+                            ctx.writeAndFlush(Unpooled.wrappedBuffer(new byte[1]));
+                        }
+
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            if (++count == 1000) {
+                                ReferenceCountUtil.release(msg);
+                                done.setSuccess(null);
+                            } else {
+                                ctx.writeAndFlush(msg);
+                            }
+                        }
+                    }).connect(serverChannel.localAddress()).sync().channel();
+            done.sync();
+            assertTrue(busyPollWindow(eventLoop) > 0);
+
+            // Without socket events the wakeups caused by the submitted tasks must let the window collapse.
+            long window;
+            int i = 0;
+            do {
+                Thread.sleep(5);
+                window = busyPollWindow(eventLoop);
+            } while (window > 0 && ++i < 100);
+            assertEquals(0, window);
+        } finally {
+            if (clientChannel != null) {
+                clientChannel.close().syncUninterruptibly();
+            }
+            if (serverChannel != null) {
+                serverChannel.close().syncUninterruptibly();
+            }
+            group.shutdownGracefully();
+        }
+    }
+
+    private static long busyPollWindow(final EpollEventLoop eventLoop) throws Exception {
+        return eventLoop.submit(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return eventLoop.adaptiveBusyPollWindowNanos();
+            }
+        }).get();
+    }
+
     @Test
     public void testEventFDETSemantics() throws Throwable {
         final FileDescriptor epoll = Native.newEpollCreate();
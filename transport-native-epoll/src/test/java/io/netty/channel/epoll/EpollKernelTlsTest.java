@@ -0,0 +1,446 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.unix.KernelTlsChannel;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslCloseCompletionEvent;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslHandshakeCompletionEvent;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.util.CharsetUtil;
+import io.netty.util.NetUtil;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Promise;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class EpollKernelTlsTest {
+
+    private static final String AES_128_GCM = "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256";
+
+    private static EventLoopGroup GROUP;
+    private static SelfSignedCertificate CERT;
+
+    @BeforeAll
+    public static void beforeClass() throws Exception {
+        GROUP = new EpollEventLoopGroup(2);
+        CERT = new SelfSignedCertificate();
+    }
+
+    @AfterAll
+    public static void afterClass() {
+        GROUP.shutdownGracefully();
+        CERT.delete();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { AES_128_GCM, "TLS_ECDHE_RSA_WITH_AES_256_GCM_SHA384",
+            "TLS_ECDHE_RSA_WITH_CHACHA20_POLY1305_SHA256" })
+    public void testEcho(String cipher) throws Throwable {
+        assumeTrue(OpenSsl.isAvailable());
+        assumeTrue(OpenSsl.isCipherSuiteAvailable(cipher));
+        // Only AES-GCM can be offloaded, for all other ciphers the SSLEngine must continue to be used.
+        boolean offloaded = Epoll.isKernelTlsSupported() && cipher.contains("_AES_");
+        final SslContext serverCtx = newServerContext(cipher);
+        final SslContext clientCtx = newClientContext(cipher);
+        Channel server = null;
+        Channel client = null;
+        try {
+            final Promise<Channel> accepted = GROUP.next().newPromise();
+            server = new ServerBootstrap().group(GROUP)
+                    .channel(EpollServerSocketChannel.class)
+                    .childHandler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            SslHandler sslHandler = serverCtx.newHandler(ch.alloc());
+                            sslHandler.setKernelTlsOffload(true);
+                            ch.pipeline().addLast(sslHandler, new ChannelInboundHandlerAdapter() {
+                                @Override
+                                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                    ctx.writeAndFlush(msg);
+                                }
+                            });
+                            accepted.setSuccess(ch);
+                        }
+                    }).bind(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).sync().channel();
+
+            final Promise<ByteBuf> received = GROUP.next().newPromise();
+            final ByteBuf expected = Unpooled.copiedBuffer("hello kernel tls", CharsetUtil.US_ASCII);
+            client = connect(server, clientCtx, expected, expected.readableBytes(), received);
+
+            ByteBuf echoed = received.sync().getNow();
+            assertEquals(expected, echoed);
+            expected.release();
+            echoed.release();
+
+            assertKernelTls(client, offloaded);
+            assertKernelTls(accepted.sync().getNow(), offloaded);
+        } finally {
+            close(client, server, serverCtx, clientCtx);
+        }
+    }
+
+    @Test
+    public void testFileRegion(@TempDir File dir) throws Throwable {
+        assumeKernelTlsSupported();
+        final byte[] content = new byte[1024 * 1024];
+        new Random().nextBytes(content);
+        final File file = new File(dir, "content");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+
+        final SslContext serverCtx = newServerContext(AES_128_GCM);
+        final SslContext clientCtx = newClientContext(AES_128_GCM);
+        Channel server = null;
+        Channel client = null;
+        try {
+            final Promise<Boolean> sentByKernel = GROUP.next().newPromise();
+            server = new ServerBootstrap().group(GROUP)
+                    .channel(EpollServerSocketChannel.class)
+                    .childHandler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            final SslHandler sslHandler = serverCtx.newHandler(ch.alloc());
+                            sslHandler.setKernelTlsOffload(true);
+                            ch.pipeline().addLast(sslHandler, new SimpleChannelInboundHandler<ByteBuf>() {
+                                @Override
+                                protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) throws Exception {
+                                    // The request is received after the handshake was flushed, so the offload is done.
+                                    sentByKernel.setSuccess(sslHandler.isKernelTlsTx());
+                                    ctx.writeAndFlush(new DefaultFileRegion(
+                                            new RandomAccessFile(file, "r").getChannel(), 0, content.length));
+                                }
+                            });
+                        }
+                    }).bind(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).sync().channel();
+
+            final Promise<ByteBuf> received = GROUP.next().newPromise();
+            client = connect(server, clientCtx, Unpooled.wrappedBuffer(new byte[] { 1 }), content.length, received);
+
+            ByteBuf buffer = received.sync().getNow();
+            byte[] bytes = new byte[buffer.readableBytes()];
+            buffer.readBytes(bytes);
+            buffer.release();
+            assertArrayEquals(content, bytes);
+            assertTrue(sentByKernel.sync().getNow());
+            assertKernelTls(client, true);
+        } finally {
+            close(client, server, serverCtx, clientCtx);
+        }
+    }
+
+    @Test
+    public void testCloseNotify() throws Throwable {
+        assumeKernelTlsSupported();
+        final SslContext serverCtx = newServerContext(AES_128_GCM);
+        final SslContext clientCtx = newClientContext(AES_128_GCM);
+        Channel server = null;
+        Channel client = null;
+        try {
+            // The server does not offload, so its SSLEngine verifies the records written by the kernel of the client
+            // and the other way around. This also ensures the kernel uses the right record sequence numbers.
+            final Promise<SslCloseCompletionEvent> closeNotify = GROUP.next().newPromise();
+            server = new ServerBootstrap().group(GROUP)
+                    .channel(EpollServerSocketChannel.class)
+                    .childHandler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            ch.pipeline().addLast(serverCtx.newHandler(ch.alloc()),
+                                    new ChannelInboundHandlerAdapter() {
+                                @Override
+                                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                    ctx.writeAndFlush(msg);
+                                }
+
+                                @Override
+                                public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+                                    if (evt instanceof SslCloseCompletionEvent) {
+                                        closeNotify.trySuccess((SslCloseCompletionEvent) evt);
+                                    }
+                                }
+                            });
+                        }
+                    }).bind(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).sync().channel();
+
+            final Promise<ByteBuf> received = GROUP.next().newPromise();
+            final ByteBuf expected = Unpooled.copiedBuffer("hello kernel tls", CharsetUtil.US_ASCII);
+            client = connect(server, clientCtx, expected, expected.readableBytes(), received);
+
+            ByteBuf echoed = received.sync().getNow();
+            assertEquals(expected, echoed);
+            expected.release();
+            echoed.release();
+            assertKernelTls(client, true);
+
+            client.close().sync();
+            assertSame(SslCloseCompletionEvent.SUCCESS, closeNotify.sync().getNow());
+        } finally {
+            close(client, server, serverCtx, clientCtx);
+        }
+    }
+
+    @Test
+    public void testAlertWhileRecordPartiallyReceived() throws Throwable {
+        assumeKernelTlsSupported();
+        final SslContext serverCtx = newServerContext(AES_128_GCM);
+        final SslContext clientCtx = newClientContext(AES_128_GCM);
+        Channel server = null;
+        Channel client = null;
+        try {
+            // The server holds back the completion of the write that triggers the offload until the first bytes of
+            // the next record were received, so the reading side can not be offloaded. The writing side must not be
+            // offloaded either, as otherwise the close_notify the SSLEngine writes in reply would be encrypted twice.
+            final Promise<SslHandler> decided = GROUP.next().newPromise();
+            server = new ServerBootstrap().group(GROUP)
+                    .channel(EpollServerSocketChannel.class)
+                    .childHandler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            final SslHandler sslHandler = serverCtx.newHandler(ch.alloc());
+                            sslHandler.setKernelTlsOffload(true);
+                            ch.pipeline().addLast(new ChannelDuplexHandler() {
+                                private ChannelPromise held;
+
+                                @Override
+                                public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                                    if (held == null && !decided.isDone() && msg instanceof ByteBuf &&
+                                            !((ByteBuf) msg).isReadable()) {
+                                        held = promise;
+                                        promise = ctx.newPromise();
+                                    }
+                                    ctx.write(msg, promise);
+                                }
+
+                                @Override
+                                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                    // Only complete the write once something was read after it was held.
+                                    boolean release = held != null;
+                                    ctx.fireChannelRead(msg);
+                                    if (release && !decided.isDone()) {
+                                        held.setSuccess();
+                                        decided.setSuccess(sslHandler);
+                                    }
+                                }
+                            }, sslHandler);
+                        }
+                    }).bind(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).sync().channel();
+
+            final Promise<SslCloseCompletionEvent> closeNotify = GROUP.next().newPromise();
+            final SplittingHandler splitter = new SplittingHandler();
+            client = new Bootstrap().group(GROUP)
+                    .channel(EpollSocketChannel.class)
+                    .handler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            final SslHandler sslHandler = clientCtx.newHandler(ch.alloc());
+                            ch.pipeline().addLast(splitter, sslHandler, new ChannelInboundHandlerAdapter() {
+                                @Override
+                                public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+                                    if (evt == SslHandshakeCompletionEvent.SUCCESS) {
+                                        splitter.armed = true;
+                                        sslHandler.closeOutbound();
+                                    } else if (evt instanceof SslHandshakeCompletionEvent) {
+                                        closeNotify.tryFailure(((SslHandshakeCompletionEvent) evt).cause());
+                                    } else if (evt instanceof SslCloseCompletionEvent) {
+                                        closeNotify.trySuccess((SslCloseCompletionEvent) evt);
+                                    }
+                                }
+
+                                @Override
+                                public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+                                    closeNotify.tryFailure(cause);
+                                }
+                            });
+                        }
+                    }).connect(server.localAddress()).sync().channel();
+
+            final SslHandler serverHandler = decided.sync().getNow();
+            assertEquals(serverHandler.isKernelTlsTx(), serverHandler.isKernelTlsRx());
+            assertFalse(serverHandler.isKernelTlsTx());
+
+            // Now let the server receive the rest of the close_notify so its SSLEngine replies with its own one.
+            client.eventLoop().execute(new Runnable() {
+                @Override
+                public void run() {
+                    splitter.writeRemaining();
+                }
+            });
+            assertSame(SslCloseCompletionEvent.SUCCESS, closeNotify.sync().getNow());
+        } finally {
+            close(client, server, serverCtx, clientCtx);
+        }
+    }
+
+    /**
+     * Writes only the first bytes of the next record until {@link #writeRemaining()} is called.
+     */
+    private static final class SplittingHandler extends ChannelOutboundHandlerAdapter {
+        volatile boolean armed;
+        private ChannelHandlerContext ctx;
+        private ByteBuf remaining;
+        private ChannelPromise remainingPromise;
+
+        @Override
+        public void handlerAdded(ChannelHandlerContext ctx) {
+            this.ctx = ctx;
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            if (armed && remaining == null && msg instanceof ByteBuf && ((ByteBuf) msg).readableBytes() > 3) {
+                ByteBuf buf = (ByteBuf) msg;
+                remaining = buf.retainedSlice(3, buf.readableBytes() - 3);
+                remainingPromise = promise;
+                ctx.writeAndFlush(buf.retainedSlice(0, 3));
+                buf.release();
+                return;
+            }
+            ctx.write(msg, promise);
+        }
+
+        void writeRemaining() {
+            ctx.writeAndFlush(remaining, remainingPromise);
+        }
+    }
+
+    private static void assumeKernelTlsSupported() {
+        assumeTrue(OpenSsl.isAvailable());
+        assumeTrue(OpenSsl.isCipherSuiteAvailable(AES_128_GCM));
+        assumeTrue(Epoll.isKernelTlsSupported());
+    }
+
+    private static SslContext newServerContext(String cipher) throws Exception {
+        return SslContextBuilder.forServer(CERT.certificate(), CERT.privateKey())
+                .sslProvider(SslProvider.OPENSSL).protocols("TLSv1.2")
+                .ciphers(Collections.singletonList(cipher)).build();
+    }
+
+    private static SslContext newClientContext(String cipher) throws Exception {
+        return SslContextBuilder.forClient()
+                .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                .sslProvider(SslProvider.OPENSSL).protocols("TLSv1.2")
+                .ciphers(Collections.singletonList(cipher)).build();
+    }
+
+    private static Channel connect(Channel server, final SslContext clientCtx, final ByteBuf request,
+                                   final int expectedBytes, final Promise<ByteBuf> received)
+            throws InterruptedException {
+        final ByteBuf aggregated = Unpooled.buffer();
+        return new Bootstrap().group(GROUP)
+                .channel(EpollSocketChannel.class)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        SslHandler sslHandler = clientCtx.newHandler(ch.alloc());
+                        sslHandler.setKernelTlsOffload(true);
+                        ch.pipeline().addLast(sslHandler, new SimpleChannelInboundHandler<ByteBuf>() {
+                            @Override
+                            public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+                                if (evt == SslHandshakeCompletionEvent.SUCCESS) {
+                                    // Written while the offload may still be pending.
+                                    ctx.writeAndFlush(request.retainedDuplicate());
+                                } else if (evt instanceof SslHandshakeCompletionEvent) {
+                                    received.tryFailure(((SslHandshakeCompletionEvent) evt).cause());
+                                }
+                            }
+
+                            @Override
+                            protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+                                aggregated.writeBytes(msg);
+                                if (aggregated.readableBytes() >= expectedBytes && !received.trySuccess(aggregated)) {
+                                    aggregated.release();
+                                }
+                            }
+
+                            @Override
+                            public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+                                received.tryFailure(cause);
+                            }
+                        });
+                    }
+                }).connect(server.localAddress()).sync().channel();
+    }
+
+    private static void assertKernelTls(Channel channel, boolean offloaded) {
+        assertTrue(channel instanceof KernelTlsChannel);
+        SslHandler handler = channel.pipeline().get(SslHandler.class);
+        KernelTlsChannel ch = (KernelTlsChannel) channel;
+        if (offloaded) {
+            assertTrue(handler.isKernelTlsTx());
+            assertTrue(ch.isKernelTlsTx());
+            assertTrue(handler.isKernelTlsRx());
+            assertTrue(ch.isKernelTlsRx());
+        } else {
+            assertFalse(handler.isKernelTlsTx());
+            assertFalse(ch.isKernelTlsTx());
+            assertFalse(handler.isKernelTlsRx());
+            assertFalse(ch.isKernelTlsRx());
+        }
+    }
+
+    private static void close(Channel client, Channel server, SslContext serverCtx, SslContext clientCtx)
+            throws InterruptedException {
+        if (client != null) {
+            client.close().sync();
+        }
+        if (server != null) {
+            server.close().sync();
+        }
+        ReferenceCountUtil.release(serverCtx);
+        ReferenceCountUtil.release(clientCtx);
+    }
+}
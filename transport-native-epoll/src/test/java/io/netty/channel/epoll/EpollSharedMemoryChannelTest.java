@@ -0,0 +1,184 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.util.concurrent.Promise;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EpollSharedMemoryChannelTest {
+
+    private EventLoopGroup group;
+
+    @BeforeEach
+    public void setUp() {
+        group = new EpollEventLoopGroup(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        group.shutdownGracefully();
+    }
+
+    private Channel newServer(DomainSocketAddress address, final BlockingQueue<Channel> accepted) {
+        return new ServerBootstrap().group(group).channel(EpollServerSharedMemoryChannel.class)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                            @Override
+                            public void channelActive(ChannelHandlerContext ctx) {
+                                accepted.add(ctx.channel());
+                                ctx.fireChannelActive();
+                            }
+
+                            @Override
+                            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                // Echo everything back.
+                                ctx.write(msg);
+                            }
+
+                            @Override
+                            public void channelReadComplete(ChannelHandlerContext ctx) {
+                                ctx.flush();
+                            }
+                        });
+                    }
+                }).bind(address).syncUninterruptibly().channel();
+    }
+
+    @Test
+    @Timeout(value = 30000, unit = TimeUnit.MILLISECONDS)
+    public void testEcho() throws Exception {
+        DomainSocketAddress address = EpollSocketTestPermutation.newDomainSocketAddress();
+        BlockingQueue<Channel> accepted = new LinkedBlockingQueue<Channel>();
+        Channel server = newServer(address, accepted);
+
+        final byte[] data = new byte[1024 * 1024];
+        new Random().nextBytes(data);
+        final ByteBuf received = Unpooled.buffer(data.length);
+        final Promise<Void> done = group.next().newPromise();
+        Channel client = new Bootstrap().group(group).channel(EpollSharedMemoryChannel.class)
+                // Use a small capacity so the rings run full and both sides need to wait for each other.
+                .option(EpollChannelOption.SHARED_MEMORY_CAPACITY, 4096)
+                .handler(new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        ByteBuf buf = (ByteBuf) msg;
+                        received.writeBytes(buf);
+                        buf.release();
+                        if (!received.isWritable()) {
+                            done.setSuccess(null);
+                        }
+                    }
+                }).connect(address).syncUninterruptibly().channel();
+        assertTrue(client.isActive());
+        assertEquals(4096, client.config().getOption(EpollChannelOption.SHARED_MEMORY_CAPACITY));
+
+        Channel child = accepted.take();
+        assertInstanceOf(EpollSharedMemoryChannel.class, child);
+        assertTrue(child.isActive());
+
+        for (int i = 0; i < data.length; i += 1000) {
+            client.write(Unpooled.wrappedBuffer(data, i, Math.min(1000, data.length - i)));
+        }
+        client.flush();
+        done.syncUninterruptibly();
+        assertArrayEquals(data, received.array());
+        received.release();
+
+        client.close().syncUninterruptibly();
+        // The accepted Channel is closed once it notices the peer is gone.
+        child.closeFuture().syncUninterruptibly();
+        server.close().syncUninterruptibly();
+    }
+
+    @Test
+    @Timeout(value = 30000, unit = TimeUnit.MILLISECONDS)
+    public void testDataWrittenBeforeCloseIsReceived() throws Exception {
+        DomainSocketAddress address = EpollSocketTestPermutation.newDomainSocketAddress();
+        final BlockingQueue<Channel> accepted = new LinkedBlockingQueue<Channel>();
+        final ByteBuf received = Unpooled.buffer();
+        Channel server = new ServerBootstrap().group(group).channel(EpollServerSharedMemoryChannel.class)
+                .childHandler(new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelActive(ChannelHandlerContext ctx) {
+                        accepted.add(ctx.channel());
+                        ctx.fireChannelActive();
+                    }
+
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        ByteBuf buf = (ByteBuf) msg;
+                        received.writeBytes(buf);
+                        buf.release();
+                    }
+                }).bind(address).syncUninterruptibly().channel();
+
+        Channel client = new Bootstrap().group(group).channel(EpollSharedMemoryChannel.class)
+                .handler(new ChannelInboundHandlerAdapter())
+                .connect(address).syncUninterruptibly().channel();
+        client.writeAndFlush(Unpooled.wrappedBuffer(new byte[] { 1, 2, 3 }));
+        client.close().syncUninterruptibly();
+
+        Channel child = accepted.take();
+        child.closeFuture().syncUninterruptibly();
+        assertEquals(3, received.readableBytes());
+        received.release();
+        server.close().syncUninterruptibly();
+    }
+
+    @Test
+    @Timeout(value = 30000, unit = TimeUnit.MILLISECONDS)
+    public void testOnlyByteBufCanBeWritten() throws Exception {
+        DomainSocketAddress address = EpollSocketTestPermutation.newDomainSocketAddress();
+        Channel server = newServer(address, new LinkedBlockingQueue<Channel>());
+        Channel client = new Bootstrap().group(group).channel(EpollSharedMemoryChannel.class)
+                .handler(new ChannelInboundHandlerAdapter())
+                .connect(address).syncUninterruptibly().channel();
+
+        ChannelFuture future = client.writeAndFlush("not supported").await();
+        assertFalse(future.isSuccess());
+        assertInstanceOf(UnsupportedOperationException.class, future.cause());
+
+        client.close().syncUninterruptibly();
+        server.close().syncUninterruptibly();
+    }
+}
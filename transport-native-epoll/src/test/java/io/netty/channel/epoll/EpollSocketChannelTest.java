@@ -101,6 +101,10 @@ public class EpollSocketChannelTest {
         assertTrue(info.rcvRtt() >= 0);
         assertTrue(info.rcvSpace() >= 0);
         assertTrue(info.totalRetrans() >= 0);
+        assertTrue(info.bytesAcked() >= 0);
+        assertTrue(info.bytesReceived() >= 0);
+        assertTrue(info.minRtt() >= 0);
+        assertTrue(info.deliveryRate() >= 0);
     }
 
     // See https://github.com/netty/netty/issues/7159
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoop;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EpollTcpInfoSamplerTest {
+
+    @Test
+    public void testRejectsNonEpollEventLoop() {
+        final NioEventLoopGroup group = new NioEventLoopGroup(1);
+        try {
+            assertThrows(IllegalArgumentException.class, new Executable() {
+                @Override
+                public void execute() {
+                    new EpollTcpInfoSampler(group.next(), 16);
+                }
+            });
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testSampleAndDrain() throws Exception {
+        EpollEventLoopGroup group = new EpollEventLoopGroup(1);
+        try {
+            final EventLoop loop = group.next();
+            Channel server = new ServerBootstrap().group(loop).channel(EpollServerSocketChannel.class)
+                    .childHandler(new ChannelInboundHandlerAdapter())
+                    .bind(new InetSocketAddress(0)).syncUninterruptibly().channel();
+            Channel client = new Bootstrap().group(loop).channel(EpollSocketChannel.class)
+                    .handler(new ChannelInboundHandlerAdapter())
+                    .connect(server.localAddress()).syncUninterruptibly().channel();
+
+            final EpollTcpInfoSampler sampler = new EpollTcpInfoSampler(loop, 4);
+            loop.submit(new Runnable() {
+                @Override
+                public void run() {
+                    sampler.sample();
+                }
+            }).syncUninterruptibly();
+
+            final List<Channel> sampled = new ArrayList<Channel>();
+            int drained = sampler.drain(new EpollTcpInfoSampler.SampleProcessor() {
+                @Override
+                public boolean process(Channel channel, long timestamp, long rtt, long rttVar, long sndCwnd,
+                                       long totalRetrans, long deliveryRate, long bytesAcked) {
+                    assertTrue(rtt >= 0);
+                    assertTrue(sndCwnd > 0);
+                    sampled.add(channel);
+                    return true;
+                }
+            });
+            // The client and the accepted child channel, but not the server channel.
+            assertEquals(2, drained);
+            assertTrue(sampled.contains(client));
+            assertEquals(0, sampler.droppedSamples());
+
+            // Sample more often than the ring buffer can hold.
+            sampler.start(1, TimeUnit.MILLISECONDS);
+            Thread.sleep(100);
+            sampler.stop();
+            Thread.sleep(10);
+            drained = sampler.drain(new EpollTcpInfoSampler.SampleProcessor() {
+                @Override
+                public boolean process(Channel channel, long timestamp, long rtt, long rttVar, long sndCwnd,
+                                       long totalRetrans, long deliveryRate, long bytesAcked) {
+                    return true;
+                }
+            });
+            assertTrue(drained <= 4);
+            assertTrue(sampler.droppedSamples() > 0);
+
+            client.close().syncUninterruptibly();
+            server.close().syncUninterruptibly();
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testConcurrentDrainNeverSeesTornSamples() throws Exception {
+        EpollEventLoopGroup group = new EpollEventLoopGroup(1);
+        try {
+            final EpollTcpInfoSampler sampler = new EpollTcpInfoSampler(group.next(), 4);
+            final Channel channel = new EmbeddedChannel();
+            final int samples = 1000000;
+            // Publish from a single other thread, all fields of a sample have the same value.
+            Thread writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (long i = 1; i <= samples; i++) {
+                        sampler.publish(channel, i, i, i, i, i, i, i);
+                    }
+                }
+            });
+            final AtomicLong last = new AtomicLong();
+            EpollTcpInfoSampler.SampleProcessor processor = new EpollTcpInfoSampler.SampleProcessor() {
+                @Override
+                public boolean process(Channel ch, long timestamp, long rtt, long rttVar, long sndCwnd,
+                                       long totalRetrans, long deliveryRate, long bytesAcked) {
+                    assertSame(channel, ch);
+                    assertEquals(timestamp, rtt);
+                    assertEquals(timestamp, rttVar);
+                    assertEquals(timestamp, sndCwnd);
+                    assertEquals(timestamp, totalRetrans);
+                    assertEquals(timestamp, deliveryRate);
+                    assertEquals(timestamp, bytesAcked);
+                    assertTrue(timestamp > last.get());
+                    last.set(timestamp);
+                    return true;
+                }
+            };
+            writer.start();
+            long drained = 0;
+            while (writer.isAlive()) {
+                drained += sampler.drain(processor);
+            }
+            writer.join();
+            drained += sampler.drain(processor);
+            assertEquals(samples, drained + sampler.droppedSamples());
+            assertEquals(samples, last.get());
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+}
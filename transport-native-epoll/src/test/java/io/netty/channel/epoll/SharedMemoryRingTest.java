@@ -0,0 +1,140 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import io.netty.util.internal.PlatformDependent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class SharedMemoryRingTest {
+    private static final int CAPACITY = 16;
+
+    private long address;
+    private SharedMemoryRing writer;
+    private SharedMemoryRing reader;
+
+    @BeforeEach
+    public void setUp() {
+        assumeTrue(PlatformDependent.hasUnsafe());
+        int size = SharedMemoryRing.size(CAPACITY);
+        address = PlatformDependent.allocateMemory(size);
+        PlatformDependent.setMemory(address, size, (byte) 0);
+        // Both sides use their own instance, like two processes would do.
+        writer = new SharedMemoryRing(address, CAPACITY);
+        reader = new SharedMemoryRing(address, CAPACITY);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (address != 0) {
+            PlatformDependent.freeMemory(address);
+        }
+    }
+
+    @Test
+    public void testWriteAndReadWrapAround() throws IOException {
+        ByteBuf src = Unpooled.copiedBuffer("0123456789", CharsetUtil.US_ASCII);
+        ByteBuf dst = Unpooled.buffer(32);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(10, writer.write(src));
+            assertTrue(reader.isReadable());
+            assertEquals(10, reader.read(dst));
+            assertFalse(reader.isReadable());
+            assertEquals("0123456789", dst.toString(CharsetUtil.US_ASCII));
+            dst.clear();
+        }
+        src.release();
+        dst.release();
+    }
+
+    @Test
+    public void testWriteOnlyUntilFull() throws IOException {
+        ByteBuf src = Unpooled.copiedBuffer("0123456789", CharsetUtil.US_ASCII);
+        assertEquals(10, writer.write(src));
+        assertEquals(6, writer.write(src));
+        assertFalse(writer.isWritable());
+        assertEquals(0, writer.write(src));
+        src.release();
+    }
+
+    @Test
+    public void testPeerCorruptedReadIndex() throws IOException {
+        final ByteBuf src = Unpooled.copiedBuffer("0123456789", CharsetUtil.US_ASCII);
+        assertEquals(10, writer.write(src));
+        // Pretend the reader consumed more than was written, which would allow us to overwrite unread data.
+        PlatformDependent.putInt(address + 64, 11);
+        assertThrows(IOException.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                writer.write(src);
+            }
+        });
+        assertThrows(IOException.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                writer.isWritable();
+            }
+        });
+        src.release();
+    }
+
+    @Test
+    public void testPeerCorruptedWriteIndex() {
+        final ByteBuf dst = Unpooled.buffer(32);
+        // Pretend more than the capacity was written, which would make us read outside of the ring.
+        PlatformDependent.putInt(address, CAPACITY + 1);
+        assertThrows(IOException.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                reader.read(dst);
+            }
+        });
+        assertThrows(IOException.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                reader.isReadable();
+            }
+        });
+        dst.release();
+    }
+
+    @Test
+    public void testPeerModifiedOwnIndex() throws IOException {
+        final ByteBuf src = Unpooled.copiedBuffer("0123456789", CharsetUtil.US_ASCII);
+        assertEquals(10, writer.write(src));
+        PlatformDependent.putInt(address, 2);
+        assertThrows(IOException.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                writer.write(src);
+            }
+        });
+        src.release();
+    }
+}
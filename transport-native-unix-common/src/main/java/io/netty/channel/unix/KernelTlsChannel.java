@@ -0,0 +1,71 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.unix;
+
+import io.netty.util.internal.UnstableApi;
+
+import java.io.IOException;
+
+/**
+ * {@link UnixChannel} which allows to offload the record layer of an already established TLS session to the kernel
+ * (also known as {@code kTLS}). Once offloaded the {@link UnixChannel} reads and writes plaintext, while the kernel
+ * takes care of the encryption / decryption. This also allows to use {@code sendfile} for TLS connections.
+ * <p>
+ * The methods of this interface MUST only be called from the {@link io.netty.channel.EventLoop} of the
+ * {@link UnixChannel} and only when no data is pending in the direction that is offloaded, as otherwise data would be
+ * encrypted / decrypted twice.
+ */
+@UnstableApi
+public interface KernelTlsChannel extends UnixChannel {
+
+    /**
+     * Offload the encryption of all data written from now on to the kernel.
+     *
+     * @param info the {@link KernelTlsCryptoInfo} to use for writing.
+     * @throws IOException if the kernel does not support kernel TLS for the given {@link KernelTlsCryptoInfo}. In
+     *                     this case nothing was changed and the TLS session can be used as before.
+     */
+    void enableKernelTlsTx(KernelTlsCryptoInfo info) throws IOException;
+
+    /**
+     * Offload the decryption of all data read from now on to the kernel.
+     *
+     * @param info the {@link KernelTlsCryptoInfo} to use for reading.
+     * @throws IOException if the kernel does not support kernel TLS for the given {@link KernelTlsCryptoInfo}. In
+     *                     this case nothing was changed and the TLS session can be used as before.
+     */
+    void enableKernelTlsRx(KernelTlsCryptoInfo info) throws IOException;
+
+    /**
+     * Let the kernel write an alert record, for example a {@code close_notify}. This MUST only be called once
+     * {@link #isKernelTlsTx()} returns {@code true} and after all previous writes were written to the socket.
+     *
+     * @param level the <a href="https://tools.ietf.org/html/rfc5246#section-7.2">AlertLevel</a>.
+     * @param description the <a href="https://tools.ietf.org/html/rfc5246#section-7.2">AlertDescription</a>.
+     * @throws IOException if the alert could not be written.
+     */
+    void sendKernelTlsAlert(byte level, byte description) throws IOException;
+
+    /**
+     * Returns {@code true} if the encryption is done by the kernel.
+     */
+    boolean isKernelTlsTx();
+
+    /**
+     * Returns {@code true} if the decryption is done by the kernel.
+     */
+    boolean isKernelTlsRx();
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.unix;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.Arrays;
+
+/**
+ * The crypto state of one direction of a TLS session, as needed by the kernel to take over the record layer.
+ * See <a href="https://docs.kernel.org/networking/tls.html">Kernel TLS</a>.
+ */
+@UnstableApi
+public final class KernelTlsCryptoInfo {
+
+    /**
+     * {@code TLS_1_2_VERSION} as defined in {@code linux/tls.h}.
+     */
+    public static final int TLS_1_2_VERSION = 0x0303;
+
+    /**
+     * {@code TLS_1_3_VERSION} as defined in {@code linux/tls.h}.
+     */
+    public static final int TLS_1_3_VERSION = 0x0304;
+
+    /**
+     * {@code TLS_CIPHER_AES_GCM_128} as defined in {@code linux/tls.h}.
+     */
+    public static final int CIPHER_AES_GCM_128 = 51;
+
+    /**
+     * {@code TLS_CIPHER_AES_GCM_256} as defined in {@code linux/tls.h}.
+     */
+    public static final int CIPHER_AES_GCM_256 = 52;
+
+    private static final int IV_SIZE = 8;
+    private static final int SALT_SIZE = 4;
+    private static final int REC_SEQ_SIZE = 8;
+
+    private final int version;
+    private final int cipherType;
+    private final byte[] iv;
+    private final byte[] key;
+    private final byte[] salt;
+    private final byte[] recSeq;
+
+    private KernelTlsCryptoInfo(int version, int cipherType, byte[] iv, byte[] key, byte[] salt, byte[] recSeq) {
+        this.version = version;
+        this.cipherType = cipherType;
+        this.iv = iv;
+        this.key = key;
+        this.salt = salt;
+        this.recSeq = recSeq;
+    }
+
+    /**
+     * Create a new instance for an {@code AES-GCM} cipher.
+     *
+     * @param version           the TLS version, either {@link #TLS_1_2_VERSION} or {@link #TLS_1_3_VERSION}.
+     * @param key               the write key, either 16 ({@code AES-GCM-128}) or 32 ({@code AES-GCM-256}) bytes.
+     * @param salt              the implicit part of the nonce (4 bytes).
+     * @param iv                the explicit part of the nonce (8 bytes).
+     * @param recordSequence    the sequence number of the next record.
+     */
+    public static KernelTlsCryptoInfo newAesGcm(int version, byte[] key, byte[] salt, byte[] iv, long recordSequence) {
+        if (version != TLS_1_2_VERSION && version != TLS_1_3_VERSION) {
+            throw new IllegalArgumentException("version: " + version + " (expected: " + TLS_1_2_VERSION + " or " +
+                    TLS_1_3_VERSION + ')');
+        }
+        ObjectUtil.checkNotNull(key, "key");
+        final int cipherType;
+        if (key.length == 16) {
+            cipherType = CIPHER_AES_GCM_128;
+        } else if (key.length == 32) {
+            cipherType = CIPHER_AES_GCM_256;
+        } else {
+            throw new IllegalArgumentException("key.length: " + key.length + " (expected: 16 or 32)");
+        }
+        checkLength(salt, SALT_SIZE, "salt");
+        checkLength(iv, IV_SIZE, "iv");
+        ObjectUtil.checkPositiveOrZero(recordSequence, "recordSequence");
+        byte[] recSeq = new byte[REC_SEQ_SIZE];
+        for (int i = REC_SEQ_SIZE - 1; i >= 0; i--) {
+            recSeq[i] = (byte) recordSequence;
+            recordSequence >>>= 8;
+        }
+        return new KernelTlsCryptoInfo(version, cipherType, iv.clone(), key.clone(), salt.clone(), recSeq);
+    }
+
+    private static void checkLength(byte[] array, int length, String name) {
+        ObjectUtil.checkNotNull(array, name);
+        if (array.length != length) {
+            throw new IllegalArgumentException(name + ".length: " + array.length + " (expected: " + length + ')');
+        }
+    }
+
+    public int version() {
+        return version;
+    }
+
+    public int cipherType() {
+        return cipherType;
+    }
+
+    /**
+     * Returns a copy of the explicit part of the nonce.
+     */
+    public byte[] iv() {
+        return iv.clone();
+    }
+
+    /**
+     * Returns a copy of the write key.
+     */
+    public byte[] key() {
+        return key.clone();
+    }
+
+    /**
+     * Returns a copy of the implicit part of the nonce.
+     */
+    public byte[] salt() {
+        return salt.clone();
+    }
+
+    /**
+     * Returns a copy of the big-endian sequence number of the next record.
+     */
+    public byte[] recordSequence() {
+        return recSeq.clone();
+    }
+
+    /**
+     * Overwrite the key material, this instance must not be used afterwards.
+     */
+    public void destroy() {
+        Arrays.fill(key, (byte) 0);
+        Arrays.fill(iv, (byte) 0);
+        Arrays.fill(salt, (byte) 0);
+    }
+
+    @Override
+    public String toString() {
+        // Never include the key material.
+        return "KernelTlsCryptoInfo(version: " + version + ", cipherType: " + cipherType + ')';
+    }
+}
@@ -85,6 +85,8 @@ abstract class AbstractChannelHandlerContext implements ChannelHandlerContext, R
      */
     private static final int INIT = 0;
 
+    private static final int SEALED_WRITE_AND_FLUSH = Integer.numberOfTrailingZeros(MASK_FLUSH) + 1;
+
     private final DefaultChannelPipeline pipeline;
     private final String name;
     private final boolean ordered;
@@ -101,6 +103,10 @@ abstract class AbstractChannelHandlerContext implements ChannelHandlerContext, R
 
     private volatile int handlerState = INIT;
 
+    // The precomputed results of findContextInbound(...) and findContextOutbound(...), indexed by sealedIndex(mask).
+    // Only set while the pipeline is sealed.
+    private volatile AbstractChannelHandlerContext[] sealedContexts;
+
     AbstractChannelHandlerContext(DefaultChannelPipeline pipeline, EventExecutor executor,
                                   String name, Class<? extends ChannelHandler> handlerClass) {
         this.name = ObjectUtil.checkNotNull(name, "name");
@@ -1050,6 +1056,10 @@ abstract class AbstractChannelHandlerContext implements ChannelHandlerContext, R
     }
 
     private AbstractChannelHandlerContext findContextInbound(int mask) {
+        AbstractChannelHandlerContext[] sealed = sealedContexts;
+        if (sealed != null) {
+            return sealed[sealedIndex(mask)];
+        }
         AbstractChannelHandlerContext ctx = this;
         EventExecutor currentExecutor = executor();
         do {
@@ -1059,6 +1069,10 @@ abstract class AbstractChannelHandlerContext implements ChannelHandlerContext, R
     }
 
     private AbstractChannelHandlerContext findContextOutbound(int mask) {
+        AbstractChannelHandlerContext[] sealed = sealedContexts;
+        if (sealed != null) {
+            return sealed[sealedIndex(mask)];
+        }
         AbstractChannelHandlerContext ctx = this;
         EventExecutor currentExecutor = executor();
         do {
@@ -1067,6 +1081,50 @@ abstract class AbstractChannelHandlerContext implements ChannelHandlerContext, R
         return ctx;
     }
 
+    private static int sealedIndex(int mask) {
+        // All masks are single bits, except the one which is used by writeAndFlush(...).
+        return mask == (MASK_WRITE | MASK_FLUSH) ? SEALED_WRITE_AND_FLUSH : Integer.numberOfTrailingZeros(mask);
+    }
+
+    /**
+     * Precompute the next {@link AbstractChannelHandlerContext} for every event, so the traversal of the pipeline
+     * does not need to scan the execution masks anymore. Must be called again whenever the pipeline was modified.
+     */
+    final void seal() {
+        AbstractChannelHandlerContext[] contexts = new AbstractChannelHandlerContext[SEALED_WRITE_AND_FLUSH + 1];
+        for (int i = 0; i < SEALED_WRITE_AND_FLUSH; i++) {
+            int mask = 1 << i;
+            if ((mask & (MASK_EXCEPTION_CAUGHT | MASK_ONLY_INBOUND)) != 0) {
+                if (next != null) {
+                    contexts[i] = sealedContext(mask, true);
+                }
+            } else if (prev != null) {
+                contexts[i] = sealedContext(mask, false);
+            }
+        }
+        if (prev != null) {
+            contexts[SEALED_WRITE_AND_FLUSH] = sealedContext(MASK_WRITE | MASK_FLUSH, false);
+        }
+        sealedContexts = contexts;
+    }
+
+    final void unseal() {
+        sealedContexts = null;
+    }
+
+    private AbstractChannelHandlerContext sealedContext(int mask, boolean inbound) {
+        // Same as findContextInbound(...) and findContextOutbound(...) but compares the configured executors, as
+        // executor() can not be used before the Channel is registered. The comparison is never less strict, which
+        // means we may only skip less contexts in rare cases.
+        int onlyMask = inbound ? MASK_ONLY_INBOUND : MASK_ONLY_OUTBOUND;
+        AbstractChannelHandlerContext ctx = this;
+        do {
+            ctx = inbound ? ctx.next : ctx.prev;
+        } while ((ctx.executionMask & (onlyMask | mask)) == 0 ||
+                (ctx.executor == executor && (ctx.executionMask & mask) == 0));
+        return ctx;
+    }
+
     private static boolean skipContext(
             AbstractChannelHandlerContext ctx, EventExecutor currentExecutor, int mask, int onlyMask) {
         // Ensure we correctly handle MASK_EXCEPTION_CAUGHT which is not included in the MASK_EXCEPTION_CAUGHT
@@ -87,6 +87,20 @@ public class ChannelOption<T> extends AbstractConstant<ChannelOption<T>> {
     @Deprecated
     public static final ChannelOption<Integer> MAX_MESSAGES_PER_READ = valueOf("MAX_MESSAGES_PER_READ");
     public static final ChannelOption<Integer> MAX_MESSAGES_PER_WRITE = valueOf("MAX_MESSAGES_PER_WRITE");
+    /**
+     * Flushed {@link io.netty.buffer.ByteBuf}s with at most this many readable bytes are copied into a single pooled
+     * buffer before they are written, larger ones are still written without a copy. {@code 0} disables coalescing.
+     * <p>
+     * This is only supported by byte-stream {@link Channel}s whose {@link ChannelConfig} extends
+     * {@link DefaultChannelConfig}, by default every {@link io.netty.channel.socket.DuplexChannel}. For all others,
+     * like datagram channels, coalescing would merge messages, so the option is rejected there.
+     */
+    public static final ChannelOption<Integer> WRITE_COALESCE_THRESHOLD = valueOf("WRITE_COALESCE_THRESHOLD");
+    /**
+     * The maximum number of bytes that are coalesced into one buffer if {@link #WRITE_COALESCE_THRESHOLD} is used.
+     * Like {@link #WRITE_COALESCE_THRESHOLD} this is only supported by byte-stream {@link Channel}s.
+     */
+    public static final ChannelOption<Integer> WRITE_COALESCE_MAX_BYTES = valueOf("WRITE_COALESCE_MAX_BYTES");
 
     public static final ChannelOption<Integer> WRITE_SPIN_COUNT = valueOf("WRITE_SPIN_COUNT");
     /**
@@ -22,9 +22,7 @@ import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.internal.InternalThreadLocalMap;
-import io.netty.util.internal.ObjectPool;
-import io.netty.util.internal.ObjectPool.Handle;
-import io.netty.util.internal.ObjectPool.ObjectCreator;
+import io.netty.util.internal.MathUtil;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.PromiseNotificationUtil;
 import io.netty.util.internal.SystemPropertyUtil;
@@ -54,14 +52,22 @@ import static java.lang.Math.min;
 public final class ChannelOutboundBuffer {
     // Assuming a 64-bit JVM:
     //  - 16 bytes object header
-    //  - 6 reference fields
+    //  - 4 reference fields
     //  - 2 long fields
     //  - 2 int fields
     //  - 1 boolean field
     //  - padding
+    //  - the slot in the entries array
     static final int CHANNEL_OUTBOUND_BUFFER_ENTRY_OVERHEAD =
             SystemPropertyUtil.getInt("io.netty.transport.outboundBufferEntrySizeOverhead", 96);
 
+    private static final int INITIAL_CAPACITY = 16;
+
+    // The maximum capacity that is kept once all entries were written, everything above is released again so a burst
+    // of writes does not retain memory forever.
+    private static final int MAX_CACHED_CAPACITY = MathUtil.safeFindNextPositivePowerOfTwo(Math.max(INITIAL_CAPACITY,
+            SystemPropertyUtil.getInt("io.netty.transport.outboundBufferMaxCachedEntries", 1024)));
+
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(ChannelOutboundBuffer.class);
 
     private static final FastThreadLocal<ByteBuffer[]> NIO_BUFFERS = new FastThreadLocal<ByteBuffer[]>() {
@@ -73,14 +79,16 @@ public final class ChannelOutboundBuffer {
 
     private final Channel channel;
 
-    // Entry(flushedEntry) --> ... Entry(unflushedEntry) --> ... Entry(tailEntry)
+    // entries[head] --> ... entries[head + flushed] --> ... entries[tail]
     //
-    // The Entry that is the first in the linked-list structure that was flushed
-    private Entry flushedEntry;
-    // The Entry which is the first unflushed in the linked-list structure
-    private Entry unflushedEntry;
-    // The Entry which represents the tail of the buffer
-    private Entry tailEntry;
+    // The entries are stored in a ring. All indexes are masked with (entries.length - 1) before they are used and only
+    // ever incremented, so differences between them stay correct even if they overflow. Slots are reused and so the
+    // Entry instances are pooled per ChannelOutboundBuffer.
+    private Entry[] entries = new Entry[INITIAL_CAPACITY];
+    // The index of the first flushed entry
+    private int head;
+    // The index after the last entry
+    private int tail;
     // The number of flushed entries that are not written yet
     private int flushed;
 
@@ -89,12 +97,24 @@ public final class ChannelOutboundBuffer {
 
     private boolean inFail;
 
+    // Only updated by the EventLoop when write coalescing is enabled.
+    private volatile long coalescedBytes;
+    private volatile long passedThroughBytes;
+
     private static final AtomicLongFieldUpdater<ChannelOutboundBuffer> TOTAL_PENDING_SIZE_UPDATER =
             AtomicLongFieldUpdater.newUpdater(ChannelOutboundBuffer.class, "totalPendingSize");
 
+    // Only updated by the EventLoop, so there is no need for an atomic operation.
     @SuppressWarnings("UnusedDeclaration")
     private volatile long totalPendingSize;
 
+    private static final AtomicLongFieldUpdater<ChannelOutboundBuffer> CONCURRENT_PENDING_SIZE_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(ChannelOutboundBuffer.class, "concurrentPendingSize");
+
+    // Updated by any thread via incrementPendingOutboundBytes(long) and decrementPendingOutboundBytes(long).
+    @SuppressWarnings("UnusedDeclaration")
+    private volatile long concurrentPendingSize;
+
     private static final AtomicIntegerFieldUpdater<ChannelOutboundBuffer> UNWRITABLE_UPDATER =
             AtomicIntegerFieldUpdater.newUpdater(ChannelOutboundBuffer.class, "unwritable");
 
@@ -112,23 +132,43 @@ public final class ChannelOutboundBuffer {
      * the message was written.
      */
     public void addMessage(Object msg, int size, ChannelPromise promise) {
-        Entry entry = Entry.newInstance(msg, size, total(msg), promise);
-        if (tailEntry == null) {
-            flushedEntry = null;
-        } else {
-            Entry tail = tailEntry;
-            tail.next = entry;
+        Entry[] entries = this.entries;
+        if (tail - head == entries.length) {
+            entries = expandEntries();
         }
-        tailEntry = entry;
-        if (unflushedEntry == null) {
-            unflushedEntry = entry;
+        final int index = tail & entries.length - 1;
+        Entry entry = entries[index];
+        if (entry == null) {
+            entries[index] = entry = new Entry();
         }
+        entry.init(msg, size, total(msg), promise);
+        tail++;
 
         // increment pending bytes after adding message to the unflushed arrays.
         // See https://github.com/netty/netty/issues/1619
         incrementPendingOutboundBytes(entry.pendingSize, false);
     }
 
+    private Entry[] expandEntries() {
+        final Entry[] entries = this.entries;
+        final int oldMask = entries.length - 1;
+        final int newCapacity = entries.length << 1;
+        if (newCapacity < 0) {
+            throw new IllegalStateException();
+        }
+        final Entry[] newEntries = new Entry[newCapacity];
+        final int newMask = newCapacity - 1;
+        for (int i = head; i != tail; i++) {
+            newEntries[i & newMask] = entries[i & oldMask];
+        }
+        return this.entries = newEntries;
+    }
+
+    private Entry entry(int index) {
+        final Entry[] entries = this.entries;
+        return entries[index & entries.length - 1];
+    }
+
     /**
      * Add a flush to this {@link ChannelOutboundBuffer}. This means all previous added messages are marked as flushed
      * and so you will be able to handle them.
@@ -138,27 +178,141 @@ public final class ChannelOutboundBuffer {
         // where added in the meantime.
         //
         // See https://github.com/netty/netty/issues/2577
-        Entry entry = unflushedEntry;
-        if (entry != null) {
-            if (flushedEntry == null) {
-                // there is no flushedEntry yet, so start with the entry
-                flushedEntry = entry;
+        final int start = head + flushed;
+        for (int i = start; i != tail; i++) {
+            Entry entry = entry(i);
+            flushed ++;
+            if (!entry.promise.setUncancellable()) {
+                // Was cancelled so make sure we free up memory and notify about the freed bytes
+                int pending = entry.cancel();
+                decrementPendingOutboundBytes(pending, false, true);
+            }
+        }
+
+        if (start != tail) {
+            ChannelConfig config = channel.config();
+            // Only byte-streams may be coalesced, as otherwise message boundaries would be lost.
+            if (config instanceof DefaultChannelConfig && ((DefaultChannelConfig) config).isWriteCoalesceSupported()) {
+                DefaultChannelConfig defaultConfig = (DefaultChannelConfig) config;
+                int threshold = defaultConfig.getWriteCoalesceThreshold();
+                if (threshold > 0) {
+                    coalesce(start, threshold, defaultConfig.getWriteCoalesceMaxBytes());
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy runs of small flushed {@link ByteBuf}s, starting at the given index, into a single buffer each. The
+     * merged buffer is stored in the first {@link Entry} of a run while all others are left with an empty buffer, so
+     * the promises are still notified in order once the bytes were written.
+     */
+    private void coalesce(int start, int threshold, int maxBytes) {
+        final int end = head + flushed;
+        long copied = 0;
+        long passedThrough = 0;
+        int i = start;
+        while (i != end) {
+            int runEnd = i;
+            int runBytes = 0;
+            while (runEnd != end) {
+                Entry entry = entry(runEnd);
+                if (!isCoalescable(entry, threshold)) {
+                    break;
+                }
+                int readable = ((ByteBuf) entry.msg).readableBytes();
+                if (runBytes + readable > maxBytes) {
+                    break;
+                }
+                runBytes += readable;
+                runEnd++;
             }
-            do {
-                flushed ++;
-                if (!entry.promise.setUncancellable()) {
-                    // Was cancelled so make sure we free up memory and notify about the freed bytes
-                    int pending = entry.cancel();
-                    decrementPendingOutboundBytes(pending, false, true);
+
+            if (runEnd - i < 2) {
+                // Nothing to merge, just write the message as it is.
+                Object msg = entry(i).msg;
+                if (msg instanceof ByteBuf) {
+                    passedThrough += ((ByteBuf) msg).readableBytes();
                 }
-                entry = entry.next;
-            } while (entry != null);
+                i++;
+                continue;
+            }
 
-            // All flushed so reset unflushedEntry
-            unflushedEntry = null;
+            ByteBuf merged = merge(i, runEnd, runBytes);
+            if (merged == null) {
+                // Write the remaining messages as they are, nothing was modified so far.
+                break;
+            }
+            Entry first = entry(i);
+            for (int j = i; j != runEnd; j++) {
+                Entry entry = entry(j);
+                ReferenceCountUtil.safeRelease(entry.msg);
+                entry.msg = Unpooled.EMPTY_BUFFER;
+                entry.total = 0;
+                entry.count = -1;
+                entry.buf = null;
+                entry.bufs = null;
+            }
+            first.msg = merged;
+            first.total = runBytes;
+            copied += runBytes;
+            i = runEnd;
+        }
+        if (copied != 0) {
+            coalescedBytes += copied;
+        }
+        if (passedThrough != 0) {
+            passedThroughBytes += passedThrough;
         }
     }
 
+    /**
+     * Copy the messages of the given run into a new buffer, or return {@code null} if this failed, for example
+     * because no memory could be allocated. The {@link Entry}s are not modified.
+     */
+    private ByteBuf merge(int start, int end, int bytes) {
+        ByteBuf merged = null;
+        try {
+            merged = channel.alloc().ioBuffer(bytes);
+            for (int i = start; i != end; i++) {
+                ByteBuf buf = (ByteBuf) entry(i).msg;
+                merged.writeBytes(buf, buf.readerIndex(), buf.readableBytes());
+            }
+            return merged;
+        } catch (Throwable cause) {
+            if (merged != null) {
+                merged.release();
+            }
+            logger.debug("Failed to coalesce flushed messages, writing them as they are.", cause);
+            return null;
+        }
+    }
+
+    private static boolean isCoalescable(Entry entry, int threshold) {
+        // Progressive promises expect to see the progress of their own message, so never merge these.
+        return !entry.cancelled && entry.msg instanceof ByteBuf && entry.progress == 0 &&
+                !(entry.promise instanceof ChannelProgressivePromise) &&
+                ((ByteBuf) entry.msg).readableBytes() <= threshold;
+    }
+
+    /**
+     * Returns the number of bytes that were copied into a coalesced buffer because
+     * {@link ChannelOption#WRITE_COALESCE_THRESHOLD} is used. This method is thread-safe but the returned value may
+     * be stale.
+     */
+    public long coalescedBytes() {
+        return coalescedBytes;
+    }
+
+    /**
+     * Returns the number of bytes of flushed {@link ByteBuf}s that were not coalesced while
+     * {@link ChannelOption#WRITE_COALESCE_THRESHOLD} is used. This method is thread-safe but the returned value may
+     * be stale.
+     */
+    public long passedThroughBytes() {
+        return passedThroughBytes;
+    }
+
     /**
      * Increment the pending bytes which will be written at some point.
      * This method is thread-safe!
@@ -172,7 +326,7 @@ public final class ChannelOutboundBuffer {
             return;
         }
 
-        long newWriteBufferSize = TOTAL_PENDING_SIZE_UPDATER.addAndGet(this, size);
+        long newWriteBufferSize = addPendingSize(size, invokeLater);
         if (newWriteBufferSize > channel.config().getWriteBufferHighWaterMark()) {
             setUnwritable(invokeLater);
         }
@@ -191,12 +345,26 @@ public final class ChannelOutboundBuffer {
             return;
         }
 
-        long newWriteBufferSize = TOTAL_PENDING_SIZE_UPDATER.addAndGet(this, -size);
+        long newWriteBufferSize = addPendingSize(-size, invokeLater);
         if (notifyWritability && newWriteBufferSize < channel.config().getWriteBufferLowWaterMark()) {
             setWritable(invokeLater);
         }
     }
 
+    /**
+     * Adds the given delta to the pending size and returns the new total. If {@code concurrent} is {@code false} the
+     * caller MUST be the {@link EventLoop}.
+     */
+    private long addPendingSize(long delta, boolean concurrent) {
+        if (concurrent) {
+            return CONCURRENT_PENDING_SIZE_UPDATER.addAndGet(this, delta) + totalPendingSize;
+        }
+        // We are the only writer, an ordered store is enough to make the new value visible to other threads.
+        long newSize = totalPendingSize + delta;
+        TOTAL_PENDING_SIZE_UPDATER.lazySet(this, newSize);
+        return newSize + concurrentPendingSize;
+    }
+
     private static long total(Object msg) {
         if (msg instanceof ByteBuf) {
             return ((ByteBuf) msg).readableBytes();
@@ -214,12 +382,11 @@ public final class ChannelOutboundBuffer {
      * Return the current message to write or {@code null} if nothing was flushed before and so is ready to be written.
      */
     public Object current() {
-        Entry entry = flushedEntry;
-        if (entry == null) {
+        if (flushed == 0) {
             return null;
         }
 
-        return entry.msg;
+        return entry(head).msg;
     }
 
     /**
@@ -227,19 +394,18 @@ public final class ChannelOutboundBuffer {
      * @return {@code 0} if nothing was flushed before for the current message or there is no current message
      */
     public long currentProgress() {
-        Entry entry = flushedEntry;
-        if (entry == null) {
+        if (flushed == 0) {
             return 0;
         }
-        return entry.progress;
+        return entry(head).progress;
     }
 
     /**
      * Notify the {@link ChannelPromise} of the current message about writing progress.
      */
     public void progress(long amount) {
-        Entry e = flushedEntry;
-        assert e != null;
+        assert flushed != 0;
+        Entry e = entry(head);
         ChannelPromise p = e.promise;
         long progress = e.progress + amount;
         e.progress = progress;
@@ -254,28 +420,28 @@ public final class ChannelOutboundBuffer {
      * messages are ready to be handled.
      */
     public boolean remove() {
-        Entry e = flushedEntry;
-        if (e == null) {
+        if (flushed == 0) {
             clearNioBuffers();
             return false;
         }
+        Entry e = entry(head);
         Object msg = e.msg;
 
         ChannelPromise promise = e.promise;
         int size = e.pendingSize;
+        boolean cancelled = e.cancelled;
 
-        removeEntry(e);
+        // Clear the entry before notifying the promise, as the slot may be reused by a write from a listener.
+        e.clear();
+        removeEntry();
 
-        if (!e.cancelled) {
+        if (!cancelled) {
             // only release message, notify and decrement if it was not canceled before.
             ReferenceCountUtil.safeRelease(msg);
             safeSuccess(promise);
             decrementPendingOutboundBytes(size, false, true);
         }
 
-        // recycle the entry
-        e.recycle();
-
         return true;
     }
 
@@ -289,19 +455,22 @@ public final class ChannelOutboundBuffer {
     }
 
     private boolean remove0(Throwable cause, boolean notifyWritability) {
-        Entry e = flushedEntry;
-        if (e == null) {
+        if (flushed == 0) {
             clearNioBuffers();
             return false;
         }
+        Entry e = entry(head);
         Object msg = e.msg;
 
         ChannelPromise promise = e.promise;
         int size = e.pendingSize;
+        boolean cancelled = e.cancelled;
 
-        removeEntry(e);
+        // Clear the entry before notifying the promise, as the slot may be reused by a write from a listener.
+        e.clear();
+        removeEntry();
 
-        if (!e.cancelled) {
+        if (!cancelled) {
             // only release message, fail and decrement if it was not canceled before.
             ReferenceCountUtil.safeRelease(msg);
 
@@ -309,22 +478,14 @@ public final class ChannelOutboundBuffer {
             decrementPendingOutboundBytes(size, false, notifyWritability);
         }
 
-        // recycle the entry
-        e.recycle();
-
         return true;
     }
 
-    private void removeEntry(Entry e) {
-        if (-- flushed == 0) {
-            // processed everything
-            flushedEntry = null;
-            if (e == tailEntry) {
-                tailEntry = null;
-                unflushedEntry = null;
-            }
-        } else {
-            flushedEntry = e.next;
+    private void removeEntry() {
+        flushed--;
+        if (++head == tail && entries.length > MAX_CACHED_CAPACITY) {
+            // processed everything, release the memory that was needed for a burst of writes.
+            entries = new Entry[INITIAL_CAPACITY];
         }
     }
 
@@ -406,8 +567,14 @@ public final class ChannelOutboundBuffer {
         int nioBufferCount = 0;
         final InternalThreadLocalMap threadLocalMap = InternalThreadLocalMap.get();
         ByteBuffer[] nioBuffers = NIO_BUFFERS.get(threadLocalMap);
-        Entry entry = flushedEntry;
-        while (isFlushedEntry(entry) && entry.msg instanceof ByteBuf) {
+        final Entry[] entries = this.entries;
+        final int mask = entries.length - 1;
+        final int end = head + flushed;
+        for (int i = head; i != end; i++) {
+            final Entry entry = entries[i & mask];
+            if (!(entry.msg instanceof ByteBuf)) {
+                break;
+            }
             if (!entry.cancelled) {
                 ByteBuf buf = (ByteBuf) entry.msg;
                 final int readerIndex = buf.readerIndex();
@@ -457,7 +624,6 @@ public final class ChannelOutboundBuffer {
                     }
                 }
             }
-            entry = entry.next;
         }
         this.nioBufferCount = nioBufferCount;
         this.nioBufferSize = nioBufferSize;
@@ -689,17 +855,21 @@ public final class ChannelOutboundBuffer {
 
         // Release all unflushed messages.
         try {
-            Entry e = unflushedEntry;
-            while (e != null) {
+            while (head != tail) {
+                Entry e = entry(head);
+                Object msg = e.msg;
+                ChannelPromise promise = e.promise;
                 // Just decrease; do not trigger any events via decrementPendingOutboundBytes()
                 int size = e.pendingSize;
-                TOTAL_PENDING_SIZE_UPDATER.addAndGet(this, -size);
-
-                if (!e.cancelled) {
-                    ReferenceCountUtil.safeRelease(e.msg);
-                    safeFail(e.promise, cause);
+                boolean cancelled = e.cancelled;
+                e.clear();
+                head++;
+                addPendingSize(-size, false);
+
+                if (!cancelled) {
+                    ReferenceCountUtil.safeRelease(msg);
+                    safeFail(promise, cause);
                 }
-                e = e.recycleAndGetNext();
             }
         } finally {
             inFail = false;
@@ -729,7 +899,7 @@ public final class ChannelOutboundBuffer {
     }
 
     public long totalPendingWriteBytes() {
-        return totalPendingSize;
+        return totalPendingSize + concurrentPendingSize;
     }
 
     /**
@@ -737,7 +907,7 @@ public final class ChannelOutboundBuffer {
      * This quantity will always be non-negative. If {@link #isWritable()} is {@code false} then 0.
      */
     public long bytesBeforeUnwritable() {
-        long bytes = channel.config().getWriteBufferHighWaterMark() - totalPendingSize;
+        long bytes = channel.config().getWriteBufferHighWaterMark() - totalPendingWriteBytes();
         // If bytes is negative we know we are not writable, but if bytes is non-negative we have to check writability.
         // Note that totalPendingSize and isWritable() use different volatile variables that are not synchronized
         // together. totalPendingSize will be updated before isWritable().
@@ -752,7 +922,7 @@ public final class ChannelOutboundBuffer {
      * This quantity will always be non-negative. If {@link #isWritable()} is {@code true} then 0.
      */
     public long bytesBeforeWritable() {
-        long bytes = totalPendingSize - channel.config().getWriteBufferLowWaterMark();
+        long bytes = totalPendingWriteBytes() - channel.config().getWriteBufferLowWaterMark();
         // If bytes is negative we know we are writable, but if bytes is non-negative we have to check writability.
         // Note that totalPendingSize and isWritable() use different volatile variables that are not synchronized
         // together. totalPendingSize will be updated before isWritable().
@@ -770,23 +940,15 @@ public final class ChannelOutboundBuffer {
     public void forEachFlushedMessage(MessageProcessor processor) throws Exception {
         ObjectUtil.checkNotNull(processor, "processor");
 
-        Entry entry = flushedEntry;
-        if (entry == null) {
-            return;
-        }
-
-        do {
+        final int end = head + flushed;
+        for (int i = head; i != end; i++) {
+            Entry entry = entry(i);
             if (!entry.cancelled) {
                 if (!processor.processMessage(entry.msg)) {
                     return;
                 }
             }
-            entry = entry.next;
-        } while (isFlushedEntry(entry));
-    }
-
-    private boolean isFlushedEntry(Entry e) {
-        return e != null && e != unflushedEntry;
+        }
     }
 
     public interface MessageProcessor {
@@ -798,15 +960,6 @@ public final class ChannelOutboundBuffer {
     }
 
     static final class Entry {
-        private static final ObjectPool<Entry> RECYCLER = ObjectPool.newPool(new ObjectCreator<Entry>() {
-            @Override
-            public Entry newObject(Handle<Entry> handle) {
-                return new Entry(handle);
-            }
-        });
-
-        private final Handle<Entry> handle;
-        Entry next;
         Object msg;
         ByteBuffer[] bufs;
         ByteBuffer buf;
@@ -817,17 +970,11 @@ public final class ChannelOutboundBuffer {
         int count = -1;
         boolean cancelled;
 
-        private Entry(Handle<Entry> handle) {
-            this.handle = handle;
-        }
-
-        static Entry newInstance(Object msg, int size, long total, ChannelPromise promise) {
-            Entry entry = RECYCLER.get();
-            entry.msg = msg;
-            entry.pendingSize = size + CHANNEL_OUTBOUND_BUFFER_ENTRY_OVERHEAD;
-            entry.total = total;
-            entry.promise = promise;
-            return entry;
+        void init(Object msg, int size, long total, ChannelPromise promise) {
+            this.msg = msg;
+            pendingSize = size + CHANNEL_OUTBOUND_BUFFER_ENTRY_OVERHEAD;
+            this.total = total;
+            this.promise = promise;
         }
 
         int cancel() {
@@ -849,8 +996,7 @@ public final class ChannelOutboundBuffer {
             return 0;
         }
 
-        void recycle() {
-            next = null;
+        void clear() {
             bufs = null;
             buf = null;
             msg = null;
@@ -860,13 +1006,6 @@ public final class ChannelOutboundBuffer {
             pendingSize = 0;
             count = -1;
             cancelled = false;
-            handle.recycle(this);
-        }
-
-        Entry recycleAndGetNext() {
-            Entry next = this.next;
-            recycle();
-            return next;
         }
     }
 }
@@ -16,6 +16,7 @@
 package io.netty.channel;
 
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.socket.DuplexChannel;
 import io.netty.util.internal.ObjectUtil;
 
 import java.util.IdentityHashMap;
@@ -36,6 +37,8 @@ import static io.netty.channel.ChannelOption.SINGLE_EVENTEXECUTOR_PER_GROUP;
 import static io.netty.channel.ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK;
 import static io.netty.channel.ChannelOption.WRITE_BUFFER_LOW_WATER_MARK;
 import static io.netty.channel.ChannelOption.WRITE_BUFFER_WATER_MARK;
+import static io.netty.channel.ChannelOption.WRITE_COALESCE_MAX_BYTES;
+import static io.netty.channel.ChannelOption.WRITE_COALESCE_THRESHOLD;
 import static io.netty.channel.ChannelOption.WRITE_SPIN_COUNT;
 import static io.netty.util.internal.ObjectUtil.checkNotNull;
 import static io.netty.util.internal.ObjectUtil.checkPositive;
@@ -64,6 +67,8 @@ public class DefaultChannelConfig implements ChannelConfig {
     private volatile int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT;
     private volatile int writeSpinCount = 16;
     private volatile int maxMessagesPerWrite = Integer.MAX_VALUE;
+    private volatile int writeCoalesceThreshold;
+    private volatile int writeCoalesceMaxBytes = 16 * 1024;
 
     @SuppressWarnings("FieldMayBeFinal")
     private volatile int autoRead = 1;
@@ -83,12 +88,16 @@ public class DefaultChannelConfig implements ChannelConfig {
     @Override
     @SuppressWarnings("deprecation")
     public Map<ChannelOption<?>, Object> getOptions() {
-        return getOptions(
+        Map<ChannelOption<?>, Object> result = getOptions(
                 null,
                 CONNECT_TIMEOUT_MILLIS, MAX_MESSAGES_PER_READ, WRITE_SPIN_COUNT,
                 ALLOCATOR, AUTO_READ, AUTO_CLOSE, RCVBUF_ALLOCATOR, WRITE_BUFFER_HIGH_WATER_MARK,
                 WRITE_BUFFER_LOW_WATER_MARK, WRITE_BUFFER_WATER_MARK, MESSAGE_SIZE_ESTIMATOR,
                 SINGLE_EVENTEXECUTOR_PER_GROUP, MAX_MESSAGES_PER_WRITE);
+        if (isWriteCoalesceSupported()) {
+            getOptions(result, WRITE_COALESCE_THRESHOLD, WRITE_COALESCE_MAX_BYTES);
+        }
+        return result;
     }
 
     protected Map<ChannelOption<?>, Object> getOptions(
@@ -161,6 +170,12 @@ public class DefaultChannelConfig implements ChannelConfig {
         if (option == MAX_MESSAGES_PER_WRITE) {
             return (T) Integer.valueOf(getMaxMessagesPerWrite());
         }
+        if (option == WRITE_COALESCE_THRESHOLD && isWriteCoalesceSupported()) {
+            return (T) Integer.valueOf(getWriteCoalesceThreshold());
+        }
+        if (option == WRITE_COALESCE_MAX_BYTES && isWriteCoalesceSupported()) {
+            return (T) Integer.valueOf(getWriteCoalesceMaxBytes());
+        }
         return null;
     }
 
@@ -195,6 +210,10 @@ public class DefaultChannelConfig implements ChannelConfig {
             setPinEventExecutorPerGroup((Boolean) value);
         } else if (option == MAX_MESSAGES_PER_WRITE) {
             setMaxMessagesPerWrite((Integer) value);
+        } else if (option == WRITE_COALESCE_THRESHOLD && isWriteCoalesceSupported()) {
+            setWriteCoalesceThreshold((Integer) value);
+        } else if (option == WRITE_COALESCE_MAX_BYTES && isWriteCoalesceSupported()) {
+            setWriteCoalesceMaxBytes((Integer) value);
         } else {
             return false;
         }
@@ -272,6 +291,53 @@ public class DefaultChannelConfig implements ChannelConfig {
         return this;
     }
 
+    /**
+     * Returns {@code true} if flushed {@link io.netty.buffer.ByteBuf}s may be coalesced. This is only the case for
+     * byte-stream {@link Channel}s, as for all others it would merge messages. By default this is every
+     * {@link DuplexChannel}.
+     */
+    protected boolean isWriteCoalesceSupported() {
+        return channel instanceof DuplexChannel;
+    }
+
+    /**
+     * Get the maximum number of readable bytes a flushed {@link io.netty.buffer.ByteBuf} may have to be coalesced
+     * with its neighbours into a single buffer before it is written. {@code 0} means coalescing is disabled.
+     */
+    public int getWriteCoalesceThreshold() {
+        return writeCoalesceThreshold;
+    }
+
+    /**
+     * Set the maximum number of readable bytes a flushed {@link io.netty.buffer.ByteBuf} may have to be coalesced
+     * with its neighbours into a single buffer before it is written. {@code 0} disables coalescing.
+     *
+     * @throws UnsupportedOperationException if {@link #isWriteCoalesceSupported()} returns {@code false}.
+     */
+    public ChannelConfig setWriteCoalesceThreshold(int writeCoalesceThreshold) {
+        checkPositiveOrZero(writeCoalesceThreshold, "writeCoalesceThreshold");
+        if (writeCoalesceThreshold > 0 && !isWriteCoalesceSupported()) {
+            throw new UnsupportedOperationException("write coalescing is only supported by byte-stream channels");
+        }
+        this.writeCoalesceThreshold = writeCoalesceThreshold;
+        return this;
+    }
+
+    /**
+     * Get the maximum number of bytes that are coalesced into a single buffer.
+     */
+    public int getWriteCoalesceMaxBytes() {
+        return writeCoalesceMaxBytes;
+    }
+
+    /**
+     * Set the maximum number of bytes that are coalesced into a single buffer.
+     */
+    public ChannelConfig setWriteCoalesceMaxBytes(int writeCoalesceMaxBytes) {
+        this.writeCoalesceMaxBytes = checkPositive(writeCoalesceMaxBytes, "writeCoalesceMaxBytes");
+        return this;
+    }
+
     @Override
     public int getWriteSpinCount() {
         return writeSpinCount;
@@ -89,6 +89,11 @@ public class DefaultChannelPipeline implements ChannelPipeline {
      */
     private boolean registered;
 
+    /**
+     * Set to {@code true} once {@link #seal()} was called. Guarded by {@code this}.
+     */
+    private boolean sealed;
+
     protected DefaultChannelPipeline(Channel channel) {
         this.channel = ObjectUtil.checkNotNull(channel, "channel");
         succeededFuture = new SucceededChannelFuture(channel, null);
@@ -162,6 +167,7 @@ public class DefaultChannelPipeline implements ChannelPipeline {
             newCtx = newContext(group, name, handler);
 
             addFirst0(newCtx);
+            resealIfNeeded();
 
             // If the registered is false it means that the channel was not registered on an eventLoop yet.
             // In this case we add the context to the pipeline and add a task that will call
@@ -204,6 +210,7 @@ public class DefaultChannelPipeline implements ChannelPipeline {
             newCtx = newContext(group, filterName(name, handler), handler);
 
             addLast0(newCtx);
+            resealIfNeeded();
 
             // If the registered is false it means that the channel was not registered on an eventLoop yet.
             // In this case we add the context to the pipeline and add a task that will call
@@ -250,6 +257,7 @@ public class DefaultChannelPipeline implements ChannelPipeline {
             newCtx = newContext(group, name, handler);
 
             addBefore0(ctx, newCtx);
+            resealIfNeeded();
 
             // If the registered is false it means that the channel was not registered on an eventLoop yet.
             // In this case we add the context to the pipeline and add a task that will call
@@ -304,6 +312,7 @@ public class DefaultChannelPipeline implements ChannelPipeline {
             newCtx = newContext(group, name, handler);
 
             addAfter0(ctx, newCtx);
+            resealIfNeeded();
 
             // If the registered is false it means that the channel was not registered on an eventLoop yet.
             // In this case we remove the context from the pipeline and add a task that will call
@@ -486,6 +495,54 @@ public class DefaultChannelPipeline implements ChannelPipeline {
         AbstractChannelHandlerContext next = ctx.next;
         prev.next = next;
         next.prev = prev;
+        ctx.unseal();
+        resealIfNeeded();
+    }
+
+    /**
+     * Seal this pipeline, which means that the next handler for every event is precomputed once instead of being
+     * searched every time an event is propagated. This is useful for pipelines which are not modified anymore after
+     * they were initialized, as for them the propagation of events becomes cheaper.
+     * <p>
+     * The pipeline can still be modified after it was sealed, but every modification needs to compute the next
+     * handlers again.
+     */
+    @UnstableApi
+    public final synchronized DefaultChannelPipeline seal() {
+        sealed = true;
+        resealIfNeeded();
+        return this;
+    }
+
+    /**
+     * Revert {@link #seal()}.
+     */
+    @UnstableApi
+    public final synchronized DefaultChannelPipeline unseal() {
+        if (sealed) {
+            sealed = false;
+            for (AbstractChannelHandlerContext ctx = head; ctx != null; ctx = ctx.next) {
+                ctx.unseal();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns {@code true} if this pipeline was sealed via {@link #seal()}.
+     */
+    @UnstableApi
+    public final synchronized boolean isSealed() {
+        return sealed;
+    }
+
+    private void resealIfNeeded() {
+        assert Thread.holdsLock(this);
+        if (sealed) {
+            for (AbstractChannelHandlerContext ctx = head; ctx != null; ctx = ctx.next) {
+                ctx.seal();
+            }
+        }
     }
 
     @Override
@@ -541,6 +598,8 @@ public class DefaultChannelPipeline implements ChannelPipeline {
             newCtx = newContext(ctx.executor, newName, newHandler);
 
             replace0(ctx, newCtx);
+            ctx.unseal();
+            resealIfNeeded();
 
             // If the registered is false it means that the channel was not registered on an eventloop yet.
             // In this case we replace the context in the pipeline
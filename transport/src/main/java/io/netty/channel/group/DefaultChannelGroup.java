@@ -21,20 +21,28 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelId;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
 import io.netty.channel.ServerChannel;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -42,6 +50,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class DefaultChannelGroup extends AbstractSet<Channel> implements ChannelGroup {
 
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(DefaultChannelGroup.class);
     private static final AtomicInteger nextId = new AtomicInteger();
     private final String name;
     private final EventExecutor executor;
@@ -412,6 +421,128 @@ public class DefaultChannelGroup extends AbstractSet<Channel> implements Channel
         return future;
     }
 
+    /**
+     * Writes and flushes the given message to all {@link Channel}s in this group, which is expected to be already
+     * encoded, like a {@link ByteBuf} or {@link ByteBufHolder}.
+     *
+     * @see #broadcast(Object, ChannelMatcher, boolean)
+     */
+    @UnstableApi
+    public ChannelGroupFuture broadcast(Object message) {
+        return broadcast(message, ChannelMatchers.all(), false);
+    }
+
+    /**
+     * Writes and flushes the given message to all {@link Channel}s in this group that are matched by the given
+     * {@link ChannelMatcher}. In contrast to {@link #writeAndFlush(Object, ChannelMatcher, boolean)} this is
+     * optimized for groups with many {@link Channel}s:
+     * <ul>
+     *     <li>The message is expected to be encoded once by the caller, like a {@link ByteBuf} or
+     *     {@link ByteBufHolder}. Every {@link Channel} receives a read-only view of the same content, and the
+     *     reference count is increased once for all {@link Channel}s.</li>
+     *     <li>The {@link Channel}s are grouped by their {@link EventLoop}, so each {@link EventLoop} receives a
+     *     single task which writes to all of its {@link Channel}s.</li>
+     *     <li>If {@code voidPromise} is {@code true}, no {@link ChannelFuture} is created per {@link Channel} and
+     *     the same restrictions as for a void promise apply to the returned {@link ChannelGroupFuture}.</li>
+     * </ul>
+     * The ownership of the message is transferred to this method.
+     */
+    @UnstableApi
+    public ChannelGroupFuture broadcast(Object message, ChannelMatcher matcher, boolean voidPromise) {
+        ObjectUtil.checkNotNull(message, "message");
+        ObjectUtil.checkNotNull(matcher, "matcher");
+
+        Map<EventLoop, List<Channel>> channelsByLoop = new IdentityHashMap<EventLoop, List<Channel>>();
+        int count = 0;
+        for (Channel c: nonServerChannels.values()) {
+            if (matcher.matches(c)) {
+                List<Channel> channels = channelsByLoop.get(c.eventLoop());
+                if (channels == null) {
+                    channels = new ArrayList<Channel>();
+                    channelsByLoop.put(c.eventLoop(), channels);
+                }
+                channels.add(c);
+                count++;
+            }
+        }
+
+        Map<Channel, ChannelFuture> futures = voidPromise ? null : new LinkedHashMap<Channel, ChannelFuture>(count);
+        if (count > 0) {
+            Object shared = readOnly(message);
+            // One reference for each Channel, which is released once the write completes.
+            ReferenceCountUtil.retain(message, count);
+            for (Map.Entry<EventLoop, List<Channel>> entry: channelsByLoop.entrySet()) {
+                List<Channel> channels = entry.getValue();
+                ChannelPromise[] promises = new ChannelPromise[channels.size()];
+                for (int i = 0; i < promises.length; i++) {
+                    Channel c = channels.get(i);
+                    promises[i] = voidPromise ? c.voidPromise() : c.newPromise();
+                    if (futures != null) {
+                        futures.put(c, promises[i]);
+                    }
+                }
+                BroadcastTask task = new BroadcastTask(shared, channels, promises);
+                try {
+                    entry.getKey().execute(task);
+                } catch (RejectedExecutionException e) {
+                    task.fail(e);
+                }
+            }
+        }
+        ReferenceCountUtil.release(message);
+        return futures == null ? voidFuture : new DefaultChannelGroupFuture(this, futures, executor);
+    }
+
+    private static Object readOnly(Object message) {
+        if (message instanceof ByteBuf) {
+            return ((ByteBuf) message).asReadOnly();
+        }
+        if (message instanceof ByteBufHolder) {
+            ByteBufHolder holder = (ByteBufHolder) message;
+            return holder.replace(holder.content().asReadOnly());
+        }
+        return message;
+    }
+
+    // Create a view of the shared message which has its own indexes but does not touch the reference count.
+    private static Object sharedDuplicate(Object shared) {
+        if (shared instanceof ByteBuf) {
+            return ((ByteBuf) shared).duplicate();
+        }
+        if (shared instanceof ByteBufHolder) {
+            ByteBufHolder holder = (ByteBufHolder) shared;
+            return holder.replace(holder.content().duplicate());
+        }
+        return shared;
+    }
+
+    private static final class BroadcastTask implements Runnable {
+        private final Object shared;
+        private final List<Channel> channels;
+        private final ChannelPromise[] promises;
+
+        BroadcastTask(Object shared, List<Channel> channels, ChannelPromise[] promises) {
+            this.shared = shared;
+            this.channels = channels;
+            this.promises = promises;
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < promises.length; i++) {
+                channels.get(i).writeAndFlush(sharedDuplicate(shared), promises[i]);
+            }
+        }
+
+        void fail(Throwable cause) {
+            logger.debug("Failed to submit a broadcast task", cause);
+            for (ChannelPromise promise: promises) {
+                ReferenceCountUtil.release(shared);
+                promise.tryFailure(cause);
+            }
+        }
+    }
+
     @Override
     public ChannelGroupFuture newCloseFuture() {
         return newCloseFuture(ChannelMatchers.all());
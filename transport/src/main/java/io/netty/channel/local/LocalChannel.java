@@ -19,6 +19,7 @@ import io.netty.channel.AbstractChannel;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelConfig;
 import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
@@ -41,7 +42,9 @@ import java.nio.channels.AlreadyConnectedException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.ConnectionPendingException;
 import java.nio.channels.NotYetConnectedException;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
@@ -52,14 +55,18 @@ public class LocalChannel extends AbstractChannel {
     @SuppressWarnings({ "rawtypes" })
     private static final AtomicReferenceFieldUpdater<LocalChannel, Future> FINISH_READ_FUTURE_UPDATER =
             AtomicReferenceFieldUpdater.newUpdater(LocalChannel.class, Future.class, "finishReadFuture");
+    private static final AtomicIntegerFieldUpdater<LocalChannel> BATCH_READ_SCHEDULED_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(LocalChannel.class, "batchReadScheduled");
     private static final ChannelMetadata METADATA = new ChannelMetadata(false);
     private static final int MAX_READER_STACK_DEPTH = 8;
+    private static final int INBOUND_BUFFER_CHUNK_SIZE = 128;
 
     private enum State { OPEN, BOUND, CONNECTED, CLOSED }
 
-    private final ChannelConfig config = new DefaultChannelConfig(this);
+    private final LocalChannelConfig config = new LocalChannelConfig(this);
     // To further optimize this we could write our own SPSC queue.
-    final Queue<Object> inboundBuffer = PlatformDependent.newSpscQueue();
+    // Only replaced in doRegister() before the peer can hand over any message, see LocalChannelOption.BATCH_HANDOFF.
+    Queue<Object> inboundBuffer = PlatformDependent.newSpscQueue();
     private final Runnable readTask = new Runnable() {
         @Override
         public void run() {
@@ -70,6 +77,16 @@ public class LocalChannel extends AbstractChannel {
         }
     };
 
+    // Reused to notify this channel about messages that were handed over by the peer in batch handoff mode.
+    private final Runnable batchReadTask = new Runnable() {
+        @Override
+        public void run() {
+            // Reset before reading, so messages which are added concurrently will schedule the task again.
+            batchReadScheduled = 0;
+            finishRead();
+        }
+    };
+
     private final Runnable shutdownHook = new Runnable() {
         @Override
         public void run() {
@@ -85,6 +102,8 @@ public class LocalChannel extends AbstractChannel {
     private volatile boolean readInProgress;
     private volatile boolean writeInProgress;
     private volatile Future<?> finishReadFuture;
+    @SuppressWarnings("unused")
+    private volatile int batchReadScheduled;
 
     public LocalChannel() {
         super(null);
@@ -156,6 +175,11 @@ public class LocalChannel extends AbstractChannel {
 
     @Override
     protected void doRegister() throws Exception {
+        if (state == null && config.batchHandoff) {
+            // This is the first registration, so no messages were handed over yet. In batch handoff mode messages are
+            // stored in linked ring chunks, so a burst of writes does not need one allocation per message.
+            inboundBuffer = PlatformDependent.newSpscQueue(INBOUND_BUFFER_CHUNK_SIZE);
+        }
         // Check if both peer and parent are non-null because this channel was created by a LocalServerChannel.
         // This is needed as a peer may not be null also if a LocalChannel was connected before and
         // deregistered / registered later again.
@@ -397,14 +421,20 @@ public class LocalChannel extends AbstractChannel {
     private void runFinishPeerReadTask(final LocalChannel peer) {
         // If the peer is writing, we must wait until after reads are completed for that peer before we can read. So
         // we keep track of the task, and coordinate later that our read can't happen until the peer is done.
-        final Runnable finishPeerReadTask = new Runnable() {
+        final Runnable finishPeerReadTask = config.batchHandoff ? null : new Runnable() {
             @Override
             public void run() {
                 finishPeerRead0(peer);
             }
         };
         try {
-            if (peer.writeInProgress) {
+            if (config.batchHandoff) {
+                // The peer reads all messages in its inboundBuffer in order, so it is enough to ensure there is
+                // one pending task that will pick up everything that was handed over until it runs.
+                if (BATCH_READ_SCHEDULED_UPDATER.compareAndSet(peer, 0, 1)) {
+                    peer.eventLoop().execute(peer.batchReadTask);
+                }
+            } else if (peer.writeInProgress) {
                 peer.finishReadFuture = peer.eventLoop().submit(finishPeerReadTask);
             } else {
                 peer.eventLoop().execute(finishPeerReadTask);
@@ -438,11 +468,15 @@ public class LocalChannel extends AbstractChannel {
                 FINISH_READ_FUTURE_UPDATER.compareAndSet(peer, peerFinishReadFuture, null);
             }
         }
+        peer.finishRead();
+    }
+
+    private void finishRead() {
         // We should only set readInProgress to false if there is any data that was read as otherwise we may miss to
         // forward data later on.
-        if (peer.readInProgress && !peer.inboundBuffer.isEmpty()) {
-            peer.readInProgress = false;
-            peer.readInbound();
+        if (readInProgress && !inboundBuffer.isEmpty()) {
+            readInProgress = false;
+            readInbound();
         }
     }
 
@@ -497,4 +531,38 @@ public class LocalChannel extends AbstractChannel {
             peer = serverChannel.serve(LocalChannel.this);
         }
     }
+
+    private static final class LocalChannelConfig extends DefaultChannelConfig {
+        volatile boolean batchHandoff;
+
+        LocalChannelConfig(LocalChannel channel) {
+            super(channel);
+        }
+
+        @Override
+        public Map<ChannelOption<?>, Object> getOptions() {
+            return getOptions(super.getOptions(), LocalChannelOption.BATCH_HANDOFF);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T> T getOption(ChannelOption<T> option) {
+            if (option == LocalChannelOption.BATCH_HANDOFF) {
+                return (T) Boolean.valueOf(batchHandoff);
+            }
+            return super.getOption(option);
+        }
+
+        @Override
+        public <T> boolean setOption(ChannelOption<T> option, T value) {
+            validate(option, value);
+
+            if (option == LocalChannelOption.BATCH_HANDOFF) {
+                batchHandoff = (Boolean) value;
+            } else {
+                return super.setOption(option, value);
+            }
+            return true;
+        }
+    }
 }
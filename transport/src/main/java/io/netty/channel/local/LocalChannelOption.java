@@ -0,0 +1,38 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.local;
+
+import io.netty.channel.ChannelOption;
+
+/**
+ * Options for configuring the local transport.
+ */
+public final class LocalChannelOption<T> extends ChannelOption<T> {
+
+    /**
+     * If {@code true} the messages of all flushes that happen before the peer {@link LocalChannel} had a chance to
+     * read are handed over as one batch. The peer is notified by a single reused task instead of one task per flush,
+     * which reduces the overhead if both channels are served by different event loops. The inbound messages of a
+     * {@link LocalChannel} that uses this option are stored in chunks, so a burst does not need one allocation per
+     * message. This must be set before the {@link LocalChannel} is registered.
+     */
+    public static final ChannelOption<Boolean> BATCH_HANDOFF = valueOf(LocalChannelOption.class, "BATCH_HANDOFF");
+
+    @SuppressWarnings({ "unused", "deprecation" })
+    private LocalChannelOption() {
+        super(null);
+    }
+}
@@ -64,6 +64,11 @@ public final class NioEventLoop extends SingleThreadEventLoop {
     private static final boolean DISABLE_KEY_SET_OPTIMIZATION =
             SystemPropertyUtil.getBoolean("io.netty.noKeySetOptimization", false);
 
+    // Use Selector.select(Consumer<SelectionKey>) even if the selected key set of the JDK implementation could be
+    // replaced. By default it is only used if the replacement fails.
+    private static final boolean PREFER_SELECT_CONSUMER =
+            SystemPropertyUtil.getBoolean("io.netty.preferSelectConsumer", false);
+
     private static final int MIN_PREMATURE_SELECTOR_RETURNS = 3;
     private static final int SELECTOR_AUTO_REBUILD_THRESHOLD;
 
@@ -108,6 +113,7 @@ public final class NioEventLoop extends SingleThreadEventLoop {
 
         if (logger.isDebugEnabled()) {
             logger.debug("-Dio.netty.noKeySetOptimization: {}", DISABLE_KEY_SET_OPTIMIZATION);
+            logger.debug("-Dio.netty.preferSelectConsumer: {}", PREFER_SELECT_CONSUMER);
             logger.debug("-Dio.netty.selectorAutoRebuildThreshold: {}", SELECTOR_AUTO_REBUILD_THRESHOLD);
         }
     }
@@ -183,6 +189,12 @@ public final class NioEventLoop extends SingleThreadEventLoop {
             return new SelectorTuple(unwrappedSelector);
         }
 
+        // SelectedSelectionKeyConsumerSelector references Java 8+ classes, so only load it on Java 11+.
+        if (PREFER_SELECT_CONSUMER && PlatformDependent.javaVersion() >= 11 &&
+                SelectedSelectionKeyConsumerSelector.isSupported()) {
+            return newSelectConsumerTuple(unwrappedSelector);
+        }
+
         Object maybeSelectorImplClass = AccessController.doPrivileged(new PrivilegedAction<Object>() {
             @Override
             public Object run() {
@@ -204,7 +216,7 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                 Throwable t = (Throwable) maybeSelectorImplClass;
                 logger.trace("failed to instrument a special java.util.Set into: {}", unwrappedSelector, t);
             }
-            return new SelectorTuple(unwrappedSelector);
+            return fallbackSelectorTuple(unwrappedSelector);
         }
 
         final Class<?> selectorImplClass = (Class<?>) maybeSelectorImplClass;
@@ -258,7 +270,7 @@ public final class NioEventLoop extends SingleThreadEventLoop {
             selectedKeys = null;
             Exception e = (Exception) maybeException;
             logger.trace("failed to instrument a special java.util.Set into: {}", unwrappedSelector, e);
-            return new SelectorTuple(unwrappedSelector);
+            return fallbackSelectorTuple(unwrappedSelector);
         }
         selectedKeys = selectedKeySet;
         logger.trace("instrumented a special java.util.Set into: {}", unwrappedSelector);
@@ -266,6 +278,22 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                                  new SelectedSelectionKeySetSelector(unwrappedSelector, selectedKeySet));
     }
 
+    private SelectorTuple fallbackSelectorTuple(Selector unwrappedSelector) {
+        if (PlatformDependent.javaVersion() >= 11 && SelectedSelectionKeyConsumerSelector.isSupported()) {
+            // We can still process the selected keys without creating garbage.
+            return newSelectConsumerTuple(unwrappedSelector);
+        }
+        return new SelectorTuple(unwrappedSelector);
+    }
+
+    private SelectorTuple newSelectConsumerTuple(Selector unwrappedSelector) {
+        final SelectedSelectionKeySet selectedKeySet = new SelectedSelectionKeySet();
+        selectedKeys = selectedKeySet;
+        logger.trace("using Selector.select(Consumer) to collect the selected keys of: {}", unwrappedSelector);
+        return new SelectorTuple(unwrappedSelector,
+                                 new SelectedSelectionKeyConsumerSelector(unwrappedSelector, selectedKeySet));
+    }
+
     /**
      * Returns the {@link SelectorProvider} used by this {@link NioEventLoop} to obtain the {@link Selector}.
      */
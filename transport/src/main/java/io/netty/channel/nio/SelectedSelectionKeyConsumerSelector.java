@@ -0,0 +1,153 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.nio;
+
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SuppressJava6Requirement;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.spi.SelectorProvider;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * {@link Selector} which collects the selected keys into a {@link SelectedSelectionKeySet} by using the
+ * {@code select} methods that take a {@code Consumer<SelectionKey>} and were added in Java 11. In contrast to
+ * replacing the selected key set of the JDK implementation this does not need any reflection into JDK internals.
+ * The methods are called via {@link MethodHandle#invokeExact(Object...)}, so no arguments need to be boxed.
+ */
+@SuppressJava6Requirement(reason = "Usage guarded by java version check")
+final class SelectedSelectionKeyConsumerSelector extends Selector {
+    private static final MethodHandle SELECT;
+    private static final MethodHandle SELECT_TIMEOUT;
+    private static final MethodHandle SELECT_NOW;
+
+    static {
+        MethodHandle select = null;
+        MethodHandle selectTimeout = null;
+        MethodHandle selectNow = null;
+        if (PlatformDependent.javaVersion() >= 11) {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                select = lookup.findVirtual(Selector.class, "select",
+                        MethodType.methodType(int.class, Consumer.class));
+                selectTimeout = lookup.findVirtual(Selector.class, "select",
+                        MethodType.methodType(int.class, Consumer.class, long.class));
+                selectNow = lookup.findVirtual(Selector.class, "selectNow",
+                        MethodType.methodType(int.class, Consumer.class));
+            } catch (Throwable ignore) {
+                select = null;
+                selectTimeout = null;
+                selectNow = null;
+            }
+        }
+        SELECT = select;
+        SELECT_TIMEOUT = selectTimeout;
+        SELECT_NOW = selectNow;
+    }
+
+    private final SelectedSelectionKeySet selectionKeys;
+    private final Selector delegate;
+    private final Consumer<SelectionKey> action;
+
+    SelectedSelectionKeyConsumerSelector(Selector delegate, final SelectedSelectionKeySet selectionKeys) {
+        assert isSupported();
+        this.delegate = delegate;
+        this.selectionKeys = selectionKeys;
+        action = new Consumer<SelectionKey>() {
+            @Override
+            public void accept(SelectionKey key) {
+                selectionKeys.add(key);
+            }
+        };
+    }
+
+    /**
+     * Returns {@code true} if the {@code select} methods that take a {@code Consumer<SelectionKey>} can be used.
+     */
+    static boolean isSupported() {
+        return SELECT_NOW != null;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return delegate.isOpen();
+    }
+
+    @Override
+    public SelectorProvider provider() {
+        return delegate.provider();
+    }
+
+    @Override
+    public Set<SelectionKey> keys() {
+        return delegate.keys();
+    }
+
+    @Override
+    public Set<SelectionKey> selectedKeys() {
+        return delegate.selectedKeys();
+    }
+
+    @Override
+    public int selectNow() throws IOException {
+        selectionKeys.reset();
+        try {
+            return (int) SELECT_NOW.invokeExact(delegate, action);
+        } catch (Throwable cause) {
+            // Rethrow the original IOException, ClosedSelectorException etc.
+            PlatformDependent.throwException(cause);
+            return 0;
+        }
+    }
+
+    @Override
+    public int select(long timeout) throws IOException {
+        selectionKeys.reset();
+        try {
+            return (int) SELECT_TIMEOUT.invokeExact(delegate, action, timeout);
+        } catch (Throwable cause) {
+            PlatformDependent.throwException(cause);
+            return 0;
+        }
+    }
+
+    @Override
+    public int select() throws IOException {
+        selectionKeys.reset();
+        try {
+            return (int) SELECT.invokeExact(delegate, action);
+        } catch (Throwable cause) {
+            PlatformDependent.throwException(cause);
+            return 0;
+        }
+    }
+
+    @Override
+    public Selector wakeup() {
+        return delegate.wakeup();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
@@ -0,0 +1,601 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.pool;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
+
+/**
+ * {@link ChannelPool} implementation which keeps one sub-pool per {@link EventLoop} of the {@link Bootstrap}'s
+ * {@link EventLoopGroup}, each of them limited to a maximal number of {@link Channel}s.
+ * <p>
+ * In contrast to {@link FixedChannelPool}, acquire and release operations are not serialized onto a single
+ * {@link EventExecutor}:
+ * <ul>
+ *     <li>{@link #acquire()} prefers a {@link Channel} of the sub-pool of the calling {@link EventLoop} (or of
+ *     the next {@link EventLoop} of the group if not called from one), so the {@link Channel} can be used without
+ *     a thread hop.</li>
+ *     <li>If this sub-pool has no idle {@link Channel} and already reached its limit, an idle {@link Channel} is
+ *     stolen from one of the other sub-pools.</li>
+ *     <li>If there is none either, the acquire is added to a lock-free queue and completed once a {@link Channel}
+ *     is released.</li>
+ *     <li>Idle {@link Channel}s are checked via the {@link ChannelHealthChecker} in periodic batches, instead of
+ *     once per acquire. Only {@link Channel#isActive()} is checked on acquire.</li>
+ * </ul>
+ */
+@UnstableApi
+public class EventLoopChannelPool implements ChannelPool {
+    private static final AttributeKey<EventLoopChannelPool> POOL_KEY =
+            AttributeKey.newInstance("io.netty.channel.pool.EventLoopChannelPool");
+
+    private final Bootstrap bootstrap;
+    private final ChannelPoolHandler handler;
+    private final ChannelHealthChecker healthCheck;
+    private final int maxConnectionsPerEventLoop;
+    private final SubPool[] subPools;
+    // Only modified in the constructor, so it is safe to access from multiple threads.
+    private final Map<EventExecutor, SubPool> subPoolsByEventLoop = new IdentityHashMap<EventExecutor, SubPool>();
+    private volatile boolean closed;
+
+    /**
+     * Creates a new instance using the {@link ChannelHealthChecker#ACTIVE}, which checks idle {@link Channel}s once
+     * per second.
+     *
+     * @param bootstrap                  the {@link Bootstrap} that is used for connections
+     * @param handler                    the {@link ChannelPoolHandler} that will be notified for the different pool
+     *                                   actions
+     * @param maxConnectionsPerEventLoop the number of maximal active connections per {@link EventLoop}
+     */
+    public EventLoopChannelPool(Bootstrap bootstrap, ChannelPoolHandler handler, int maxConnectionsPerEventLoop) {
+        this(bootstrap, handler, ChannelHealthChecker.ACTIVE, maxConnectionsPerEventLoop, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param bootstrap                  the {@link Bootstrap} that is used for connections
+     * @param handler                    the {@link ChannelPoolHandler} that will be notified for the different pool
+     *                                   actions
+     * @param healthCheck                the {@link ChannelHealthChecker} that will be used to check if idle
+     *                                   {@link Channel}s are still healthy
+     * @param maxConnectionsPerEventLoop the number of maximal active connections per {@link EventLoop}
+     * @param healthCheckInterval        the interval in which all idle {@link Channel}s are checked, {@code 0}
+     *                                   disables the periodic check
+     * @param unit                       the {@link TimeUnit} of {@code healthCheckInterval}
+     */
+    public EventLoopChannelPool(Bootstrap bootstrap, final ChannelPoolHandler handler,
+                                ChannelHealthChecker healthCheck, int maxConnectionsPerEventLoop,
+                                long healthCheckInterval, TimeUnit unit) {
+        this.handler = checkNotNull(handler, "handler");
+        this.healthCheck = checkNotNull(healthCheck, "healthCheck");
+        this.maxConnectionsPerEventLoop = checkPositive(maxConnectionsPerEventLoop, "maxConnectionsPerEventLoop");
+        checkPositiveOrZero(healthCheckInterval, "healthCheckInterval");
+        checkNotNull(unit, "unit");
+        // Clone the original Bootstrap as we want to set our own handler
+        this.bootstrap = checkNotNull(bootstrap, "bootstrap").clone();
+        this.bootstrap.handler(new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) throws Exception {
+                assert ch.eventLoop().inEventLoop();
+                handler.channelCreated(ch);
+            }
+        });
+
+        EventLoopGroup group = checkNotNull(this.bootstrap.config().group(), "bootstrap.config().group()");
+        List<SubPool> pools = new ArrayList<SubPool>();
+        for (EventExecutor executor: group) {
+            SubPool pool = new SubPool((EventLoop) executor, healthCheckInterval, unit);
+            pools.add(pool);
+            subPoolsByEventLoop.put(executor, pool);
+        }
+        subPools = pools.toArray(new SubPool[0]);
+    }
+
+    /**
+     * Returns the {@link Bootstrap} this pool will use to open new connections.
+     */
+    protected Bootstrap bootstrap() {
+        return bootstrap;
+    }
+
+    /**
+     * Returns the {@link ChannelPoolHandler} that will be notified for the different pool actions.
+     */
+    protected ChannelPoolHandler handler() {
+        return handler;
+    }
+
+    /**
+     * Returns the {@link ChannelHealthChecker} that will be used to check if idle {@link Channel}s are healthy.
+     */
+    protected ChannelHealthChecker healthChecker() {
+        return healthCheck;
+    }
+
+    /**
+     * Returns the number of {@link Channel}s that are idle in this pool.
+     */
+    public int idleChannelCount() {
+        int count = 0;
+        for (SubPool pool: subPools) {
+            count += pool.idle.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of {@link Channel}s that are connected or connecting, idle or acquired.
+     */
+    public int channelCount() {
+        int count = 0;
+        for (SubPool pool: subPools) {
+            count += pool.connections.get();
+        }
+        return count;
+    }
+
+    /**
+     * Bootstrap a new {@link Channel}. The default implementation uses {@link Bootstrap#connect()}, sub-classes may
+     * override this.
+     * <p>
+     * The {@link Bootstrap} that is passed in here is cloned via {@link Bootstrap#clone()}, so it is safe to modify.
+     */
+    protected ChannelFuture connectChannel(Bootstrap bs) {
+        return bs.connect();
+    }
+
+    @Override
+    public final Future<Channel> acquire() {
+        return acquire(currentSubPool().loop.<Channel>newPromise());
+    }
+
+    @Override
+    public Future<Channel> acquire(Promise<Channel> promise) {
+        checkNotNull(promise, "promise");
+        try {
+            if (closed) {
+                promise.tryFailure(new IllegalStateException("ChannelPool was closed"));
+            } else {
+                currentSubPool().acquire(promise);
+            }
+        } catch (Throwable cause) {
+            promise.tryFailure(cause);
+        }
+        return promise;
+    }
+
+    private SubPool currentSubPool() {
+        for (SubPool pool: subPools) {
+            if (pool.loop.inEventLoop()) {
+                return pool;
+            }
+        }
+        return subPoolsByEventLoop.get(bootstrap.config().group().next());
+    }
+
+    /**
+     * Steal an idle {@link Channel} from any other sub-pool than the given one.
+     */
+    private Channel steal(SubPool thief) {
+        for (SubPool pool: subPools) {
+            if (pool != thief) {
+                // Take the least recently used Channel, the owner itself uses the other end of the deque.
+                Channel ch = pool.idle.pollFirst();
+                if (ch != null) {
+                    return ch;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void acquired(final Channel ch, final Promise<Channel> promise) {
+        EventLoop loop = ch.eventLoop();
+        if (loop.inEventLoop()) {
+            acquired0(ch, promise);
+        } else {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    acquired0(ch, promise);
+                }
+            });
+        }
+    }
+
+    private void acquired0(Channel ch, Promise<Channel> promise) {
+        assert ch.eventLoop().inEventLoop();
+        if (!ch.isActive()) {
+            // Closed while idle, the close listener will do the bookkeeping. Just try again.
+            ch.close();
+            acquire(promise);
+            return;
+        }
+        try {
+            ch.attr(POOL_KEY).set(this);
+            handler.channelAcquired(ch);
+            if (!promise.trySuccess(ch)) {
+                // Promise was completed in the meantime (like cancelled), just release the channel again
+                release(ch);
+            }
+        } catch (Throwable cause) {
+            closeAndFail(ch, cause, promise);
+        }
+    }
+
+    @Override
+    public final Future<Void> release(Channel channel) {
+        return release(channel, channel.eventLoop().<Void>newPromise());
+    }
+
+    @Override
+    public Future<Void> release(final Channel channel, final Promise<Void> promise) {
+        try {
+            checkNotNull(channel, "channel");
+            checkNotNull(promise, "promise");
+            EventLoop loop = channel.eventLoop();
+            if (loop.inEventLoop()) {
+                doReleaseChannel(channel, promise);
+            } else {
+                loop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        doReleaseChannel(channel, promise);
+                    }
+                });
+            }
+        } catch (Throwable cause) {
+            closeAndFail(channel, cause, promise);
+        }
+        return promise;
+    }
+
+    private void doReleaseChannel(Channel channel, Promise<Void> promise) {
+        assert channel.eventLoop().inEventLoop();
+        // Remove the POOL_KEY attribute from the Channel and check if it was acquired from this pool, if not fail.
+        if (channel.attr(POOL_KEY).getAndSet(null) != this) {
+            closeAndFail(channel,
+                         // Better include a stacktrace here as this is an user error.
+                         new IllegalArgumentException(
+                                 "Channel " + channel + " was not acquired from this ChannelPool"),
+                         promise);
+            return;
+        }
+        SubPool pool = subPoolsByEventLoop.get(channel.eventLoop());
+        boolean offered = !closed && channel.isActive();
+        if (offered) {
+            // Channels are only handed out on their own EventLoop, so even if it is stolen by another sub-pool
+            // right away the acquire is only completed once we are done here.
+            pool.idle.offerLast(channel);
+            pool.scheduleHealthCheck();
+        }
+        try {
+            handler.channelReleased(channel);
+            promise.setSuccess(null);
+        } catch (Throwable cause) {
+            closeAndFail(channel, cause, promise);
+            return;
+        }
+        if (offered) {
+            pool.notifyPendingAcquires();
+        } else {
+            channel.close();
+        }
+    }
+
+    private static void closeAndFail(Channel channel, Throwable cause, Promise<?> promise) {
+        if (channel != null) {
+            try {
+                channel.attr(POOL_KEY).set(null);
+                channel.close();
+            } catch (Throwable t) {
+                promise.tryFailure(t);
+            }
+        }
+        promise.tryFailure(cause);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        IllegalStateException cause = new IllegalStateException("ChannelPool was closed");
+        for (SubPool pool: subPools) {
+            pool.close(cause);
+        }
+    }
+
+    /**
+     * Closes the pool in an async manner.
+     *
+     * @return Future which represents completion of the close task
+     */
+    public Future<Void> closeAsync() {
+        // Execute close asynchronously in case this is being invoked on an eventloop to avoid blocking
+        return GlobalEventExecutor.INSTANCE.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                close();
+                return null;
+            }
+        });
+    }
+
+    private final class SubPool implements Runnable {
+        final EventLoop loop;
+        // Idle Channels of the EventLoop, the EventLoop itself uses LIFO order while other sub-pools steal from
+        // the other end.
+        final Deque<Channel> idle = PlatformDependent.newConcurrentDeque();
+        // Acquires which could not be satisfied directly, only consumed by the EventLoop.
+        final Queue<Promise<Channel>> pendingAcquires = PlatformDependent.newMpscQueue();
+        // The number of Channels of the EventLoop, either connecting, idle or acquired.
+        final AtomicInteger connections = new AtomicInteger();
+        final AtomicBoolean drainScheduled = new AtomicBoolean();
+        final ChannelFutureListener closeListener = new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                idle.remove(future.channel());
+                connections.decrementAndGet();
+                if (!pendingAcquires.isEmpty()) {
+                    scheduleDrain();
+                }
+            }
+        };
+        private final Runnable healthCheckTask = new Runnable() {
+            @Override
+            public void run() {
+                checkHealth();
+            }
+        };
+        private final long healthCheckInterval;
+        private final TimeUnit healthCheckUnit;
+        // Only scheduled while there are idle Channels to check, so an unused pool does not keep a task on the
+        // EventLoop forever.
+        private volatile ScheduledFuture<?> healthCheckFuture;
+
+        SubPool(EventLoop loop, long healthCheckInterval, TimeUnit unit) {
+            this.loop = loop;
+            this.healthCheckInterval = healthCheckInterval;
+            healthCheckUnit = unit;
+        }
+
+        /**
+         * Called once a {@link Channel} was added to the idle ones, starts the periodic health check if needed.
+         */
+        void scheduleHealthCheck() {
+            assert loop.inEventLoop();
+            if (healthCheckInterval == 0 || healthCheckFuture != null || closed) {
+                return;
+            }
+            healthCheckFuture = loop.scheduleAtFixedRate(
+                    healthCheckTask, healthCheckInterval, healthCheckInterval, healthCheckUnit);
+            if (closed) {
+                // close() may have missed the Future we just scheduled.
+                cancelHealthCheck();
+            }
+        }
+
+        private void cancelHealthCheck() {
+            ScheduledFuture<?> future = healthCheckFuture;
+            if (future != null) {
+                healthCheckFuture = null;
+                future.cancel(false);
+            }
+        }
+
+        void acquire(Promise<Channel> promise) {
+            Channel ch = idle.pollLast();
+            if (ch == null) {
+                if (tryReserveConnection()) {
+                    connect(promise);
+                    return;
+                }
+                ch = steal(this);
+            }
+            if (ch != null) {
+                acquired(ch, promise);
+                return;
+            }
+            pendingAcquires.add(promise);
+            // A Channel may have been released in the meantime, so let the EventLoop re-check.
+            scheduleDrain();
+        }
+
+        private boolean tryReserveConnection() {
+            for (;;) {
+                int current = connections.get();
+                if (current >= maxConnectionsPerEventLoop) {
+                    return false;
+                }
+                if (connections.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void connect(final Promise<Channel> promise) {
+            Bootstrap bs = bootstrap.clone(loop);
+            bs.attr(POOL_KEY, EventLoopChannelPool.this);
+            ChannelFuture f = connectChannel(bs);
+            // All the bookkeeping is done once the Channel is closed, which also happens if the connect fails.
+            f.channel().closeFuture().addListener(closeListener);
+            f.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) {
+                    Channel ch = future.channel();
+                    if (!future.isSuccess()) {
+                        ch.close();
+                        promise.tryFailure(future.cause());
+                        return;
+                    }
+                    if (closed) {
+                        ch.close();
+                        promise.tryFailure(new IllegalStateException("ChannelPool was closed"));
+                        return;
+                    }
+                    try {
+                        handler.channelAcquired(ch);
+                        if (!promise.trySuccess(ch)) {
+                            // Promise was completed in the meantime (like cancelled), just release the channel again
+                            release(ch);
+                        }
+                    } catch (Throwable cause) {
+                        closeAndFail(ch, cause, promise);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Called once a {@link Channel} was added to the idle ones.
+         */
+        void notifyPendingAcquires() {
+            assert loop.inEventLoop();
+            if (!pendingAcquires.isEmpty()) {
+                run();
+                return;
+            }
+            // Let one of the other sub-pools steal the Channel if it has pending acquires.
+            for (SubPool pool: subPools) {
+                if (pool != this && !pool.pendingAcquires.isEmpty()) {
+                    pool.scheduleDrain();
+                    return;
+                }
+            }
+        }
+
+        void scheduleDrain() {
+            if (drainScheduled.compareAndSet(false, true)) {
+                loop.execute(this);
+            }
+        }
+
+        /**
+         * Complete as many of the pending acquires as possible.
+         */
+        @Override
+        public void run() {
+            drainScheduled.set(false);
+            for (;;) {
+                Promise<Channel> promise = pendingAcquires.peek();
+                if (promise == null) {
+                    return;
+                }
+                if (closed) {
+                    pendingAcquires.poll();
+                    promise.tryFailure(new IllegalStateException("ChannelPool was closed"));
+                    continue;
+                }
+                if (promise.isDone()) {
+                    // Cancelled in the meantime.
+                    pendingAcquires.poll();
+                    continue;
+                }
+                Channel ch = idle.pollLast();
+                if (ch == null) {
+                    ch = steal(this);
+                }
+                if (ch != null) {
+                    pendingAcquires.poll();
+                    acquired(ch, promise);
+                } else if (tryReserveConnection()) {
+                    pendingAcquires.poll();
+                    connect(promise);
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void checkHealth() {
+            if (idle.isEmpty()) {
+                // Nothing left to check, it is scheduled again once a Channel is released.
+                cancelHealthCheck();
+                return;
+            }
+            for (final Channel ch: idle) {
+                try {
+                    Future<Boolean> f = healthCheck.isHealthy(ch);
+                    if (f.isDone()) {
+                        notifyHealthCheck(ch, f);
+                    } else {
+                        f.addListener(new FutureListener<Boolean>() {
+                            @Override
+                            public void operationComplete(Future<Boolean> future) {
+                                notifyHealthCheck(ch, future);
+                            }
+                        });
+                    }
+                } catch (Throwable cause) {
+                    if (idle.remove(ch)) {
+                        ch.close();
+                    }
+                }
+            }
+        }
+
+        private void notifyHealthCheck(Channel ch, Future<Boolean> future) {
+            // Only close the Channel if it was not acquired in the meantime.
+            if (!(future.isSuccess() && future.getNow()) && idle.remove(ch)) {
+                ch.close();
+            }
+        }
+
+        void close(Throwable cause) {
+            cancelHealthCheck();
+            for (;;) {
+                Channel ch = idle.pollLast();
+                if (ch == null) {
+                    break;
+                }
+                // Just ignore any errors that are reported back from close().
+                ch.close().awaitUninterruptibly();
+            }
+            if (!pendingAcquires.isEmpty()) {
+                // Fail the pending acquires on the EventLoop as it is the only consumer of the queue.
+                scheduleDrain();
+            }
+        }
+    }
+}
@@ -26,10 +26,18 @@ import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.FutureListener;
 import io.netty.util.concurrent.GlobalEventExecutor;
 import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.ScheduledFuture;
 import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.ThreadLocalRandom;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.util.Deque;
+import java.util.Iterator;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.netty.util.internal.ObjectUtil.*;
 
@@ -41,14 +49,18 @@ import static io.netty.util.internal.ObjectUtil.*;
  *
  */
 public class SimpleChannelPool implements ChannelPool {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(SimpleChannelPool.class);
     private static final AttributeKey<SimpleChannelPool> POOL_KEY =
         AttributeKey.newInstance("io.netty.channel.pool.SimpleChannelPool");
+    private static final AttributeKey<Long> IDLE_DEADLINE_KEY =
+        AttributeKey.newInstance("io.netty.channel.pool.SimpleChannelPool.idleDeadline");
     private final Deque<Channel> deque = PlatformDependent.newConcurrentDeque();
     private final ChannelPoolHandler handler;
     private final ChannelHealthChecker healthCheck;
     private final Bootstrap bootstrap;
     private final boolean releaseHealthCheck;
     private final boolean lastRecentUsed;
+    private volatile IdleMaintenance idleMaintenance;
 
     /**
      * Creates a new instance using the {@link ChannelHealthChecker#ACTIVE}.
@@ -152,6 +164,74 @@ public class SimpleChannelPool implements ChannelPool {
         return releaseHealthCheck;
     }
 
+    /**
+     * Let this pool maintain its idle {@link Channel}s in the background, on one of the {@link EventLoop}s of the
+     * {@link Bootstrap}. This is done in periodic runs which:
+     * <ul>
+     *     <li>connect new {@link Channel}s until at least {@code minIdle} {@link Channel}s are idle, so the
+     *     connection establishment is not part of the acquire once traffic starts (or restarts after an idle period).
+     *     This also replaces idle {@link Channel}s which were closed, like by the remote peer.</li>
+     *     <li>close {@link Channel}s which were idle for longer than {@code maxIdleTime} plus a random jitter of up to
+     *     {@code maxIdleJitter}, as long as more than {@code minIdle} {@link Channel}s are idle. The jitter prevents
+     *     that all {@link Channel}s which were released at the same time are closed at the same time.</li>
+     * </ul>
+     * When used with a {@link ChannelPoolMap}, call this method for each pool that is created by
+     * {@link AbstractChannelPoolMap#newPool(Object)} to maintain a minimum number of idle {@link Channel}s per key.
+     * <p>
+     * Calling this method again replaces the previous settings, the maintenance stops once the pool is closed. Only
+     * the default {@link #pollChannel()} and {@link #offerChannel(Channel)} implementations are supported.
+     *
+     * @param minIdle       the minimum number of idle {@link Channel}s, {@code 0} disables pre-connecting.
+     * @param maxIdleTime   the time after which an idle {@link Channel} may be closed, {@code 0} disables closing.
+     * @param maxIdleJitter the maximal random time that is added to {@code maxIdleTime} per {@link Channel}.
+     * @param interval      the interval between two maintenance runs.
+     * @param unit          the {@link TimeUnit} of all the times.
+     */
+    @UnstableApi
+    public void maintainIdleChannels(int minIdle, long maxIdleTime, long maxIdleJitter, long interval,
+                                     TimeUnit unit) {
+        checkPositiveOrZero(minIdle, "minIdle");
+        checkPositiveOrZero(maxIdleTime, "maxIdleTime");
+        checkPositiveOrZero(maxIdleJitter, "maxIdleJitter");
+        checkPositive(interval, "interval");
+        checkNotNull(unit, "unit");
+        IdleMaintenance maintenance = new IdleMaintenance(bootstrap.config().group().next(), minIdle,
+                unit.toNanos(maxIdleTime), unit.toNanos(maxIdleJitter), unit.toNanos(interval));
+        IdleMaintenance old = idleMaintenance;
+        idleMaintenance = maintenance;
+        if (old != null) {
+            old.cancel();
+        }
+        maintenance.loop.execute(maintenance);
+    }
+
+    /**
+     * Run the idle {@link Channel} maintenance once, independent of its interval. Package-private for testing.
+     */
+    Future<?> runIdleMaintenance() {
+        final IdleMaintenance maintenance = idleMaintenance;
+        if (maintenance == null) {
+            throw new IllegalStateException("idle maintenance not enabled");
+        }
+        return maintenance.loop.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (!maintenance.cancelled) {
+                    maintenance.maintain();
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the number of connects of the idle {@link Channel} maintenance that did not complete yet.
+     * Package-private for testing.
+     */
+    int pendingIdleConnects() {
+        IdleMaintenance maintenance = idleMaintenance;
+        return maintenance == null ? 0 : maintenance.pendingConnects.get();
+    }
+
     @Override
     public final Future<Channel> acquire() {
         return acquire(bootstrap.config().group().next().<Channel>newPromise());
@@ -351,6 +431,7 @@ public class SimpleChannelPool implements ChannelPool {
     }
 
     private void releaseAndOffer(Channel channel, Promise<Void> promise) throws Exception {
+        markIdle(channel);
         if (offerChannel(channel)) {
             handler.channelReleased(channel);
             promise.setSuccess(null);
@@ -359,6 +440,15 @@ public class SimpleChannelPool implements ChannelPool {
         }
     }
 
+    private void markIdle(Channel channel) {
+        IdleMaintenance maintenance = idleMaintenance;
+        if (maintenance != null && maintenance.maxIdleNanos > 0) {
+            long jitter = maintenance.maxIdleJitterNanos > 0 ?
+                    ThreadLocalRandom.current().nextLong(maintenance.maxIdleJitterNanos + 1) : 0;
+            channel.attr(IDLE_DEADLINE_KEY).set(System.nanoTime() + maintenance.maxIdleNanos + jitter);
+        }
+    }
+
     private void closeChannel(Channel channel) throws Exception {
         channel.attr(POOL_KEY).getAndSet(null);
         channel.close();
@@ -399,6 +489,11 @@ public class SimpleChannelPool implements ChannelPool {
 
     @Override
     public void close() {
+        IdleMaintenance maintenance = idleMaintenance;
+        if (maintenance != null) {
+            idleMaintenance = null;
+            maintenance.cancel();
+        }
         for (;;) {
             Channel channel = pollChannel();
             if (channel == null) {
@@ -425,6 +520,116 @@ public class SimpleChannelPool implements ChannelPool {
         });
     }
 
+    private final class IdleMaintenance implements Runnable {
+        final EventLoop loop;
+        final int minIdle;
+        final long maxIdleNanos;
+        final long maxIdleJitterNanos;
+        private final long intervalNanos;
+        // Number of connects which are in flight, these count as idle Channels.
+        private final AtomicInteger pendingConnects = new AtomicInteger();
+        private final ChannelFutureListener connectListener = new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                if (future.isSuccess()) {
+                    Channel channel = future.channel();
+                    markIdle(channel);
+                    if (cancelled || !offerChannel(channel)) {
+                        channel.close();
+                    }
+                } else if (logger.isDebugEnabled()) {
+                    // Just try again in the next run.
+                    logger.debug("Failed to connect an idle Channel", future.cause());
+                }
+                // Decrement after the offer so the next run never sees the Channel as neither pending nor idle.
+                pendingConnects.decrementAndGet();
+            }
+        };
+        private volatile boolean cancelled;
+        private ScheduledFuture<?> future;
+
+        IdleMaintenance(EventLoop loop, int minIdle, long maxIdleNanos, long maxIdleJitterNanos, long intervalNanos) {
+            this.loop = loop;
+            this.minIdle = minIdle;
+            this.maxIdleNanos = maxIdleNanos;
+            this.maxIdleJitterNanos = maxIdleJitterNanos;
+            this.intervalNanos = intervalNanos;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            maintain();
+            future = loop.schedule(this, intervalNanos, TimeUnit.NANOSECONDS);
+        }
+
+        void maintain() {
+            try {
+                int idle = evict();
+                for (int i = idle + pendingConnects.get(); i < minIdle; i++) {
+                    pendingConnects.incrementAndGet();
+                    connectChannel(bootstrap.clone()).addListener(connectListener);
+                }
+            } catch (Throwable cause) {
+                logger.warn("Failed to maintain idle Channels", cause);
+            }
+        }
+
+        /**
+         * Remove closed and expired {@link Channel}s.
+         *
+         * @return the number of idle {@link Channel}s that are left.
+         */
+        private int evict() {
+            int idle = deque.size();
+            long now = System.nanoTime();
+            // Iterate from the least recently released Channel on, as these are the first to expire.
+            Iterator<Channel> it = deque.iterator();
+            while (it.hasNext()) {
+                Channel channel = it.next();
+                if (!channel.isActive()) {
+                    if (deque.remove(channel)) {
+                        idle--;
+                        channel.close();
+                    }
+                    continue;
+                }
+                if (idle <= minIdle || maxIdleNanos == 0) {
+                    continue;
+                }
+                Long deadline = channel.attr(IDLE_DEADLINE_KEY).get();
+                if (deadline != null && now - deadline >= 0 && deque.remove(channel)) {
+                    idle--;
+                    channel.close();
+                }
+            }
+            return idle;
+        }
+
+        void cancel() {
+            cancelled = true;
+            if (loop.inEventLoop()) {
+                cancel0();
+            } else {
+                loop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        cancel0();
+                    }
+                });
+            }
+        }
+
+        private void cancel0() {
+            if (future != null) {
+                future.cancel(false);
+                future = null;
+            }
+        }
+    }
+
     private static final class ChannelPoolFullException extends IllegalStateException {
 
         private ChannelPoolFullException() {
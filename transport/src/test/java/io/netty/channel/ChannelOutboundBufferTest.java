@@ -15,15 +15,18 @@
  */
 package io.netty.channel;
 
+import io.netty.buffer.AbstractByteBufAllocator;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.util.CharsetUtil;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.ImmediateEventExecutor;
 import io.netty.util.concurrent.RejectedExecutionHandlers;
 import io.netty.util.concurrent.SingleThreadEventExecutor;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.function.Executable;
 
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
@@ -36,8 +39,11 @@ import static io.netty.buffer.Unpooled.*;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ChannelOutboundBufferTest {
@@ -163,12 +169,237 @@ public class ChannelOutboundBufferTest {
         }
     }
 
+    @Test
+    public void testWrapAroundAndExpand() {
+        TestChannel channel = new TestChannel();
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+
+        int added = 0;
+        int removed = 0;
+        // Add more than we remove in every round so the ring has to wrap around and grow.
+        for (int round = 0; round < 64; round++) {
+            for (int i = 0; i < 3; i++) {
+                buffer.addMessage(wrappedBuffer(new byte[] { (byte) added++ }), 1, channel.voidPromise());
+            }
+            buffer.addFlush();
+            for (int i = 0; i < 2; i++) {
+                assertEquals((byte) removed++, ((ByteBuf) buffer.current()).getByte(0));
+                assertTrue(buffer.remove());
+            }
+            assertEquals(added - removed, buffer.size());
+        }
+        while (buffer.current() != null) {
+            assertEquals((byte) removed++, ((ByteBuf) buffer.current()).getByte(0));
+            assertTrue(buffer.remove());
+        }
+        assertEquals(added, removed);
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.totalPendingWriteBytes());
+    }
+
+    @Test
+    public void testAddMessageFromListenerOnRemove() {
+        final TestChannel channel = new TestChannel();
+        final ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+        final ByteBuf second = copiedBuffer("second", CharsetUtil.US_ASCII);
+
+        ChannelPromise promise = new DefaultChannelPromise(channel, ImmediateEventExecutor.INSTANCE);
+        promise.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                // The slot of the removed entry may be reused by this write.
+                buffer.addMessage(second, second.readableBytes(), channel.voidPromise());
+            }
+        });
+        // Fill the ring completely so the next write wraps around to the slot of the first entry.
+        buffer.addMessage(copiedBuffer("first", CharsetUtil.US_ASCII), 5, promise);
+        for (int i = 1; i < 16; i++) {
+            buffer.addMessage(EMPTY_BUFFER, 0, channel.voidPromise());
+        }
+        buffer.addFlush();
+        assertTrue(buffer.remove());
+        assertTrue(promise.isSuccess());
+        for (int i = 1; i < 16; i++) {
+            assertSame(EMPTY_BUFFER, buffer.current());
+            assertTrue(buffer.remove());
+        }
+        assertNull(buffer.current());
+        buffer.addFlush();
+        assertSame(second, buffer.current());
+        release(buffer);
+        assertEquals(0, second.refCnt());
+        assertEquals(0, buffer.totalPendingWriteBytes());
+    }
+
+    @Test
+    public void testCoalesceSmallBuffers() {
+        TestChannel channel = new TestChannel(true);
+        channel.config().setOption(ChannelOption.WRITE_COALESCE_THRESHOLD, 8);
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+
+        ChannelPromise promise1 = new DefaultChannelPromise(channel, ImmediateEventExecutor.INSTANCE);
+        ChannelPromise promise2 = new DefaultChannelPromise(channel, ImmediateEventExecutor.INSTANCE);
+        ChannelPromise promise3 = new DefaultChannelPromise(channel, ImmediateEventExecutor.INSTANCE);
+        ChannelPromise promise4 = new DefaultChannelPromise(channel, ImmediateEventExecutor.INSTANCE);
+        ByteBuf small1 = copiedBuffer("abc", CharsetUtil.US_ASCII);
+        ByteBuf small2 = copiedBuffer("defg", CharsetUtil.US_ASCII);
+        ByteBuf large = copiedBuffer("0123456789", CharsetUtil.US_ASCII);
+        ByteBuf small3 = copiedBuffer("h", CharsetUtil.US_ASCII);
+        buffer.addMessage(small1, small1.readableBytes(), promise1);
+        buffer.addMessage(small2, small2.readableBytes(), promise2);
+        buffer.addMessage(large, large.readableBytes(), promise3);
+        buffer.addMessage(small3, small3.readableBytes(), promise4);
+        buffer.addFlush();
+
+        // The first two buffers were merged and released, the others are passed through as they are.
+        assertEquals(0, small1.refCnt());
+        assertEquals(0, small2.refCnt());
+        assertEquals(7, buffer.coalescedBytes());
+        assertEquals(11, buffer.passedThroughBytes());
+        assertEquals(4, buffer.size());
+
+        ByteBuffer[] buffers = buffer.nioBuffers();
+        assertEquals(3, buffer.nioBufferCount());
+        assertEquals(18, buffer.nioBufferSize());
+        assertEquals("abcdefg", CharsetUtil.US_ASCII.decode(buffers[0].duplicate()).toString());
+
+        // Write only a part of the merged buffer, no promise must be notified yet.
+        buffer.removeBytes(5);
+        assertFalse(promise1.isDone());
+        assertFalse(promise2.isDone());
+
+        buffer.removeBytes(2);
+        assertTrue(promise1.isSuccess());
+        assertTrue(promise2.isSuccess());
+        assertSame(large, buffer.current());
+        assertFalse(promise3.isDone());
+
+        buffer.removeBytes(11);
+        assertTrue(promise3.isSuccess());
+        assertTrue(promise4.isSuccess());
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, large.refCnt());
+        assertEquals(0, small3.refCnt());
+        assertEquals(0, buffer.totalPendingWriteBytes());
+    }
+
+    @Test
+    public void testCoalesceRespectsMaxBytes() {
+        TestChannel channel = new TestChannel(true);
+        channel.config().setOption(ChannelOption.WRITE_COALESCE_THRESHOLD, 4);
+        channel.config().setOption(ChannelOption.WRITE_COALESCE_MAX_BYTES, 8);
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+        for (int i = 0; i < 5; i++) {
+            buffer.addMessage(copiedBuffer("abcd", CharsetUtil.US_ASCII), 4, channel.voidPromise());
+        }
+        buffer.addFlush();
+
+        buffer.nioBuffers();
+        assertEquals(3, buffer.nioBufferCount());
+        assertEquals(20, buffer.nioBufferSize());
+        assertEquals(16, buffer.coalescedBytes());
+        assertEquals(4, buffer.passedThroughBytes());
+        release(buffer);
+    }
+
+    @Test
+    public void testCoalesceAllocationFailure() {
+        TestChannel channel = new TestChannel(true);
+        channel.config().setOption(ChannelOption.WRITE_COALESCE_THRESHOLD, 8);
+        channel.config().setAllocator(new AbstractByteBufAllocator() {
+            @Override
+            protected ByteBuf newHeapBuffer(int initialCapacity, int maxCapacity) {
+                throw new OutOfMemoryError();
+            }
+
+            @Override
+            protected ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity) {
+                throw new OutOfMemoryError();
+            }
+
+            @Override
+            public boolean isDirectBufferPooled() {
+                return false;
+            }
+        });
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+        ByteBuf buf1 = copiedBuffer("abc", CharsetUtil.US_ASCII);
+        ByteBuf buf2 = copiedBuffer("defg", CharsetUtil.US_ASCII);
+        buffer.addMessage(buf1, buf1.readableBytes(), channel.voidPromise());
+        buffer.addMessage(buf2, buf2.readableBytes(), channel.voidPromise());
+        buffer.addFlush();
+
+        // The messages must be written as they are.
+        assertSame(buf1, buffer.current());
+        assertEquals(1, buf1.refCnt());
+        assertEquals(1, buf2.refCnt());
+        assertEquals(0, buffer.coalescedBytes());
+        buffer.nioBuffers();
+        assertEquals(2, buffer.nioBufferCount());
+        assertEquals(7, buffer.nioBufferSize());
+        release(buffer);
+    }
+
+    @Test
+    public void testCoalesceDisabledByDefault() {
+        TestChannel channel = new TestChannel();
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+        ByteBuf buf1 = copiedBuffer("a", CharsetUtil.US_ASCII);
+        ByteBuf buf2 = copiedBuffer("b", CharsetUtil.US_ASCII);
+        buffer.addMessage(buf1, 1, channel.voidPromise());
+        buffer.addMessage(buf2, 1, channel.voidPromise());
+        buffer.addFlush();
+
+        assertSame(buf1, buffer.current());
+        assertEquals(0, buffer.coalescedBytes());
+        assertEquals(0, buffer.passedThroughBytes());
+        release(buffer);
+    }
+
+    @Test
+    public void testCoalesceRejectedForMessageChannels() {
+        final TestChannel channel = new TestChannel();
+        final DefaultChannelConfig config = (DefaultChannelConfig) channel.config();
+        assertFalse(config.setOption(ChannelOption.WRITE_COALESCE_THRESHOLD, 8));
+        assertFalse(config.setOption(ChannelOption.WRITE_COALESCE_MAX_BYTES, 8));
+        assertNull(config.getOption(ChannelOption.WRITE_COALESCE_THRESHOLD));
+        assertFalse(config.getOptions().containsKey(ChannelOption.WRITE_COALESCE_THRESHOLD));
+        assertThrows(UnsupportedOperationException.class, new Executable() {
+            @Override
+            public void execute() {
+                config.setWriteCoalesceThreshold(8);
+            }
+        });
+        // Disabling is always allowed.
+        config.setWriteCoalesceThreshold(0);
+
+        ChannelOutboundBuffer buffer = new ChannelOutboundBuffer(channel);
+        ByteBuf buf1 = copiedBuffer("a", CharsetUtil.US_ASCII);
+        ByteBuf buf2 = copiedBuffer("b", CharsetUtil.US_ASCII);
+        buffer.addMessage(buf1, 1, channel.voidPromise());
+        buffer.addMessage(buf2, 1, channel.voidPromise());
+        buffer.addFlush();
+        assertSame(buf1, buffer.current());
+        assertEquals(2, buffer.size());
+        release(buffer);
+    }
+
     private static final class TestChannel extends AbstractChannel {
         private static final ChannelMetadata TEST_METADATA = new ChannelMetadata(false);
-        private final ChannelConfig config = new DefaultChannelConfig(this);
+        private final ChannelConfig config;
 
         TestChannel() {
+            this(false);
+        }
+
+        TestChannel(final boolean byteStream) {
             super(null);
+            config = new DefaultChannelConfig(this) {
+                @Override
+                protected boolean isWriteCoalesceSupported() {
+                    return byteStream;
+                }
+            };
         }
 
         @Override
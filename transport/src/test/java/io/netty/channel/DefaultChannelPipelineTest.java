@@ -53,6 +53,7 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
@@ -137,6 +138,58 @@ public class DefaultChannelPipelineTest {
         }
     }
 
+    @Test
+    public void testSealedPipeline() {
+        final List<Object> reads = new ArrayList<Object>();
+        final List<Object> writes = new ArrayList<Object>();
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                reads.add(msg);
+                ctx.fireChannelRead(msg);
+            }
+        }, new ChannelInboundHandlerAdapter(), new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                writes.add(msg);
+                ctx.write(msg, promise);
+            }
+        });
+        DefaultChannelPipeline pipeline = (DefaultChannelPipeline) channel.pipeline();
+        assertFalse(pipeline.isSealed());
+        pipeline.seal();
+        assertTrue(pipeline.isSealed());
+
+        assertTrue(channel.writeInbound("a"));
+        assertEquals("a", channel.readInbound());
+        assertTrue(channel.writeOutbound("b"));
+        assertEquals("b", channel.readOutbound());
+        assertEquals(Collections.<Object>singletonList("a"), reads);
+        assertEquals(Collections.<Object>singletonList("b"), writes);
+
+        // Modifications of a sealed pipeline must be visible to the next event.
+        ChannelHandler upperCase = new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                ctx.fireChannelRead(((String) msg).toUpperCase(Locale.ROOT));
+            }
+        };
+        pipeline.addFirst(upperCase);
+        assertTrue(channel.writeInbound("c"));
+        assertEquals("C", channel.readInbound());
+
+        pipeline.remove(upperCase);
+        assertTrue(channel.writeInbound("d"));
+        assertEquals("d", channel.readInbound());
+
+        pipeline.unseal();
+        assertFalse(pipeline.isSealed());
+        assertTrue(channel.writeInbound("e"));
+        assertEquals("e", channel.readInbound());
+        assertEquals(4, reads.size());
+        assertFalse(channel.finish());
+    }
+
     @Test
     public void testFreeCalled() throws Exception {
         final CountDownLatch free = new CountDownLatch(1);
@@ -16,14 +16,29 @@
 package io.netty.channel.group;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.DefaultChannelId;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.FutureListener;
 import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.ImmediateEventExecutor;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class DefaultChannelGroupTest {
 
@@ -57,4 +72,74 @@ public class DefaultChannelGroupTest {
         bossGroup.terminationFuture().sync();
         workerGroup.terminationFuture().sync();
     }
+
+    @Test
+    public void testBroadcast() {
+        DefaultChannelGroup group = new DefaultChannelGroup(ImmediateEventExecutor.INSTANCE);
+        EmbeddedChannel[] channels = new EmbeddedChannel[3];
+        for (int i = 0; i < channels.length; i++) {
+            channels[i] = new EmbeddedChannel(DefaultChannelId.newInstance());
+        }
+        for (EmbeddedChannel ch: channels) {
+            group.add(ch);
+        }
+        ByteBuf message = Unpooled.copiedBuffer("hello", CharsetUtil.US_ASCII);
+        ChannelGroupFuture future = group.broadcast(message);
+        assertEquals(3, message.refCnt());
+        assertFalse(future.isDone());
+
+        for (EmbeddedChannel ch: channels) {
+            ch.runPendingTasks();
+            ByteBuf buf = ch.readOutbound();
+            assertTrue(buf.isReadOnly());
+            assertEquals("hello", buf.toString(CharsetUtil.US_ASCII));
+            // Reading one view must not change the others.
+            buf.skipBytes(buf.readableBytes());
+            buf.release();
+            assertNull(ch.readOutbound());
+        }
+        assertTrue(future.isSuccess());
+        assertEquals(0, message.refCnt());
+
+        for (EmbeddedChannel ch: channels) {
+            assertFalse(ch.finish());
+        }
+    }
+
+    @Test
+    public void testBroadcastWithMatcherAndVoidPromise() {
+        DefaultChannelGroup group = new DefaultChannelGroup(ImmediateEventExecutor.INSTANCE);
+        final EmbeddedChannel included = new EmbeddedChannel(DefaultChannelId.newInstance());
+        EmbeddedChannel excluded = new EmbeddedChannel(DefaultChannelId.newInstance());
+        group.add(included);
+        group.add(excluded);
+        ByteBuf message = Unpooled.copiedBuffer("hello", CharsetUtil.US_ASCII);
+        final ChannelGroupFuture future = group.broadcast(message, new ChannelMatcher() {
+            @Override
+            public boolean matches(Channel channel) {
+                return channel == included;
+            }
+        }, true);
+        assertThrows(IllegalStateException.class, new Executable() {
+            @Override
+            public void execute() {
+                future.addListener(new FutureListener<Void>() {
+                    @Override
+                    public void operationComplete(io.netty.util.concurrent.Future<Void> future) {
+                    }
+                });
+            }
+        });
+
+        included.runPendingTasks();
+        excluded.runPendingTasks();
+        ByteBuf buf = included.readOutbound();
+        assertEquals("hello", buf.toString(CharsetUtil.US_ASCII));
+        buf.release();
+        assertNull(excluded.readOutbound());
+        assertEquals(0, message.refCnt());
+
+        assertFalse(included.finish());
+        assertFalse(excluded.finish());
+    }
 }
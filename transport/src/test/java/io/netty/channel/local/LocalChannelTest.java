@@ -888,6 +888,83 @@ public class LocalChannelTest {
         }
     }
 
+    @Test
+    public void testBatchHandoffOption() {
+        LocalChannel channel = new LocalChannel();
+        assertFalse(channel.config().getOption(LocalChannelOption.BATCH_HANDOFF));
+        assertTrue(channel.config().setOption(LocalChannelOption.BATCH_HANDOFF, true));
+        assertTrue(channel.config().getOption(LocalChannelOption.BATCH_HANDOFF));
+        assertTrue(channel.config().getOptions().containsKey(LocalChannelOption.BATCH_HANDOFF));
+    }
+
+    @Test
+    @Timeout(value = 10000, unit = TimeUnit.MILLISECONDS)
+    public void testBatchHandoffPreservesOrderDifferentEventLoop() throws Exception {
+        testBatchHandoffPreservesOrder(group1, group2);
+    }
+
+    @Test
+    @Timeout(value = 10000, unit = TimeUnit.MILLISECONDS)
+    public void testBatchHandoffPreservesOrderSharedEventLoop() throws Exception {
+        testBatchHandoffPreservesOrder(sharedGroup, sharedGroup);
+    }
+
+    private static void testBatchHandoffPreservesOrder(EventLoopGroup clientGroup, EventLoopGroup serverGroup)
+            throws Exception {
+        final int messages = 10000;
+        final CountDownLatch receivedLatch = new CountDownLatch(1);
+        final AtomicReference<Throwable> causeRef = new AtomicReference<Throwable>();
+        final Bootstrap cb = new Bootstrap()
+                .group(clientGroup)
+                .channel(LocalChannel.class)
+                .option(LocalChannelOption.BATCH_HANDOFF, true)
+                .handler(new TestHandler());
+        ServerBootstrap sb = new ServerBootstrap()
+                .group(serverGroup)
+                .channel(LocalServerChannel.class)
+                .childOption(LocalChannelOption.BATCH_HANDOFF, true)
+                .childHandler(new ChannelInboundHandlerAdapter() {
+                    private int expected;
+
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        if (causeRef.get() == null && (Integer) msg != expected) {
+                            causeRef.set(new AssertionError("expected " + expected + " but got " + msg));
+                        }
+                        if (++expected == messages) {
+                            receivedLatch.countDown();
+                        }
+                    }
+                });
+
+        Channel sc = null;
+        Channel cc = null;
+        try {
+            sc = sb.bind(TEST_ADDRESS).sync().channel();
+            cc = cb.connect(sc.localAddress()).sync().channel();
+            final Channel ccCpy = cc;
+            cc.eventLoop().execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < messages; i++) {
+                        ccCpy.write(i);
+                        if (i % 7 == 0) {
+                            ccCpy.flush();
+                        }
+                    }
+                    ccCpy.flush();
+                }
+            });
+            assertTrue(receivedLatch.await(5, SECONDS));
+            if (causeRef.get() != null) {
+                throw new AssertionError(causeRef.get());
+            }
+        } finally {
+            closeChannel(cc);
+            closeChannel(sc);
+        }
+    }
+
     private static void closeChannel(Channel cc) {
         if (cc != null) {
             cc.close().syncUninterruptibly();
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.nio;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class SelectedSelectionKeyConsumerSelectorTest {
+
+    @BeforeEach
+    public void setup() {
+        assumeTrue(SelectedSelectionKeyConsumerSelector.isSupported());
+    }
+
+    @Test
+    public void testSelectedKeysCollected() throws Exception {
+        Selector delegate = Selector.open();
+        SelectedSelectionKeySet keys = new SelectedSelectionKeySet();
+        Selector selector = new SelectedSelectionKeyConsumerSelector(delegate, keys);
+        Pipe pipe = Pipe.open();
+        try {
+            pipe.sink().configureBlocking(false);
+            pipe.source().configureBlocking(false);
+            SelectionKey sinkKey = pipe.sink().register(delegate, SelectionKey.OP_WRITE);
+            pipe.source().register(delegate, SelectionKey.OP_READ);
+
+            // Only the sink is ready.
+            assertEquals(1, selector.selectNow());
+            assertEquals(1, keys.size());
+            assertSame(sinkKey, keys.keys[0]);
+            // The selected key set of the JDK implementation is not used at all.
+            assertEquals(0, delegate.selectedKeys().size());
+
+            // The keys are collected again for every select operation.
+            assertEquals(1, selector.select(1000));
+            assertEquals(1, keys.size());
+            assertEquals(1, selector.select());
+            assertEquals(1, keys.size());
+        } finally {
+            pipe.sink().close();
+            pipe.source().close();
+            selector.close();
+        }
+    }
+
+    @Test
+    public void testExceptionIsPropagated() throws Exception {
+        final Selector selector = new SelectedSelectionKeyConsumerSelector(
+                Selector.open(), new SelectedSelectionKeySet());
+        selector.close();
+        assertThrows(ClosedSelectorException.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                selector.selectNow();
+            }
+        });
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2022 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.pool;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.channel.pool.ChannelPoolTestUtils.getLocalAddrId;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EventLoopChannelPoolTest {
+    private EventLoopGroup group;
+    private EventLoop loop1;
+    private EventLoop loop2;
+    private Channel serverChannel;
+    private Bootstrap bootstrap;
+
+    @BeforeEach
+    public void setUp() {
+        group = new DefaultEventLoopGroup(2);
+        Iterator<?> loops = group.iterator();
+        loop1 = (EventLoop) loops.next();
+        loop2 = (EventLoop) loops.next();
+
+        LocalAddress addr = new LocalAddress(getLocalAddrId());
+        serverChannel = new ServerBootstrap().group(group).channel(LocalServerChannel.class)
+                .childHandler(new ChannelInitializer<LocalChannel>() {
+                    @Override
+                    public void initChannel(LocalChannel ch) {
+                        ch.pipeline().addLast(new ChannelInboundHandlerAdapter());
+                    }
+                })
+                .bind(addr).syncUninterruptibly().channel();
+        bootstrap = new Bootstrap().group(group).channel(LocalChannel.class).remoteAddress(addr);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        serverChannel.close().syncUninterruptibly();
+        group.shutdownGracefully();
+    }
+
+    private static Channel acquireOn(EventLoop loop, final ChannelPool pool) throws Exception {
+        return loop.submit(new Callable<Future<Channel>>() {
+            @Override
+            public Future<Channel> call() {
+                return pool.acquire();
+            }
+        }).get().syncUninterruptibly().getNow();
+    }
+
+    @Test
+    public void testAcquireReturnsChannelOfCallingEventLoop() throws Exception {
+        CountingChannelPoolHandler handler = new CountingChannelPoolHandler();
+        EventLoopChannelPool pool = new EventLoopChannelPool(bootstrap, handler, 2);
+
+        Channel ch1 = acquireOn(loop1, pool);
+        Channel ch2 = acquireOn(loop2, pool);
+        assertSame(loop1, ch1.eventLoop());
+        assertSame(loop2, ch2.eventLoop());
+        assertEquals(2, pool.channelCount());
+
+        pool.release(ch1).syncUninterruptibly();
+        pool.release(ch2).syncUninterruptibly();
+        assertEquals(2, pool.idleChannelCount());
+
+        // Reuses the idle Channel of the same EventLoop.
+        assertSame(ch2, acquireOn(loop2, pool));
+        assertEquals(2, handler.channelCount());
+        assertEquals(3, handler.acquiredCount());
+        assertEquals(2, handler.releasedCount());
+        pool.close();
+    }
+
+    @Test
+    public void testStealsIdleChannelOfOtherEventLoop() throws Exception {
+        CountingChannelPoolHandler handler = new CountingChannelPoolHandler();
+        EventLoopChannelPool pool = new EventLoopChannelPool(bootstrap, handler, 1);
+
+        Channel ch1 = acquireOn(loop1, pool);
+        Channel ch2 = acquireOn(loop2, pool);
+        pool.release(ch1).syncUninterruptibly();
+
+        // The sub-pool of loop2 is exhausted, so the idle Channel of loop1 is used.
+        Channel stolen = acquireOn(loop2, pool);
+        assertSame(ch1, stolen);
+        assertSame(loop1, stolen.eventLoop());
+        assertEquals(2, handler.channelCount());
+
+        // Releasing puts it back into the sub-pool of its own EventLoop.
+        pool.release(stolen).syncUninterruptibly();
+        assertSame(ch1, acquireOn(loop1, pool));
+        pool.release(ch2).syncUninterruptibly();
+        pool.close();
+    }
+
+    @Test
+    public void testPendingAcquireIsCompletedOnRelease() throws Exception {
+        CountingChannelPoolHandler handler = new CountingChannelPoolHandler();
+        final EventLoopChannelPool pool = new EventLoopChannelPool(bootstrap, handler, 1);
+
+        Channel ch1 = acquireOn(loop1, pool);
+        Channel ch2 = acquireOn(loop2, pool);
+        Future<Channel> pending = loop1.submit(new Callable<Future<Channel>>() {
+            @Override
+            public Future<Channel> call() {
+                return pool.acquire();
+            }
+        }).get();
+        Thread.sleep(100);
+        assertFalse(pending.isDone());
+
+        // Released on the other EventLoop, so the pending acquire needs to steal it.
+        pool.release(ch2).syncUninterruptibly();
+        assertTrue(pending.await(5, TimeUnit.SECONDS));
+        assertSame(ch2, pending.getNow());
+        assertEquals(2, handler.channelCount());
+
+        pool.release(ch1).syncUninterruptibly();
+        pool.release(ch2).syncUninterruptibly();
+        pool.close();
+    }
+
+    @Test
+    public void testClosedChannelFreesSlot() throws Exception {
+        EventLoopChannelPool pool = new EventLoopChannelPool(bootstrap, new CountingChannelPoolHandler(), 1);
+
+        Channel ch = acquireOn(loop1, pool);
+        ch.close().syncUninterruptibly();
+        pool.release(ch).syncUninterruptibly();
+
+        Channel ch2 = acquireOn(loop1, pool);
+        assertNotSame(ch, ch2);
+        assertSame(loop1, ch2.eventLoop());
+        assertEquals(1, pool.channelCount());
+        pool.close();
+    }
+
+    @Test
+    public void testIdleChannelsAreHealthCheckedInBatches() throws Exception {
+        final AtomicInteger checks = new AtomicInteger();
+        final AtomicInteger healthy = new AtomicInteger(1);
+        ChannelHealthChecker checker = new ChannelHealthChecker() {
+            @Override
+            public Future<Boolean> isHealthy(Channel channel) {
+                checks.incrementAndGet();
+                return channel.eventLoop().newSucceededFuture(healthy.get() == 1);
+            }
+        };
+        EventLoopChannelPool pool = new EventLoopChannelPool(
+                bootstrap, new CountingChannelPoolHandler(), checker, 2, 50, TimeUnit.MILLISECONDS);
+
+        Channel ch1 = acquireOn(loop1, pool);
+        Channel ch2 = acquireOn(loop1, pool);
+        pool.release(ch1).syncUninterruptibly();
+        assertSame(ch1, acquireOn(loop1, pool));
+        // No check on acquire or release.
+        assertEquals(0, checks.get());
+
+        pool.release(ch1).syncUninterruptibly();
+        pool.release(ch2).syncUninterruptibly();
+        healthy.set(0);
+        ch1.closeFuture().syncUninterruptibly();
+        ch2.closeFuture().syncUninterruptibly();
+        // Ensure the close listeners of the pool did run.
+        loop1.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).syncUninterruptibly();
+        assertTrue(checks.get() >= 2);
+        assertEquals(0, pool.idleChannelCount());
+        assertEquals(0, pool.channelCount());
+        pool.close();
+    }
+
+    @Test
+    public void testHealthCheckOnlyScheduledWhileIdle() throws Exception {
+        final Queue<ScheduledFuture<?>> healthChecks = new ConcurrentLinkedQueue<ScheduledFuture<?>>();
+        EventLoopGroup recordingGroup = new DefaultEventLoopGroup(1) {
+            @Override
+            protected EventLoop newChild(Executor executor, Object... args) {
+                return new DefaultEventLoop(this, executor) {
+                    @Override
+                    public ScheduledFuture<?> scheduleAtFixedRate(
+                            Runnable command, long initialDelay, long period, TimeUnit unit) {
+                        ScheduledFuture<?> future = super.scheduleAtFixedRate(command, initialDelay, period, unit);
+                        healthChecks.add(future);
+                        return future;
+                    }
+                };
+            }
+        };
+        try {
+            EventLoopChannelPool pool = new EventLoopChannelPool(bootstrap.clone(recordingGroup),
+                    new CountingChannelPoolHandler(), ChannelHealthChecker.ACTIVE, 1, 10, TimeUnit.MILLISECONDS);
+            // Nothing to check yet.
+            assertTrue(healthChecks.isEmpty());
+
+            EventLoop loop = recordingGroup.next();
+            Channel ch = acquireOn(loop, pool);
+            assertTrue(healthChecks.isEmpty());
+            pool.release(ch).syncUninterruptibly();
+            assertEquals(1, healthChecks.size());
+            ScheduledFuture<?> healthCheck = healthChecks.peek();
+            assertFalse(healthCheck.isDone());
+
+            // Once there are no idle Channels anymore the health check is cancelled.
+            assertSame(ch, acquireOn(loop, pool));
+            healthCheck.awaitUninterruptibly();
+            assertTrue(healthCheck.isCancelled());
+
+            // ... and scheduled again on the next release.
+            pool.release(ch).syncUninterruptibly();
+            assertEquals(2, healthChecks.size());
+            pool.close();
+            for (ScheduledFuture<?> future: healthChecks) {
+                assertTrue(future.isCancelled());
+            }
+        } finally {
+            recordingGroup.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testAcquireAfterCloseFails() {
+        EventLoopChannelPool pool = new EventLoopChannelPool(bootstrap, new CountingChannelPoolHandler(), 1);
+        pool.close();
+        Future<Channel> future = pool.acquire().awaitUninterruptibly();
+        assertTrue(future.cause() instanceof IllegalStateException);
+    }
+}
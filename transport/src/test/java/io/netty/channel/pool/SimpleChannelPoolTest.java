@@ -30,6 +30,8 @@ import org.hamcrest.CoreMatchers;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -398,4 +400,150 @@ public class SimpleChannelPoolTest {
         pool.close();
         group.shutdownGracefully();
     }
+
+    @Test
+    public void testMaintainIdleChannelsConnectsMinIdle() throws Exception {
+        LocalAddress addr = new LocalAddress(getLocalAddrId());
+        EventLoopGroup group = new DefaultEventLoopGroup();
+        Channel sc = newServer(group, addr, new LinkedBlockingQueue<Channel>());
+        CountingChannelPoolHandler handler = new CountingChannelPoolHandler();
+        SimpleChannelPool pool = new SimpleChannelPool(
+                new Bootstrap().channel(LocalChannel.class).group(group).remoteAddress(addr), handler);
+        try {
+            // Use a long interval and trigger the maintenance runs manually so the test is deterministic.
+            pool.maintainIdleChannels(2, 0, 0, TimeUnit.HOURS.toMillis(1), TimeUnit.MILLISECONDS);
+            awaitIdleChannels(pool, handler, 2);
+
+            // Acquiring must use the connected Channel.
+            Channel channel = pool.acquire().sync().getNow();
+            assertTrue(channel.isActive());
+            assertEquals(1, handler.acquiredCount());
+            assertEquals(2, handler.channelCount());
+
+            // Only one Channel is idle, so the next run needs to connect another one.
+            pool.runIdleMaintenance().sync();
+            awaitIdleChannels(pool, handler, 3);
+            pool.release(channel).sync();
+
+            // Enough Channels are idle, so no new ones should be connected.
+            pool.runIdleMaintenance().sync();
+            assertEquals(3, handler.channelCount());
+        } finally {
+            pool.close();
+            sc.close().sync();
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testMaintainIdleChannelsReplacesClosedChannels() throws Exception {
+        LocalAddress addr = new LocalAddress(getLocalAddrId());
+        EventLoopGroup group = new DefaultEventLoopGroup();
+        LinkedBlockingQueue<Channel> accepted = new LinkedBlockingQueue<Channel>();
+        Channel sc = newServer(group, addr, accepted);
+        CountingChannelPoolHandler handler = new CountingChannelPoolHandler();
+        SimpleChannelPool pool = new SimpleChannelPool(
+                new Bootstrap().channel(LocalChannel.class).group(group).remoteAddress(addr), handler);
+        try {
+            pool.maintainIdleChannels(1, 0, 0, TimeUnit.HOURS.toMillis(1), TimeUnit.MILLISECONDS);
+            awaitIdleChannels(pool, handler, 1);
+            Channel first = pool.acquire().sync().getNow();
+            pool.release(first).sync();
+
+            // Close the Channel from the remote side, the pool should connect a new one in the next run.
+            accepted.take().close().sync();
+            first.closeFuture().sync();
+            pool.runIdleMaintenance().sync();
+            awaitIdleChannels(pool, handler, 2);
+
+            Channel channel = pool.acquire().sync().getNow();
+            assertTrue(channel.isActive());
+            assertNotSame(first, channel);
+            assertEquals(2, handler.channelCount());
+            pool.release(channel).sync();
+        } finally {
+            pool.close();
+            sc.close().sync();
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testMaintainIdleChannelsClosesExpiredChannels() throws Exception {
+        LocalAddress addr = new LocalAddress(getLocalAddrId());
+        EventLoopGroup group = new DefaultEventLoopGroup();
+        Channel sc = newServer(group, addr, new LinkedBlockingQueue<Channel>());
+        CountingChannelPoolHandler handler = new CountingChannelPoolHandler();
+        SimpleChannelPool pool = new SimpleChannelPool(
+                new Bootstrap().channel(LocalChannel.class).group(group).remoteAddress(addr), handler);
+        try {
+            pool.maintainIdleChannels(1, 20, 0, TimeUnit.HOURS.toMillis(1), TimeUnit.MILLISECONDS);
+            awaitIdleChannels(pool, handler, 1);
+
+            List<Channel> channels = new ArrayList<Channel>();
+            for (int i = 0; i < 3; i++) {
+                channels.add(pool.acquire().sync().getNow());
+            }
+            for (Channel channel : channels) {
+                pool.release(channel).sync();
+            }
+            assertEquals(3, handler.channelCount());
+
+            // Let all Channels expire, the next run must close all but minIdle of them.
+            Thread.sleep(50);
+            pool.runIdleMaintenance().sync();
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            int active = countActive(channels);
+            while (active > 1 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+                active = countActive(channels);
+            }
+            assertEquals(1, active);
+            assertEquals(3, handler.channelCount());
+
+            Channel channel = pool.acquire().sync().getNow();
+            assertTrue(channel.isActive());
+            pool.release(channel).sync();
+        } finally {
+            pool.close();
+            sc.close().sync();
+            group.shutdownGracefully();
+        }
+    }
+
+    private static int countActive(List<Channel> channels) {
+        int active = 0;
+        for (Channel channel : channels) {
+            if (channel.isActive()) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    private static Channel newServer(EventLoopGroup group, LocalAddress addr, final Queue<Channel> accepted)
+            throws InterruptedException {
+        return new ServerBootstrap()
+                .group(group)
+                .channel(LocalServerChannel.class)
+                .childHandler(new ChannelInitializer<LocalChannel>() {
+                    @Override
+                    protected void initChannel(LocalChannel ch) {
+                        accepted.add(ch);
+                    }
+                }).bind(addr).sync().channel();
+    }
+
+    private static void awaitIdleChannels(SimpleChannelPool pool, CountingChannelPoolHandler handler, int expected)
+            throws InterruptedException {
+        // Wait until the Channels were connected and offered to the pool.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((handler.channelCount() < expected || pool.pendingIdleConnects() > 0) &&
+                System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, handler.channelCount());
+        assertEquals(0, pool.pendingIdleConnects());
+    }
 }